@@ -0,0 +1,117 @@
+package org.voovan.benchmark;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 性能测试使用的业务对象
+ *
+ * @author: helyho
+ * Voovan Framework.
+ * WebSite: https://github.com/helyho/Voovan
+ * Licence: Apache v2 License
+ */
+public class BenchObject implements Serializable {
+    private int id;
+    private String name;
+    private long createTime;
+    private double score;
+    private boolean enable;
+    private BigDecimal amount;
+    private Date updateTime;
+    private List<String> tags = new ArrayList<String>();
+    private Map<String, Integer> counters = new HashMap<String, Integer>();
+
+    public static BenchObject create(int id) {
+        BenchObject benchObject = new BenchObject();
+        benchObject.id = id;
+        benchObject.name = "bench-" + id;
+        benchObject.createTime = 1577808000000L + id;
+        benchObject.score = id * 1.5;
+        benchObject.enable = id % 2 == 0;
+        benchObject.amount = new BigDecimal("1024.25");
+        benchObject.updateTime = new Date(benchObject.createTime);
+        benchObject.tags.add("voovan");
+        benchObject.tags.add("benchmark");
+        benchObject.counters.put("read", id);
+        benchObject.counters.put("write", id * 2);
+        return benchObject;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public long getCreateTime() {
+        return createTime;
+    }
+
+    public void setCreateTime(long createTime) {
+        this.createTime = createTime;
+    }
+
+    public double getScore() {
+        return score;
+    }
+
+    public void setScore(double score) {
+        this.score = score;
+    }
+
+    public boolean isEnable() {
+        return enable;
+    }
+
+    public void setEnable(boolean enable) {
+        this.enable = enable;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public void setAmount(BigDecimal amount) {
+        this.amount = amount;
+    }
+
+    public Date getUpdateTime() {
+        return updateTime;
+    }
+
+    public void setUpdateTime(Date updateTime) {
+        this.updateTime = updateTime;
+    }
+
+    public List<String> getTags() {
+        return tags;
+    }
+
+    public void setTags(List<String> tags) {
+        this.tags = tags;
+    }
+
+    public Map<String, Integer> getCounters() {
+        return counters;
+    }
+
+    public void setCounters(Map<String, Integer> counters) {
+        this.counters = counters;
+    }
+}
@@ -0,0 +1,81 @@
+package org.voovan.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.voovan.tools.buffer.ByteBufferChannel;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ByteBufferChannel 读写的性能测试
+ *
+ * @author: helyho
+ * Voovan Framework.
+ * WebSite: https://github.com/helyho/Voovan
+ * Licence: Apache v2 License
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ByteBufferChannelBenchmark {
+    private static final byte[] LINE_MARK = "\r\n".getBytes();
+
+    @Param({"64", "1024", "16384"})
+    public int size;
+
+    private ByteBufferChannel byteBufferChannel;
+    private ByteBuffer source;
+    private ByteBuffer target;
+    private ByteBuffer lines;
+
+    @Setup
+    public void setup() {
+        byteBufferChannel = new ByteBufferChannel(size * 2);
+        source = ByteBuffer.allocateDirect(size);
+        target = ByteBuffer.allocateDirect(size);
+
+        StringBuilder stringBuilder = new StringBuilder();
+        while(stringBuilder.length() < size) {
+            stringBuilder.append("Header-Name: header value\r\n");
+        }
+        lines = ByteBuffer.wrap(stringBuilder.toString().getBytes());
+    }
+
+    @TearDown
+    public void tearDown() {
+        byteBufferChannel.release();
+    }
+
+    @Benchmark
+    public int writeEndReadHead() {
+        source.clear();
+        byteBufferChannel.writeEnd(source);
+        target.clear();
+        return byteBufferChannel.readHead(target);
+    }
+
+    @Benchmark
+    public int writeHeadReadEnd() {
+        source.clear();
+        byteBufferChannel.writeHead(source);
+        target.clear();
+        return byteBufferChannel.readEnd(target);
+    }
+
+    @Benchmark
+    public int indexOfAndReadLine() {
+        lines.clear();
+        byteBufferChannel.writeEnd(lines);
+
+        int count = 0;
+        while(byteBufferChannel.indexOf(LINE_MARK) >= 0) {
+            byteBufferChannel.readLine();
+            count++;
+        }
+        byteBufferChannel.clear();
+        return count;
+    }
+}
@@ -0,0 +1,77 @@
+package org.voovan.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.voovan.tools.collection.CacheMap;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CacheMap 读写的性能测试
+ *
+ * @author: helyho
+ * Voovan Framework.
+ * WebSite: https://github.com/helyho/Voovan
+ * Licence: Apache v2 License
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CacheMapBenchmark {
+    private static final int KEY_SIZE = 4096;
+
+    private CacheMap<String, BenchObject> cacheMap;
+    private CacheMap<String, BenchObject> supplierCacheMap;
+    private String[] keys;
+
+    @Setup
+    public void setup() {
+        keys = new String[KEY_SIZE];
+        for(int i=0; i<KEY_SIZE; i++) {
+            keys[i] = "key_" + i;
+        }
+
+        cacheMap = new CacheMap<String, BenchObject>().maxSize(KEY_SIZE).create();
+        for(String key : keys) {
+            cacheMap.put(key, BenchObject.create(key.length()));
+        }
+
+        supplierCacheMap = new CacheMap<String, BenchObject>().maxSize(KEY_SIZE / 2)
+                .supplier(key -> BenchObject.create(key.length())).create();
+    }
+
+    @TearDown
+    public void tearDown() {
+        cacheMap.clear();
+        supplierCacheMap.clear();
+    }
+
+    private String randomKey() {
+        return keys[ThreadLocalRandom.current().nextInt(KEY_SIZE)];
+    }
+
+    @Benchmark
+    public BenchObject get() {
+        return cacheMap.get(randomKey());
+    }
+
+    @Benchmark
+    public BenchObject put() {
+        String key = randomKey();
+        return cacheMap.put(key, BenchObject.create(key.length()));
+    }
+
+    @Benchmark
+    public BenchObject getWithSupplier() {
+        return supplierCacheMap.get(randomKey());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public BenchObject getContended() {
+        return cacheMap.get(randomKey());
+    }
+}
@@ -0,0 +1,57 @@
+package org.voovan.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.voovan.tools.hashwheeltimer.HashWheelTask;
+import org.voovan.tools.hashwheeltimer.HashWheelTimer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HashWheelTimer 任务增加和取消的性能测试
+ *      时间轮不启动轮转, 只测试任务的调度开销
+ *
+ * @author: helyho
+ * Voovan Framework.
+ * WebSite: https://github.com/helyho/Voovan
+ * Licence: Apache v2 License
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HashWheelTimerBenchmark {
+    private HashWheelTimer hashWheelTimer;
+
+    @Setup
+    public void setup() {
+        hashWheelTimer = new HashWheelTimer("Benchmark", 60, 1000);
+
+        //常驻任务, 模拟系统中已存在的定时任务
+        for(int i=1; i<=1000; i++) {
+            hashWheelTimer.addTask(new HashWheelTask() {
+                @Override
+                public void run() {
+                }
+            }, i % 120 + 1);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        hashWheelTimer.clear();
+        hashWheelTimer.cancel();
+    }
+
+    @Benchmark
+    public boolean addAndCancel() {
+        HashWheelTask hashWheelTask = new HashWheelTask() {
+            @Override
+            public void run() {
+            }
+        };
+        hashWheelTimer.addTask(hashWheelTask, 30);
+        return hashWheelTask.cancel();
+    }
+}
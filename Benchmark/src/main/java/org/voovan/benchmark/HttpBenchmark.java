@@ -0,0 +1,130 @@
+package org.voovan.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.voovan.http.message.HttpParser;
+import org.voovan.http.message.Request;
+import org.voovan.http.message.Response;
+import org.voovan.http.server.HttpDispatcher;
+import org.voovan.http.server.HttpRequest;
+import org.voovan.http.server.SessionManager;
+import org.voovan.http.server.context.WebServerConfig;
+import org.voovan.network.IoSession;
+import org.voovan.network.tcp.TcpSocket;
+import org.voovan.tools.buffer.ByteBufferChannel;
+import org.voovan.tools.reflect.TReflect;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Http 报文解析, 响应发送和路由匹配的性能测试
+ *
+ * @author: helyho
+ * Voovan Framework.
+ * WebSite: https://github.com/helyho/Voovan
+ * Licence: Apache v2 License
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HttpBenchmark {
+    private static final byte[] REQUEST_BYTES = ("GET /api/user/1024/profile?name=voovan&type=json HTTP/1.1\r\n" +
+            "Host: 127.0.0.1:28080\r\n" +
+            "Connection: keep-alive\r\n" +
+            "User-Agent: Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/80.0 Safari/537.36\r\n" +
+            "Accept: text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8\r\n" +
+            "Accept-Encoding: gzip, deflate\r\n" +
+            "Accept-Language: zh-CN,zh;q=0.9,en;q=0.8\r\n" +
+            "Cookie: SESSIONID=1f2e3d4c5b6a; theme=dark\r\n" +
+            "\r\n").getBytes();
+
+    private static final byte[] POST_BYTES = ("POST /api/user/1024 HTTP/1.1\r\n" +
+            "Host: 127.0.0.1:28080\r\n" +
+            "Connection: keep-alive\r\n" +
+            "Content-Type: application/x-www-form-urlencoded\r\n" +
+            "Content-Length: 40\r\n" +
+            "\r\n" +
+            "name=voovan&age=10&address=HangZhou&ok=1").getBytes();
+
+    private static final String[] ROUTE_PATHS = new String[]{
+            "/api/user/1024/profile", "/api/order/20/items", "/index", "/api/user/1024",
+            "/api/goods/7/detail", "/api/order/20", "/static/js/app.js", "/not/exists"
+    };
+
+    private ByteBufferChannel byteBufferChannel;
+    private IoSession session;
+    private Response response;
+    private HttpDispatcher httpDispatcher;
+    private HttpRequest[] httpRequests;
+    private int routeIndex = 0;
+
+    @Setup
+    public void setup() throws Exception {
+        byteBufferChannel = new ByteBufferChannel(4096);
+
+        //未连接的 TcpSocket 会话, 发送的数据只写入会话的发送缓冲区
+        TcpSocket tcpSocket = new TcpSocket("127.0.0.1", 28080, 1000);
+        TReflect.invokeMethod(tcpSocket, "init");
+        session = tcpSocket.getSession();
+        response = new Response();
+
+        WebServerConfig webServerConfig = new WebServerConfig();
+        httpDispatcher = new HttpDispatcher(webServerConfig, SessionManager.newInstance(webServerConfig));
+        String[] resources = new String[]{"user", "order", "goods", "cart", "address", "coupon", "payment", "message"};
+        for(String resource : resources) {
+            httpDispatcher.addRouteHandler("GET", "/api/" + resource + "/:id", (request, response) -> {});
+            httpDispatcher.addRouteHandler("GET", "/api/" + resource + "/:id/profile", (request, response) -> {});
+            httpDispatcher.addRouteHandler("GET", "/api/" + resource + "/:id/items", (request, response) -> {});
+            httpDispatcher.addRouteHandler("GET", "/api/" + resource + "/:id/detail", (request, response) -> {});
+        }
+        httpDispatcher.addRouteHandler("GET", "/index", (request, response) -> {});
+
+        httpRequests = new HttpRequest[ROUTE_PATHS.length];
+        for(int i=0; i<ROUTE_PATHS.length; i++) {
+            Request request = new Request();
+            request.protocol().setMethod("GET");
+            request.protocol().setPath(ROUTE_PATHS[i]);
+            httpRequests[i] = new HttpRequest(request, "UTF-8", null);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        byteBufferChannel.release();
+        session.getSendByteBufferChannel().release();
+    }
+
+    @Benchmark
+    public Request parseGetRequest() throws IOException {
+        byteBufferChannel.writeEnd(ByteBuffer.wrap(REQUEST_BYTES));
+        return HttpParser.parseRequest(null, byteBufferChannel, 1000, -1);
+    }
+
+    @Benchmark
+    public Request parsePostRequest() throws IOException {
+        byteBufferChannel.writeEnd(ByteBuffer.wrap(POST_BYTES));
+        return HttpParser.parseRequest(null, byteBufferChannel, 1000, -1);
+    }
+
+    @Benchmark
+    public long sendResponse() throws IOException {
+        response.header().put("Content-Type", "application/json");
+        response.body().write("{\"id\":1024,\"name\":\"voovan\",\"tags\":[\"web\",\"framework\"]}");
+        response.send(session);
+
+        ByteBufferChannel sendByteBufferChannel = session.getSendByteBufferChannel();
+        long size = sendByteBufferChannel.size();
+        sendByteBufferChannel.clear();
+        return size;
+    }
+
+    @Benchmark
+    public Object findRouter() {
+        routeIndex = (routeIndex + 1) % httpRequests.length;
+        return httpDispatcher.findRouter(httpRequests[routeIndex]);
+    }
+}
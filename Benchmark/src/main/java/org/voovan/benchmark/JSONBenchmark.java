@@ -0,0 +1,61 @@
+package org.voovan.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.voovan.tools.json.JSON;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON 序列化和反序列化的性能测试
+ *
+ * @author: helyho
+ * Voovan Framework.
+ * WebSite: https://github.com/helyho/Voovan
+ * Licence: Apache v2 License
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JSONBenchmark {
+    private BenchObject benchObject;
+    private List<BenchObject> benchObjects;
+    private String json;
+    private String listJson;
+
+    @Setup
+    public void setup() {
+        benchObject = BenchObject.create(1024);
+        benchObjects = new ArrayList<BenchObject>();
+        for(int i=0; i<20; i++) {
+            benchObjects.add(BenchObject.create(i));
+        }
+
+        json = JSON.toJSON(benchObject);
+        listJson = JSON.toJSON(benchObjects);
+    }
+
+    @Benchmark
+    public String toJSON() {
+        return JSON.toJSON(benchObject);
+    }
+
+    @Benchmark
+    public String toJSONList() {
+        return JSON.toJSON(benchObjects);
+    }
+
+    @Benchmark
+    public BenchObject toObject() {
+        return JSON.toObject(json, BenchObject.class);
+    }
+
+    @Benchmark
+    public Object parse() {
+        return JSON.parse(listJson);
+    }
+}
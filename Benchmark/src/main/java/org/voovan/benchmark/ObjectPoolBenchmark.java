@@ -0,0 +1,57 @@
+package org.voovan.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.voovan.tools.pool.ObjectPool;
+import org.voovan.tools.pool.PooledObject;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ObjectPool 借出和归还的性能测试
+ *
+ * @author: helyho
+ * Voovan Framework.
+ * WebSite: https://github.com/helyho/Voovan
+ * Licence: Apache v2 License
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ObjectPoolBenchmark {
+
+    public static class PooledBuffer extends PooledObject {
+        private byte[] buffer = new byte[128];
+    }
+
+    private ObjectPool<PooledBuffer> objectPool;
+
+    @Setup
+    public void setup() {
+        objectPool = new ObjectPool<PooledBuffer>().minSize(16).maxSize(64).supplier(PooledBuffer::new).create();
+    }
+
+    @TearDown
+    public void tearDown() {
+        objectPool.clear();
+    }
+
+    private PooledBuffer borrowAndRestitution() {
+        PooledBuffer pooledBuffer = objectPool.borrow();
+        objectPool.restitution(pooledBuffer);
+        return pooledBuffer;
+    }
+
+    @Benchmark
+    public PooledBuffer borrow() {
+        return borrowAndRestitution();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public PooledBuffer borrowContended() {
+        return borrowAndRestitution();
+    }
+}
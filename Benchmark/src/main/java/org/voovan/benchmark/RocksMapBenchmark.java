@@ -0,0 +1,59 @@
+package org.voovan.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.voovan.tools.collection.RocksMap;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RocksMap 读写的性能测试
+ *      数据库保存在 RocksMap 的默认路径下, 每次测试前覆盖写入全部测试数据
+ *
+ * @author: helyho
+ * Voovan Framework.
+ * WebSite: https://github.com/helyho/Voovan
+ * Licence: Apache v2 License
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RocksMapBenchmark {
+    private static final int KEY_SIZE = 10000;
+
+    private RocksMap<String, BenchObject> rocksMap;
+    private String[] keys;
+
+    @Setup
+    public void setup() {
+        rocksMap = new RocksMap<String, BenchObject>("benchmark", "benchmarkCF");
+        keys = new String[KEY_SIZE];
+        for(int i=0; i<KEY_SIZE; i++) {
+            keys[i] = "key_" + i;
+            rocksMap.put(keys[i], BenchObject.create(i));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        rocksMap.close();
+    }
+
+    private int randomIndex() {
+        return ThreadLocalRandom.current().nextInt(KEY_SIZE);
+    }
+
+    @Benchmark
+    public BenchObject get() {
+        return rocksMap.get(keys[randomIndex()]);
+    }
+
+    @Benchmark
+    public Object put() {
+        int index = randomIndex();
+        return rocksMap.put(keys[index], BenchObject.create(index));
+    }
+}
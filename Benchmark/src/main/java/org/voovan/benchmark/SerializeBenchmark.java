@@ -0,0 +1,71 @@
+package org.voovan.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.voovan.tools.serialize.BinarySerialize;
+import org.voovan.tools.serialize.DefaultJDKSerialize;
+import org.voovan.tools.serialize.DefaultJSONSerialize;
+import org.voovan.tools.serialize.ProtoStuffSerialize;
+import org.voovan.tools.serialize.Serialize;
+import org.voovan.tools.serialize.TSerialize;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TSerialize 各序列化实现的性能测试
+ *
+ * @author: helyho
+ * Voovan Framework.
+ * WebSite: https://github.com/helyho/Voovan
+ * Licence: Apache v2 License
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializeBenchmark {
+
+    @Param({"JDK", "JSON", "ProtoStuff", "Binary"})
+    public String serializeType;
+
+    private BenchObject benchObject;
+    private byte[] bytes;
+
+    @Setup
+    public void setup() {
+        Serialize serialize = null;
+        switch (serializeType) {
+            case "JDK" : serialize = new DefaultJDKSerialize(); break;
+            case "JSON" : serialize = new DefaultJSONSerialize(); break;
+            case "ProtoStuff" : serialize = new ProtoStuffSerialize(); break;
+            case "Binary" : serialize = new BinarySerialize(); break;
+        }
+
+        TSerialize.SERIALIZE = serialize;
+        benchObject = BenchObject.create(1024);
+        bytes = TSerialize.serialize(benchObject);
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadBuffer {
+        ByteBuffer byteBuffer = ByteBuffer.allocateDirect(4096);
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return TSerialize.serialize(benchObject);
+    }
+
+    @Benchmark
+    public int serializeToByteBuffer(ThreadBuffer threadBuffer) {
+        threadBuffer.byteBuffer.clear();
+        return TSerialize.serialize(benchObject, threadBuffer.byteBuffer);
+    }
+
+    @Benchmark
+    public Object unserialize() {
+        return TSerialize.unserialize(bytes);
+    }
+}
@@ -0,0 +1,93 @@
+package org.voovan.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.voovan.tools.TSQL;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TSQL 结果集到对象映射的性能测试
+ *      使用动态代理模拟的 ResultSet, 不依赖数据库
+ *
+ * @author: helyho
+ * Voovan Framework.
+ * WebSite: https://github.com/helyho/Voovan
+ * Licence: Apache v2 License
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TSQLBenchmark {
+    private static final int ROW_COUNT = 100;
+
+    private static final String[] COLUMN_LABELS = {"id", "name", "create_time", "score", "enable", "amount", "update_time"};
+    private static final int[] COLUMN_TYPES = {Types.INTEGER, Types.VARCHAR, Types.BIGINT, Types.DOUBLE, Types.BOOLEAN, Types.DECIMAL, Types.TIMESTAMP};
+
+    private Object[][] rows;
+    private int cursor;
+    private ResultSet resultSet;
+
+    @Setup
+    public void setup() {
+        rows = new Object[ROW_COUNT][];
+        for(int i=0; i<ROW_COUNT; i++) {
+            rows[i] = new Object[]{i, "bench-" + i, 1577808000000L + i, i * 1.5, i % 2 == 0,
+                    new BigDecimal("1024.25"), new Timestamp(1577808000000L + i)};
+        }
+
+        ResultSetMetaData metaData = (ResultSetMetaData) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[]{ResultSetMetaData.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getColumnCount": return COLUMN_LABELS.length;
+                        case "getColumnLabel":
+                        case "getColumnName": return COLUMN_LABELS[(Integer) args[0] - 1];
+                        case "getColumnType": return COLUMN_TYPES[(Integer) args[0] - 1];
+                        default: throw new SQLException("Unsupported operation: " + method.getName());
+                    }
+                });
+
+        resultSet = (ResultSet) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[]{ResultSet.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "next": return ++cursor < ROW_COUNT;
+                        case "getMetaData": return metaData;
+                        case "close": return null;
+                        default: {
+                            //getXXX(String columnLabel) 按列名读取当前行的值
+                            if(method.getName().startsWith("get") && args != null && args.length == 1 && args[0] instanceof String) {
+                                for(int i=0; i<COLUMN_LABELS.length; i++) {
+                                    if(COLUMN_LABELS[i].equals(args[0])) {
+                                        return rows[cursor][i];
+                                    }
+                                }
+                                return null;
+                            }
+                            throw new SQLException("Unsupported operation: " + method.getName());
+                        }
+                    }
+                });
+    }
+
+    @Benchmark
+    public Object getOneRowWithObject() throws Exception {
+        cursor = 0;
+        return TSQL.getOneRowWithObject(BenchObject.class, resultSet);
+    }
+
+    @Benchmark
+    public List<Object> getAllRowWithObjectList() throws Exception {
+        cursor = -1;
+        return TSQL.getAllRowWithObjectList(BenchObject.class, resultSet);
+    }
+}
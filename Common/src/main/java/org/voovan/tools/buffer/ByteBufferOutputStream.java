@@ -0,0 +1,44 @@
+package org.voovan.tools.buffer;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * 写入 ByteBuffer 的输出流
+ *      数据从 ByteBuffer 的 position 开始写入, ByteBuffer 空间不足时抛出 BufferOverflowException
+ *
+ * @author helyho
+ *
+ * Voovan Framework.
+ * WebSite: https://github.com/helyho/Voovan
+ * Licence: Apache v2 License
+ */
+public class ByteBufferOutputStream extends OutputStream {
+    private ByteBuffer byteBuffer;
+
+    /**
+     * 构造函数
+     * @param byteBuffer 写入的目标 ByteBuffer
+     */
+    public ByteBufferOutputStream(ByteBuffer byteBuffer) {
+        this.byteBuffer = byteBuffer;
+    }
+
+    /**
+     * 获取写入的目标 ByteBuffer
+     * @return ByteBuffer 对象
+     */
+    public ByteBuffer getByteBuffer() {
+        return byteBuffer;
+    }
+
+    @Override
+    public void write(int b) {
+        byteBuffer.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        byteBuffer.put(b, off, len);
+    }
+}
@@ -0,0 +1,210 @@
+package org.voovan.tools.buffer;
+
+import org.voovan.tools.TUnsafe;
+import sun.misc.Unsafe;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 堆外内存的 Slab 分配器
+ *      按 2 的幂划分内存块大小, 每个大小的内存块从按页申请的大块堆外内存中切分,
+ *      释放的内存块进入对应大小的空闲列表中复用, 大于页大小的内存直接向系统申请
+ *
+ * @author: helyho
+ * Voovan Framework.
+ * WebSite: https://github.com/helyho/Voovan
+ * Licence: Apache v2 License
+ */
+public class SlabAllocator {
+    private static final Unsafe UNSAFE = TUnsafe.getUnsafe();
+
+    public static final int MIN_BLOCK_SHIFT = 5;
+    public static final int DEFAULT_PAGE_SIZE = 1024 * 1024;
+
+    private final int pageSize;
+    private final SlabClass[] slabClasses;
+    private final Set<Long> largeBlocks = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong reservedBytes = new AtomicLong(0);
+    private final AtomicLong usedBytes = new AtomicLong(0);
+
+    /**
+     * 构造函数
+     */
+    public SlabAllocator() {
+        this(DEFAULT_PAGE_SIZE);
+    }
+
+    /**
+     * 构造函数
+     * @param pageSize 每次向系统申请的内存页大小, 会被调整为 2 的幂
+     */
+    public SlabAllocator(int pageSize) {
+        int pageShift = 32 - Integer.numberOfLeadingZeros(Math.max(pageSize, 1 << MIN_BLOCK_SHIFT) - 1);
+        this.pageSize = 1 << pageShift;
+        this.slabClasses = new SlabClass[pageShift - MIN_BLOCK_SHIFT + 1];
+        for (int i = 0; i < slabClasses.length; i++) {
+            slabClasses[i] = new SlabClass(1 << (i + MIN_BLOCK_SHIFT));
+        }
+    }
+
+    /**
+     * 获取内存页大小
+     * @return 内存页大小
+     */
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * 获取已向系统申请的内存大小
+     * @return 内存大小
+     */
+    public long getReservedBytes() {
+        return reservedBytes.get();
+    }
+
+    /**
+     * 获取已分配出去的内存块的大小
+     * @return 内存大小
+     */
+    public long getUsedBytes() {
+        return usedBytes.get();
+    }
+
+    /**
+     * 计算指定大小实际占用的内存块大小
+     * @param size 需要的内存大小
+     * @return 内存块大小
+     */
+    public int blockSize(int size) {
+        if (size > pageSize) {
+            return size;
+        }
+        return 1 << classShift(size);
+    }
+
+    /**
+     * 分配内存块
+     * @param size 需要的内存大小
+     * @return 内存地址
+     */
+    public long allocate(int size) {
+        if (size > pageSize) {
+            long address = UNSAFE.allocateMemory(size);
+            largeBlocks.add(address);
+            reservedBytes.addAndGet(size);
+            usedBytes.addAndGet(size);
+            return address;
+        }
+
+        SlabClass slabClass = slabClasses[classShift(size) - MIN_BLOCK_SHIFT];
+        usedBytes.addAndGet(slabClass.blockSize);
+        return slabClass.allocate();
+    }
+
+    /**
+     * 释放内存块
+     * @param address 内存地址
+     * @param size 分配时使用的内存大小
+     */
+    public void free(long address, int size) {
+        if (size > pageSize) {
+            if (largeBlocks.remove(address)) {
+                UNSAFE.freeMemory(address);
+                reservedBytes.addAndGet(-size);
+                usedBytes.addAndGet(-size);
+            }
+            return;
+        }
+
+        SlabClass slabClass = slabClasses[classShift(size) - MIN_BLOCK_SHIFT];
+        usedBytes.addAndGet(-slabClass.blockSize);
+        slabClass.free(address);
+    }
+
+    /**
+     * 释放所有向系统申请的内存
+     *      调用后所有已分配的地址均不可再访问
+     */
+    public void release() {
+        for (SlabClass slabClass : slabClasses) {
+            slabClass.release();
+        }
+
+        for (Long address : largeBlocks) {
+            UNSAFE.freeMemory(address);
+        }
+        largeBlocks.clear();
+
+        reservedBytes.set(0);
+        usedBytes.set(0);
+    }
+
+    private static int classShift(int size) {
+        return Math.max(MIN_BLOCK_SHIFT, 32 - Integer.numberOfLeadingZeros(size - 1));
+    }
+
+    /**
+     * 同一大小内存块的分配单元
+     */
+    private class SlabClass {
+        private final int blockSize;
+
+        private long[] pages = new long[4];
+        private int pageCount = 0;
+        private long pageOffset = pageSize;
+
+        private long[] freeBlocks = new long[16];
+        private int freeCount = 0;
+
+        private SlabClass(int blockSize) {
+            this.blockSize = blockSize;
+        }
+
+        private synchronized long allocate() {
+            if (freeCount > 0) {
+                return freeBlocks[--freeCount];
+            }
+
+            if (pageOffset + blockSize > pageSize) {
+                long page = UNSAFE.allocateMemory(pageSize);
+                reservedBytes.addAndGet(pageSize);
+
+                if (pageCount == pages.length) {
+                    long[] newPages = new long[pages.length * 2];
+                    System.arraycopy(pages, 0, newPages, 0, pageCount);
+                    pages = newPages;
+                }
+                pages[pageCount++] = page;
+                pageOffset = 0;
+            }
+
+            long address = pages[pageCount - 1] + pageOffset;
+            pageOffset += blockSize;
+            return address;
+        }
+
+        private synchronized void free(long address) {
+            if (freeCount == freeBlocks.length) {
+                long[] newFreeBlocks = new long[freeBlocks.length * 2];
+                System.arraycopy(freeBlocks, 0, newFreeBlocks, 0, freeCount);
+                freeBlocks = newFreeBlocks;
+            }
+            freeBlocks[freeCount++] = address;
+        }
+
+        private synchronized void release() {
+            for (int i = 0; i < pageCount; i++) {
+                UNSAFE.freeMemory(pages[i]);
+            }
+            pages = new long[4];
+            pageCount = 0;
+            pageOffset = pageSize;
+            freeBlocks = new long[16];
+            freeCount = 0;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package org.voovan.tools.collection;
 
+import org.voovan.Global;
 import org.voovan.tools.TEnv;
 import org.voovan.tools.hashwheeltimer.HashWheelTask;
 import org.voovan.tools.hashwheeltimer.HashWheelTimer;
@@ -9,15 +10,17 @@ import org.voovan.tools.reflect.annotation.NotSerialization;
 import java.util.Collection;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 
 /**
  * 进程内缓存处理类
- *      可字发现对象,在对象没有时自动同步对象到缓存,具备超时, 按照 LRU 的原则清理过期数据
+ *      可字发现对象,在对象没有时自动同步对象到缓存,具备超时, 按照 W-TinyLFU 的原则淘汰超出容量的数据
  *
  * @author: helyho
  * DBase Framework.
@@ -33,6 +36,7 @@ public class CacheMap<K,V> implements ICacheMap<K, V> {
     private BiFunction<K, V, Long> destory;
 
     private long expire = 0;
+    private double refreshAhead = 0;
 
     static {
         CACHE_MAP_WHEEL_TIMER.rotate();
@@ -40,7 +44,13 @@ public class CacheMap<K,V> implements ICacheMap<K, V> {
 
     private Map<K, V> cacheData = null;
     private ConcurrentHashMap<K, TimeMark> cacheMark = new ConcurrentHashMap<K, TimeMark>();
+    private ConcurrentHashMap<K, CompletableFuture<V>> loadingFutures = new ConcurrentHashMap<K, CompletableFuture<V>>();
     private int maxSize;
+    private WindowTinyLFU<K> evictPolicy;
+
+    private LongAdder hitCount = new LongAdder();
+    private LongAdder missCount = new LongAdder();
+    private LongAdder evictCount = new LongAdder();
 
     /**
      * 构造函数
@@ -48,8 +58,8 @@ public class CacheMap<K,V> implements ICacheMap<K, V> {
      * @param maxSize 最大元素数量
      */
     public CacheMap(Map<K, V> map, int maxSize){
-        this.maxSize = maxSize;
         this.cacheData = map;
+        maxSize(maxSize);
     }
 
     /**
@@ -57,8 +67,8 @@ public class CacheMap<K,V> implements ICacheMap<K, V> {
      * @param maxSize 缓存集合的最大容量, 多余的数据会被移除
      */
     public CacheMap(Integer maxSize){
-        this.maxSize = maxSize == null ? Integer.MAX_VALUE : maxSize;
-        this.cacheData = new ConcurrentHashMap<K, V>(maxSize);
+        this.cacheData = maxSize == null ? new ConcurrentHashMap<K, V>() : new ConcurrentHashMap<K, V>(maxSize);
+        maxSize(maxSize == null ? Integer.MAX_VALUE : maxSize);
     }
 
     /**
@@ -113,9 +123,59 @@ public class CacheMap<K,V> implements ICacheMap<K, V> {
      */
     public CacheMap<K, V> maxSize(int maxSize) {
         this.maxSize = maxSize;
+
+        //不限制容量时无需维护淘汰策略
+        if(maxSize == Integer.MAX_VALUE) {
+            if(evictPolicy != null) {
+                evictPolicy.clear();
+                evictPolicy = null;
+            }
+        } else if(evictPolicy == null) {
+            WindowTinyLFU<K> policy = new WindowTinyLFU<K>(maxSize);
+            for(TimeMark<K> timeMark : cacheMark.values()) {
+                policy.onAdd(timeMark);
+            }
+            evictPolicy = policy;
+        } else {
+            evictPolicy.setMaximum(maxSize);
+        }
         return this;
     }
 
+    /**
+     * 获取命中次数
+     * @return 命中次数
+     */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * 获取未命中次数
+     * @return 未命中次数
+     */
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * 获取因超出容量被淘汰的次数
+     * @return 淘汰次数
+     */
+    public long getEvictCount() {
+        return evictCount.sum();
+    }
+
+    /**
+     * 获取命中率
+     * @return 命中率, 没有任何访问时返回 1
+     */
+    public double getHitRate() {
+        long hit = hitCount.sum();
+        long total = hit + missCount.sum();
+        return total == 0 ? 1.0 : (double) hit / total;
+    }
+
     /**
      * 设置最失效对象检查周期
      * @param interval 检查周期, 单位:秒, 小于零不做超时处理
@@ -154,6 +214,25 @@ public class CacheMap<K,V> implements ICacheMap<K, V> {
         return this;
     }
 
+    /**
+     * 获取提前刷新的比例
+     * @return 提前刷新的比例
+     */
+    public double getRefreshAhead() {
+        return refreshAhead;
+    }
+
+    /**
+     * 设置提前刷新的比例
+     *      访问时剩余存活时间低于超时时间的这个比例, 则通过 supplier 异步刷新数据, 访问线程直接返回当前数据
+     * @param refreshAhead 提前刷新的比例, 取值范围 0-1, 0: 不提前刷新
+     * @return CachedHashMap 对象
+     */
+    public CacheMap<K, V> refreshAhead(double refreshAhead) {
+        this.refreshAhead = refreshAhead;
+        return this;
+    }
+
     /**
      * 获取缓存标记对象
      * @return 缓存数据标记的键值对
@@ -226,7 +305,7 @@ public class CacheMap<K,V> implements ICacheMap<K, V> {
                 }
 
             } else if (getSupplier() != null) {
-                createCache(timeMark.getKey(), supplier, timeMark.getExpireTime());
+                createCache(timeMark.getKey(), supplier, timeMark.getExpireTime(), false);
                 timeMark.refresh(true);
                 return false;
             }
@@ -237,27 +316,81 @@ public class CacheMap<K,V> implements ICacheMap<K, V> {
         return false;
     }
 
-    private void createCache(K key, Function<K, V> supplier, Long createExpire){
+    /**
+     * 通过 supplier 生成数据
+     *      同一个 key 的并发加载只执行一次 supplier, 其他线程等待同一个 CompletableFuture, 不同的 key 并行加载
+     * @param key 键
+     * @param supplier 数据生成器
+     * @param createExpire 超时时间
+     * @param onMiss true: 缓存未命中时加载, 获得加载权后如果其他线程已经完成加载则直接返回, false: 刷新已有的数据
+     * @return 生成的数据
+     */
+    private V createCache(K key, Function<K, V> supplier, Long createExpire, boolean onMiss){
         if(supplier==null){
-            return;
+            return null;
+        }
+
+        CompletableFuture<V> future = new CompletableFuture<V>();
+        CompletableFuture<V> loadingFuture = loadingFutures.putIfAbsent(key, future);
+        if(loadingFuture != null) {
+            return loadingFuture.join();
         }
 
+        V value = null;
         try {
-            V value = supplier.apply(key);
-            if(value == null) {
-                cacheMark.remove(key);
-                return;
+            //在获得加载权之前其他线程可能已经完成了加载
+            if(onMiss) {
+                TimeMark timeMark = cacheMark.get(key);
+                if(timeMark != null && !timeMark.isExpire()) {
+                    value = cacheData.get(key);
+                    if(value != null) {
+                        return value;
+                    }
+                }
             }
 
-            if(expire==Long.MAX_VALUE) {
+            value = supplier.apply(key);
+            if(value == null) {
+                removeMark(key);
+            } else if(expire==Long.MAX_VALUE) {
                 this.put(key, value);
             } else {
                 this.put(key, value, createExpire);
             }
         } catch (Exception e){
             Logger.error("Create with supplier failed: ", e);
+        } finally {
+            loadingFutures.remove(key, future);
+            future.complete(value);
+        }
+
+        return value;
+    }
+
+    /**
+     * 异步刷新即将过期的数据
+     * @param timeMark 数据对应的 TimeMark 对象
+     * @param supplier 数据生成器
+     */
+    private void refreshAsync(TimeMark<K> timeMark, Function<K, V> supplier) {
+        if(!timeMark.tryLockOnCreate()) {
+            return;
         }
 
+        try {
+            Global.getThreadPool().execute(() -> {
+                try {
+                    if (createCache(timeMark.getKey(), supplier, timeMark.getExpireTime(), false) != null) {
+                        timeMark.refresh(true);
+                    }
+                } finally {
+                    timeMark.releaseCreateLock();
+                }
+            });
+        } catch (Exception e) {
+            timeMark.releaseCreateLock();
+            Logger.error("Refresh with supplier failed: ", e);
+        }
     }
 
     /**
@@ -278,22 +411,28 @@ public class CacheMap<K,V> implements ICacheMap<K, V> {
         createExpire = createExpire == null ? expire : createExpire;
 
         if (timeMark == null) {
-            synchronized (cacheMark) {
-                timeMark = cacheMark.get(key);
-                if(timeMark==null) {
-                    createCache((K) key, appointedSupplier, createExpire);
-                    timeMark = new TimeMark(this, key, createExpire);
-                    cacheMark.put((K) key, timeMark);
-                }
+            missCount.increment();
+            createCache((K) key, appointedSupplier, createExpire, true);
+            if(!cacheMark.containsKey(key)) {
+                addMark((K) key, createExpire);
             }
         } else {
             if (!timeMark.isExpire()) {
+                hitCount.increment();
                 timeMark.refresh(refresh);
+                if(evictPolicy != null) {
+                    evictPolicy.onAccess(timeMark);
+                }
+
+                if(!refresh && appointedSupplier!=null && timeMark.isNearExpire(refreshAhead)) {
+                    refreshAsync(timeMark, appointedSupplier);
+                }
             } else {
+                missCount.increment();
                 if(checkAndDoExpire(timeMark)){
                     if(appointedSupplier!=null) {
                         timeMark.refresh(true);
-                        createCache((K) key, appointedSupplier, createExpire);
+                        createCache((K) key, appointedSupplier, createExpire, false);
                     }
                 }
             }
@@ -313,11 +452,18 @@ public class CacheMap<K,V> implements ICacheMap<K, V> {
      * @param expire 超时时间
      */
     public void putAll(Map<? extends K, ? extends V> m, long expire){
+        cacheData.putAll(m);
+
         for (Entry<? extends K, ? extends V> e : m.entrySet()) {
-            cacheMark.put(e.getKey(), new TimeMark(this, e.getKey(), expire));
+            TimeMark<K> timeMark = new TimeMark(this, e.getKey(), expire);
+            TimeMark<K> oldTimeMark = cacheMark.put(e.getKey(), timeMark);
+            if(evictPolicy != null) {
+                if (oldTimeMark != null) {
+                    evictPolicy.onRemove(oldTimeMark);
+                }
+                track(timeMark);
+            }
         }
-
-        cacheData.putAll(m);
     }
 
     @Override
@@ -358,8 +504,9 @@ public class CacheMap<K,V> implements ICacheMap<K, V> {
             throw new NullPointerException();
         }
 
-        cacheMark.putIfAbsent(key, new TimeMark(this, key, expire));
-        return cacheData.put(key, value);
+        V result = cacheData.put(key, value);
+        addMark(key, expire);
+        return result;
     }
 
     /**
@@ -385,7 +532,7 @@ public class CacheMap<K,V> implements ICacheMap<K, V> {
         }
 
         V result = cacheData.putIfAbsent(key, value);
-        cacheMark.putIfAbsent(key, new TimeMark(this, key, expire));
+        addMark(key, expire);
 
         if(result!=null){
             return result;
@@ -405,45 +552,104 @@ public class CacheMap<K,V> implements ICacheMap<K, V> {
     }
 
     /**
-     * 清理过多的数据记录
+     * 为键增加缓存标记, 并交由淘汰策略跟踪
+     * @param key 键
+     * @param expire 超时时间
      */
-    private void fixSize() {
-        //如果超出容量限制
-        int diffSize = this.size() - maxSize;
-        if (diffSize > 0) {
-            //最少访问次数中, 时间最老的进行清楚
-            TimeMark<K>[] removedTimeMark = (TimeMark<K>[]) CollectionSearch.newInstance(cacheMark.values())
-                    .addCondition("expireTime", CollectionSearch.Operate.NOT_EQUAL, 0L)
-                    .addCondition("lastTime", CollectionSearch.Operate.LESS, System.currentTimeMillis()-1000)
-                    .sort("visitCount")
-                    .limit(10 * diffSize)
-                    .sort("lastTime")
-                    .limit(diffSize)
-                    .search()
-                    .toArray(new TimeMark[0]);
-            for (TimeMark<K> timeMark : removedTimeMark) {
-                if(destory!=null) {
+    private void addMark(K key, long expire) {
+        if(cacheMark.containsKey(key)) {
+            return;
+        }
 
-                    V data = cacheData.get(timeMark.getKey());
-                    if(data == null) {
-                        this.remove(timeMark.getKey());
-                        continue;
-                    }
+        TimeMark<K> timeMark = new TimeMark(this, key, expire);
+        if(cacheMark.putIfAbsent(key, timeMark) == null && evictPolicy != null) {
+            track(timeMark);
+        }
+    }
 
-                    Long value = destory.apply(timeMark.getKey(), data);
+    /**
+     * 将新的缓存标记交由淘汰策略跟踪
+     *      写入 cacheMark 和 onAdd 之间标记可能被并发的 removeMark 移除, 此时它的 onRemove 找不到节点,
+     *      onAdd 之后标记已经不是当前的标记时, 从淘汰策略中移除这个节点, 避免孤立的节点占用容量
+     * @param timeMark 缓存标记
+     */
+    private void track(TimeMark<K> timeMark) {
+        WindowTinyLFU.Node<K> node = evictPolicy.onAdd(timeMark);
+        if(cacheMark.get(timeMark.getKey()) != timeMark) {
+            evictPolicy.onRemove(timeMark);
+        }
+        evict(node);
+    }
 
-                    if(value == null){
-                        timeMark.refresh(true);
-                    } else if (value < 0) {
-                        remove(timeMark.getKey());
-                    } else {
-                        timeMark.setExpireTime(value);
-                    }
-                } else {
-                    this.remove(timeMark.getKey());
+    /**
+     * 将被淘汰但保留的标记放回淘汰策略, 并发移除时同样需要检查标记是否仍然有效
+     * @param timeMark 缓存标记
+     */
+    private void restore(TimeMark<K> timeMark) {
+        evictPolicy.restore(timeMark);
+        if(cacheMark.get(timeMark.getKey()) != timeMark) {
+            evictPolicy.onRemove(timeMark);
+        }
+    }
+
+    /**
+     * 淘汰一个超出容量的数据
+     * @param node 被淘汰策略选中的节点
+     */
+    private void evict(WindowTinyLFU.Node<K> node) {
+        if(node == null) {
+            return;
+        }
+
+        TimeMark<K> timeMark = (TimeMark<K>) node;
+
+        //标记已被替换, 说明被淘汰的已经是过时的对象
+        if(cacheMark.get(timeMark.getKey()) != timeMark) {
+            return;
+        }
+
+        if(destory!=null) {
+            V data = cacheData.get(timeMark.getKey());
+            if(data != null) {
+                // 1.返回 null 则刷新为默认超时时间
+                // 2.小于0 的数据, 则移除对象
+                // 3.大于0的数据则重新设置返回值为新的超时时间
+                Long value = destory.apply(timeMark.getKey(), data);
+                if (value == null) {
+                    timeMark.refresh(true);
+                    restore(timeMark);
+                    return;
+                } else if (value >= 0) {
+                    timeMark.setExpireTime(value);
+                    restore(timeMark);
+                    return;
                 }
             }
         }
+
+        if(cacheMark.remove(timeMark.getKey(), timeMark)) {
+            cacheData.remove(timeMark.getKey());
+            evictCount.increment();
+        }
+    }
+
+    /**
+     * 清理过多的数据记录
+     *      正常情况下写入时已经完成淘汰, 这里处理容量被调小或者淘汰时被 destory 保留的数据
+     */
+    private void fixSize() {
+        if(evictPolicy == null) {
+            return;
+        }
+
+        int diffSize = cacheMark.size() - maxSize;
+        for (int i = 0; i < diffSize; i++) {
+            WindowTinyLFU.Node<K> node = evictPolicy.evict();
+            if(node == null) {
+                break;
+            }
+            evict(node);
+        }
     }
 
     @Override
@@ -477,20 +683,30 @@ public class CacheMap<K,V> implements ICacheMap<K, V> {
 
     @Override
     public V remove(Object key){
-        cacheMark.remove(key);
+        removeMark(key);
         return cacheData.remove(key);
     }
 
     @Override
     public boolean remove(Object key, Object value){
-        cacheMark.remove(key);
+        removeMark(key);
         return cacheData.remove(key, value);
     }
 
+    private void removeMark(Object key) {
+        TimeMark<K> timeMark = cacheMark.remove(key);
+        if(timeMark != null && evictPolicy != null) {
+            evictPolicy.onRemove(timeMark);
+        }
+    }
+
     @Override
     public void clear() {
         cacheMark.clear();
         cacheData.clear();
+        if(evictPolicy != null) {
+            evictPolicy.clear();
+        }
     }
 
     @Override
@@ -511,10 +727,9 @@ public class CacheMap<K,V> implements ICacheMap<K, V> {
     /**
      * 缓存时间标签类
      */
-    private class TimeMark<K> {
+    private class TimeMark<K> extends WindowTinyLFU.Node<K> {
         @NotSerialization
         private CacheMap<K,V> mainMap;
-        private K key;
         //超时时间
         private AtomicLong expireTime = new AtomicLong(0);
         //最后访问时间
@@ -526,7 +741,7 @@ public class CacheMap<K,V> implements ICacheMap<K, V> {
         private volatile AtomicBoolean createFlag = new AtomicBoolean(false);
 
         public TimeMark(CacheMap<K,V> mainMap, K key, long expireTime){
-            this.key = key;
+            super(key);
             this.mainMap = mainMap;
             this.expireTime.set(expireTime);
             visitCount.set(0);
@@ -556,12 +771,18 @@ public class CacheMap<K,V> implements ICacheMap<K, V> {
             }
         }
 
-        public CacheMap<K, V> getMainMap() {
-            return mainMap;
+        /**
+         * 是否即将过期
+         * @param ratio 剩余存活时间占超时时间的比例
+         * @return true: 即将过期, false: 未到刷新时间
+         */
+        public boolean isNearExpire(double ratio){
+            long expireMillis = expireTime.get() * 1000;
+            return ratio > 0 && expireMillis > 0 && System.currentTimeMillis() - lastTime.get() >= expireMillis * (1 - ratio);
         }
 
-        public K getKey() {
-            return key;
+        public CacheMap<K, V> getMainMap() {
+            return mainMap;
         }
 
         public long getExpireTime() {
@@ -0,0 +1,448 @@
+package org.voovan.tools.collection;
+
+import org.voovan.tools.TByte;
+import org.voovan.tools.TEnv;
+import org.voovan.tools.hashwheeltimer.HashWheelTask;
+import org.voovan.tools.hashwheeltimer.HashWheelTimer;
+import org.voovan.tools.log.Logger;
+import org.voovan.tools.serialize.TSerialize;
+import redis.clients.jedis.BinaryJedisPubSub;
+import redis.clients.jedis.Jedis;
+
+import java.io.Closeable;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+
+/**
+ * 二级缓存
+ *      本地 CacheMap 作为一级缓存, RedisMap 作为二级缓存,
+ *      本地缓存容量有限且超时时间较短, 未命中时同一个 key 只会有一个线程访问 Redis,
+ *      写入操作先更新本地缓存, 再异步批量写入 Redis, 并通过 Redis 的发布订阅通知其他实例失效本地缓存
+ *
+ *      本地缓存会缓存 Redis 中不存在的 key, 直到本地超时或收到失效通知
+ *
+ * @author: helyho
+ * Voovan Framework.
+ * WebSite: https://github.com/helyho/Voovan
+ * Licence: Apache v2 License
+ */
+public class NearCacheMap<K, V> implements ICacheMap<K, V>, Closeable {
+    protected final static HashWheelTimer NEAR_CACHE_WHEEL_TIMER = new HashWheelTimer("NearCacheMap", 100, 10);
+
+    static {
+        NEAR_CACHE_WHEEL_TIMER.rotate();
+    }
+
+    public static final String CHANNEL_PREFIX = "VOOVAN_NEAR_CACHE_INVALIDATE_";
+
+    private final long instanceId = ThreadLocalRandom.current().nextLong();
+
+    private RedisMap<K, V> remote;
+    private CacheMap<K, V> local;
+    private long localExpire;
+
+    private Function<K, V> supplier = null;
+    private long expire = 0;
+
+    private boolean asyncWrite = true;
+    private ConcurrentHashMap<K, PendingWrite<V>> pendingWrites = new ConcurrentHashMap<K, PendingWrite<V>>();
+    private HashWheelTask flushTask;
+    //flush 串行执行, 避免同一个 key 的写入乱序
+    private final Object flushLock = new Object();
+
+    private byte[] channel;
+    private volatile BinaryJedisPubSub subscriber;
+    private volatile boolean closed = false;
+
+    /**
+     * 构造函数
+     *      使用默认的 redis 连接池, 本地缓存 10000 个元素, 超时时间 5 秒
+     */
+    public NearCacheMap() {
+        this(new RedisMap<K, V>(), 10000, 5);
+    }
+
+    /**
+     * 构造函数
+     * @param remote 二级缓存 RedisMap 对象
+     * @param localMaxSize 本地缓存最大元素数量
+     * @param localExpire 本地缓存超时时间, 单位: 秒
+     */
+    public NearCacheMap(RedisMap<K, V> remote, int localMaxSize, long localExpire) {
+        this.remote = remote;
+        this.localExpire = localExpire;
+        this.local = new CacheMap<K, V>().maxSize(localMaxSize).expire(localExpire).autoRemove(true).interval(1).create();
+
+        String name = remote.getName() == null ? "" : remote.getName();
+        this.channel = (CHANNEL_PREFIX + remote.getDbIndex() + "_" + name).getBytes();
+
+        flushTask = new HashWheelTask() {
+            @Override
+            public void run() {
+                flush();
+            }
+        };
+        NEAR_CACHE_WHEEL_TIMER.addTask(flushTask, 1, true);
+
+        subscribe();
+    }
+
+    /**
+     * 获取一级缓存对象
+     * @return 本地 CacheMap 对象
+     */
+    public CacheMap<K, V> getLocal() {
+        return local;
+    }
+
+    /**
+     * 获取二级缓存对象
+     * @return RedisMap 对象
+     */
+    public RedisMap<K, V> getRemote() {
+        return remote;
+    }
+
+    /**
+     * 是否异步写入 Redis
+     * @return true: 异步批量写入, false: 同步写入
+     */
+    public boolean isAsyncWrite() {
+        return asyncWrite;
+    }
+
+    /**
+     * 设置是否异步写入 Redis
+     * @param asyncWrite true: 异步批量写入, false: 同步写入
+     * @return NearCacheMap 对象
+     */
+    public NearCacheMap<K, V> asyncWrite(boolean asyncWrite) {
+        this.asyncWrite = asyncWrite;
+        if(!asyncWrite) {
+            flush();
+        }
+        return this;
+    }
+
+    @Override
+    public Function<K, V> getSupplier() {
+        return supplier;
+    }
+
+    @Override
+    public NearCacheMap<K, V> supplier(Function<K, V> buildFunction) {
+        this.supplier = buildFunction;
+        return this;
+    }
+
+    @Override
+    public long getExpire() {
+        return expire;
+    }
+
+    @Override
+    public NearCacheMap<K, V> expire(long expire) {
+        this.expire = expire;
+        return this;
+    }
+
+    /**
+     * 订阅失效通知
+     *      订阅使用独占的连接, 连接断开后自动重连
+     */
+    private void subscribe() {
+        Thread subscribeThread = new Thread(() -> {
+            while (!closed && !TEnv.IS_SHUTDOWN) {
+                try (Jedis jedis = remote.getRedisPool().getResource()) {
+                    subscriber = new BinaryJedisPubSub() {
+                        @Override
+                        public void onMessage(byte[] channel, byte[] message) {
+                            onInvalidate(message);
+                        }
+                    };
+                    jedis.subscribe(subscriber, channel);
+                } catch (Exception e) {
+                    if (!closed) {
+                        Logger.error("NearCacheMap subscribe invalidate channel failed, retry after 1s", e);
+                        TEnv.sleep(1000);
+                    }
+                }
+            }
+        }, "VOOVAN@NEAR_CACHE_SUBSCRIBER");
+        subscribeThread.setDaemon(true);
+        subscribeThread.start();
+    }
+
+    /**
+     * 处理失效通知
+     *      消息结构: [long 实例 ID][序列化后的 key], 没有 key 则失效所有本地缓存
+     * @param message 通知消息
+     */
+    private void onInvalidate(byte[] message) {
+        if (message.length < 8 || TByte.getLong(message) == instanceId) {
+            return;
+        }
+
+        if (message.length == 8) {
+            local.clear();
+        } else {
+            local.remove(TSerialize.unserialize(Arrays.copyOfRange(message, 8, message.length)));
+        }
+    }
+
+    private byte[] invalidateMessage(byte[] keyBytes) {
+        byte[] message = new byte[8 + (keyBytes == null ? 0 : keyBytes.length)];
+        System.arraycopy(TByte.getBytes(instanceId), 0, message, 0, 8);
+        if (keyBytes != null) {
+            System.arraycopy(keyBytes, 0, message, 8, keyBytes.length);
+        }
+        return message;
+    }
+
+    /**
+     * 将等待写入的数据通过 pipeline 批量写入 Redis, 并发布失效通知
+     *      写入失败时数据重新进入等待队列, 如果期间同一个 key 有更新的写入则以更新的写入为准
+     */
+    public void flush() {
+        if (pendingWrites.isEmpty()) {
+            return;
+        }
+
+        synchronized (flushLock) {
+            RedisBatch batch = remote.batch();
+            List<Map.Entry<K, PendingWrite<V>>> flushing = new ArrayList<Map.Entry<K, PendingWrite<V>>>();
+            for (Map.Entry<K, PendingWrite<V>> entry : pendingWrites.entrySet()) {
+                K key = entry.getKey();
+                PendingWrite<V> pendingWrite = entry.getValue();
+                if (!pendingWrites.remove(key, pendingWrite)) {
+                    continue;
+                }
+                flushing.add(new AbstractMap.SimpleEntry<K, PendingWrite<V>>(key, pendingWrite));
+
+                if (pendingWrite.value == null) {
+                    batch.remove(remote, key);
+                } else {
+                    batch.put(remote, key, pendingWrite.value, pendingWrite.expire);
+                }
+
+                byte[] message = invalidateMessage(TSerialize.serialize(key));
+                batch.add(pipeline -> pipeline.publish(channel, message));
+            }
+
+            if (flushing.isEmpty()) {
+                return;
+            }
+
+            try {
+                batch.flush();
+            } catch (Exception e) {
+                Logger.error("NearCacheMap flush to redis failed, " + flushing.size() + " writes requeued", e);
+                for (Map.Entry<K, PendingWrite<V>> entry : flushing) {
+                    pendingWrites.putIfAbsent(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+    }
+
+    private void publish(byte[] keyBytes) {
+        try (Jedis jedis = remote.getRedisPool().getResource()) {
+            jedis.publish(channel, invalidateMessage(keyBytes));
+        }
+    }
+
+    private void write(K key, V value, long expire) {
+        if (asyncWrite) {
+            pendingWrites.put(key, new PendingWrite<V>(value, expire));
+        } else {
+            if (value == null) {
+                remote.remove(key);
+            } else if (expire > 0) {
+                remote.put(key, value, expire);
+            } else {
+                remote.put(key, value);
+            }
+            publish(TSerialize.serialize(key));
+        }
+    }
+
+    @Override
+    public V get(Object key, Function<K, V> appointedSupplier, Long createExpire, boolean refresh) {
+        PendingWrite<V> pendingWrite = pendingWrites.get(key);
+        if (pendingWrite != null) {
+            return pendingWrite.value;
+        }
+
+        Function<K, V> remoteSupplier = appointedSupplier == null ? supplier : appointedSupplier;
+        Long remoteExpire = createExpire == null ? expire : createExpire;
+
+        //CacheMap 保证同一个 key 只有一个线程访问 Redis
+        return local.get(key, (k) -> remote.get(k, remoteSupplier, remoteExpire, refresh), localExpire);
+    }
+
+    @Override
+    public V put(K key, V value) {
+        return put(key, value, expire);
+    }
+
+    @Override
+    public V put(K key, V value, long expire) {
+        local.put(key, value, localExpire);
+        write(key, value, expire);
+        return value;
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        return putIfAbsent(key, value, expire);
+    }
+
+    /**
+     * 写入如果对象为空
+     *      需要保证原子性, 所以同步写入 Redis
+     * @param key  键
+     * @param value 值
+     * @param expire 超时时间
+     * @return 如果数据存在返回已经存在对象, 如果数据不存在,新的对象被置入,则返回: null
+     */
+    @Override
+    public V putIfAbsent(K key, V value, long expire) {
+        flush();
+        V result = expire > 0 ? remote.putIfAbsent(key, value, expire) : remote.putIfAbsent(key, value);
+        if (result == null) {
+            local.put(key, value, localExpire);
+            publish(TSerialize.serialize(key));
+        } else {
+            local.put(key, result, localExpire);
+        }
+        return result;
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> map) {
+        putAll(map, expire);
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> map, long expire) {
+        for (Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
+            put(entry.getKey(), entry.getValue(), expire);
+        }
+    }
+
+    /**
+     * 移除对象
+     *      异步写入时返回本地缓存中的数据
+     * @param key 键
+     * @return 被移除的对象
+     */
+    @Override
+    public V remove(Object key) {
+        V value = local.remove(key);
+        if (asyncWrite) {
+            write((K) key, null, 0);
+            return value;
+        } else {
+            value = remote.remove(key);
+            publish(TSerialize.serialize(key));
+            return value;
+        }
+    }
+
+    @Override
+    public long getTTL(K key) {
+        flush();
+        return remote.getTTL(key);
+    }
+
+    @Override
+    public boolean setTTL(K key, long expire) {
+        flush();
+        return remote.setTTL(key, expire);
+    }
+
+    @Override
+    public int size() {
+        flush();
+        return remote.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        flush();
+        return remote.containsValue(value);
+    }
+
+    @Override
+    public void clear() {
+        pendingWrites.clear();
+        local.clear();
+        remote.clear();
+        publish(null);
+    }
+
+    @Override
+    public Set<K> keySet() {
+        flush();
+        return remote.keySet();
+    }
+
+    @Override
+    public Collection<V> values() {
+        flush();
+        return remote.values();
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        flush();
+        return remote.entrySet();
+    }
+
+    /**
+     * 写入所有等待的数据, 并停止订阅失效通知
+     *      不会关闭 RedisMap 的连接池
+     */
+    @Override
+    public void close() {
+        closed = true;
+        flushTask.cancel();
+        flush();
+
+        BinaryJedisPubSub currentSubscriber = subscriber;
+        if (currentSubscriber != null && currentSubscriber.isSubscribed()) {
+            currentSubscriber.unsubscribe();
+        }
+    }
+
+    /**
+     * 等待写入 Redis 的数据
+     *      value 为 null 表示移除
+     */
+    private static class PendingWrite<V> {
+        private V value;
+        private long expire;
+
+        private PendingWrite(V value, long expire) {
+            this.value = value;
+            this.expire = expire;
+        }
+    }
+}
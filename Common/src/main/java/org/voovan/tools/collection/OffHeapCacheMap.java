@@ -0,0 +1,778 @@
+package org.voovan.tools.collection;
+
+import org.voovan.tools.TUnsafe;
+import org.voovan.tools.buffer.SlabAllocator;
+import org.voovan.tools.hashwheeltimer.HashWheelTask;
+import org.voovan.tools.log.Logger;
+import org.voovan.tools.serialize.TSerialize;
+import sun.misc.Unsafe;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * 堆外内存缓存
+ *      键和值使用 TSerialize 序列化后保存在 SlabAllocator 分配的堆外内存中,
+ *      索引和超时信息保存在分段的基本类型数组中, 每个元素在堆上几乎没有额外开销
+ *
+ *      内存记录结构: [int 键长度][int 值长度][键字节][值字节]
+ *      超过最大容量时在各个分段中轮流抽样淘汰最久未访问的元素
+ *
+ * @author: helyho
+ * Voovan Framework.
+ * WebSite: https://github.com/helyho/Voovan
+ * Licence: Apache v2 License
+ */
+public class OffHeapCacheMap<K, V> implements ICacheMap<K, V>, Closeable {
+    private static final Unsafe UNSAFE = TUnsafe.getUnsafe();
+    private static final long BYTE_ARRAY_OFFSET = UNSAFE.arrayBaseOffset(byte[].class);
+    private static final int HEADER_SIZE = 8;
+    private static final int DEFAULT_SEGMENT_COUNT = 16;
+    private static final int DEFAULT_SEGMENT_CAPACITY = 64;
+    //淘汰时每个分段抽样的元素数量
+    private static final int EVICT_SAMPLE_SIZE = 8;
+
+    private final SlabAllocator allocator;
+    private final Segment[] segments;
+    private final int segmentShift;
+
+    private ConcurrentHashMap<K, CompletableFuture<V>> loadingFutures = new ConcurrentHashMap<K, CompletableFuture<V>>();
+    private Function<K, V> supplier = null;
+    private long expire = 0;
+    private int interval = 1;
+    private int maxSize = Integer.MAX_VALUE;
+    private AtomicInteger evictIndex = new AtomicInteger();
+    private HashWheelTask expireTask;
+
+    /**
+     * 构造函数
+     */
+    public OffHeapCacheMap() {
+        this(DEFAULT_SEGMENT_COUNT, SlabAllocator.DEFAULT_PAGE_SIZE);
+    }
+
+    /**
+     * 构造函数
+     * @param maxSize 缓存集合的最大容量, 多余的数据会被移除
+     */
+    public OffHeapCacheMap(Integer maxSize) {
+        this(DEFAULT_SEGMENT_COUNT, SlabAllocator.DEFAULT_PAGE_SIZE);
+        maxSize(maxSize == null ? Integer.MAX_VALUE : maxSize);
+    }
+
+    /**
+     * 构造函数
+     * @param segmentCount 分段数量, 会被调整为 2 的幂
+     * @param pageSize 堆外内存的页大小
+     */
+    public OffHeapCacheMap(int segmentCount, int pageSize) {
+        int shift = 32 - Integer.numberOfLeadingZeros(Math.max(segmentCount, 1) - 1);
+        this.segments = (Segment[]) new OffHeapCacheMap.Segment[1 << shift];
+        this.segmentShift = 32 - shift;
+        this.allocator = new SlabAllocator(pageSize);
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment(DEFAULT_SEGMENT_CAPACITY);
+        }
+    }
+
+    /**
+     * 获取数据创建 Function 对象
+     * @return Function 对象
+     */
+    @Override
+    public Function<K, V> getSupplier() {
+        return supplier;
+    }
+
+    /**
+     * 设置数据创建 Function 对象
+     * @param buildFunction Function 对象
+     * @return OffHeapCacheMap 对象
+     */
+    @Override
+    public OffHeapCacheMap<K, V> supplier(Function<K, V> buildFunction) {
+        this.supplier = buildFunction;
+        return this;
+    }
+
+    /**
+     * 获取默认超时时间
+     * @return 获取超时时间
+     */
+    @Override
+    public long getExpire() {
+        return expire;
+    }
+
+    /**
+     * 设置默认超时时间
+     * @param expire 超时时间
+     * @return OffHeapCacheMap 对象
+     */
+    @Override
+    public OffHeapCacheMap<K, V> expire(long expire) {
+        this.expire = expire;
+        return this;
+    }
+
+    /**
+     * 设置最失效对象检查周期
+     * @param interval 检查周期, 单位:秒, 小于零不做超时处理
+     * @return OffHeapCacheMap 对象
+     */
+    public OffHeapCacheMap<K, V> interval(int interval) {
+        this.interval = interval;
+        return this;
+    }
+
+    /**
+     * 获取最大容量
+     * @return 最大容量
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * 设置最大容量
+     * @param maxSize 最大容量
+     * @return OffHeapCacheMap 对象
+     */
+    public OffHeapCacheMap<K, V> maxSize(int maxSize) {
+        this.maxSize = maxSize;
+        evict();
+        return this;
+    }
+
+    /**
+     * 获取已向系统申请的堆外内存大小
+     * @return 内存大小
+     */
+    public long getReservedMemory() {
+        return allocator.getReservedBytes();
+    }
+
+    /**
+     * 获取数据实际占用的堆外内存大小
+     * @return 内存大小
+     */
+    public long getUsedMemory() {
+        return allocator.getUsedBytes();
+    }
+
+    /**
+     * 创建 OffHeapCacheMap
+     *      启动超时清理任务
+     * @return OffHeapCacheMap 对象
+     */
+    public OffHeapCacheMap<K, V> create() {
+        if (expireTask != null) {
+            expireTask.cancel();
+            expireTask = null;
+        }
+
+        if (interval >= 1) {
+            expireTask = new HashWheelTask() {
+                @Override
+                public void run() {
+                    long now = System.currentTimeMillis();
+                    for (Segment segment : segments) {
+                        segment.removeExpired(now);
+                    }
+                }
+            };
+            CacheMap.CACHE_MAP_WHEEL_TIMER.addTask(expireTask, interval);
+        }
+        return this;
+    }
+
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        h *= 0x85ebca6b;
+        h ^= (h >>> 13);
+        //0 用来标识空槽位
+        return h == 0 ? 1 : h;
+    }
+
+    private Segment segmentFor(int hash) {
+        return segments[segments.length == 1 ? 0 : hash >>> segmentShift];
+    }
+
+    @Override
+    public V get(Object key, Function<K, V> appointedSupplier, Long createExpire, boolean refresh) {
+        byte[] keyBytes = TSerialize.serialize(key);
+        int hash = hash(key);
+
+        byte[] valueBytes = segmentFor(hash).get(hash, keyBytes, refresh);
+        if (valueBytes != null) {
+            return (V) TSerialize.unserialize(valueBytes);
+        }
+
+        appointedSupplier = appointedSupplier == null ? supplier : appointedSupplier;
+        createExpire = createExpire == null ? expire : createExpire;
+        return createCache((K) key, appointedSupplier, createExpire);
+    }
+
+    /**
+     * 通过 supplier 生成数据
+     *      同一个 key 的并发加载只执行一次 supplier
+     * @param key 键
+     * @param supplier 数据生成器
+     * @param createExpire 超时时间
+     * @return 生成的数据
+     */
+    private V createCache(K key, Function<K, V> supplier, long createExpire) {
+        if (supplier == null) {
+            return null;
+        }
+
+        CompletableFuture<V> future = new CompletableFuture<V>();
+        CompletableFuture<V> loadingFuture = loadingFutures.putIfAbsent(key, future);
+        if (loadingFuture != null) {
+            return loadingFuture.join();
+        }
+
+        V value = null;
+        try {
+            value = supplier.apply(key);
+            if (value != null) {
+                put(key, value, createExpire);
+            }
+        } catch (Exception e) {
+            Logger.error("Create with supplier failed: ", e);
+        } finally {
+            loadingFutures.remove(key, future);
+            future.complete(value);
+        }
+
+        return value;
+    }
+
+    @Override
+    public V put(K key, V value) {
+        return put(key, value, expire);
+    }
+
+    @Override
+    public V put(K key, V value, long expire) {
+        if (key == null || value == null) {
+            throw new NullPointerException();
+        }
+
+        int hash = hash(key);
+        segmentFor(hash).put(hash, TSerialize.serialize(key), TSerialize.serialize(value), expire, false);
+        evict();
+        return value;
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        return putIfAbsent(key, value, expire);
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value, long expire) {
+        if (key == null || value == null) {
+            throw new NullPointerException();
+        }
+
+        int hash = hash(key);
+        byte[] existsBytes = segmentFor(hash).put(hash, TSerialize.serialize(key), TSerialize.serialize(value), expire, true);
+        if (existsBytes == null) {
+            evict();
+            return null;
+        }
+        return (V) TSerialize.unserialize(existsBytes);
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> map) {
+        putAll(map, expire);
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> map, long expire) {
+        for (Entry<? extends K, ? extends V> entry : map.entrySet()) {
+            put(entry.getKey(), entry.getValue(), expire);
+        }
+    }
+
+    /**
+     * 超过最大容量时淘汰元素
+     *      在分段外执行, 按分段轮流淘汰, 避免同时持有多个分段的锁
+     */
+    private void evict() {
+        while (maxSize != Integer.MAX_VALUE && size() > maxSize) {
+            boolean evicted = false;
+            for (int i = 0; i < segments.length && !evicted; i++) {
+                evicted = segments[evictIndex.getAndIncrement() & (segments.length - 1)].evict();
+            }
+
+            if (!evicted) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public long getTTL(K key) {
+        int hash = hash(key);
+        return segmentFor(hash).getTTL(hash, TSerialize.serialize(key));
+    }
+
+    @Override
+    public boolean setTTL(K key, long expire) {
+        int hash = hash(key);
+        return segmentFor(hash).setTTL(hash, TSerialize.serialize(key), expire);
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size;
+        }
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        int hash = hash(key);
+        return segmentFor(hash).getTTL(hash, TSerialize.serialize(key)) >= 0;
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        return values().contains(value);
+    }
+
+    @Override
+    public V remove(Object key) {
+        int hash = hash(key);
+        byte[] valueBytes = segmentFor(hash).remove(hash, TSerialize.serialize(key), null);
+        return valueBytes == null ? null : (V) TSerialize.unserialize(valueBytes);
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        int hash = hash(key);
+        return segmentFor(hash).remove(hash, TSerialize.serialize(key), TSerialize.serialize(value)) != null;
+    }
+
+    @Override
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    @Override
+    public Set<K> keySet() {
+        Set<K> keys = new HashSet<K>();
+        for (Segment segment : segments) {
+            segment.forEach((keyBytes, valueBytes) -> keys.add((K) TSerialize.unserialize(keyBytes)), false);
+        }
+        return keys;
+    }
+
+    @Override
+    public Collection<V> values() {
+        List<V> values = new ArrayList<V>();
+        for (Segment segment : segments) {
+            segment.forEach((keyBytes, valueBytes) -> values.add((V) TSerialize.unserialize(valueBytes)), true);
+        }
+        return values;
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        Map<K, V> entries = new HashMap<K, V>();
+        for (Segment segment : segments) {
+            segment.forEach((keyBytes, valueBytes) -> entries.put((K) TSerialize.unserialize(keyBytes), (V) TSerialize.unserialize(valueBytes)), true);
+        }
+        return entries.entrySet();
+    }
+
+    /**
+     * 释放所有的堆外内存
+     */
+    @Override
+    public void close() {
+        if (expireTask != null) {
+            expireTask.cancel();
+            expireTask = null;
+        }
+        clear();
+        allocator.release();
+    }
+
+    private interface RecordConsumer {
+        public void accept(byte[] keyBytes, byte[] valueBytes);
+    }
+
+    private static int recordSize(int keyLength, int valueLength) {
+        return HEADER_SIZE + keyLength + valueLength;
+    }
+
+    private static byte[] readBytes(long address, int length) {
+        byte[] bytes = new byte[length];
+        UNSAFE.copyMemory(null, address, bytes, BYTE_ARRAY_OFFSET, length);
+        return bytes;
+    }
+
+    private static void writeBytes(long address, byte[] bytes) {
+        UNSAFE.copyMemory(bytes, BYTE_ARRAY_OFFSET, null, address, bytes.length);
+    }
+
+    private static boolean bytesEquals(long address, byte[] bytes) {
+        int length = bytes.length;
+        int i = 0;
+        for (; i + 8 <= length; i += 8) {
+            if (UNSAFE.getLong(address + i) != UNSAFE.getLong(bytes, BYTE_ARRAY_OFFSET + i)) {
+                return false;
+            }
+        }
+        for (; i < length; i++) {
+            if (UNSAFE.getByte(address + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 分段的开放寻址哈希表
+     *      线性探测, 删除时回移后续元素, 不使用墓碑标记
+     */
+    private class Segment extends ReentrantLock {
+        private int[] hashes;
+        private long[] addresses;
+        private long[] lastTimes;
+        private long[] expires;
+        private volatile int size;
+        private int mask;
+
+        private Segment(int capacity) {
+            init(capacity);
+        }
+
+        private void init(int capacity) {
+            hashes = new int[capacity];
+            addresses = new long[capacity];
+            lastTimes = new long[capacity];
+            expires = new long[capacity];
+            mask = capacity - 1;
+            size = 0;
+        }
+
+        private int find(int hash, byte[] keyBytes) {
+            int index = hash & mask;
+            while (hashes[index] != 0) {
+                if (hashes[index] == hash) {
+                    long address = addresses[index];
+                    if (UNSAFE.getInt(address) == keyBytes.length && bytesEquals(address + HEADER_SIZE, keyBytes)) {
+                        return index;
+                    }
+                }
+                index = (index + 1) & mask;
+            }
+            return -1 - index;
+        }
+
+        private boolean isExpire(int index, long now) {
+            return expires[index] > 0 && now - lastTimes[index] >= expires[index] * 1000;
+        }
+
+        private byte[] readValue(int index) {
+            long address = addresses[index];
+            int keyLength = UNSAFE.getInt(address);
+            int valueLength = UNSAFE.getInt(address + 4);
+            return readBytes(address + HEADER_SIZE + keyLength, valueLength);
+        }
+
+        private byte[] get(int hash, byte[] keyBytes, boolean refresh) {
+            lock();
+            try {
+                int index = find(hash, keyBytes);
+                if (index < 0) {
+                    return null;
+                }
+
+                long now = System.currentTimeMillis();
+                if (isExpire(index, now)) {
+                    delete(index);
+                    return null;
+                }
+
+                if (refresh) {
+                    lastTimes[index] = now;
+                }
+                return readValue(index);
+            } finally {
+                unlock();
+            }
+        }
+
+        private byte[] put(int hash, byte[] keyBytes, byte[] valueBytes, long expire, boolean onlyIfAbsent) {
+            lock();
+            try {
+                long now = System.currentTimeMillis();
+                int index = find(hash, keyBytes);
+
+                if (index >= 0 && isExpire(index, now)) {
+                    delete(index);
+                    index = find(hash, keyBytes);
+                }
+
+                if (index >= 0) {
+                    if (onlyIfAbsent) {
+                        return readValue(index);
+                    }
+
+                    long address = addresses[index];
+                    int oldSize = recordSize(UNSAFE.getInt(address), UNSAFE.getInt(address + 4));
+                    int newSize = recordSize(keyBytes.length, valueBytes.length);
+
+                    //新记录可以放入原内存块时直接覆盖
+                    if (allocator.blockSize(oldSize) != allocator.blockSize(newSize)) {
+                        allocator.free(address, oldSize);
+                        address = allocator.allocate(newSize);
+                        addresses[index] = address;
+                    }
+                    writeRecord(address, keyBytes, valueBytes);
+                    lastTimes[index] = now;
+                    expires[index] = expire;
+                    return null;
+                }
+
+                if ((size + 1) * 4 > hashes.length * 3) {
+                    resize();
+                    index = find(hash, keyBytes);
+                }
+
+                index = -1 - index;
+                long address = allocator.allocate(recordSize(keyBytes.length, valueBytes.length));
+                writeRecord(address, keyBytes, valueBytes);
+                hashes[index] = hash;
+                addresses[index] = address;
+                lastTimes[index] = now;
+                expires[index] = expire;
+                size++;
+                return null;
+            } finally {
+                unlock();
+            }
+        }
+
+        private void writeRecord(long address, byte[] keyBytes, byte[] valueBytes) {
+            UNSAFE.putInt(address, keyBytes.length);
+            UNSAFE.putInt(address + 4, valueBytes.length);
+            writeBytes(address + HEADER_SIZE, keyBytes);
+            writeBytes(address + HEADER_SIZE + keyBytes.length, valueBytes);
+        }
+
+        private byte[] remove(int hash, byte[] keyBytes, byte[] valueBytes) {
+            lock();
+            try {
+                int index = find(hash, keyBytes);
+                if (index < 0) {
+                    return null;
+                }
+
+                byte[] oldValueBytes = readValue(index);
+                if (valueBytes != null && !Arrays.equals(valueBytes, oldValueBytes)) {
+                    return null;
+                }
+
+                boolean expired = isExpire(index, System.currentTimeMillis());
+                delete(index);
+                return expired ? null : oldValueBytes;
+            } finally {
+                unlock();
+            }
+        }
+
+        private long getTTL(int hash, byte[] keyBytes) {
+            lock();
+            try {
+                int index = find(hash, keyBytes);
+                if (index < 0 || isExpire(index, System.currentTimeMillis())) {
+                    return -1;
+                }
+                return expires[index];
+            } finally {
+                unlock();
+            }
+        }
+
+        private boolean setTTL(int hash, byte[] keyBytes, long expire) {
+            lock();
+            try {
+                int index = find(hash, keyBytes);
+                if (index < 0) {
+                    return false;
+                }
+                expires[index] = expire;
+                lastTimes[index] = System.currentTimeMillis();
+                return true;
+            } finally {
+                unlock();
+            }
+        }
+
+        private void removeExpired(long now) {
+            lock();
+            try {
+                int index = 0;
+                while (index < hashes.length) {
+                    //删除会回移后续元素, 当前位置需要重新检查
+                    if (hashes[index] != 0 && isExpire(index, now)) {
+                        delete(index);
+                    } else {
+                        index++;
+                    }
+                }
+            } finally {
+                unlock();
+            }
+        }
+
+        /**
+         * 从随机位置开始抽样, 淘汰抽样中最久未访问的元素
+         * @return true: 淘汰了一个元素, false: 分段为空
+         */
+        private boolean evict() {
+            lock();
+            try {
+                if (size == 0) {
+                    return false;
+                }
+
+                int start = ThreadLocalRandom.current().nextInt(hashes.length);
+                int victim = -1;
+                int sampled = 0;
+                for (int i = 0; i < hashes.length && sampled < EVICT_SAMPLE_SIZE; i++) {
+                    int index = (start + i) & mask;
+                    if (hashes[index] != 0) {
+                        sampled++;
+                        if (victim < 0 || lastTimes[index] < lastTimes[victim]) {
+                            victim = index;
+                        }
+                    }
+                }
+
+                delete(victim);
+                return true;
+            } finally {
+                unlock();
+            }
+        }
+
+        private void forEach(RecordConsumer consumer, boolean withValue) {
+            lock();
+            try {
+                long now = System.currentTimeMillis();
+                for (int i = 0; i < hashes.length; i++) {
+                    if (hashes[i] != 0 && !isExpire(i, now)) {
+                        long address = addresses[i];
+                        int keyLength = UNSAFE.getInt(address);
+                        byte[] keyBytes = readBytes(address + HEADER_SIZE, keyLength);
+                        byte[] valueBytes = withValue ? readValue(i) : null;
+                        consumer.accept(keyBytes, valueBytes);
+                    }
+                }
+            } finally {
+                unlock();
+            }
+        }
+
+        private void clear() {
+            lock();
+            try {
+                for (int i = 0; i < hashes.length; i++) {
+                    if (hashes[i] != 0) {
+                        freeRecord(addresses[i]);
+                    }
+                }
+                init(DEFAULT_SEGMENT_CAPACITY);
+            } finally {
+                unlock();
+            }
+        }
+
+        private void freeRecord(long address) {
+            allocator.free(address, recordSize(UNSAFE.getInt(address), UNSAFE.getInt(address + 4)));
+        }
+
+        /**
+         * 删除槽位并回移同一探测链上的后续元素
+         * @param index 槽位
+         */
+        private void delete(int index) {
+            freeRecord(addresses[index]);
+            size--;
+
+            int hole = index;
+            int next = (hole + 1) & mask;
+            while (hashes[next] != 0) {
+                int ideal = hashes[next] & mask;
+                boolean movable = hole <= next ? (ideal <= hole || ideal > next) : (ideal <= hole && ideal > next);
+                if (movable) {
+                    hashes[hole] = hashes[next];
+                    addresses[hole] = addresses[next];
+                    lastTimes[hole] = lastTimes[next];
+                    expires[hole] = expires[next];
+                    hole = next;
+                }
+                next = (next + 1) & mask;
+            }
+
+            hashes[hole] = 0;
+            addresses[hole] = 0;
+            lastTimes[hole] = 0;
+            expires[hole] = 0;
+        }
+
+        private void resize() {
+            int[] oldHashes = hashes;
+            long[] oldAddresses = addresses;
+            long[] oldLastTimes = lastTimes;
+            long[] oldExpires = expires;
+            int oldSize = size;
+
+            init(oldHashes.length * 2);
+            for (int i = 0; i < oldHashes.length; i++) {
+                if (oldHashes[i] != 0) {
+                    int index = oldHashes[i] & mask;
+                    while (hashes[index] != 0) {
+                        index = (index + 1) & mask;
+                    }
+                    hashes[index] = oldHashes[i];
+                    addresses[index] = oldAddresses[i];
+                    lastTimes[index] = oldLastTimes[i];
+                    expires[index] = oldExpires[i];
+                }
+            }
+            size = oldSize;
+        }
+    }
+}
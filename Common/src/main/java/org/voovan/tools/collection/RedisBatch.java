@@ -0,0 +1,264 @@
+package org.voovan.tools.collection;
+
+import org.voovan.tools.serialize.TSerialize;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.MultiKeyPipelineBase;
+import redis.clients.jedis.Transaction;
+import redis.clients.util.Pool;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Redis 批量操作
+ *      累积对 RedisMap, RedisList, RedisZSet 的操作, 调用 flush 时使用一个连接通过 pipeline 或者 MULTI 一次性提交,
+ *      参与批量操作的集合必须使用相同的连接池和数据集
+ *
+ * @author: helyho
+ * Voovan Framework.
+ * WebSite: https://github.com/helyho/Voovan
+ * Licence: Apache v2 License
+ */
+public class RedisBatch {
+    private Pool<Jedis> redisPool;
+    private int dbIndex;
+    private boolean transaction = false;
+    private List<Consumer<MultiKeyPipelineBase>> operations = new ArrayList<Consumer<MultiKeyPipelineBase>>();
+
+    /**
+     * 构造函数
+     * @param redisPool redis 连接池
+     * @param dbIndex 数据集序号
+     */
+    public RedisBatch(Pool<Jedis> redisPool, int dbIndex) {
+        this.redisPool = redisPool;
+        this.dbIndex = dbIndex;
+    }
+
+    /**
+     * 设置是否使用 MULTI 事务提交
+     * @param transaction true: 使用 MULTI/EXEC 提交, false: 使用 pipeline 提交
+     * @return RedisBatch 对象
+     */
+    public RedisBatch transaction(boolean transaction) {
+        this.transaction = transaction;
+        return this;
+    }
+
+    /**
+     * 获取累积的操作数量
+     * @return 操作数量
+     */
+    public int size() {
+        return operations.size();
+    }
+
+    /**
+     * 增加一个自定义操作
+     * @param operation 在 pipeline 或者 transaction 上执行的操作
+     * @return RedisBatch 对象
+     */
+    public RedisBatch add(Consumer<MultiKeyPipelineBase> operation) {
+        operations.add(operation);
+        return this;
+    }
+
+    private void checkPool(Pool<Jedis> pool, int index) {
+        if (pool != redisPool || index != dbIndex) {
+            throw new IllegalArgumentException("RedisBatch only accept the collection with same redis pool and db index");
+        }
+    }
+
+    /**
+     * 写入 RedisMap, 使用 RedisMap 的默认超时时间
+     * @param redisMap RedisMap 对象
+     * @param key 键
+     * @param value 值
+     * @param <K> 键类型
+     * @param <V> 值类型
+     * @return RedisBatch 对象
+     */
+    public <K, V> RedisBatch put(RedisMap<K, V> redisMap, K key, V value) {
+        return put(redisMap, key, value, redisMap.getExpire());
+    }
+
+    /**
+     * 写入 RedisMap
+     * @param redisMap RedisMap 对象
+     * @param key 键
+     * @param value 值
+     * @param expire 超时时间, 只在 redis 的顶层键值系统中有效
+     * @param <K> 键类型
+     * @param <V> 值类型
+     * @return RedisBatch 对象
+     */
+    public <K, V> RedisBatch put(RedisMap<K, V> redisMap, K key, V value, long expire) {
+        checkPool(redisMap.getRedisPool(), redisMap.getDbIndex());
+
+        byte[] keyBytes = TSerialize.serialize(key);
+        byte[] valueBytes = TSerialize.serialize(value);
+        String name = redisMap.getName();
+
+        if (name != null) {
+            byte[] nameBytes = name.getBytes();
+            return add(pipeline -> pipeline.hset(nameBytes, keyBytes, valueBytes));
+        } else if (expire > 0) {
+            return add(pipeline -> pipeline.setex(keyBytes, (int) expire, valueBytes));
+        } else {
+            return add(pipeline -> pipeline.set(keyBytes, valueBytes));
+        }
+    }
+
+    /**
+     * 从 RedisMap 中移除
+     * @param redisMap RedisMap 对象
+     * @param key 键
+     * @param <K> 键类型
+     * @param <V> 值类型
+     * @return RedisBatch 对象
+     */
+    public <K, V> RedisBatch remove(RedisMap<K, V> redisMap, K key) {
+        checkPool(redisMap.getRedisPool(), redisMap.getDbIndex());
+
+        byte[] keyBytes = TSerialize.serialize(key);
+        String name = redisMap.getName();
+
+        if (name != null) {
+            byte[] nameBytes = name.getBytes();
+            return add(pipeline -> pipeline.hdel(nameBytes, keyBytes));
+        } else {
+            return add(pipeline -> pipeline.del(keyBytes));
+        }
+    }
+
+    /**
+     * 更新 RedisMap 中某个键的超时时间
+     * @param redisMap RedisMap 对象
+     * @param key 键
+     * @param expire 超时时间
+     * @param <K> 键类型
+     * @param <V> 值类型
+     * @return RedisBatch 对象
+     */
+    public <K, V> RedisBatch setTTL(RedisMap<K, V> redisMap, K key, long expire) {
+        checkPool(redisMap.getRedisPool(), redisMap.getDbIndex());
+
+        if (redisMap.getName() != null) {
+            throw new UnsupportedOperationException();
+        }
+
+        byte[] keyBytes = TSerialize.serialize(key);
+        return add(pipeline -> pipeline.expire(keyBytes, (int) expire));
+    }
+
+    /**
+     * 在 RedisList 尾部增加元素
+     * @param redisList RedisList 对象
+     * @param value 值
+     * @param <V> 值类型
+     * @return RedisBatch 对象
+     */
+    public <V> RedisBatch addLast(RedisList<V> redisList, V value) {
+        checkPool(redisList.getRedisPool(), redisList.getDbIndex());
+
+        byte[] nameBytes = redisList.getName().getBytes();
+        byte[] valueBytes = TSerialize.serialize(value);
+        return add(pipeline -> pipeline.rpush(nameBytes, valueBytes));
+    }
+
+    /**
+     * 在 RedisList 头部增加元素
+     * @param redisList RedisList 对象
+     * @param value 值
+     * @param <V> 值类型
+     * @return RedisBatch 对象
+     */
+    public <V> RedisBatch addFirst(RedisList<V> redisList, V value) {
+        checkPool(redisList.getRedisPool(), redisList.getDbIndex());
+
+        byte[] nameBytes = redisList.getName().getBytes();
+        byte[] valueBytes = TSerialize.serialize(value);
+        return add(pipeline -> pipeline.lpush(nameBytes, valueBytes));
+    }
+
+    /**
+     * 从 RedisList 中移除第一个相等的元素
+     * @param redisList RedisList 对象
+     * @param value 值
+     * @param <V> 值类型
+     * @return RedisBatch 对象
+     */
+    public <V> RedisBatch remove(RedisList<V> redisList, V value) {
+        checkPool(redisList.getRedisPool(), redisList.getDbIndex());
+
+        byte[] nameBytes = redisList.getName().getBytes();
+        byte[] valueBytes = TSerialize.serialize(value);
+        return add(pipeline -> pipeline.lrem(nameBytes, 1, valueBytes));
+    }
+
+    /**
+     * 向 RedisZSet 中增加元素
+     * @param redisZSet RedisZSet 对象
+     * @param score 元素的分
+     * @param value 值
+     * @param <V> 值类型
+     * @return RedisBatch 对象
+     */
+    public <V> RedisBatch add(RedisZSet<V> redisZSet, double score, V value) {
+        checkPool(redisZSet.getRedisPool(), redisZSet.getDbIndex());
+
+        byte[] nameBytes = redisZSet.getName().getBytes();
+        byte[] valueBytes = TSerialize.serialize(value);
+        return add(pipeline -> pipeline.zadd(nameBytes, score, valueBytes));
+    }
+
+    /**
+     * 从 RedisZSet 中移除元素
+     * @param redisZSet RedisZSet 对象
+     * @param value 值
+     * @param <V> 值类型
+     * @return RedisBatch 对象
+     */
+    public <V> RedisBatch remove(RedisZSet<V> redisZSet, V value) {
+        checkPool(redisZSet.getRedisPool(), redisZSet.getDbIndex());
+
+        byte[] nameBytes = redisZSet.getName().getBytes();
+        byte[] valueBytes = TSerialize.serialize(value);
+        return add(pipeline -> pipeline.zrem(nameBytes, valueBytes));
+    }
+
+    /**
+     * 提交所有累积的操作
+     *      提交后清空累积的操作, RedisBatch 对象可以继续使用
+     * @return 每个操作的返回值
+     */
+    public List<Object> flush() {
+        if (operations.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<Consumer<MultiKeyPipelineBase>> currentOperations = operations;
+        operations = new ArrayList<Consumer<MultiKeyPipelineBase>>();
+
+        try (Jedis jedis = redisPool.getResource()) {
+            jedis.select(dbIndex);
+
+            if (transaction) {
+                Transaction multi = jedis.multi();
+                for (Consumer<MultiKeyPipelineBase> operation : currentOperations) {
+                    operation.accept(multi);
+                }
+                return multi.exec();
+            } else {
+                Pipeline pipeline = jedis.pipelined();
+                for (Consumer<MultiKeyPipelineBase> operation : currentOperations) {
+                    operation.accept(pipeline);
+                }
+                return pipeline.syncAndReturnAll();
+            }
+        }
+    }
+}
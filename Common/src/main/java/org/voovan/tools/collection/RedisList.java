@@ -5,6 +5,8 @@ import redis.clients.jedis.BinaryClient;
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPool;
 import redis.clients.jedis.JedisPoolConfig;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
 import redis.clients.util.Pool;
 
 import java.io.Closeable;
@@ -105,6 +107,30 @@ public class RedisList<V> implements List<V>, Deque<V>, Closeable {
         return dbIndex;
     }
 
+    /**
+     * 获取 redis 连接池
+     * @return redis 连接池
+     */
+    public Pool<Jedis> getRedisPool() {
+        return redisPool;
+    }
+
+    /**
+     * 获取在 redis 中的 List 的名称
+     * @return List 的名称
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 创建一个使用相同连接池和数据集的批量操作对象
+     * @return RedisBatch 对象
+     */
+    public RedisBatch batch() {
+        return new RedisBatch(redisPool, dbIndex);
+    }
+
     private Jedis getJedis(){
         Jedis Jedis = redisPool.getResource();
         Jedis.select(dbIndex);
@@ -143,7 +169,55 @@ public class RedisList<V> implements List<V>, Deque<V>, Closeable {
 
     @Override
     public Iterator<V> iterator() {
-        return (Iterator<V>)new RedisListIterator(this, false);
+        return pageIterator(RedisScanIterator.DEFAULT_PAGE_SIZE);
+    }
+
+    /**
+     * 分页迭代器, 每次通过 LRANGE 获取一页数据, 避免逐个 LINDEX
+     *      支持 remove, 移除后后续分页的偏移量同步前移
+     * @param pageSize 每页的数量
+     * @return 迭代器
+     */
+    public Iterator<V> pageIterator(int pageSize) {
+        return new Iterator<V>() {
+            private int offset = 0;
+            private int index = 0;
+            private int lastIndex = -1;
+            private boolean finished = false;
+            private Iterator<V> page = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while(!page.hasNext() && !finished) {
+                    List<V> values = range(offset, offset + pageSize - 1);
+                    offset = offset + values.size();
+                    finished = values.size() < pageSize;
+                    page = values.iterator();
+                }
+                return page.hasNext();
+            }
+
+            @Override
+            public V next() {
+                if(!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                lastIndex = index++;
+                return page.next();
+            }
+
+            @Override
+            public void remove() {
+                if(lastIndex < 0) {
+                    throw new IllegalStateException();
+                }
+
+                RedisList.this.remove(lastIndex);
+                offset--;
+                index--;
+                lastIndex = -1;
+            }
+        };
     }
 
     @Override
@@ -153,27 +227,12 @@ public class RedisList<V> implements List<V>, Deque<V>, Closeable {
 
     @Override
     public Object[] toArray() {
-        int size = size();
-        Object[] values = new Object[size];
-        for(int i=0;i<size;i++){
-            values[i] = get(i);
-        }
-
-        return values;
+        return range(0, -1).toArray();
     }
 
     @Override
     public <T> T[] toArray(T[] a) {
-        int size = size();
-
-        if(a.length < size) {
-            a = Arrays.copyOf(a, size);
-        }
-
-        for(int i=0;i<size;i++){
-            a[i] = (T) get(i);
-        }
-        return a;
+        return range(0, -1).toArray(a);
     }
 
     @Override
@@ -369,13 +428,25 @@ public class RedisList<V> implements List<V>, Deque<V>, Closeable {
 
     @Override
     public boolean removeAll(Collection<?> c) {
+        if(c.isEmpty()) {
+            return false;
+        }
+
         try (Jedis jedis = getJedis()) {
+            byte[] nameByteArray = name.getBytes();
+            Pipeline pipeline = jedis.pipelined();
+            List<Response<Long>> responses = new ArrayList<Response<Long>>();
             for(Object item : c){
-                remove(c);
+                responses.add(pipeline.lrem(nameByteArray, 0, TSerialize.serialize(item)));
             }
-        }
+            pipeline.sync();
 
-        return true;
+            long rmCount = 0;
+            for(Response<Long> response : responses) {
+                rmCount = rmCount + response.get();
+            }
+            return rmCount > 0;
+        }
     }
 
     @Override
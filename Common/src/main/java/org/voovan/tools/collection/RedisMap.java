@@ -37,6 +37,7 @@ public class RedisMap<K, V> implements ICacheMap<K, V>, Closeable {
     private String name = null;
     private int dbIndex = 0;
     private Function<K, V> supplier = null;
+    private String keyPattern = "*";
 
     /**
      * 构造函数
@@ -156,6 +157,41 @@ public class RedisMap<K, V> implements ICacheMap<K, V>, Closeable {
         return this;
     }
 
+    /**
+     * 获取顶层键值系统中扫描键时使用的匹配表达式
+     * @return 匹配表达式
+     */
+    public String getKeyPattern() {
+        return keyPattern;
+    }
+
+    /**
+     * 设置顶层键值系统中扫描键时使用的匹配表达式
+     *      name 为 null 时 keySet/values/keyIterator 通过 SCAN MATCH 只扫描匹配的键, 不会扫描整个数据集中的其他键
+     * @param keyPattern 匹配表达式, 默认: *
+     * @return RedisMap 对象
+     */
+    public RedisMap<K, V> keyPattern(String keyPattern) {
+        this.keyPattern = keyPattern == null ? "*" : keyPattern;
+        return this;
+    }
+
+    /**
+     * 获取 redis 连接池
+     * @return redis 连接池
+     */
+    public Pool<Jedis> getRedisPool() {
+        return redisPool;
+    }
+
+    /**
+     * 获取在 redis 中的 HashMap的名称
+     * @return HashMap的名称, null: 使用 redis 的顶层键值系统
+     */
+    public String getName() {
+        return name;
+    }
+
     private Jedis getJedis(){
         Jedis Jedis = redisPool.getResource();
         Jedis.select(dbIndex);
@@ -508,23 +544,140 @@ public class RedisMap<K, V> implements ICacheMap<K, V>, Closeable {
         }
     }
 
+    /**
+     * 批量写入, 使用 pipeline 一次性提交
+     * @param map 需要写入的数据
+     * @param expire 超时时间, 只在 redis 的顶层键值系统中有效
+     */
     public void putAll(Map<? extends K, ? extends V> map, long expire) {
-        try (Jedis jedis = getJedis()){
-            for (Object obj : map.entrySet()) {
-                Map.Entry entry = (Map.Entry) obj;
+        if(name!=null) {
+            throw new UnsupportedOperationException();
+        }
 
+        try (Jedis jedis = getJedis()){
+            Pipeline pipeline = jedis.pipelined();
+            for (Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
                 byte[] keyByteArray = TSerialize.serialize(entry.getKey());
                 byte[] valueByteArray = TSerialize.serialize(entry.getValue());
 
-                if(name==null) {
-                    jedis.setex(keyByteArray, (int) expire, valueByteArray);
+                if(expire > 0) {
+                    pipeline.setex(keyByteArray, (int) expire, valueByteArray);
                 } else {
-                    throw new UnsupportedOperationException();
+                    pipeline.set(keyByteArray, valueByteArray);
                 }
             }
+            pipeline.sync();
         }
     }
 
+    /**
+     * 批量获取, 使用一次 MGET 或者 HMGET 请求
+     * @param keys 键集合
+     * @return 存在的键值对, 不存在的键不会出现在结果中
+     */
+    public Map<K, V> getAll(Collection<K> keys) {
+        Map<K, V> result = new LinkedHashMap<K, V>();
+        if(keys.isEmpty()) {
+            return result;
+        }
+
+        List<K> keyList = new ArrayList<K>(keys);
+        byte[][] keyByteArrays = new byte[keyList.size()][];
+        for(int i=0; i<keyList.size(); i++) {
+            keyByteArrays[i] = TSerialize.serialize(keyList.get(i));
+        }
+
+        List<byte[]> valueByteArrays;
+        try (Jedis jedis = getJedis()) {
+            if(name==null) {
+                valueByteArrays = jedis.mget(keyByteArrays);
+            } else {
+                valueByteArrays = jedis.hmget(name.getBytes(), keyByteArrays);
+            }
+        }
+
+        for(int i=0; i<keyList.size(); i++) {
+            byte[] valueByteArray = valueByteArrays.get(i);
+            if(valueByteArray!=null) {
+                result.put(keyList.get(i), (V) TSerialize.unserialize(valueByteArray));
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * 批量移除, 使用一次 DEL 或者 HDEL 请求
+     * @param keys 键集合
+     * @return 实际移除的数量
+     */
+    public long removeAll(Collection<K> keys) {
+        if(keys.isEmpty()) {
+            return 0;
+        }
+
+        byte[][] keyByteArrays = new byte[keys.size()][];
+        int i = 0;
+        for(K key : keys) {
+            keyByteArrays[i] = TSerialize.serialize(key);
+            i++;
+        }
+
+        try (Jedis jedis = getJedis()) {
+            if(name==null) {
+                return jedis.del(keyByteArrays);
+            } else {
+                return jedis.hdel(name.getBytes(), keyByteArrays);
+            }
+        }
+    }
+
+    /**
+     * 创建一个使用相同连接池和数据集的批量操作对象
+     * @return RedisBatch 对象
+     */
+    public RedisBatch batch() {
+        return new RedisBatch(redisPool, dbIndex);
+    }
+
+    /**
+     * 基于 SCAN/HSCAN 的键迭代器, 不会像 KEYS 一样阻塞 redis
+     *      SCAN 在 rehash 时可能返回重复的键, 需要去重的场景使用 keySet()
+     * @param count 每页的建议数量
+     * @return 键迭代器
+     */
+    public Iterator<K> keyIterator(int count) {
+        ScanParams scanParams = RedisScanIterator.scanParams(count);
+        if(name==null) {
+            scanParams.match(keyPattern);
+            return new RedisScanIterator<byte[], K>(redisPool, dbIndex,
+                    (jedis, cursor) -> jedis.scan(cursor, scanParams),
+                    bytes -> (K) TSerialize.unserialize(bytes));
+        } else {
+            byte[] nameByteArray = name.getBytes();
+            return new RedisScanIterator<Map.Entry<byte[], byte[]>, K>(redisPool, dbIndex,
+                    (jedis, cursor) -> jedis.hscan(nameByteArray, cursor, scanParams),
+                    entry -> (K) TSerialize.unserialize(entry.getKey()));
+        }
+    }
+
+    /**
+     * 基于 HSCAN 的键值对迭代器, 只在使用 name 的 hash 模式下有效
+     * @param count 每页的建议数量
+     * @return 键值对迭代器
+     */
+    public Iterator<Map.Entry<K, V>> entryIterator(int count) {
+        if(name==null) {
+            throw new UnsupportedOperationException();
+        }
+
+        ScanParams scanParams = RedisScanIterator.scanParams(count);
+        byte[] nameByteArray = name.getBytes();
+        return new RedisScanIterator<Map.Entry<byte[], byte[]>, Map.Entry<K, V>>(redisPool, dbIndex,
+                (jedis, cursor) -> jedis.hscan(nameByteArray, cursor, scanParams),
+                entry -> new AbstractMap.SimpleEntry<K, V>((K) TSerialize.unserialize(entry.getKey()), (V) TSerialize.unserialize(entry.getValue())));
+    }
+
     @Override
     public void clear() {
         try (Jedis jedis = getJedis()) {
@@ -538,23 +691,12 @@ public class RedisMap<K, V> implements ICacheMap<K, V>, Closeable {
 
     @Override
     public Set<K> keySet() {
-        try (Jedis jedis = getJedis()) {
-            if(name==null){
-                return (Set<K>) jedis.keys("*".getBytes()).parallelStream().map(new Function<byte[], Object>() {
-                    @Override
-                    public Object apply(byte[] bytes) {
-                        return  (K)TSerialize.unserialize(bytes);
-                    }
-                }).collect(Collectors.toSet());
-            }else {
-                return (Set<K>)jedis.hkeys(name.getBytes()).parallelStream().map(new Function<byte[], Object>() {
-                    @Override
-                    public Object apply(byte[] bytes) {
-                        return  (K)TSerialize.unserialize(bytes);
-                    }
-                }).collect(Collectors.toSet());
-            }
+        Set<K> keySet = new HashSet<K>();
+        Iterator<K> iterator = keyIterator(RedisScanIterator.DEFAULT_PAGE_SIZE);
+        while(iterator.hasNext()) {
+            keySet.add(iterator.next());
         }
+        return keySet;
     }
 
     /**
@@ -584,17 +726,32 @@ public class RedisMap<K, V> implements ICacheMap<K, V>, Closeable {
 
     @Override
     public Collection<V> values() {
-        try (Jedis jedis = getJedis()) {
-            if(name==null){
-                throw new UnsupportedOperationException();
-            }else {
-                return jedis.hvals(name.getBytes()).stream().map(new Function<byte[], V>() {
-                    @Override
-                    public V apply(byte[] bytes) {
-                        return  (V)TSerialize.unserialize(bytes);
-                    }
-                }).collect(Collectors.toList());
+        if(name==null){
+            //分页扫描键并通过 MGET 获取值, 避免逐个 GET, SCAN 可能返回重复的键, 已经获取过的键跳过
+            List<V> values = new ArrayList<V>();
+            Set<K> scanedKeys = new HashSet<K>();
+            List<K> page = new ArrayList<K>();
+            Iterator<K> iterator = keyIterator(RedisScanIterator.DEFAULT_PAGE_SIZE);
+            while(iterator.hasNext()) {
+                K key = iterator.next();
+                if(scanedKeys.add(key)) {
+                    page.add(key);
+                }
+                if(page.size() >= RedisScanIterator.DEFAULT_PAGE_SIZE || (!iterator.hasNext() && !page.isEmpty())) {
+                    values.addAll(getAll(page).values());
+                    page.clear();
+                }
             }
+            return values;
+        }
+
+        try (Jedis jedis = getJedis()) {
+            return jedis.hvals(name.getBytes()).stream().map(new Function<byte[], V>() {
+                @Override
+                public V apply(byte[] bytes) {
+                    return  (V)TSerialize.unserialize(bytes);
+                }
+            }).collect(Collectors.toList());
         }
     }
 
@@ -0,0 +1,90 @@
+package org.voovan.tools.collection;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.ScanParams;
+import redis.clients.jedis.ScanResult;
+import redis.clients.util.Pool;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * 基于 Redis SCAN 系列命令的迭代器
+ *      每次取一页数据, 每页使用一个独立的 Jedis 连接, 元素在 next 时才进行反序列化,
+ *      SCAN 命令的特性决定了迭代过程中可能返回重复的元素
+ *
+ * @param <R> SCAN 命令返回的原始元素类型
+ * @param <T> 迭代器返回的元素类型
+ *
+ * @author: helyho
+ * Voovan Framework.
+ * WebSite: https://github.com/helyho/Voovan
+ * Licence: Apache v2 License
+ */
+public class RedisScanIterator<R, T> implements Iterator<T> {
+    public static final int DEFAULT_PAGE_SIZE = 1000;
+
+    private Pool<Jedis> redisPool;
+    private int dbIndex;
+    private BiFunction<Jedis, byte[], ScanResult<R>> scanner;
+    private Function<R, T> mapper;
+
+    private byte[] cursor = ScanParams.SCAN_POINTER_START_BINARY;
+    private boolean finished = false;
+    private Iterator<R> page = Collections.emptyIterator();
+
+    /**
+     * 构造函数
+     * @param redisPool redis 连接池
+     * @param dbIndex 数据集序号
+     * @param scanner 根据游标获取一页数据的函数
+     * @param mapper 元素转换函数
+     */
+    public RedisScanIterator(Pool<Jedis> redisPool, int dbIndex, BiFunction<Jedis, byte[], ScanResult<R>> scanner, Function<R, T> mapper) {
+        this.redisPool = redisPool;
+        this.dbIndex = dbIndex;
+        this.scanner = scanner;
+        this.mapper = mapper;
+    }
+
+    /**
+     * 构造 SCAN 参数
+     * @param count 每页的建议数量
+     * @return ScanParams 对象
+     */
+    public static ScanParams scanParams(int count) {
+        ScanParams scanParams = new ScanParams();
+        scanParams.count(count);
+        return scanParams;
+    }
+
+    private void fetch() {
+        try (Jedis jedis = redisPool.getResource()) {
+            jedis.select(dbIndex);
+            ScanResult<R> scanResult = scanner.apply(jedis, cursor);
+            cursor = scanResult.getCursorAsBytes();
+            page = scanResult.getResult().iterator();
+            finished = Arrays.equals(cursor, ScanParams.SCAN_POINTER_START_BINARY);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!page.hasNext() && !finished) {
+            fetch();
+        }
+        return page.hasNext();
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return mapper.apply(page.next());
+    }
+}
@@ -6,8 +6,10 @@ import redis.clients.util.Pool;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 
@@ -105,6 +107,30 @@ public class RedisZSet<V> implements Closeable {
         return dbIndex;
     }
 
+    /**
+     * 获取 redis 连接池
+     * @return redis 连接池
+     */
+    public Pool<Jedis> getRedisPool() {
+        return redisPool;
+    }
+
+    /**
+     * 获取在 redis 中的 ZSet 的名称
+     * @return ZSet 的名称
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 创建一个使用相同连接池和数据集的批量操作对象
+     * @return RedisBatch 对象
+     */
+    public RedisBatch batch() {
+        return new RedisBatch(redisPool, dbIndex);
+    }
+
     private Jedis getJedis(){
         Jedis Jedis = redisPool.getResource();
         Jedis.select(dbIndex);
@@ -435,6 +461,28 @@ public class RedisZSet<V> implements Closeable {
         }
     }
 
+    /**
+     * 批量移除元素, 使用一次 ZREM 请求
+     * @param values 元素集合
+     * @return 实际移除的数量
+     */
+    public long removeAll(Collection<V> values){
+        if(values.isEmpty()) {
+            return 0;
+        }
+
+        byte[][] valueByteArrays = new byte[values.size()][];
+        int i = 0;
+        for(V value : values) {
+            valueByteArrays[i] = TSerialize.serialize(value);
+            i++;
+        }
+
+        try (Jedis jedis = getJedis()) {
+            return jedis.zrem(name.getBytes(), valueByteArrays);
+        }
+    }
+
     /**
      * 移除某个特定 value 区间的数据
      * @param start value 的最大值
@@ -552,6 +600,19 @@ public class RedisZSet<V> implements Closeable {
         }
     }
 
+    /**
+     * 基于 ZSCAN 的元素迭代器, 不会一次性加载全部元素
+     * @param count 每页的建议数量
+     * @return 元素迭代器
+     */
+    public Iterator<V> iterator(int count){
+        ScanParams scanParams = RedisScanIterator.scanParams(count);
+        byte[] nameByteArray = name.getBytes();
+        return new RedisScanIterator<Tuple, V>(redisPool, dbIndex,
+                (jedis, cursor) -> jedis.zscan(nameByteArray, cursor, scanParams),
+                tuple -> (V) TSerialize.unserialize(tuple.getBinaryElement()));
+    }
+
     @Override
     public void close() throws IOException {
         redisPool.close();
@@ -0,0 +1,282 @@
+package org.voovan.tools.collection;
+
+import org.voovan.tools.exception.RocksMapException;
+import org.voovan.tools.serialize.TSerialize;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * RocksMap 的 key 和 value 编解码器
+ *      RocksDB 按无符号字节序排列 key, 使用保序的编码时 key 的字节序和自然顺序一致,
+ *      subMap/headMap/tailMap/startWith 等范围操作的结果才是有序的
+ *
+ * @author: helyho
+ * Voovan Framework.
+ * WebSite: https://github.com/helyho/Voovan
+ * Licence: Apache v2 License
+ */
+public interface RocksCodec<T> {
+
+    /**
+     * 编码
+     * @param object 待编码的对象, 不能为 null
+     * @return 编码后的字节
+     */
+    public byte[] encode(T object);
+
+    /**
+     * 解码
+     * @param bytes 编码后的字节, 不能为 null
+     * @return 解码后的对象
+     */
+    public T decode(byte[] bytes);
+
+    /**
+     * 编码后的字节序是否和对象的自然顺序一致
+     * @return true: 保序, false: 不保序
+     */
+    public default boolean isOrdered() {
+        return false;
+    }
+
+    /**
+     * 编码后的固定长度, 在组合 key 中固定长度的元素不需要转义和结束符
+     * @return 固定长度, 变长编码返回 -1
+     */
+    public default int fixedLength() {
+        return -1;
+    }
+
+    /**
+     * 使用 TSerialize 序列化, 包含类型信息, 不保序
+     */
+    public static final RocksCodec<Object> SERIALIZE = new RocksCodec<Object>() {
+        @Override
+        public byte[] encode(Object object) {
+            return TSerialize.serialize(object);
+        }
+
+        @Override
+        public Object decode(byte[] bytes) {
+            return TSerialize.unserialize(bytes);
+        }
+    };
+
+    /**
+     * 字节数组直接存取
+     */
+    public static final RocksCodec<byte[]> BYTES = new RocksCodec<byte[]>() {
+        @Override
+        public byte[] encode(byte[] object) {
+            return object;
+        }
+
+        @Override
+        public byte[] decode(byte[] bytes) {
+            return bytes;
+        }
+
+        @Override
+        public boolean isOrdered() {
+            return true;
+        }
+    };
+
+    /**
+     * UTF-8 字符串, 字节序和 Unicode 码点的顺序一致
+     */
+    public static final RocksCodec<String> STRING = new RocksCodec<String>() {
+        @Override
+        public byte[] encode(String object) {
+            return object.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public String decode(byte[] bytes) {
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public boolean isOrdered() {
+            return true;
+        }
+    };
+
+    /**
+     * 8 字节大端序的 long, 翻转符号位使负数排在正数之前
+     */
+    public static final RocksCodec<Long> LONG = new RocksCodec<Long>() {
+        @Override
+        public byte[] encode(Long object) {
+            long value = object ^ Long.MIN_VALUE;
+            byte[] bytes = new byte[8];
+            for (int i = 7; i >= 0; i--) {
+                bytes[i] = (byte) value;
+                value >>>= 8;
+            }
+            return bytes;
+        }
+
+        @Override
+        public Long decode(byte[] bytes) {
+            if (bytes.length != 8) {
+                throw new RocksMapException("RocksCodec.LONG decode failed, length: " + bytes.length);
+            }
+
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value = (value << 8) | (bytes[i] & 0xFF);
+            }
+            return value ^ Long.MIN_VALUE;
+        }
+
+        @Override
+        public boolean isOrdered() {
+            return true;
+        }
+
+        @Override
+        public int fixedLength() {
+            return 8;
+        }
+    };
+
+    /**
+     * 4 字节大端序的 int, 翻转符号位使负数排在正数之前
+     */
+    public static final RocksCodec<Integer> INTEGER = new RocksCodec<Integer>() {
+        @Override
+        public byte[] encode(Integer object) {
+            int value = object ^ Integer.MIN_VALUE;
+            return new byte[]{(byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value};
+        }
+
+        @Override
+        public Integer decode(byte[] bytes) {
+            if (bytes.length != 4) {
+                throw new RocksMapException("RocksCodec.INTEGER decode failed, length: " + bytes.length);
+            }
+
+            int value = (bytes[0] & 0xFF) << 24 | (bytes[1] & 0xFF) << 16 | (bytes[2] & 0xFF) << 8 | (bytes[3] & 0xFF);
+            return value ^ Integer.MIN_VALUE;
+        }
+
+        @Override
+        public boolean isOrdered() {
+            return true;
+        }
+
+        @Override
+        public int fixedLength() {
+            return 4;
+        }
+    };
+
+    /**
+     * 构造组合 key 的编解码器
+     *      固定长度的元素直接拼接, 变长元素中的 0x00 转义为 0x00 0xFF 并以 0x00 0x00 结尾,
+     *      所有元素的编解码器都保序时, 组合 key 按元素逐个比较的顺序排列
+     * @param codecs 每个元素的编解码器
+     * @return 组合 key 的编解码器
+     */
+    public static RocksCodec<List<Object>> tuple(RocksCodec... codecs) {
+        return new TupleCodec(codecs);
+    }
+
+    /**
+     * 按 RocksDB 默认的无符号字节序比较
+     * @param bytes1 字节数组1
+     * @param bytes2 字节数组2
+     * @return 负数: bytes1 在前, 0: 相等, 正数: bytes1 在后
+     */
+    public static int compare(byte[] bytes1, byte[] bytes2) {
+        int length = Math.min(bytes1.length, bytes2.length);
+        for (int i = 0; i < length; i++) {
+            int diff = (bytes1[i] & 0xFF) - (bytes2[i] & 0xFF);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return bytes1.length - bytes2.length;
+    }
+
+    /**
+     * 组合 key 的编解码器
+     */
+    public static class TupleCodec implements RocksCodec<List<Object>> {
+        private RocksCodec[] codecs;
+        private boolean ordered = true;
+
+        public TupleCodec(RocksCodec... codecs) {
+            this.codecs = codecs;
+            for (RocksCodec codec : codecs) {
+                ordered = ordered && codec.isOrdered();
+            }
+        }
+
+        @Override
+        public byte[] encode(List<Object> object) {
+            if (object.size() != codecs.length) {
+                throw new RocksMapException("RocksCodec.tuple encode failed, need " + codecs.length + " elements, but " + object.size());
+            }
+
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            for (int i = 0; i < codecs.length; i++) {
+                byte[] bytes = codecs[i].encode(object.get(i));
+                if (codecs[i].fixedLength() > 0) {
+                    outputStream.write(bytes, 0, bytes.length);
+                } else {
+                    for (byte b : bytes) {
+                        outputStream.write(b);
+                        if (b == 0) {
+                            outputStream.write(0xFF);
+                        }
+                    }
+                    outputStream.write(0);
+                    outputStream.write(0);
+                }
+            }
+            return outputStream.toByteArray();
+        }
+
+        @Override
+        public List<Object> decode(byte[] bytes) {
+            ArrayList<Object> elements = new ArrayList<Object>(codecs.length);
+            int position = 0;
+            try {
+                for (RocksCodec codec : codecs) {
+                    int fixedLength = codec.fixedLength();
+                    if (fixedLength > 0) {
+                        elements.add(codec.decode(Arrays.copyOfRange(bytes, position, position + fixedLength)));
+                        position += fixedLength;
+                    } else {
+                        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+                        while (true) {
+                            byte b = bytes[position++];
+                            if (b == 0) {
+                                if (bytes[position++] == 0) {
+                                    break;
+                                }
+                            }
+                            outputStream.write(b);
+                        }
+                        elements.add(codec.decode(outputStream.toByteArray()));
+                    }
+                }
+            } catch (ArrayIndexOutOfBoundsException e) {
+                throw new RocksMapException("RocksCodec.tuple decode failed, malformed bytes", e);
+            }
+            return Collections.unmodifiableList(elements);
+        }
+
+        @Override
+        public boolean isOrdered() {
+            return ordered;
+        }
+    }
+}
@@ -15,6 +15,7 @@ import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.util.*;
 import java.util.Comparator;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
@@ -36,6 +37,9 @@ public class RocksMap<K, V> implements SortedMap<K, V>, Closeable {
 
     public final static String DEFAULT_COLUMN_FAMILY_NAME = "voovan_default";
 
+    //元数据列族, 保存精确计数模式下各个列族的计数器
+    public final static String META_COLUMN_FAMILY_NAME = "voovan_meta";
+
     private static byte[] DATA_BYTES = "data".getBytes();
     //缓存 db 和他对应的 TransactionDB
     private static Map<String, RocksDB> ROCKSDB_MAP = new ConcurrentHashMap<String, RocksDB>();
@@ -46,6 +50,12 @@ public class RocksMap<K, V> implements SortedMap<K, V>, Closeable {
     //默认列族定义
     private static ColumnFamilyDescriptor DEFAULE_CF_DESCRIPTOR = new ColumnFamilyDescriptor(RocksDB.DEFAULT_COLUMN_FAMILY);
 
+    //精确计数模式下逐个删除范围内的 key 时每批删除的数量
+    private static int REMOVE_RANGE_BATCH_SIZE = 1024;
+
+    //元数据列族配置, 计数器使用 64 位整数累加的 merge 操作更新, 并发写入时不需要锁定计数器
+    private static ColumnFamilyOptions META_CF_OPTIONS = new ColumnFamilyOptions().setMergeOperatorName("uint64add");
+
     //数据文件的默认保存路径
     private static String DEFAULT_DB_PATH = ".rocksdb"+ File.separator;
     private static String DEFAULT_WAL_PATH = DEFAULT_DB_PATH + ".wal"+ File.separator;
@@ -92,6 +102,45 @@ public class RocksMap<K, V> implements SortedMap<K, V>, Closeable {
         return COLUMN_FAMILY_HANDLE_MAP.get(rocksDB).get(columnFamilyName);
     }
 
+    /**
+     * 获取元数据列族, 不存在则创建
+     * @param rocksDB RocksDB 对象
+     * @return 元数据列族句柄
+     * @throws RocksDBException RocksDB 异常
+     */
+    private static ColumnFamilyHandle getMetaColumnFamilyHandler(RocksDB rocksDB) throws RocksDBException {
+        Map<String, ColumnFamilyHandle> columnFamilyHandleMap = COLUMN_FAMILY_HANDLE_MAP.get(rocksDB);
+        ColumnFamilyHandle metaColumnFamilyHandle = columnFamilyHandleMap.get(META_COLUMN_FAMILY_NAME);
+        if(metaColumnFamilyHandle == null) {
+            synchronized (columnFamilyHandleMap) {
+                metaColumnFamilyHandle = columnFamilyHandleMap.get(META_COLUMN_FAMILY_NAME);
+                if(metaColumnFamilyHandle == null) {
+                    metaColumnFamilyHandle = rocksDB.createColumnFamily(new ColumnFamilyDescriptor(META_COLUMN_FAMILY_NAME.getBytes(), META_CF_OPTIONS));
+                    columnFamilyHandleMap.put(META_COLUMN_FAMILY_NAME, metaColumnFamilyHandle);
+                }
+            }
+        }
+        return metaColumnFamilyHandle;
+    }
+
+    /**
+     * 计数器的值转换成字节, uint64add 使用小端序的 64 位整数, 负数按补码累加
+     * @param value 计数器的值
+     * @return 计数器的字节
+     */
+    private static byte[] counterToBytes(long value) {
+        return ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putLong(value).array();
+    }
+
+    /**
+     * 字节转换成计数器的值
+     * @param bytes 计数器的字节
+     * @return 计数器的值
+     */
+    private static long bytesToCounter(byte[] bytes) {
+        return ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).getLong();
+    }
+
     /**
      * 关闭 RocksDB 极其句柄
      * @param rocksDB RocksDB 对象
@@ -106,6 +155,19 @@ public class RocksMap<K, V> implements SortedMap<K, V>, Closeable {
     }
 
 
+    /**
+     * 计数模式, 决定 size() 和 isEmpty() 的实现方式, 在构造时为每个 RocksMap 指定
+     */
+    public enum SizeMode {
+        //遍历列族计数, 精确但耗时和记录数成正比
+        SCAN,
+        //在元数据列族中维护计数器, 计数器和数据在同一个事务中更新, O(1) 精确计数
+        //写入时需要额外读取并锁定 key 来判断 key 是否已经存在, 同一个列族的所有写入方都必须使用这个模式
+        EXACT,
+        //使用 rocksdb.estimate-num-keys 属性, O(1) 但只是估算值, 不包含未提交的事务数据
+        ESTIMATE
+    }
+
     //--------------------- 成员变量 --------------------
     public transient DBOptions            dbOptions;
     public transient ReadOptions          readOptions;
@@ -114,6 +176,8 @@ public class RocksMap<K, V> implements SortedMap<K, V>, Closeable {
 
     private transient RocksDB                     rocksDB;
     private transient ColumnFamilyHandle          dataColumnFamilyHandle;
+    private transient ColumnFamilyHandle          metaColumnFamilyHandle;
+    private transient byte[]                      counterKey;
     private transient ThreadLocal<Transaction>    threadLocalTransaction      = new ThreadLocal<Transaction>();
     private transient ThreadLocal<Integer>        threadLocalSavePointCount   = ThreadLocal.withInitial(()->new Integer(0));
     private transient ThreadLocal<StringBuilder>  threadLocalBuilder           = ThreadLocal.withInitial(()->new StringBuilder());
@@ -123,6 +187,10 @@ public class RocksMap<K, V> implements SortedMap<K, V>, Closeable {
     private transient Boolean readOnly;
     private transient Boolean isDuplicate = false;
     private transient int transactionLockTimeout = 5000;
+    private transient SizeMode sizeMode = SizeMode.SCAN;
+    private transient RocksCodec keyCodec = RocksCodec.SERIALIZE;
+    private transient RocksCodec valueCodec = RocksCodec.SERIALIZE;
+    private transient RocksWriteBehind writeBehind;
 
     /**
      * 构造方法
@@ -175,6 +243,16 @@ public class RocksMap<K, V> implements SortedMap<K, V>, Closeable {
         this(dbname, columnFamilyName, null, null, null, null, readOnly);
     }
 
+    /**
+     * 构造方法
+     * @param dbname 数据库的名称, 基于数据保存目录的相对路径
+     * @param columnFamilyName 列族名称
+     * @param sizeMode 计数模式
+     */
+    public RocksMap(String dbname, String columnFamilyName, SizeMode sizeMode) {
+        this(dbname, columnFamilyName, null, null, null, null, null, sizeMode);
+    }
+
     /**
      * 构造方法
      * @param dbname 数据库的名称, 基于数据保存目录的相对路径
@@ -186,12 +264,28 @@ public class RocksMap<K, V> implements SortedMap<K, V>, Closeable {
      * @param readOnly 是否以只读模式打开
      */
     public RocksMap(String dbname, String columnFamilyName, ColumnFamilyOptions columnFamilyOptions, DBOptions dbOptions, ReadOptions readOptions, WriteOptions writeOptions, Boolean readOnly) {
+        this(dbname, columnFamilyName, columnFamilyOptions, dbOptions, readOptions, writeOptions, readOnly, null);
+    }
+
+    /**
+     * 构造方法
+     * @param dbname 数据库的名称, 基于数据保存目录的相对路径
+     * @param columnFamilyName 列族名称
+     * @param dbOptions DBOptions 配置对象
+     * @param readOptions ReadOptions 配置对象
+     * @param writeOptions WriteOptions 配置对象
+     * @param columnFamilyOptions 列族配置对象
+     * @param readOnly 是否以只读模式打开
+     * @param sizeMode 计数模式, 默认 SCAN
+     */
+    public RocksMap(String dbname, String columnFamilyName, ColumnFamilyOptions columnFamilyOptions, DBOptions dbOptions, ReadOptions readOptions, WriteOptions writeOptions, Boolean readOnly, SizeMode sizeMode) {
         this.dbname = dbname == null ? DEFAULT_COLUMN_FAMILY_NAME : dbname;
         this.columnFamilyName = columnFamilyName == null ? "voovan_default" : columnFamilyName;
         this.readOptions = readOptions == null ? new ReadOptions() : readOptions;
         this.writeOptions = writeOptions == null ? new WriteOptions() : writeOptions;
         this.columnFamilyOptions = columnFamilyOptions == null ? new ColumnFamilyOptions() : columnFamilyOptions;
         this.readOnly = readOnly == null ? false : readOnly;
+        this.sizeMode = sizeMode == null ? SizeMode.SCAN : sizeMode;
 
         Options options = new Options();
         options.setCreateIfMissing(true);
@@ -223,7 +317,9 @@ public class RocksMap<K, V> implements SortedMap<K, V>, Closeable {
                     List<byte[]> columnFamilyNameBytes = RocksDB.listColumnFamilies(new Options(), DEFAULT_DB_PATH + this.dbname);
                     if (columnFamilyNameBytes.size() > 0) {
                         for (byte[] columnFamilyNameByte : columnFamilyNameBytes) {
-                            ColumnFamilyDescriptor columnFamilyDescriptor = new ColumnFamilyDescriptor(columnFamilyNameByte, this.columnFamilyOptions);
+                            //元数据列族需要使用计数器的 merge 操作
+                            ColumnFamilyOptions cfOptions = META_COLUMN_FAMILY_NAME.equals(new String(columnFamilyNameByte)) ? META_CF_OPTIONS : this.columnFamilyOptions;
+                            ColumnFamilyDescriptor columnFamilyDescriptor = new ColumnFamilyDescriptor(columnFamilyNameByte, cfOptions);
                             DEFAULT_CF_DESCRIPTOR_LIST.add(columnFamilyDescriptor);
                         }
                     }
@@ -279,8 +375,16 @@ public class RocksMap<K, V> implements SortedMap<K, V>, Closeable {
         this.columnFamilyName = columnFamilyName;
         this.readOnly = rocksMap.readOnly;
         this.transactionLockTimeout = rocksMap.transactionLockTimeout;
+        this.sizeMode = rocksMap.sizeMode;
+        this.keyCodec = rocksMap.keyCodec;
+        this.valueCodec = rocksMap.valueCodec;
         this.isDuplicate = true;
 
+        //相同列族共享父对象的异步写入, 保证和父对象排队中的写入按顺序生效
+        if(columnFamilyName.equals(rocksMap.columnFamilyName)) {
+            this.writeBehind = rocksMap.writeBehind;
+        }
+
         this.choseColumnFamily(columnFamilyName);
     }
 
@@ -315,6 +419,130 @@ public class RocksMap<K, V> implements SortedMap<K, V>, Closeable {
         return readOnly;
     }
 
+    public SizeMode getSizeMode() {
+        return sizeMode;
+    }
+
+    public RocksCodec getKeyCodec() {
+        return keyCodec;
+    }
+
+    /**
+     * 设置 key 的编解码器, 默认使用 TSerialize
+     *      使用 RocksCodec.LONG/STRING 等保序的编码时, key 的迭代顺序和自然顺序一致
+     *      需要在写入数据前设置, 已有数据不会被重新编码
+     * @param keyCodec key 的编解码器
+     * @return RocksMap 对象
+     */
+    public RocksMap<K, V> keyCodec(RocksCodec<? super K> keyCodec) {
+        this.keyCodec = keyCodec;
+        return this;
+    }
+
+    public RocksCodec getValueCodec() {
+        return valueCodec;
+    }
+
+    /**
+     * 设置 value 的编解码器, 默认使用 TSerialize
+     *      需要在写入数据前设置, 已有数据不会被重新编码
+     * @param valueCodec value 的编解码器
+     * @return RocksMap 对象
+     */
+    public RocksMap<K, V> valueCodec(RocksCodec<? super V> valueCodec) {
+        this.valueCodec = valueCodec;
+        return this;
+    }
+
+    public RocksWriteBehind getWriteBehind() {
+        return writeBehind;
+    }
+
+    /**
+     * 开启异步批量写入模式
+     *      事务外的单 key 写入和删除由写入线程合并成 WriteBatch 后写入, 多个线程并发写入时共享 WAL 写入开销
+     *      put/remove 等待所在批次写入完成后返回, putAsync/removeAsync 提交后立即返回 CompletableFuture
+     *      putAll/removeAll 本身已经是批量写入, 仍然直接写入
+     *      putAll/removeAll/removeRange/putIfAbsent/replace 和事务开始前会等待队列中的写入完成, 避免排队的写入覆盖它们的结果
+     * @param batchSize 每个 WriteBatch 的最大操作数
+     * @param flushInterval 凑满一个批次的最长等待时间, 单位: 毫秒, 0: 不等待
+     * @param queueSize 队列长度, 队列满时写入方阻塞
+     * @return RocksMap 对象
+     */
+    public RocksMap<K, V> writeBehind(int batchSize, int flushInterval, int queueSize) {
+        if(readOnly){
+            throw new RocksMapException("RocksMap Not supported operation in read only mode");
+        }
+
+        closeWriteBehind();
+
+        writeBehind = new RocksWriteBehind(this, batchSize, flushInterval, queueSize);
+        return this;
+    }
+
+    /**
+     * 关闭由当前对象创建的异步写入, 共享自父对象的异步写入由父对象关闭
+     */
+    private void closeWriteBehind() {
+        if(writeBehind != null && writeBehind.getRocksMap() == this) {
+            writeBehind.close();
+        }
+        writeBehind = null;
+    }
+
+    /**
+     * 等待已提交的异步写入全部完成
+     */
+    public void flushWrites() {
+        if(writeBehind != null) {
+            writeBehind.flush();
+        }
+    }
+
+    /**
+     * 批量写入, 由异步写入线程调用
+     * @param keysBytes key 集合
+     * @param valuesBytes value 集合, 元素为 null 时删除对应的 key
+     */
+    void writeBatch(List<byte[]> keysBytes, List<byte[]> valuesBytes) {
+        try {
+            if(sizeMode == SizeMode.EXACT) {
+                countedWrite(keysBytes, valuesBytes);
+                return;
+            }
+
+            WriteBatch writeBatch = THREAD_LOCAL_WRITE_BATCH.get();
+            writeBatch.clear();
+            for (int i = 0; i < keysBytes.size(); i++) {
+                byte[] valueBytes = valuesBytes.get(i);
+                if (valueBytes == null) {
+                    writeBatch.delete(dataColumnFamilyHandle, keysBytes.get(i));
+                } else {
+                    writeBatch.put(dataColumnFamilyHandle, keysBytes.get(i), valueBytes);
+                }
+            }
+            rocksDB.write(writeOptions, writeBatch);
+        } catch (RocksDBException e) {
+            throw new RocksMapException("RocksMap write batch failed, " + e.getMessage(), e);
+        }
+    }
+
+    private byte[] encodeKey(Object key) {
+        return key == null ? null : keyCodec.encode(key);
+    }
+
+    private K decodeKey(byte[] keyBytes) {
+        return keyBytes == null ? null : (K) keyCodec.decode(keyBytes);
+    }
+
+    private byte[] encodeValue(Object value) {
+        return value == null ? null : valueCodec.encode(value);
+    }
+
+    private V decodeValue(byte[] valueBytes) {
+        return valueBytes == null ? null : (V) valueCodec.decode(valueBytes);
+    }
+
     public int savePointCount() {
         return threadLocalSavePointCount.get();
     }
@@ -377,6 +605,7 @@ public class RocksMap<K, V> implements SortedMap<K, V>, Closeable {
 
     /**
      * 获取某个序号以后的更新操作记录
+     *      反序列化时, 当前列族的 key 和 value 使用 keyCodec/valueCodec 解码, 其他列族的记录使用 TSerialize 解码
      * @param startSequence 起始序号
      * @param endSequence 结束序号
      * @param filter 过滤器,用来过滤可用的操作类型和列族
@@ -384,6 +613,14 @@ public class RocksMap<K, V> implements SortedMap<K, V>, Closeable {
      * @return 日志记录集合
      */
     public List<RocksWalRecord> getWalBetween(Long startSequence, Long endSequence, BiFunction<Integer, Integer, Boolean> filter, boolean  withSerial) {
+        //计数器的更新不属于数据, 不返回元数据列族的记录
+        ColumnFamilyHandle metaHandle = getColumnFamilyHandler(rocksDB, META_COLUMN_FAMILY_NAME);
+        if(metaHandle != null) {
+            int metaColumnFamilyId = metaHandle.getID();
+            BiFunction<Integer, Integer, Boolean> dataFilter = filter;
+            filter = (columnFamilyId, type) -> columnFamilyId != metaColumnFamilyId && (dataFilter == null || dataFilter.apply(columnFamilyId, type));
+        }
+
         try (TransactionLogIterator transactionLogIterator = rocksDB.getUpdatesSince(startSequence)) {
 
             ArrayList<RocksWalRecord> rocksWalRecords = new ArrayList<RocksWalRecord>();
@@ -410,7 +647,8 @@ public class RocksMap<K, V> implements SortedMap<K, V>, Closeable {
                     break;
                 }
                 seq = batchResult.sequenceNumber();
-                List<RocksWalRecord> rocksWalRecordBySeq = RocksWalRecord.parse(ByteBuffer.wrap(batchResult.writeBatch().data()), filter, withSerial);
+                List<RocksWalRecord> rocksWalRecordBySeq = RocksWalRecord.parse(ByteBuffer.wrap(batchResult.writeBatch().data()), filter, withSerial,
+                        dataColumnFamilyHandle.getID(), keyCodec, valueCodec);
 
                 rocksWalRecords.addAll(rocksWalRecordBySeq);
 
@@ -453,12 +691,108 @@ public class RocksMap<K, V> implements SortedMap<K, V>, Closeable {
 
             this.columnFamilyName = cfName;
 
+            if(sizeMode == SizeMode.EXACT) {
+                initCounter();
+            }
+
             return this;
         } catch(RocksDBException e){
             throw new RocksMapException("RocksMap initilize failed, " + e.getMessage(), e);
         }
     }
 
+    /**
+     * 初始化当前列族的计数器, 计数器不存在时遍历一次列族来获得初始值
+     *      在同一个快照上判断计数器是否存在并遍历列族, 初始值用 merge 累加到计数器上,
+     *      快照之后其他线程写入的增量不会被覆盖, 同一个 RocksDB 上的初始化串行执行, 避免重复累加初始值
+     * @throws RocksDBException RocksDB 异常
+     */
+    private void initCounter() throws RocksDBException {
+        counterKey = TSerialize.serialize(columnFamilyName);
+
+        if(readOnly) {
+            //只读模式无法创建计数器, 不存在时 size() 回退到遍历计数
+            metaColumnFamilyHandle = getColumnFamilyHandler(rocksDB, META_COLUMN_FAMILY_NAME);
+            return;
+        }
+
+        metaColumnFamilyHandle = getMetaColumnFamilyHandler(rocksDB);
+        if(rocksDB.get(metaColumnFamilyHandle, readOptions, counterKey) != null) {
+            return;
+        }
+
+        synchronized (COLUMN_FAMILY_HANDLE_MAP.get(rocksDB)) {
+            Snapshot snapshot = rocksDB.getSnapshot();
+            try (ReadOptions snapshotReadOptions = new ReadOptions(readOptions).setSnapshot(snapshot)) {
+                //快照前已经有写入累加了计数器, 或者其他 RocksMap 已经完成了初始化
+                if(rocksDB.get(metaColumnFamilyHandle, snapshotReadOptions, counterKey) != null) {
+                    return;
+                }
+
+                long count = 0;
+                try (RocksIterator iterator = rocksDB.newIterator(dataColumnFamilyHandle, snapshotReadOptions)) {
+                    iterator.seekToFirst();
+                    while (iterator.isValid()) {
+                        iterator.next();
+                        count++;
+                    }
+                }
+
+                rocksDB.merge(metaColumnFamilyHandle, writeOptions, counterKey, counterToBytes(count));
+            } finally {
+                rocksDB.releaseSnapshot(snapshot);
+            }
+        }
+    }
+
+    /**
+     * 精确计数模式的写入, 读取并锁定 key 来判断 key 是否存在, 计数器的变化和数据在同一个事务中提交
+     *      不在事务中时使用独立的事务
+     * @param keysBytes key 集合
+     * @param valuesBytes value 集合, 为 null 时删除 key
+     * @throws RocksDBException RocksDB 异常
+     */
+    private void countedWrite(List<byte[]> keysBytes, List<byte[]> valuesBytes) throws RocksDBException {
+        Transaction transaction = threadLocalTransaction.get();
+        Transaction innerTransaction = transaction == null ? createTransaction(-1, false, false) : null;
+        Transaction currentTransaction = transaction == null ? innerTransaction : transaction;
+
+        try {
+            long delta = 0;
+            for (int i = 0; i < keysBytes.size(); i++) {
+                byte[] keyBytes = keysBytes.get(i);
+                byte[] valueBytes = valuesBytes == null ? null : valuesBytes.get(i);
+                boolean exists = currentTransaction.getForUpdate(readOptions, dataColumnFamilyHandle, keyBytes, true) != null;
+
+                if (valueBytes == null) {
+                    if (exists) {
+                        currentTransaction.delete(dataColumnFamilyHandle, keyBytes);
+                        delta--;
+                    }
+                } else {
+                    currentTransaction.put(dataColumnFamilyHandle, keyBytes, valueBytes);
+                    if (!exists) {
+                        delta++;
+                    }
+                }
+            }
+
+            //计数器不参与事务的锁定, 避免所有写事务在计数器上串行
+            if (delta != 0) {
+                currentTransaction.mergeUntracked(metaColumnFamilyHandle, counterKey, counterToBytes(delta));
+            }
+        } catch (RocksDBException | RuntimeException e) {
+            if (innerTransaction != null) {
+                rollback(innerTransaction);
+            }
+            throw e;
+        }
+
+        if (innerTransaction != null) {
+            commit(innerTransaction);
+        }
+    }
+
     /**
      * 获取事务锁超时时间
      * @return 事务锁超时时间
@@ -539,6 +873,8 @@ public class RocksMap<K, V> implements SortedMap<K, V>, Closeable {
     public void beginTransaction(long expire, boolean deadlockDetect, boolean withSnapShot) {
         Transaction transaction = threadLocalTransaction.get();
         if(transaction==null) {
+            //事务需要读到之前异步提交的写入
+            flushWrites();
             transaction = createTransaction(expire, deadlockDetect, withSnapShot);
             threadLocalTransaction.set(transaction);
         } else {
@@ -658,9 +994,18 @@ public class RocksMap<K, V> implements SortedMap<K, V>, Closeable {
         }
     }
 
+    /**
+     * 使用 TSerialize 编码 key 时返回 null, 按 key 的自然顺序排序
+     * 使用其他编解码器时按 key 编码后的字节序排序, 和 RocksDB 中的顺序一致
+     * @return key 的比较器
+     */
     @Override
     public Comparator<? super K> comparator() {
-        return null;
+        if(keyCodec == RocksCodec.SERIALIZE) {
+            return null;
+        }
+
+        return (key1, key2) -> RocksCodec.compare(encodeKey(key1), encodeKey(key2));
     }
 
     private RocksIterator getIterator(){
@@ -674,10 +1019,10 @@ public class RocksMap<K, V> implements SortedMap<K, V>, Closeable {
 
     @Override
     public SortedMap<K,V> subMap(K fromKey, K toKey) {
-        TreeMap<K,V> subMap =  new TreeMap<K,V>();
+        TreeMap<K,V> subMap =  new TreeMap<K,V>(comparator());
         try (RocksIterator iterator = getIterator()){
-            byte[] fromKeyBytes = TSerialize.serialize(fromKey);
-            byte[] toKeyBytes = TSerialize.serialize(toKey);
+            byte[] fromKeyBytes = encodeKey(fromKey);
+            byte[] toKeyBytes = encodeKey(toKey);
 
             if (fromKeyBytes == null) {
                 iterator.seekToFirst();
@@ -685,14 +1030,14 @@ public class RocksMap<K, V> implements SortedMap<K, V>, Closeable {
                 iterator.seek(fromKeyBytes);
             }
 
+            //key 按字节序排列, 超过 toKey 后结束
             while (iterator.isValid()) {
                 byte[] key = iterator.key();
-                if (toKey == null || !Arrays.equals(toKeyBytes, key)) {
-                    subMap.put((K) TSerialize.unserialize(iterator.key()), (V) TSerialize.unserialize(iterator.value()));
-                } else {
-                    subMap.put((K) TSerialize.unserialize(iterator.key()), (V) TSerialize.unserialize(iterator.value()));
+                if (toKeyBytes != null && RocksCodec.compare(key, toKeyBytes) > 0) {
                     break;
                 }
+
+                subMap.put(decodeKey(key), decodeValue(iterator.value()));
                 iterator.next();
             }
 
@@ -722,7 +1067,7 @@ public class RocksMap<K, V> implements SortedMap<K, V>, Closeable {
 
             iterator.seekToFirst();
             if (iterator.isValid()) {
-                return (K) TSerialize.unserialize(iterator.key());
+                return decodeKey(iterator.key());
             }
 
             return null;
@@ -735,7 +1080,7 @@ public class RocksMap<K, V> implements SortedMap<K, V>, Closeable {
 
             iterator.seekToLast();
             if (iterator.isValid()) {
-                return (K) TSerialize.unserialize(iterator.key());
+                return decodeKey(iterator.key());
             }
 
             return null;
@@ -743,18 +1088,69 @@ public class RocksMap<K, V> implements SortedMap<K, V>, Closeable {
     }
 
 
-    @Override
     /**
-     * 遍历所有数据来获取 kv 记录的数量, 会消耗很多性能
+     * 获取 kv 记录的数量, 实现方式由计数模式决定, 超过 Integer.MAX_VALUE 时返回 Integer.MAX_VALUE
+     * @return kv 记录的数量
      */
+    @Override
     public int size() {
-//        try {
-//            return Integer.valueOf(rocksDB.getProperty(dataColumnFamilyHandle, "rocksdb.estimate-num-keys"));
-//        } catch (RocksDBException e) {
-//            e.printStackTrace();
-//        }
+        long size = longSize();
+        return size > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) size;
+    }
+
+    /**
+     * 获取 kv 记录的数量, 实现方式由计数模式决定
+     *      SCAN: 遍历所有数据, 会消耗很多性能
+     *      EXACT: 读取计数器, 当前事务修改过计数器时无法合并未提交的计数, 回退到遍历计数
+     *      ESTIMATE: 估算值
+     * @return kv 记录的数量
+     */
+    public long longSize() {
+        if(sizeMode == SizeMode.ESTIMATE) {
+            return estimateSize();
+        }
+
+        if(sizeMode == SizeMode.EXACT && metaColumnFamilyHandle != null) {
+            try {
+                byte[] counterBytes;
+                Transaction transaction = threadLocalTransaction.get();
+                if (transaction != null) {
+                    counterBytes = transaction.get(metaColumnFamilyHandle, readOptions, counterKey);
+                } else {
+                    counterBytes = rocksDB.get(metaColumnFamilyHandle, readOptions, counterKey);
+                }
+
+                if(counterBytes != null) {
+                    return bytesToCounter(counterBytes);
+                }
+            } catch (RocksDBException e) {
+                if(e.getStatus() == null || e.getStatus().getCode() != Status.Code.MergeInProgress) {
+                    throw new RocksMapException("RocksMap read counter failed, " + e.getMessage(), e);
+                }
+            }
+        }
+
+        return scanSize();
+    }
 
-        int count = 0;
+    /**
+     * 使用 rocksdb.estimate-num-keys 属性估算 kv 记录的数量, 不受计数模式影响
+     * @return kv 记录数量的估算值
+     */
+    public long estimateSize() {
+        try {
+            return Long.parseLong(rocksDB.getProperty(dataColumnFamilyHandle, "rocksdb.estimate-num-keys"));
+        } catch (RocksDBException e) {
+            throw new RocksMapException("RocksMap estimate size failed, " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 遍历所有数据来获取 kv 记录的数量, 会消耗很多性能
+     * @return kv 记录的数量
+     */
+    private long scanSize() {
+        long count = 0;
         RocksIterator iterator = null;
 
         try {
@@ -781,6 +1177,11 @@ public class RocksMap<K, V> implements SortedMap<K, V>, Closeable {
 
     @Override
     public boolean isEmpty() {
+        //估算值不能用来判断是否为空
+        if(sizeMode == SizeMode.EXACT && metaColumnFamilyHandle != null) {
+            return longSize() == 0;
+        }
+
         try (RocksIterator iterator = getIterator()){
             iterator.seekToFirst();
             return !iterator.isValid();
@@ -793,9 +1194,9 @@ public class RocksMap<K, V> implements SortedMap<K, V>, Closeable {
         try {
             Transaction transaction = threadLocalTransaction.get();
             if(transaction!=null) {
-                values = transaction.get(dataColumnFamilyHandle, readOptions, TSerialize.serialize(key));
+                values = transaction.get(dataColumnFamilyHandle, readOptions, encodeKey(key));
             } else {
-                values = rocksDB.get(dataColumnFamilyHandle, readOptions, TSerialize.serialize(key));
+                values = rocksDB.get(dataColumnFamilyHandle, readOptions, encodeKey(key));
             }
         } catch (RocksDBException e) {
             throw new RocksMapException("RocksMap containsKey " + key + " failed, " + e.getMessage(), e);
@@ -824,7 +1225,7 @@ public class RocksMap<K, V> implements SortedMap<K, V>, Closeable {
      */
     public void unlock(Object key) {
         Transaction transaction = getTransaction();
-        transaction.undoGetForUpdate(TSerialize.serialize(key));
+        transaction.undoGetForUpdate(encodeKey(key));
     }
 
     /**
@@ -837,8 +1238,8 @@ public class RocksMap<K, V> implements SortedMap<K, V>, Closeable {
         Transaction transaction = getTransaction();
 
         try {
-            byte[] values = transaction.getForUpdate(readOptions, dataColumnFamilyHandle, TSerialize.serialize(key), exclusive);
-            return values==null ? null : (V) TSerialize.unserialize(values);
+            byte[] values = transaction.getForUpdate(readOptions, dataColumnFamilyHandle, encodeKey(key), exclusive);
+            return values==null ? null : decodeValue(values);
         } catch (RocksDBException e) {
             throw new RocksMapException("RocksMap lock " + key + " failed, " + e.getMessage(), e);
         }
@@ -866,8 +1267,8 @@ public class RocksMap<K, V> implements SortedMap<K, V>, Closeable {
             throw new NullPointerException();
         }
 
-        byte[] values = get(TSerialize.serialize(key));
-        return values==null ? null : (V) TSerialize.unserialize(values);
+        byte[] values = get(encodeKey(key));
+        return values==null ? null : decodeValue(values);
     }
 
     public List<V> getAll(Collection<K> keys) {
@@ -876,7 +1277,7 @@ public class RocksMap<K, V> implements SortedMap<K, V>, Closeable {
             ArrayList<ColumnFamilyHandle> columnFamilyHandles = new ArrayList<ColumnFamilyHandle>();
             Iterator keysIterator = keys.iterator();
             for (int i = 0; i < keys.size(); i++) {
-                keysBytes.add(TSerialize.serialize(keysIterator.next()));
+                keysBytes.add(encodeKey(keysIterator.next()));
                 columnFamilyHandles.add(dataColumnFamilyHandle);
             }
 
@@ -890,7 +1291,7 @@ public class RocksMap<K, V> implements SortedMap<K, V>, Closeable {
 
             ArrayList<V> values = new ArrayList<V>();
             for (byte[] valueByte : valuesBytes) {
-                values.add((V) TSerialize.unserialize(valueByte));
+                values.add(decodeValue(valueByte));
             }
             return values;
         } catch (RocksDBException e) {
@@ -901,6 +1302,16 @@ public class RocksMap<K, V> implements SortedMap<K, V>, Closeable {
 
     private void put(byte[] keyBytes, byte[] valueBytes) {
         try {
+            if(writeBehind != null && threadLocalTransaction.get() == null) {
+                RocksWriteBehind.await(writeBehind.write(keyBytes, valueBytes));
+                return;
+            }
+
+            if(sizeMode == SizeMode.EXACT) {
+                countedWrite(Collections.singletonList(keyBytes), Collections.singletonList(valueBytes));
+                return;
+            }
+
             Transaction transaction = threadLocalTransaction.get();
             if (transaction != null) {
                 transaction.put(dataColumnFamilyHandle, keyBytes, valueBytes);
@@ -918,14 +1329,55 @@ public class RocksMap<K, V> implements SortedMap<K, V>, Closeable {
             throw new NullPointerException();
         }
 
-        put(TSerialize.serialize(key), TSerialize.serialize(value));
+        put(encodeKey(key), encodeValue(value));
         return value;
     }
 
+    /**
+     * 异步写入, 未开启异步批量写入模式或者在事务中时直接写入
+     *      写入完成前 get 等读操作读取不到这次写入的数据
+     * @param key key 对象
+     * @param value value 对象
+     * @return 写入完成后结束的 CompletableFuture
+     */
+    public CompletableFuture<Void> putAsync(K key, V value) {
+        if(key == null || value == null){
+            throw new NullPointerException();
+        }
+
+        byte[] keyBytes = encodeKey(key);
+        byte[] valueBytes = encodeValue(value);
+        if(writeBehind == null || threadLocalTransaction.get() != null) {
+            put(keyBytes, valueBytes);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return writeBehind.write(keyBytes, valueBytes);
+    }
+
+    /**
+     * 异步删除, 未开启异步批量写入模式或者在事务中时直接删除
+     * @param key key 对象
+     * @return 删除完成后结束的 CompletableFuture
+     */
+    public CompletableFuture<Void> removeAsync(K key) {
+        if(key == null){
+            throw new NullPointerException();
+        }
+
+        if(writeBehind == null || threadLocalTransaction.get() != null) {
+            remove(key, false);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return writeBehind.write(encodeKey(key), null);
+    }
+
     @Override
     public V putIfAbsent(K key, V value) {
-        byte[] keyBytes = TSerialize.serialize(key);
-        byte[] valueBytes = TSerialize.serialize(value);
+        byte[] keyBytes = encodeKey(key);
+        byte[] valueBytes = encodeValue(value);
+        flushWrites();
 
         //这里使用独立的事务是未了防止默认事务提交导致失效
         Transaction innerTransaction = createTransaction(-1, false, false);
@@ -935,9 +1387,12 @@ public class RocksMap<K, V> implements SortedMap<K, V>, Closeable {
 
             if(oldValueBytes == null){
                 innerTransaction.put(dataColumnFamilyHandle, keyBytes, valueBytes);
+                if(sizeMode == SizeMode.EXACT) {
+                    innerTransaction.mergeUntracked(metaColumnFamilyHandle, counterKey, counterToBytes(1));
+                }
                 return null;
             } else {
-                return (V) TSerialize.unserialize(oldValueBytes);
+                return decodeValue(oldValueBytes);
             }
         } catch (RocksDBException e) {
             rollback(innerTransaction);
@@ -953,16 +1408,17 @@ public class RocksMap<K, V> implements SortedMap<K, V>, Closeable {
      * @return 当返回 false 的时候 key 一定不存在, 当返回 true 的时候, key 有可能不存在, 参考 boomfilter
      */
     public boolean keyMayExists(K key) {
-        boolean result = rocksDB.keyMayExist(dataColumnFamilyHandle, TSerialize.serialize(key), threadLocalBuilder.get());
+        boolean result = rocksDB.keyMayExist(dataColumnFamilyHandle, encodeKey(key), threadLocalBuilder.get());
         threadLocalBuilder.get().setLength(0);
         return result;
     }
 
     @Override
     public boolean replace(K key, V oldValue, V newValue) {
-        byte[] keyBytes = TSerialize.serialize(key);
-        byte[] newValueBytes = TSerialize.serialize(newValue);
-        byte[] oldValueBytes = TSerialize.serialize(oldValue);
+        byte[] keyBytes = encodeKey(key);
+        byte[] newValueBytes = encodeValue(newValue);
+        byte[] oldValueBytes = encodeValue(oldValue);
+        flushWrites();
 
         //这里使用独立的事务是未了防止默认事务提交导致失效
         Transaction innerTransaction = createTransaction(-1, false, false);
@@ -1000,7 +1456,13 @@ public class RocksMap<K, V> implements SortedMap<K, V>, Closeable {
             valueBytes = get(keyBytes);
         }
 
-        if(!isRetVal || valueBytes != null) {
+        if(writeBehind != null && threadLocalTransaction.get() == null) {
+            if(!isRetVal || valueBytes != null) {
+                RocksWriteBehind.await(writeBehind.write(keyBytes, null));
+            }
+        } else if(sizeMode == SizeMode.EXACT) {
+            countedWrite(Collections.singletonList(keyBytes), null);
+        } else if(!isRetVal || valueBytes != null) {
             Transaction transaction = threadLocalTransaction.get();
             if(transaction!=null) {
                 transaction.delete(dataColumnFamilyHandle, keyBytes);
@@ -1023,8 +1485,8 @@ public class RocksMap<K, V> implements SortedMap<K, V>, Closeable {
         }
 
         try {
-            byte[] valuesByte = remove(TSerialize.serialize(key), isRetVal);
-            return (V) TSerialize.unserialize(valuesByte);
+            byte[] valuesByte = remove(encodeKey(key), isRetVal);
+            return decodeValue(valuesByte);
         } catch (RocksDBException e) {
             throw new RocksMapException("RocksMap remove " + key + " failed", e);
         }
@@ -1040,7 +1502,19 @@ public class RocksMap<K, V> implements SortedMap<K, V>, Closeable {
             throw new NullPointerException();
         }
 
+        flushWrites();
         try {
+            if(sizeMode == SizeMode.EXACT) {
+                ArrayList<byte[]> keysBytes = new ArrayList<byte[]>(keys.size());
+                for(K key : keys) {
+                    if(key != null) {
+                        keysBytes.add(encodeKey(key));
+                    }
+                }
+                countedWrite(keysBytes, null);
+                return;
+            }
+
             Transaction transaction = threadLocalTransaction.get();
 
             WriteBatch writeBatch = null;
@@ -1054,7 +1528,7 @@ public class RocksMap<K, V> implements SortedMap<K, V>, Closeable {
                     }
 
                     try {
-                        writeBatch.delete(dataColumnFamilyHandle, TSerialize.serialize(key));
+                        writeBatch.delete(dataColumnFamilyHandle, encodeKey(key));
                     } catch (RocksDBException e) {
                         throw new RocksMapException("RocksMap removeAll " + key + " failed", e);
                     }
@@ -1067,7 +1541,7 @@ public class RocksMap<K, V> implements SortedMap<K, V>, Closeable {
                     }
 
                     try {
-                        transaction.delete(dataColumnFamilyHandle, TSerialize.serialize(key));
+                        transaction.delete(dataColumnFamilyHandle, encodeKey(key));
                     } catch (RocksDBException e) {
                         throw new RocksMapException("RocksMap removeAll " + key + " failed", e);
                     }
@@ -1089,18 +1563,37 @@ public class RocksMap<K, V> implements SortedMap<K, V>, Closeable {
      */
     public void removeRange(K fromKey, K toKey) {
         Transaction transaction = threadLocalTransaction.get();
-        byte[] fromKeyBytes = TSerialize.serialize(fromKey);
-        byte[] toKeyBytes = TSerialize.serialize(toKey);
+        byte[] fromKeyBytes = encodeKey(fromKey);
+        byte[] toKeyBytes = encodeKey(toKey);
+        flushWrites();
         try {
-            if(transaction==null) {
+            if(sizeMode == SizeMode.EXACT) {
+                //deleteRange 无法得到删除的记录数, 逐个删除范围内的 key, 按批次提交避免一次锁定和缓存整个范围
+                ArrayList<byte[]> keysBytes = new ArrayList<byte[]>(REMOVE_RANGE_BATCH_SIZE);
+                try (RocksIterator iterator = getIterator()) {
+                    iterator.seek(fromKeyBytes);
+                    while (iterator.isValid() && RocksCodec.compare(iterator.key(), toKeyBytes) < 0) {
+                        keysBytes.add(iterator.key());
+                        iterator.next();
+
+                        if(keysBytes.size() >= REMOVE_RANGE_BATCH_SIZE) {
+                            countedWrite(keysBytes, null);
+                            keysBytes.clear();
+                        }
+                    }
+                }
+
+                if(!keysBytes.isEmpty()) {
+                    countedWrite(keysBytes, null);
+                }
+            } else if(transaction==null) {
                 rocksDB.deleteRange(dataColumnFamilyHandle, writeOptions, fromKeyBytes, toKeyBytes);
             } else {
                 try (RocksIterator iterator = getIterator()) {
                     iterator.seek(fromKeyBytes);
-                    while (iterator.isValid()) {
-                        if (!Arrays.equals(iterator.key(), toKeyBytes)) {
-                            transaction.delete(dataColumnFamilyHandle, iterator.key());
-                        }
+                    while (iterator.isValid() && RocksCodec.compare(iterator.key(), toKeyBytes) < 0) {
+                        transaction.delete(dataColumnFamilyHandle, iterator.key());
+                        iterator.next();
                     }
                 }
             }
@@ -1112,7 +1605,21 @@ public class RocksMap<K, V> implements SortedMap<K, V>, Closeable {
     public static ThreadLocal<WriteBatch> THREAD_LOCAL_WRITE_BATCH = ThreadLocal.withInitial(()->new WriteBatch());
     @Override
     public void putAll(Map m) {
+        flushWrites();
         try {
+            if(sizeMode == SizeMode.EXACT) {
+                ArrayList<byte[]> keysBytes = new ArrayList<byte[]>(m.size());
+                ArrayList<byte[]> valuesBytes = new ArrayList<byte[]>(m.size());
+                Iterator<Entry> iterator = m.entrySet().iterator();
+                while (iterator.hasNext()) {
+                    Entry entry = iterator.next();
+                    keysBytes.add(encodeKey(entry.getKey()));
+                    valuesBytes.add(encodeValue(entry.getValue()));
+                }
+                countedWrite(keysBytes, valuesBytes);
+                return;
+            }
+
             Transaction transaction = threadLocalTransaction.get();
 
             WriteBatch writeBatch = null;
@@ -1124,7 +1631,7 @@ public class RocksMap<K, V> implements SortedMap<K, V>, Closeable {
                     Entry entry = iterator.next();
                     Object key = entry.getKey();
                     Object value = entry.getValue();
-                    writeBatch.put(dataColumnFamilyHandle, TSerialize.serialize(key), TSerialize.serialize(value));
+                    writeBatch.put(dataColumnFamilyHandle, encodeKey(key), encodeValue(value));
                 }
                 rocksDB.write(writeOptions, writeBatch);
             } else {
@@ -1133,7 +1640,7 @@ public class RocksMap<K, V> implements SortedMap<K, V>, Closeable {
                     Entry entry = iterator.next();
                     Object key = entry.getKey();
                     Object value = entry.getValue();
-                    transaction.put(dataColumnFamilyHandle, TSerialize.serialize(key), TSerialize.serialize(value));
+                    transaction.put(dataColumnFamilyHandle, encodeKey(key), encodeValue(value));
                 }
             }
 
@@ -1167,6 +1674,10 @@ public class RocksMap<K, V> implements SortedMap<K, V>, Closeable {
             COLUMN_FAMILY_HANDLE_MAP.get(rocksDB).put(new String(dataColumnFamilyHandle.getName()), dataColumnFamilyHandle);
             //设置列族
             dataColumnFamilyHandle = getColumnFamilyHandler(rocksDB, this.columnFamilyName);
+
+            if(sizeMode == SizeMode.EXACT) {
+                rocksDB.put(metaColumnFamilyHandle, writeOptions, counterKey, counterToBytes(0));
+            }
         } catch (RocksDBException e) {
             throw new RocksMapException("RocksMap clear failed", e);
         }
@@ -1177,9 +1688,17 @@ public class RocksMap<K, V> implements SortedMap<K, V>, Closeable {
      */
     public void drop(){
         try {
-            dataColumnFamilyHandle.close();
+            //等待异步写入完成, 避免删除后再写入
+            flushWrites();
+
+            //句柄需要在删除列族后再关闭
             rocksDB.dropColumnFamily(dataColumnFamilyHandle);
             COLUMN_FAMILY_HANDLE_MAP.get(rocksDB).remove(new String(dataColumnFamilyHandle.getName()));
+            dataColumnFamilyHandle.close();
+
+            if(sizeMode == SizeMode.EXACT) {
+                rocksDB.delete(metaColumnFamilyHandle, writeOptions, counterKey);
+            }
         } catch (RocksDBException e) {
             throw new RocksMapException("RocksMap drop failed", e);
         }
@@ -1191,7 +1710,7 @@ public class RocksMap<K, V> implements SortedMap<K, V>, Closeable {
      */
     @Override
     public Set keySet() {
-        TreeSet<K> keySet = new TreeSet<K>();
+        TreeSet<K> keySet = new TreeSet<K>(comparator());
         RocksIterator iterator = null;
         try {
             Transaction transaction = threadLocalTransaction.get();
@@ -1202,7 +1721,7 @@ public class RocksMap<K, V> implements SortedMap<K, V>, Closeable {
             }
             iterator.seekToFirst();
             while (iterator.isValid()) {
-                K k = (K) TSerialize.unserialize(iterator.key());
+                K k = decodeKey(iterator.key());
                 keySet.add(k);
                 iterator.next();
             }
@@ -1229,7 +1748,7 @@ public class RocksMap<K, V> implements SortedMap<K, V>, Closeable {
             }
             iterator.seekToFirst();
             while (iterator.isValid()) {
-                V value = (V) TSerialize.unserialize(iterator.value());
+                V value = decodeValue(iterator.value());
                 values.add(value);
                 iterator.next();
             }
@@ -1277,15 +1796,17 @@ public class RocksMap<K, V> implements SortedMap<K, V>, Closeable {
      * @return 找到的 Map 数据
      */
     public Map<K,V> startWith(K key, int skipSize, int size) {
-        byte[] keyBytes = TSerialize.serialize(key);
-        TreeMap<K,V> entryMap =  new TreeMap<K,V>();
+        byte[] keyBytes = encodeKey(key);
+        TreeMap<K,V> entryMap =  new TreeMap<K,V>(comparator());
 
         try (RocksMapIterator iterator = new RocksMapIterator(this, key, null, skipSize, size)) {
+            //前缀相同的 key 在字节序中是连续的, 遇到第一个不匹配的 key 后结束
             while (iterator.hasNext()) {
                 iterator.directNext();
-                if (TByte.byteArrayStartWith(iterator.keyBytes(), keyBytes)) {
-                    entryMap.put((K) iterator.key(), (V) iterator.value());
+                if (!TByte.byteArrayStartWith(iterator.keyBytes(), keyBytes)) {
+                    break;
                 }
+                entryMap.put((K) iterator.key(), (V) iterator.value());
             }
 
             return entryMap;
@@ -1294,6 +1815,8 @@ public class RocksMap<K, V> implements SortedMap<K, V>, Closeable {
 
     @Override
     public void close() {
+        closeWriteBehind();
+
         //关闭事务
         Transaction transaction = threadLocalTransaction.get();
         if(transaction!=null){
@@ -1396,12 +1919,16 @@ public class RocksMap<K, V> implements SortedMap<K, V>, Closeable {
 
     /**
      * 数据清理执行器
+     *      开启异步写入时, 扫描前等待队列中的写入完成, 扫描中的写入和删除仍经由异步写入按顺序生效, 此时 disableWal 对其无效
      * @param fromKey 起始 key
      * @param toKey   结束 key
      * @param checker 数据清理逻辑, true: 继续扫描, false: 停止扫描
      * @param disableWal 是否屏蔽 wal
      */
     public void scan(K fromKey, K toKey, Function<RocksMap<K,V>.RocksMapEntry<K,V>, Boolean> checker, boolean disableWal) {
+        //等待排队中的异步写入完成, 避免扫描不到已提交的写入
+        flushWrites();
+
         RocksMap<K,V> innerRocksMap = this.duplicate(this.getColumnFamilyName(), false);
 
         innerRocksMap.writeOptions.setDisableWAL(disableWal);
@@ -1443,7 +1970,7 @@ public class RocksMap<K, V> implements SortedMap<K, V>, Closeable {
         @Override
         public K getKey() {
             if(k==null){
-                this.k = (K) TSerialize.unserialize(keyBytes);
+                this.k = rocksMap.decodeKey(keyBytes);
             }
             return k;
         }
@@ -1451,7 +1978,7 @@ public class RocksMap<K, V> implements SortedMap<K, V>, Closeable {
         @Override
         public V getValue() {
             if(v==null) {
-                this.v = (V) TSerialize.unserialize(valueBytes);
+                this.v = rocksMap.decodeValue(valueBytes);
             }
             return v;
         }
@@ -1466,13 +1993,13 @@ public class RocksMap<K, V> implements SortedMap<K, V>, Closeable {
 
         @Override
         public V setValue(V value) {
-            rocksMap.put(keyBytes, TSerialize.serialize(value));
+            rocksMap.put(keyBytes, rocksMap.encodeValue(value));
             return value;
         }
 
         @Override
         public int compareTo(RocksMapEntry o) {
-            return TByte.byteArrayCompare(this.keyBytes, o.keyBytes);
+            return RocksCodec.compare(this.keyBytes, o.keyBytes);
         }
 
         @Override
@@ -1507,8 +2034,8 @@ public class RocksMap<K, V> implements SortedMap<K, V>, Closeable {
         protected RocksMapIterator(RocksMap rocksMap, K fromKey, K toKey, int skipSize, int size) {
             this.rocksMap = rocksMap;
             this.iterator = rocksMap.getIterator();
-            this.fromKeyBytes = TSerialize.serialize(fromKey);
-            this.toKeyBytes = TSerialize.serialize(toKey);
+            this.fromKeyBytes = rocksMap.encodeKey(fromKey);
+            this.toKeyBytes = rocksMap.encodeKey(toKey);
             this.skipSize = skipSize;
             this.size = size;
 
@@ -1544,7 +2071,7 @@ public class RocksMap<K, V> implements SortedMap<K, V>, Closeable {
                 if (toKeyBytes == null) {
                     return iterator.isValid();
                 } else {
-                    return iterator.isValid() && !(Arrays.equals(iterator.key(), toKeyBytes));
+                    return iterator.isValid() && RocksCodec.compare(iterator.key(), toKeyBytes) < 0;
                 }
             } finally {
                 iterator.prev();
@@ -1559,7 +2086,7 @@ public class RocksMap<K, V> implements SortedMap<K, V>, Closeable {
          * @return Key 的值
          */
         public K key(){
-            return (K)TSerialize.unserialize(iterator.key());
+            return rocksMap.decodeKey(iterator.key());
         }
 
         /**
@@ -1567,7 +2094,7 @@ public class RocksMap<K, V> implements SortedMap<K, V>, Closeable {
          * @return value 的值
          */
         public V value(){
-            return (V)TSerialize.unserialize(iterator.value());
+            return rocksMap.decodeValue(iterator.value());
         }
 
         /**
@@ -1615,6 +2142,11 @@ public class RocksMap<K, V> implements SortedMap<K, V>, Closeable {
         @Override
         public void remove() {
             try {
+                if(rocksMap.sizeMode == SizeMode.EXACT) {
+                    rocksMap.remove(iterator.key(), false);
+                    return;
+                }
+
                 rocksMap.rocksDB.delete(rocksMap.dataColumnFamilyHandle, rocksMap.writeOptions, iterator.key());
             } catch (RocksDBException e) {
                 throw new RocksMapException("RocksMapIterator remove failed", e);
@@ -1762,6 +2294,21 @@ public class RocksMap<K, V> implements SortedMap<K, V>, Closeable {
          * @return 日志记录集合
          */
         public static List<RocksWalRecord> parse(ByteBuffer byteBuffer, BiFunction<Integer, Integer, Boolean> filter, boolean withSerial) {
+            return parse(byteBuffer, filter, withSerial, -1, null, null);
+        }
+
+        /**
+         * 解析某个序号以后的更新操作记录
+         * @param byteBuffer 字节缓冲器
+         * @param filter 过滤器,用来过滤可用的操作类型和列族
+         * @param withSerial 是否进行反序列化
+         * @param columnFamilyId 使用 keyCodec/valueCodec 解码的列族 id, 其他列族的记录使用 TSerialize 解码
+         * @param keyCodec key 的编解码器
+         * @param valueCodec value 的编解码器
+         * @return 日志记录集合
+         */
+        public static List<RocksWalRecord> parse(ByteBuffer byteBuffer, BiFunction<Integer, Integer, Boolean> filter, boolean withSerial,
+                                                 int columnFamilyId, RocksCodec keyCodec, RocksCodec valueCodec) {
             ByteOrder originByteOrder = byteBuffer.order();
             byteBuffer.order(ByteOrder.LITTLE_ENDIAN);
             if(byteBuffer.remaining() < 13) {
@@ -1779,7 +2326,7 @@ public class RocksMap<K, V> implements SortedMap<K, V>, Closeable {
 
             for(int count=0;byteBuffer.hasRemaining();count++) {
 
-                RocksWalRecord rocksWalRecord = parseOperation(byteBuffer, sequence, filter, withSerial);
+                RocksWalRecord rocksWalRecord = parseOperation(byteBuffer, sequence, filter, withSerial, columnFamilyId, keyCodec, valueCodec);
                 if(rocksWalRecord !=null) {
                     rocksWalRecords.add(rocksWalRecord);
                 }
@@ -1798,7 +2345,7 @@ public class RocksMap<K, V> implements SortedMap<K, V>, Closeable {
          * @return 日志记录集合
          */
         public static RocksWalRecord parseOperation(ByteBuffer byteBuffer, long sequence, boolean withSerial){
-            return parseOperation(byteBuffer, sequence, withSerial);
+            return parseOperation(byteBuffer, sequence, null, withSerial);
         }
 
         /**
@@ -1810,6 +2357,22 @@ public class RocksMap<K, V> implements SortedMap<K, V>, Closeable {
          * @return 日志记录集合
          */
         public static RocksWalRecord parseOperation(ByteBuffer byteBuffer, long sequence, BiFunction<Integer, Integer, Boolean> filter, boolean withSerial){
+            return parseOperation(byteBuffer, sequence, filter, withSerial, -1, null, null);
+        }
+
+        /**
+         * 解析某个序号的操作记录
+         * @param byteBuffer 字节缓冲器
+         * @param sequence 序号
+         * @param filter 过滤器,用来过滤可用的操作类型和列族
+         * @param withSerial 是否进行反序列化
+         * @param codecColumnFamilyId 使用 keyCodec/valueCodec 解码的列族 id, 其他列族的记录使用 TSerialize 解码
+         * @param keyCodec key 的编解码器
+         * @param valueCodec value 的编解码器
+         * @return 日志记录集合
+         */
+        public static RocksWalRecord parseOperation(ByteBuffer byteBuffer, long sequence, BiFunction<Integer, Integer, Boolean> filter, boolean withSerial,
+                                                    int codecColumnFamilyId, RocksCodec keyCodec, RocksCodec valueCodec){
             //操作类型
             int type = byteBuffer.get();
 
@@ -1850,7 +2413,7 @@ public class RocksMap<K, V> implements SortedMap<K, V>, Closeable {
 
                         Object chunk = chunkBytes;
                         if (withSerial) {
-                            chunk = TSerialize.unserialize(chunkBytes);
+                            chunk = getCodec(type, columnFamilyId, i, codecColumnFamilyId, keyCodec, valueCodec).decode(chunkBytes);
                         } else {
                             chunk = chunkBytes;
                         }
@@ -1864,6 +2427,37 @@ public class RocksMap<K, V> implements SortedMap<K, V>, Closeable {
 
             return rocksWalRecord;
         }
+
+        /**
+         * 获取数据项的解码器
+         *      指定列族的数据操作: 第一项为 key, 第二项为 value, 范围删除的两项均为 key
+         *      其他记录使用 TSerialize
+         * @param type 操作类型
+         * @param columnFamilyId 记录所属的列族 id
+         * @param index 数据项的序号
+         * @param codecColumnFamilyId 使用 keyCodec/valueCodec 解码的列族 id
+         * @param keyCodec key 的编解码器
+         * @param valueCodec value 的编解码器
+         * @return 解码器
+         */
+        private static RocksCodec getCodec(int type, int columnFamilyId, int index, int codecColumnFamilyId, RocksCodec keyCodec, RocksCodec valueCodec) {
+            if(columnFamilyId != codecColumnFamilyId || keyCodec == null || valueCodec == null) {
+                return RocksCodec.SERIALIZE;
+            }
+
+            if(type == TYPE_DELETION || type == TYPE_SINGLE_DELETION ||
+                    type == TYPE_COLUMNFAMILY_DELETION || type == TYPE_COLUMNFAMILY_SINGLE_DELETION ||
+                    type == TYPE_COLUMNFAMILY_RANGE_DELETION) {
+                return keyCodec;
+            }
+
+            if(type == TYPE_VALUE || type == TYPE_MERGE ||
+                    type == TYPE_COLUMNFAMILY_VALUE || type == TYPE_COLUMNFAMILY_MERGE) {
+                return index == 0 ? keyCodec : valueCodec;
+            }
+
+            return RocksCodec.SERIALIZE;
+        }
     }
 
     /**
@@ -0,0 +1,228 @@
+package org.voovan.tools.collection;
+
+import org.voovan.tools.exception.RocksMapException;
+import org.voovan.tools.log.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RocksMap 的异步批量写入
+ *      多个线程的单 key 写入和删除进入有界队列, 由写入线程合并成 WriteBatch 后一次写入, 多个写入共享一次 WAL 写入(组提交)
+ *      队列满时写入方阻塞等待, 写入结果通过 CompletableFuture 通知
+ *
+ * @author: helyho
+ * Voovan Framework.
+ * WebSite: https://github.com/helyho/Voovan
+ * Licence: Apache v2 License
+ */
+public class RocksWriteBehind {
+    private RocksMap rocksMap;
+    private ArrayBlockingQueue<WriteOperation> queue;
+    private int batchSize;
+    private int flushInterval;
+    private volatile boolean closed = false;
+    private Thread writeThread;
+
+    /**
+     * 构造函数
+     * @param rocksMap 写入的 RocksMap
+     * @param batchSize 每个 WriteBatch 的最大操作数
+     * @param flushInterval 凑满一个批次的最长等待时间, 单位: 毫秒, 0: 不等待, 写入队列中已有的操作
+     * @param queueSize 队列长度, 队列满时写入方阻塞
+     */
+    protected RocksWriteBehind(RocksMap rocksMap, int batchSize, int flushInterval, int queueSize) {
+        this.rocksMap = rocksMap;
+        this.batchSize = Math.max(1, batchSize);
+        this.flushInterval = Math.max(0, flushInterval);
+        this.queue = new ArrayBlockingQueue<WriteOperation>(Math.max(this.batchSize, queueSize));
+
+        writeThread = new Thread(this::process, "VOOVAN@ROCKSMAP_WRITE_BEHIND_" + rocksMap.getColumnFamilyName());
+        writeThread.setDaemon(true);
+        writeThread.start();
+    }
+
+    public RocksMap getRocksMap() {
+        return rocksMap;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public int getFlushInterval() {
+        return flushInterval;
+    }
+
+    /**
+     * 队列中等待写入的操作数
+     * @return 等待写入的操作数
+     */
+    public int size() {
+        return queue.size();
+    }
+
+    /**
+     * 提交写入操作, 队列满时阻塞
+     * @param keyBytes key 的字节
+     * @param valueBytes value 的字节, 为 null 时删除 key
+     * @return 写入完成后结束的 CompletableFuture
+     */
+    public CompletableFuture<Void> write(byte[] keyBytes, byte[] valueBytes) {
+        return submit(new WriteOperation(keyBytes, valueBytes));
+    }
+
+    /**
+     * 等待之前提交的所有操作写入完成
+     */
+    public void flush() {
+        await(submit(new WriteOperation(null, null)));
+    }
+
+    private CompletableFuture<Void> submit(WriteOperation writeOperation) {
+        if(closed) {
+            throw new RocksMapException("RocksMap write behind is closed");
+        }
+
+        try {
+            queue.put(writeOperation);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RocksMapException("RocksMap write behind submit interrupted", e);
+        }
+
+        //入队前 close 已经结束了写入线程并清理了队列, 操作不会再被写入
+        if(closed && queue.remove(writeOperation)) {
+            writeOperation.future.completeExceptionally(new RocksMapException("RocksMap write behind is closed"));
+        }
+
+        return writeOperation.future;
+    }
+
+    /**
+     * 等待写入完成, 写入失败时抛出 RocksMapException
+     * @param future write 方法返回的 CompletableFuture
+     */
+    public static void await(CompletableFuture<Void> future) {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RocksMapException("RocksMap write behind wait interrupted", e);
+        } catch (Exception e) {
+            Throwable cause = e.getCause() == null ? e : e.getCause();
+            throw cause instanceof RocksMapException ? (RocksMapException) cause : new RocksMapException("RocksMap write behind failed", cause);
+        }
+    }
+
+    /**
+     * 写入线程, 按数量或时间合并批次
+     */
+    private void process() {
+        List<WriteOperation> batch = new ArrayList<WriteOperation>(batchSize);
+        while (!closed || !queue.isEmpty()) {
+            try {
+                WriteOperation writeOperation = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (writeOperation == null) {
+                    continue;
+                }
+
+                batch.add(writeOperation);
+                queue.drainTo(batch, batchSize - batch.size());
+
+                if (flushInterval > 0) {
+                    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushInterval);
+                    while (batch.size() < batchSize && !closed) {
+                        long remaining = deadline - System.nanoTime();
+                        if (remaining <= 0) {
+                            break;
+                        }
+
+                        writeOperation = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                        if (writeOperation == null) {
+                            break;
+                        }
+                        batch.add(writeOperation);
+                        queue.drainTo(batch, batchSize - batch.size());
+                    }
+                }
+
+                write(batch);
+            } catch (InterruptedException e) {
+                if (!closed) {
+                    Logger.error("RocksMap write behind interrupted", e);
+                }
+
+                //已经取出的操作没有写入, 通知等待方
+                for (WriteOperation writeOperation : batch) {
+                    writeOperation.future.completeExceptionally(new RocksMapException("RocksMap write behind interrupted", e));
+                }
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<WriteOperation> batch) {
+        List<byte[]> keysBytes = new ArrayList<byte[]>(batch.size());
+        List<byte[]> valuesBytes = new ArrayList<byte[]>(batch.size());
+        for (WriteOperation writeOperation : batch) {
+            //flush 的标记操作不需要写入
+            if (writeOperation.keyBytes != null) {
+                keysBytes.add(writeOperation.keyBytes);
+                valuesBytes.add(writeOperation.valueBytes);
+            }
+        }
+
+        try {
+            if (!keysBytes.isEmpty()) {
+                rocksMap.writeBatch(keysBytes, valuesBytes);
+            }
+
+            for (WriteOperation writeOperation : batch) {
+                writeOperation.future.complete(null);
+            }
+        } catch (Throwable e) {
+            Logger.error("RocksMap write behind write batch failed", e);
+            for (WriteOperation writeOperation : batch) {
+                writeOperation.future.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * 写入队列中剩余的操作后停止写入线程
+     */
+    public void close() {
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+        try {
+            writeThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        //写入线程结束后才进入队列的操作不会被写入
+        WriteOperation writeOperation;
+        while ((writeOperation = queue.poll()) != null) {
+            writeOperation.future.completeExceptionally(new RocksMapException("RocksMap write behind is closed"));
+        }
+    }
+
+    private static class WriteOperation {
+        private byte[] keyBytes;
+        private byte[] valueBytes;
+        private CompletableFuture<Void> future = new CompletableFuture<Void>();
+
+        private WriteOperation(byte[] keyBytes, byte[] valueBytes) {
+            this.keyBytes = keyBytes;
+            this.valueBytes = valueBytes;
+        }
+    }
+}
@@ -0,0 +1,333 @@
+package org.voovan.tools.collection;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * W-TinyLFU 淘汰策略
+ *      由窗口 LRU, 试用区(probation) 和 保护区(protected) 三个队列组成,
+ *      新元素进入窗口区, 窗口区溢出的元素通过 FrequencySketch 和试用区的淘汰候选比较访问频率决定去留,
+ *      所有操作均为 O(1)
+ *
+ * @author: helyho
+ * Voovan Framework.
+ * WebSite: https://github.com/helyho/Voovan
+ * Licence: Apache v2 License
+ */
+public class WindowTinyLFU<K> {
+    private static final byte QUEUE_NONE = 0;
+    private static final byte QUEUE_WINDOW = 1;
+    private static final byte QUEUE_PROBATION = 2;
+    private static final byte QUEUE_PROTECTED = 3;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private FrequencySketch sketch;
+
+    private final Queue<K> window = new Queue<K>();
+    private final Queue<K> probation = new Queue<K>();
+    private final Queue<K> protect = new Queue<K>();
+
+    private int maximum;
+    private int windowMaximum;
+    private int protectedMaximum;
+
+    /**
+     * 构造函数
+     * @param maximum 最大元素数量
+     */
+    public WindowTinyLFU(int maximum) {
+        this.sketch = new FrequencySketch(maximum);
+        setMaximum(maximum);
+    }
+
+    /**
+     * 获取最大元素数量
+     * @return 最大元素数量
+     */
+    public int getMaximum() {
+        return maximum;
+    }
+
+    /**
+     * 设置最大元素数量
+     *      窗口区占 1%, 剩余部分中保护区占 80%
+     * @param maximum 最大元素数量
+     */
+    public void setMaximum(int maximum) {
+        lock.lock();
+        try {
+            this.maximum = Math.max(1, maximum);
+            this.windowMaximum = Math.max(1, this.maximum / 100);
+            this.protectedMaximum = (int) ((this.maximum - windowMaximum) * 0.8);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 当前被跟踪的元素数量
+     * @return 元素数量
+     */
+    public int size() {
+        return window.size + probation.size + protect.size;
+    }
+
+    /**
+     * 记录一次访问
+     *      锁被其他线程持有时直接放弃本次记录, 访问路径不会因淘汰策略而阻塞
+     * @param node 被访问的节点
+     */
+    public void onAccess(Node<K> node) {
+        if (!lock.tryLock()) {
+            return;
+        }
+
+        try {
+            sketch.increment(node.key);
+
+            switch (node.queue) {
+                case QUEUE_WINDOW: {
+                    window.moveToTail(node);
+                    break;
+                }
+                case QUEUE_PROBATION: {
+                    //试用区命中则晋升到保护区, 保护区溢出的元素降级到试用区
+                    probation.remove(node);
+                    protect.addLast(node, QUEUE_PROTECTED);
+                    while (protect.size > protectedMaximum) {
+                        Node<K> demoted = protect.pollFirst();
+                        probation.addLast(demoted, QUEUE_PROBATION);
+                    }
+                    break;
+                }
+                case QUEUE_PROTECTED: {
+                    protect.moveToTail(node);
+                    break;
+                }
+                default:
+                    break;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 增加一个节点
+     * @param node 新增的节点
+     * @return 需要被淘汰的节点, 无需淘汰时返回 null
+     */
+    public Node<K> onAdd(Node<K> node) {
+        lock.lock();
+        try {
+            if (node.queue != QUEUE_NONE) {
+                return null;
+            }
+
+            sketch.increment(node.key);
+            window.addLast(node, QUEUE_WINDOW);
+
+            if (window.size <= windowMaximum) {
+                return null;
+            }
+
+            //窗口区溢出, 候选节点进入试用区
+            Node<K> candidate = window.pollFirst();
+            probation.addLast(candidate, QUEUE_PROBATION);
+
+            if (size() <= maximum) {
+                return null;
+            }
+
+            return admit(candidate);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 移除一个节点
+     * @param node 被移除的节点
+     */
+    public void onRemove(Node<K> node) {
+        lock.lock();
+        try {
+            unlink(node);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 将一个被淘汰但最终保留的节点重新放回保护区
+     * @param node 节点
+     */
+    public void restore(Node<K> node) {
+        lock.lock();
+        try {
+            if (node.queue == QUEUE_NONE) {
+                protect.addLast(node, QUEUE_PROTECTED);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 按淘汰顺序取出一个节点
+     *      用于容量调整后的批量淘汰, 优先级: 试用区, 窗口区, 保护区
+     * @return 被淘汰的节点, 无节点时返回 null
+     */
+    public Node<K> evict() {
+        lock.lock();
+        try {
+            Node<K> victim = probation.pollFirst();
+            if (victim == null) {
+                victim = window.pollFirst();
+            }
+            if (victim == null) {
+                victim = protect.pollFirst();
+            }
+            return victim;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 清空所有节点
+     */
+    public void clear() {
+        lock.lock();
+        try {
+            window.clear();
+            probation.clear();
+            protect.clear();
+            sketch.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 候选节点和试用区头部的节点比较访问频率, 频率低的被淘汰
+     * @param candidate 候选节点
+     * @return 被淘汰的节点
+     */
+    private Node<K> admit(Node<K> candidate) {
+        Node<K> victim = probation.head;
+        if (victim == candidate) {
+            victim = protect.head != null ? protect.head : candidate;
+        }
+
+        Node<K> evicted;
+        if (victim != candidate && sketch.frequency(candidate.key) > sketch.frequency(victim.key)) {
+            evicted = victim;
+        } else {
+            evicted = candidate;
+        }
+
+        unlink(evicted);
+        return evicted;
+    }
+
+    private void unlink(Node<K> node) {
+        switch (node.queue) {
+            case QUEUE_WINDOW: window.remove(node); break;
+            case QUEUE_PROBATION: probation.remove(node); break;
+            case QUEUE_PROTECTED: protect.remove(node); break;
+            default: break;
+        }
+    }
+
+    /**
+     * 策略节点
+     *      由被缓存的对象的标记继承, 不额外分配对象
+     * @param <K> 键类型
+     */
+    public static class Node<K> {
+        protected K key;
+        private Node<K> prev;
+        private Node<K> next;
+        private byte queue = QUEUE_NONE;
+
+        public Node(K key) {
+            this.key = key;
+        }
+
+        public K getKey() {
+            return key;
+        }
+    }
+
+    /**
+     * 侵入式双向链表
+     * @param <K> 键类型
+     */
+    private static class Queue<K> {
+        private Node<K> head;
+        private Node<K> tail;
+        private int size;
+
+        private void addLast(Node<K> node, byte queue) {
+            node.queue = queue;
+            node.prev = tail;
+            node.next = null;
+            if (tail == null) {
+                head = node;
+            } else {
+                tail.next = node;
+            }
+            tail = node;
+            size++;
+        }
+
+        private Node<K> pollFirst() {
+            Node<K> node = head;
+            if (node != null) {
+                remove(node);
+            }
+            return node;
+        }
+
+        private void remove(Node<K> node) {
+            if (node.prev == null) {
+                head = node.next;
+            } else {
+                node.prev.next = node.next;
+            }
+
+            if (node.next == null) {
+                tail = node.prev;
+            } else {
+                node.next.prev = node.prev;
+            }
+
+            node.prev = null;
+            node.next = null;
+            node.queue = QUEUE_NONE;
+            size--;
+        }
+
+        private void moveToTail(Node<K> node) {
+            if (tail != node) {
+                byte queue = node.queue;
+                remove(node);
+                addLast(node, queue);
+            }
+        }
+
+        private void clear() {
+            Node<K> node = head;
+            while (node != null) {
+                Node<K> next = node.next;
+                node.prev = null;
+                node.next = null;
+                node.queue = QUEUE_NONE;
+                node = next;
+            }
+            head = null;
+            tail = null;
+            size = 0;
+        }
+    }
+}
@@ -4,9 +4,11 @@ import org.voovan.tools.FastThreadLocal;
 import org.voovan.tools.TProperties;
 import org.voovan.tools.TString;
 import org.voovan.tools.log.Logger;
-import org.voovan.tools.reflect.TReflect;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
 import java.text.ParseException;
 import java.util.function.Supplier;
 
@@ -113,11 +115,7 @@ public class JSON {
 
 			//设置新的 convertEscapeChar 标志
 			setConvertEscapeChar(convertEscapeChar);
-			if(allField) {
-				jsonString = JSONEncode.fromObject(TReflect.getMapfromObject(object, allField), allField);
-			} else {
-				jsonString = JSONEncode.fromObject(object, false);
-			}
+			jsonString = JSONEncode.fromObject(object, allField);
 
 			if(jsonString.startsWith("\"") && jsonString.endsWith("\"")){
 				jsonString = TString.removeSuffix(jsonString);
@@ -133,6 +131,41 @@ public class JSON {
 		return jsonString;
 	}
 
+	/**
+	 * 将 Java 对象 转换成 UTF-8 编码的 JSON 字节数组
+	 * @param object   	待转换的对象
+	 * @return			转换后的 JSON 字节数组
+	 */
+	public static byte[] toJSONBytes(Object object){
+		JSONWriter jsonWriter = JSONWriter.get(null);
+		try {
+			return jsonWriter.write(object).toByteArray();
+		} catch (IOException | ReflectiveOperationException e) {
+			Logger.error("Reflective Operation failed",e);
+			return null;
+		} finally {
+			jsonWriter.release();
+		}
+	}
+
+	/**
+	 * 将 Java 对象 以 UTF-8 编码的 JSON 写入输出流
+	 * 		使用当前线程可重用的缓冲区, 数据分块写入输出流, 不生成完整的 JSON 字符串
+	 * @param object   		待转换的对象
+	 * @param outputStream  输出流
+	 * @throws IOException IO 异常, 反射异常同样包装为 IOException 抛出, 此时输出流中可能已写入部分数据
+	 */
+	public static void toJSON(Object object, OutputStream outputStream) throws IOException {
+		JSONWriter jsonWriter = JSONWriter.get(outputStream);
+		try {
+			jsonWriter.write(object).flush();
+		} catch (ReflectiveOperationException e) {
+			throw new IOException("Reflective Operation failed", e);
+		} finally {
+			jsonWriter.release();
+		}
+	}
+
 	/**
 	 * 将 JSON字符串 转换成 Java 对象
 	 * @param <T>			范型
@@ -152,6 +185,24 @@ public class JSON {
 	}
 
 
+	/**
+	 * 将 UTF-8 编码的 JSON 数据 转换成 Java 对象
+	 * @param <T>			范型
+	 * @param byteBuffer	待转换的 JSON 数据
+	 * @param type			转换的目标 java 类
+	 * @param ignoreCase    是否忽略字段大小写
+	 * @return				转换后的 Java 对象
+	 */
+	public static <T> T toObject(ByteBuffer byteBuffer, Type type, boolean ignoreCase){
+		T valueObject = null;
+		try {
+			valueObject = JSONDecode.fromJSON(byteBuffer, type, ignoreCase);
+		} catch (ReflectiveOperationException | ParseException e) {
+			Logger.error("Reflective Operation failed",e);
+		}
+		return valueObject;
+	}
+
 	/**
 	 * 将 JSON字符串 转换成 Java 对象,默认严格限制字段大小写
 	 * @param <T>			范型
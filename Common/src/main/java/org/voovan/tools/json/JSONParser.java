@@ -0,0 +1,896 @@
+package org.voovan.tools.json;
+
+import org.voovan.Global;
+import org.voovan.tools.FastThreadLocal;
+import org.voovan.tools.TObject;
+import org.voovan.tools.TString;
+import org.voovan.tools.reflect.TReflect;
+
+import java.lang.reflect.*;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 基于字符数组下标的 JSON 解析器
+ *      直接在 char[] 上解析, 字节数据按 UTF-8 解码到可重用的字符缓冲区,
+ *      可以解析成 HashMap/ArrayList, 也可以通过缓存的类绑定信息直接填充到目标类型的对象中, 不生成中间的 Map
+ *
+ *      兼容原 JSONDecode 的宽松语法: 注释, 单引号字符串, 无引号的键和值, 使用 = 分割键值, 使用换行分割元素, function 值
+ *
+ * @author helyho
+ *
+ * Voovan Framework.
+ * WebSite: https://github.com/helyho/Voovan
+ * Licence: Apache v2 License
+ */
+public class JSONParser {
+    private final static int DEFAULT_BUFFER_SIZE = 4096;
+    private final static int MAX_CACHED_BUFFER_SIZE = 1024 * 1024;
+
+    private final static Map<Class, ClassBinder> CLASS_BINDERS = new ConcurrentHashMap<Class, ClassBinder>();
+
+    private final static FastThreadLocal<JSONParser> THREAD_PARSER = FastThreadLocal.withInitial(() -> new JSONParser());
+
+    private char[] chars;
+    private int position;
+    private int limit;
+    private boolean ignoreCase = false;
+    private boolean convertEscapeChar = JSON.isConvertEscapeChar();
+
+    private char[] buffer;
+    private CharsetDecoder decoder;
+    private boolean inUse = false;
+
+    private JSONParser() {
+    }
+
+    /**
+     * 构造函数
+     * @param chars 字符数组
+     * @param offset 起始位置
+     * @param length 长度
+     */
+    public JSONParser(char[] chars, int offset, int length) {
+        reset(chars, offset, length);
+    }
+
+    private void reset(char[] chars, int offset, int length) {
+        this.chars = chars;
+        this.position = offset;
+        this.limit = offset + length;
+    }
+
+    private static JSONParser borrow() {
+        JSONParser jsonParser = THREAD_PARSER.get();
+        if(jsonParser.inUse) {
+            //嵌套调用时使用新的对象
+            jsonParser = new JSONParser();
+        }
+
+        jsonParser.inUse = true;
+        jsonParser.ignoreCase = false;
+        jsonParser.convertEscapeChar = JSON.isConvertEscapeChar();
+        return jsonParser;
+    }
+
+    private char[] getBuffer(int size) {
+        if(buffer == null || buffer.length < size) {
+            buffer = new char[Math.max(size, DEFAULT_BUFFER_SIZE)];
+        }
+        return buffer;
+    }
+
+    /**
+     * 获取当前线程可重复使用的 JSONParser, 使用完成后需要调用 release 归还
+     * @param jsonStr JSON 字符串
+     * @return JSONParser 对象
+     */
+    public static JSONParser get(String jsonStr) {
+        JSONParser jsonParser = borrow();
+        char[] chars = jsonParser.getBuffer(jsonStr.length());
+        jsonStr.getChars(0, jsonStr.length(), chars, 0);
+        jsonParser.reset(chars, 0, jsonStr.length());
+        return jsonParser;
+    }
+
+    /**
+     * 获取当前线程可重复使用的 JSONParser, 使用完成后需要调用 release 归还
+     * @param byteBuffer UTF-8 编码的 JSON 数据, 解析不会改变 byteBuffer 的 position
+     * @return JSONParser 对象
+     */
+    public static JSONParser get(ByteBuffer byteBuffer) {
+        JSONParser jsonParser = borrow();
+        if(jsonParser.decoder == null) {
+            jsonParser.decoder = StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        }
+
+        //UTF-8 解码后的字符数不会大于字节数
+        CharBuffer charBuffer = CharBuffer.wrap(jsonParser.getBuffer(byteBuffer.remaining()));
+        jsonParser.decoder.reset();
+        jsonParser.decoder.decode(byteBuffer.duplicate(), charBuffer, true);
+        jsonParser.decoder.flush(charBuffer);
+        jsonParser.reset(charBuffer.array(), 0, charBuffer.position());
+        return jsonParser;
+    }
+
+    /**
+     * 获取当前线程可重复使用的 JSONParser, 使用完成后需要调用 release 归还
+     * @param bytes UTF-8 编码的 JSON 数据
+     * @param offset 起始位置
+     * @param length 长度
+     * @return JSONParser 对象
+     */
+    public static JSONParser get(byte[] bytes, int offset, int length) {
+        return get(ByteBuffer.wrap(bytes, offset, length));
+    }
+
+    /**
+     * 归还通过 get 获取的 JSONParser
+     */
+    public void release() {
+        chars = null;
+        if(buffer != null && buffer.length > MAX_CACHED_BUFFER_SIZE) {
+            buffer = null;
+        }
+        inUse = false;
+    }
+
+    /**
+     * 设置绑定对象时是否忽略属性名的大小写
+     * @param ignoreCase true: 忽略, false: 不忽略
+     * @return JSONParser 对象
+     */
+    public JSONParser ignoreCase(boolean ignoreCase) {
+        this.ignoreCase = ignoreCase;
+        return this;
+    }
+
+    /**
+     * 设置是否进行 EscapeChar 的转换
+     * @param convertEscapeChar true: 是, false: 否
+     * @return JSONParser 对象
+     */
+    public JSONParser convertEscapeChar(boolean convertEscapeChar) {
+        this.convertEscapeChar = convertEscapeChar;
+        return this;
+    }
+
+    /**
+     * 解析 JSON
+     *      如果是{}包裹的对象解析成 HashMap,如果是[]包裹的对象解析成 ArrayList
+     * @return 解析后的对象
+     * @throws ParseException 解析异常
+     */
+    public Object parse() throws ParseException {
+        skipBlank();
+        if(position >= limit) {
+            return null;
+        }
+        return readValue();
+    }
+
+    /**
+     * 解析 JSON 并直接绑定到指定的类型
+     * @param type 目标类型
+     * @param <T> 范型
+     * @return 目标类型的对象
+     * @throws ParseException 解析异常
+     * @throws ReflectiveOperationException 反射异常
+     */
+    public <T> T parse(Type type) throws ParseException, ReflectiveOperationException {
+        skipBlank();
+        if(position >= limit) {
+            return null;
+        }
+        return (T) bindValue(type);
+    }
+
+    private ParseException error(String message) {
+        int start = Math.max(0, position - 30);
+        int end = Math.min(limit, position + 10);
+        int current = Math.min(position, limit);
+        String snippet = new String(chars, start, current - start) + "^" + new String(chars, current, end - current);
+        return new ParseException(message + ", position: " + position + ", near: " + snippet, position);
+    }
+
+    //================================ 词法处理 ================================
+
+    /**
+     * 跳过空白字符和注释
+     */
+    private void skipBlank() {
+        while(position < limit) {
+            char c = chars[position];
+            if(c <= ' ' || Character.isWhitespace(c)) {
+                position++;
+            } else if(c == Global.CHAR_BACKSLASH && position + 1 < limit && chars[position + 1] == Global.CHAR_BACKSLASH) {
+                //单行注释
+                position = position + 2;
+                while(position < limit && chars[position] != Global.CHAR_LF) {
+                    position++;
+                }
+            } else if(c == Global.CHAR_BACKSLASH && position + 1 < limit && chars[position + 1] == Global.CHAR_STAR) {
+                //多行注释
+                position = position + 2;
+                while(position < limit && !(chars[position] == Global.CHAR_STAR && position + 1 < limit && chars[position + 1] == Global.CHAR_BACKSLASH)) {
+                    position++;
+                }
+                position = Math.min(limit, position + 2);
+            } else {
+                break;
+            }
+        }
+    }
+
+    /**
+     * 读取分割键值的 : 或者 =
+     * @throws ParseException 解析异常
+     */
+    private void readColon() throws ParseException {
+        skipBlank();
+        if(position < limit && (chars[position] == Global.CHAR_COLON || chars[position] == Global.CHAR_EQUAL)) {
+            position++;
+        } else {
+            throw error("Expect ':' after key");
+        }
+    }
+
+    /**
+     * 读取键名
+     * @return 键名
+     * @throws ParseException 解析异常
+     */
+    private String readKey() throws ParseException {
+        char c = chars[position];
+        if(c == Global.CHAR_QUOTE || c == Global.CHAR_S_QUOTE) {
+            return readString();
+        }
+
+        int start = position;
+        while(position < limit && chars[position] != Global.CHAR_COLON && chars[position] != Global.CHAR_EQUAL) {
+            position++;
+        }
+
+        if(position >= limit) {
+            throw error("Expect ':' after key");
+        }
+
+        return trim(start, position);
+    }
+
+    private String trim(int start, int end) {
+        while(start < end && chars[start] <= ' ') {
+            start++;
+        }
+        while(end > start && chars[end - 1] <= ' ') {
+            end--;
+        }
+        return new String(chars, start, end - start);
+    }
+
+    /**
+     * 判断引号是否是字符串的结束
+     *      未转义的数据中字符串可能包含引号, 引号后是结构字符, 换行或者数据结束时才认为字符串结束
+     * @param index 引号后的位置
+     * @return true: 字符串结束, false: 字符串内容
+     */
+    private boolean isStringEnd(int index) {
+        while(index < limit) {
+            char c = chars[index++];
+            if(c == Global.CHAR_LF || c == Global.CHAR_CR) {
+                return true;
+            } else if(c > ' ') {
+                return c == Global.CHAR_COMMA || c == Global.CHAR_COLON || c == Global.CHAR_EQUAL ||
+                        c == Global.CHAR_RC_BRACES || c == Global.CHAR_RS_BRACES || c == Global.CHAR_BACKSLASH;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 读取字符串, 包含两端的引号
+     * @return 字符串
+     * @throws ParseException 解析异常
+     */
+    private String readString() throws ParseException {
+        char quote = chars[position++];
+        int start = position;
+
+        //快速路径: 没有转义字符
+        while(position < limit) {
+            char c = chars[position];
+            if(c == quote && isStringEnd(position + 1)) {
+                return new String(chars, start, position++ - start);
+            } else if(c == quote || c == Global.CHAR_SLASH) {
+                break;
+            }
+            position++;
+        }
+
+        StringBuilder stringBuilder = new StringBuilder(position - start + 16);
+        stringBuilder.append(chars, start, position - start);
+
+        while(position < limit) {
+            char c = chars[position++];
+            if(c == quote && isStringEnd(position)) {
+                return stringBuilder.toString();
+            }
+
+            if(c != Global.CHAR_SLASH || position >= limit) {
+                stringBuilder.append(c);
+                continue;
+            }
+
+            char escape = chars[position++];
+            if(!convertEscapeChar) {
+                stringBuilder.append(c).append(escape);
+                continue;
+            }
+
+            switch (escape) {
+                case '"'  : stringBuilder.append('"');  break;
+                case '\'' : stringBuilder.append('\''); break;
+                case '\\' : stringBuilder.append('\\'); break;
+                case '/'  : stringBuilder.append('/');  break;
+                case 'b'  : stringBuilder.append('\b'); break;
+                case 'f'  : stringBuilder.append('\f'); break;
+                case 'n'  : stringBuilder.append('\n'); break;
+                case 'r'  : stringBuilder.append('\r'); break;
+                case 't'  : stringBuilder.append('\t'); break;
+                case 'u'  : {
+                    if(position + 4 <= limit) {
+                        try {
+                            stringBuilder.append((char) Integer.parseInt(new String(chars, position, 4), 16));
+                            position = position + 4;
+                            break;
+                        } catch (NumberFormatException e) {
+                            //不是合法的 unicode 转义, 按原样保留
+                        }
+                    }
+                    stringBuilder.append(c).append(escape);
+                    break;
+                }
+                //不是合法的转义字符, 按原样保留, 兼容未转义 \ 的数据, 例如: src\main
+                default   : stringBuilder.append(c).append(escape);
+            }
+        }
+
+        throw error("Unclosed string");
+    }
+
+    /**
+     * 读取无引号的字面值, 到 , } ] 或者换行结束
+     * @return 字面值
+     */
+    private String readLiteral() {
+        int start = position;
+
+        //function 值, 以大括号的对称结束
+        if(limit - position >= 8 && new String(chars, position, 8).equals("function")) {
+            int depth = 0;
+            while(position < limit) {
+                char c = chars[position++];
+                if(c == Global.CHAR_LC_BRACES) {
+                    depth++;
+                } else if(c == Global.CHAR_RC_BRACES) {
+                    depth--;
+                    if(depth == 0) {
+                        break;
+                    }
+                }
+            }
+            return new String(chars, start, position - start);
+        }
+
+        while(position < limit) {
+            char c = chars[position];
+            if(c == Global.CHAR_COMMA || c == Global.CHAR_RC_BRACES || c == Global.CHAR_RS_BRACES || c == Global.CHAR_LF || c == Global.CHAR_CR) {
+                break;
+            }
+            position++;
+        }
+
+        return trim(start, position);
+    }
+
+    /**
+     * 将字面值转换成对应的对象, 规则与原 JSONDecode 一致
+     * @param literal 字面值
+     * @return 转换后的对象
+     */
+    static Object literalValue(String literal) {
+        int length = literal.length();
+        if(length == 0 || "null".equals(literal)) {
+            return null;
+        }
+
+        char first = literal.charAt(0);
+        if(first == '-' || (first >= '0' && first <= '9')) {
+            int digitStart = first == '-' ? 1 : 0;
+            int dotIndex = -1;
+            boolean isNumber = length > digitStart;
+            boolean hasE = false;
+            for(int i = digitStart; i < length; i++) {
+                char c = literal.charAt(i);
+                if(c == '.' && dotIndex < 0 && i > digitStart) {
+                    dotIndex = i;
+                } else if(c == 'E') {
+                    hasE = true;
+                } else if(c < '0' || c > '9') {
+                    isNumber = false;
+                }
+            }
+
+            //科学计数法转换成 BigDecimal
+            if(dotIndex > 0 && hasE) {
+                try {
+                    return new BigDecimal(literal);
+                } catch (NumberFormatException e) {
+                    return literal;
+                }
+            }
+
+            if(isNumber && !hasE) {
+                if(dotIndex < 0) {
+                    //整形
+                    long longValue = Long.parseLong(literal);
+                    if (longValue <= 2147483647 && longValue >= -2147483647) {
+                        return (int) longValue;
+                    } else {
+                        return longValue;
+                    }
+                } else if(dotIndex < length - 1) {
+                    //浮点数, 依次尝试 Float, Double, BigDecimal
+                    Float floatValue = Float.valueOf(literal);
+                    if(floatValue.toString().equals(literal)) {
+                        return floatValue;
+                    }
+
+                    Double doubleValue = Double.valueOf(literal);
+                    if(doubleValue.toString().equals(literal)) {
+                        return doubleValue;
+                    }
+
+                    return new BigDecimal(literal);
+                }
+            }
+        }
+
+        if("true".equalsIgnoreCase(literal)) {
+            return true;
+        } else if("false".equalsIgnoreCase(literal)) {
+            return false;
+        }
+
+        return literal;
+    }
+
+    //================================ 通用解析 ================================
+
+    /**
+     * 读取一个值, 对象解析成 HashMap, 数组解析成 ArrayList
+     * @return 解析后的对象
+     * @throws ParseException 解析异常
+     */
+    private Object readValue() throws ParseException {
+        skipBlank();
+        if(position >= limit) {
+            throw error("Unexpected end of JSON");
+        }
+
+        char c = chars[position];
+        if(c == Global.CHAR_LC_BRACES) {
+            return readMap();
+        } else if(c == Global.CHAR_LS_BRACES) {
+            return readList();
+        } else if(c == Global.CHAR_QUOTE || c == Global.CHAR_S_QUOTE) {
+            return readString();
+        } else {
+            return literalValue(readLiteral());
+        }
+    }
+
+    private HashMap<String, Object> readMap() throws ParseException {
+        HashMap<String, Object> result = new HashMap<String, Object>();
+        position++;
+
+        while(true) {
+            skipBlank();
+            if(position >= limit) {
+                throw error("Unclosed object");
+            }
+
+            char c = chars[position];
+            if(c == Global.CHAR_RC_BRACES) {
+                position++;
+                return result;
+            } else if(c == Global.CHAR_COMMA) {
+                position++;
+                continue;
+            } else if(c == Global.CHAR_RS_BRACES) {
+                throw error("Unexpected character " + c);
+            }
+
+            String key = readKey();
+            readColon();
+            result.put(key, readValue());
+        }
+    }
+
+    private ArrayList<Object> readList() throws ParseException {
+        ArrayList<Object> result = new ArrayList<Object>();
+        position++;
+
+        while(true) {
+            skipBlank();
+            if(position >= limit) {
+                throw error("Unclosed array");
+            }
+
+            char c = chars[position];
+            if(c == Global.CHAR_RS_BRACES) {
+                position++;
+                return result;
+            } else if(c == Global.CHAR_COMMA) {
+                position++;
+                continue;
+            } else if(c == Global.CHAR_RC_BRACES) {
+                throw error("Unexpected character " + c);
+            }
+
+            //与原 JSONDecode 一致, 数组中的 null 元素不保留
+            Object value = readValue();
+            if(value != null) {
+                result.add(value);
+            }
+        }
+    }
+
+    //================================ 类型绑定 ================================
+
+    private static Class getRawClass(Type type) {
+        if(type instanceof Class) {
+            return (Class) type;
+        } else if(type instanceof ParameterizedType) {
+            return (Class) ((ParameterizedType) type).getRawType();
+        } else if(type instanceof GenericArrayType) {
+            Class componentClass = getRawClass(((GenericArrayType) type).getGenericComponentType());
+            return componentClass == null ? null : Array.newInstance(componentClass, 0).getClass();
+        } else {
+            return null;
+        }
+    }
+
+    private static Type getTypeArgument(Type type, int index) {
+        if(type instanceof ParameterizedType) {
+            Type[] typeArguments = ((ParameterizedType) type).getActualTypeArguments();
+            if(index < typeArguments.length) {
+                return typeArguments[index];
+            }
+        }
+        return null;
+    }
+
+    private static boolean isBeanClass(Class clazz) {
+        return !clazz.isArray() && !clazz.isInterface() && !clazz.isEnum() &&
+                !Modifier.isAbstract(clazz.getModifiers()) &&
+                !TReflect.isSystemType(clazz);
+    }
+
+    /**
+     * 读取一个值并绑定到指定的类型
+     * @param type 目标类型
+     * @return 绑定后的对象
+     * @throws ParseException 解析异常
+     * @throws ReflectiveOperationException 反射异常
+     */
+    private Object bindValue(Type type) throws ParseException, ReflectiveOperationException {
+        Class clazz = getRawClass(type);
+        if(clazz == null || clazz == Object.class) {
+            return readValue();
+        }
+
+        skipBlank();
+        if(position >= limit) {
+            throw error("Unexpected end of JSON");
+        }
+
+        char c = chars[position];
+        if(c == Global.CHAR_LC_BRACES) {
+            if(TReflect.isImpByInterface(clazz, Map.class)) {
+                return bindMap(clazz, getTypeArgument(type, 0), getTypeArgument(type, 1));
+            } else if(isBeanClass(clazz)) {
+                return bindObject(clazz);
+            }
+        } else if(c == Global.CHAR_LS_BRACES) {
+            if(TReflect.isImpByInterface(clazz, Collection.class)) {
+                return bindCollection(clazz, getTypeArgument(type, 0));
+            } else if(clazz.isArray()) {
+                Type componentType = type instanceof GenericArrayType ?
+                        ((GenericArrayType) type).getGenericComponentType() : clazz.getComponentType();
+                return bindArray(clazz.getComponentType(), componentType);
+            }
+        }
+
+        return convert(type, clazz, readValue());
+    }
+
+    /**
+     * 将解析出的通用对象转换为目标类型, 转换规则与 TReflect.getObjectFromMap 一致
+     */
+    private Object convert(Type type, Class clazz, Object value) throws ReflectiveOperationException, ParseException {
+        if(value == null) {
+            return null;
+        }
+
+        if(clazz.isInstance(value) && !(type instanceof ParameterizedType)) {
+            return value;
+        }
+
+        if(value instanceof Number) {
+            Object number = castNumber(clazz, (Number) value);
+            if(number != null) {
+                return number;
+            }
+        }
+
+        if(clazz == String.class) {
+            if(!(value instanceof Map) && !(value instanceof Collection)) {
+                return value.toString();
+            }
+        }
+
+        if(value instanceof String && (
+                TReflect.isImpByInterface(clazz, Map.class) ||
+                TReflect.isImpByInterface(clazz, Collection.class) ||
+                !TReflect.isBasicType(clazz))) {
+            return TString.toObject((String) value, type, ignoreCase);
+        }
+
+        if(value instanceof Map) {
+            return TReflect.getObjectFromMap(type, (Map<String, ?>) value, ignoreCase);
+        } else {
+            return TReflect.getObjectFromMap(type, TObject.asMap(TReflect.SINGLE_VALUE_KEY, value), ignoreCase);
+        }
+    }
+
+    private static Object castNumber(Class clazz, Number number) {
+        if(clazz == int.class || clazz == Integer.class) {
+            return number.intValue();
+        } else if(clazz == long.class || clazz == Long.class) {
+            return number.longValue();
+        } else if(clazz == double.class || clazz == Double.class) {
+            return number.doubleValue();
+        } else if(clazz == float.class || clazz == Float.class) {
+            return number.floatValue();
+        } else if(clazz == short.class || clazz == Short.class) {
+            return number.shortValue();
+        } else if(clazz == byte.class || clazz == Byte.class) {
+            return number.byteValue();
+        } else if(clazz == BigDecimal.class) {
+            return number instanceof BigDecimal ? number : new BigDecimal(number.toString());
+        } else {
+            return null;
+        }
+    }
+
+    private Object bindObject(Class clazz) throws ParseException, ReflectiveOperationException {
+        ClassBinder classBinder = getClassBinder(clazz);
+
+        Object obj;
+        try {
+            obj = TReflect.newInstance(clazz);
+        } catch (InstantiationException e) {
+            readValue();
+            return null;
+        }
+
+        position++;
+        while(true) {
+            skipBlank();
+            if(position >= limit) {
+                throw error("Unclosed object");
+            }
+
+            char c = chars[position];
+            if(c == Global.CHAR_RC_BRACES) {
+                position++;
+                return obj;
+            } else if(c == Global.CHAR_COMMA) {
+                position++;
+                continue;
+            } else if(c == Global.CHAR_RS_BRACES) {
+                throw error("Unexpected character " + c);
+            }
+
+            String key = readKey();
+            readColon();
+
+            FieldBinder fieldBinder = classBinder.find(key, ignoreCase);
+            if(fieldBinder == null) {
+                //跳过没有对应属性的值
+                readValue();
+                continue;
+            }
+
+            try {
+                Object value = bindValue(fieldBinder.type);
+                if(value != null || !fieldBinder.field.getType().isPrimitive()) {
+                    fieldBinder.field.set(obj, value);
+                }
+            } catch (ParseException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new ReflectiveOperationException("Fill object " + TReflect.getClassName(clazz) +
+                        Global.CHAR_SHAPE + fieldBinder.field.getName() + " failed", e);
+            }
+        }
+    }
+
+    private Object bindMap(Class clazz, Type keyType, Type valueType) throws ParseException, ReflectiveOperationException {
+        Map result = clazz == Map.class ? new HashMap() : (Map) TReflect.newInstance(clazz);
+        Class keyClass = getRawClass(keyType);
+        position++;
+
+        while(true) {
+            skipBlank();
+            if(position >= limit) {
+                throw error("Unclosed object");
+            }
+
+            char c = chars[position];
+            if(c == Global.CHAR_RC_BRACES) {
+                position++;
+                return result;
+            } else if(c == Global.CHAR_COMMA) {
+                position++;
+                continue;
+            } else if(c == Global.CHAR_RS_BRACES) {
+                throw error("Unexpected character " + c);
+            }
+
+            Object key = readKey();
+            if(keyClass != null && keyClass != String.class && keyClass != Object.class) {
+                key = TString.toObject((String) key, keyType, ignoreCase);
+            }
+            readColon();
+            result.put(key, bindValue(valueType));
+        }
+    }
+
+    private Object bindCollection(Class clazz, Type elementType) throws ParseException, ReflectiveOperationException {
+        Collection result = (Collection) TReflect.newInstance(clazz);
+        position++;
+
+        while(true) {
+            skipBlank();
+            if(position >= limit) {
+                throw error("Unclosed array");
+            }
+
+            char c = chars[position];
+            if(c == Global.CHAR_RS_BRACES) {
+                position++;
+                return result;
+            } else if(c == Global.CHAR_COMMA) {
+                position++;
+                continue;
+            } else if(c == Global.CHAR_RC_BRACES) {
+                throw error("Unexpected character " + c);
+            }
+
+            Object value = bindValue(elementType);
+            if(value != null) {
+                result.add(value);
+            }
+        }
+    }
+
+    private Object bindArray(Class componentClass, Type componentType) throws ParseException, ReflectiveOperationException {
+        ArrayList<Object> values = new ArrayList<Object>();
+        position++;
+
+        while(true) {
+            skipBlank();
+            if(position >= limit) {
+                throw error("Unclosed array");
+            }
+
+            char c = chars[position];
+            if(c == Global.CHAR_RS_BRACES) {
+                position++;
+                break;
+            } else if(c == Global.CHAR_COMMA) {
+                position++;
+                continue;
+            } else if(c == Global.CHAR_RC_BRACES) {
+                throw error("Unexpected character " + c);
+            }
+
+            Object value = bindValue(componentType);
+            if(value != null) {
+                values.add(value);
+            }
+        }
+
+        Object array = Array.newInstance(componentClass, values.size());
+        for(int i=0; i<values.size(); i++) {
+            Array.set(array, i, values.get(i));
+        }
+        return array;
+    }
+
+    /**
+     * 获取类的绑定信息
+     * @param clazz 类对象
+     * @return 类的绑定信息
+     */
+    private static ClassBinder getClassBinder(Class clazz) {
+        ClassBinder classBinder = CLASS_BINDERS.get(clazz);
+        if(classBinder == null) {
+            classBinder = CLASS_BINDERS.computeIfAbsent(clazz, ClassBinder::new);
+        }
+        return classBinder;
+    }
+
+    /**
+     * 类的绑定信息
+     */
+    private static class ClassBinder {
+        private Map<String, FieldBinder> fieldBinders = new HashMap<String, FieldBinder>();
+        //小写属性名 -> 属性绑定信息, 在构造时一次生成, 忽略大小写的查找不会缓存未命中的任意 key
+        private Map<String, FieldBinder> ignoreCaseFieldBinders = new HashMap<String, FieldBinder>();
+
+        private ClassBinder(Class clazz) {
+            //属性是按子类->父类顺序排列的, 同名属性使用子类的
+            for (Field field : TReflect.getFields(clazz)) {
+                int modifiers = field.getModifiers();
+                if (Modifier.isStatic(modifiers) || Modifier.isFinal(modifiers)) {
+                    continue;
+                }
+
+                if(!fieldBinders.containsKey(field.getName())) {
+                    FieldBinder fieldBinder = new FieldBinder(field);
+                    fieldBinders.put(field.getName(), fieldBinder);
+                    ignoreCaseFieldBinders.putIfAbsent(field.getName().toLowerCase(), fieldBinder);
+                }
+            }
+        }
+
+        private FieldBinder find(String name, boolean ignoreCase) {
+            FieldBinder fieldBinder = fieldBinders.get(name);
+            if(fieldBinder != null || !ignoreCase) {
+                return fieldBinder;
+            }
+
+            fieldBinder = ignoreCaseFieldBinders.get(name.toLowerCase());
+            if(fieldBinder == null) {
+                fieldBinder = ignoreCaseFieldBinders.get(TString.underlineToCamel(name).toLowerCase());
+            }
+
+            return fieldBinder;
+        }
+    }
+
+    /**
+     * 属性的绑定信息
+     */
+    private static class FieldBinder {
+        private Field field;
+        private Type type;
+
+        private FieldBinder(Field field) {
+            this.field = field;
+            this.type = field == null ? null : field.getGenericType();
+        }
+    }
+}
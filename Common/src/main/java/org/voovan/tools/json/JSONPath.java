@@ -9,12 +9,14 @@ import org.voovan.tools.reflect.TReflect;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.reflect.Type;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * 类文字命名
@@ -289,6 +291,132 @@ public class JSONPath {
         }
     }
 
+    /**
+     * 从 JSONReader 中流式的查找 JSONPath 对应的节点, 不构造完整的对象树
+     *      路径中可以使用 * 或者 [*] 匹配所有的属性或者数组元素, 例如: /[*]/Spec/Name,
+     *      路径中不包含通配符时, 找到第一个节点后即停止读取
+     * @param jsonReader JSONReader 对象
+     * @param pathQry JSONPath 路径
+     * @param consumer 节点数据的处理器, 对象节点为 HashMap, 数组节点为 ArrayList
+     * @return 匹配的节点数量
+     * @throws IOException IO 异常
+     * @throws ParseException 解析异常
+     * @throws ReflectiveOperationException 反射异常
+     */
+    public static int stream(JSONReader jsonReader, String pathQry, Consumer<Object> consumer) throws IOException, ParseException, ReflectiveOperationException {
+        return stream(jsonReader, pathQry, null, consumer);
+    }
+
+    /**
+     * 从 JSONReader 中流式的查找 JSONPath 对应的节点, 并将节点绑定到指定的类型
+     * @param jsonReader JSONReader 对象
+     * @param pathQry JSONPath 路径
+     * @param type 节点绑定的类型, 为 null 时不进行绑定
+     * @param consumer 节点数据的处理器
+     * @param <T> 范型
+     * @return 匹配的节点数量
+     * @throws IOException IO 异常
+     * @throws ParseException 解析异常
+     * @throws ReflectiveOperationException 反射异常
+     */
+    public static <T> int stream(JSONReader jsonReader, String pathQry, Type type, Consumer<T> consumer) throws IOException, ParseException, ReflectiveOperationException {
+        StreamMatcher<T> streamMatcher = new StreamMatcher<T>(pathQry, type, consumer);
+
+        //依次处理流中的每个 JSON 值
+        while(!streamMatcher.done && jsonReader.next() != JSONReader.Token.END_DOCUMENT) {
+            streamMatcher.match(jsonReader, 0);
+        }
+
+        return streamMatcher.count;
+    }
+
+    /**
+     * 流式的 JSONPath 匹配器
+     * @param <T> 范型
+     */
+    private static class StreamMatcher<T> {
+        private final static Object WILDCARD = new Object();
+
+        private List<Object> segments = new ArrayList<Object>();
+        private Type type;
+        private Consumer<T> consumer;
+        private boolean single = true;
+        private boolean done = false;
+        private int count = 0;
+
+        private StreamMatcher(String pathQry, Type type, Consumer<T> consumer) {
+            this.type = type;
+            this.consumer = consumer;
+
+            for (String pathElem : pathQry.split("/")) {
+                pathElem = pathElem.trim();
+
+                for (String pathElemSegm : pathElem.split("\\[")) {
+                    pathElemSegm = pathElemSegm.trim();
+                    if (pathElemSegm.isEmpty()) {
+                        continue;
+                    }
+
+                    //数组索引, 其他为属性名
+                    if (pathElemSegm.endsWith("]")) {
+                        pathElemSegm = TString.removeSuffix(pathElemSegm).trim();
+                        segments.add("*".equals(pathElemSegm) ? WILDCARD : Integer.valueOf(pathElemSegm));
+                    } else {
+                        segments.add("*".equals(pathElemSegm) ? WILDCARD : pathElemSegm);
+                    }
+                }
+            }
+
+            single = !segments.contains(WILDCARD);
+        }
+
+        /**
+         * 匹配当前的值, 调用时 jsonReader 位于值的起始标记
+         * @param jsonReader JSONReader 对象
+         * @param index 当前匹配的路径段
+         */
+        private void match(JSONReader jsonReader, int index) throws IOException, ParseException, ReflectiveOperationException {
+            if (index == segments.size()) {
+                consumer.accept(type == null ? (T) jsonReader.readValue() : jsonReader.readValue(type));
+                count++;
+                done = single;
+                return;
+            }
+
+            Object segment = segments.get(index);
+            JSONReader.Token token = jsonReader.getToken();
+
+            if (token == JSONReader.Token.START_OBJECT && !(segment instanceof Integer)) {
+                while (!done && jsonReader.next() == JSONReader.Token.FIELD_NAME) {
+                    String fieldName = jsonReader.getFieldName();
+                    jsonReader.next();
+                    if (segment == WILDCARD || segment.equals(fieldName)) {
+                        match(jsonReader, index + 1);
+                    } else {
+                        jsonReader.skipValue();
+                    }
+                }
+            } else if (token == JSONReader.Token.START_ARRAY && !(segment instanceof String)) {
+                int elementIndex = 0;
+                while (!done && jsonReader.next() != JSONReader.Token.END_ARRAY) {
+                    //与 JSON.parse 一致, 数组中的 null 元素不计入索引
+                    if (jsonReader.getToken() == JSONReader.Token.VALUE && jsonReader.getValue() == null) {
+                        continue;
+                    }
+
+                    if (segment == WILDCARD || segment.equals(elementIndex)) {
+                        match(jsonReader, index + 1);
+                    } else {
+                        jsonReader.skipValue();
+                    }
+                    elementIndex++;
+                }
+            } else {
+                jsonReader.skipValue();
+            }
+        }
+    }
+
     /**
      * 构造默认的对象
      * @param jsonStr JSONPath 路径
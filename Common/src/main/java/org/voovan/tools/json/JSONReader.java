@@ -0,0 +1,631 @@
+package org.voovan.tools.json;
+
+import org.voovan.Global;
+import org.voovan.tools.TString;
+import org.voovan.tools.buffer.ByteBufferChannel;
+
+import java.io.*;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.Arrays;
+
+/**
+ * 拉取式的流式 JSON 读取器
+ *      从 Reader, InputStream, 文件或者 ByteBufferChannel 中按需读取数据, 每次调用 next 返回一个标记,
+ *      只保留当前的读取缓冲区, 内存占用与 JSON 的大小无关.
+ *      语法规则与 JSONParser 一致, 多个连续的 JSON 值会被依次读出, 可以用于读取每行一个 JSON 的数据.
+ *
+ *      典型用法:
+ *      while(jsonReader.next() != Token.END_DOCUMENT) { ... jsonReader.getFieldName() / jsonReader.readValue() ... }
+ *
+ * @author helyho
+ *
+ * Voovan Framework.
+ * WebSite: https://github.com/helyho/Voovan
+ * Licence: Apache v2 License
+ */
+public class JSONReader implements Closeable {
+    private final static int DEFAULT_BUFFER_SIZE = 8192;
+    private final static int MAX_CACHED_CAPTURE_SIZE = 1024 * 1024;
+
+    /**
+     * 读取到的标记类型
+     */
+    public enum Token {
+        START_OBJECT,
+        END_OBJECT,
+        START_ARRAY,
+        END_ARRAY,
+        FIELD_NAME,
+        VALUE,
+        END_DOCUMENT
+    }
+
+    private Reader reader;
+    private char[] buffer;
+    private int position = 0;
+    private int limit = 0;
+    private long offset = 0;
+    private boolean eof = false;
+
+    private boolean ignoreCase = false;
+    private boolean convertEscapeChar = JSON.isConvertEscapeChar();
+
+    //容器栈, true: 对象, false: 数组
+    private boolean[] containers = new boolean[32];
+    private int depth = 0;
+    private boolean afterFieldName = false;
+
+    private Token token;
+    private String fieldName;
+    private Object value;
+
+    private StringBuilder stringBuilder = new StringBuilder();
+    private StringBuilder capture;
+    private int captureStart = -1;
+
+    /**
+     * 构造函数
+     * @param reader 字符流
+     * @param bufferSize 读取缓冲区大小
+     */
+    public JSONReader(Reader reader, int bufferSize) {
+        this.reader = reader;
+        this.buffer = new char[bufferSize];
+    }
+
+    /**
+     * 构造函数
+     * @param reader 字符流
+     */
+    public JSONReader(Reader reader) {
+        this(reader, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * 构造函数
+     * @param inputStream UTF-8 编码的输入流
+     */
+    public JSONReader(InputStream inputStream) {
+        this(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 构造函数
+     * @param file UTF-8 编码的 JSON 文件
+     * @throws FileNotFoundException 文件不存在异常
+     */
+    public JSONReader(File file) throws FileNotFoundException {
+        this(new FileInputStream(file));
+    }
+
+    /**
+     * 构造函数
+     *      从 ByteBufferChannel 的头部消费数据, 读取后的数据会从通道中移除
+     * @param byteBufferChannel UTF-8 编码的 JSON 数据通道
+     */
+    public JSONReader(ByteBufferChannel byteBufferChannel) {
+        this(new ByteBufferChannelInputStream(byteBufferChannel));
+    }
+
+    /**
+     * 设置绑定对象时是否忽略属性名的大小写
+     * @param ignoreCase true: 是, false: 否
+     * @return JSONReader 对象
+     */
+    public JSONReader ignoreCase(boolean ignoreCase) {
+        this.ignoreCase = ignoreCase;
+        return this;
+    }
+
+    /**
+     * 设置是否进行 EscapeChar 的转换
+     * @param convertEscapeChar true: 是, false: 否
+     * @return JSONReader 对象
+     */
+    public JSONReader convertEscapeChar(boolean convertEscapeChar) {
+        this.convertEscapeChar = convertEscapeChar;
+        return this;
+    }
+
+    /**
+     * 获取当前的标记
+     * @return 当前的标记
+     */
+    public Token getToken() {
+        return token;
+    }
+
+    /**
+     * 获取当前的属性名, 当前标记为 FIELD_NAME 时有效
+     * @return 属性名
+     */
+    public String getFieldName() {
+        return fieldName;
+    }
+
+    /**
+     * 获取当前的值, 当前标记为 VALUE 时有效
+     * @return 值
+     */
+    public Object getValue() {
+        return value;
+    }
+
+    /**
+     * 获取当前所在的容器深度
+     * @return 容器深度
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * 读取下一个标记
+     * @return 读取到的标记
+     * @throws IOException IO 异常
+     * @throws ParseException 解析异常
+     */
+    public Token next() throws IOException, ParseException {
+        fieldName = null;
+        value = null;
+
+        skipBlank(!afterFieldName);
+        if(!ensure(1)) {
+            if(depth > 0) {
+                throw error("Unexpected end of JSON");
+            }
+            return token = Token.END_DOCUMENT;
+        }
+
+        char c = buffer[position];
+        boolean inObject = depth > 0 && containers[depth - 1];
+
+        if(inObject && !afterFieldName) {
+            if(c == Global.CHAR_RC_BRACES) {
+                position++;
+                depth--;
+                return token = Token.END_OBJECT;
+            } else if(c == Global.CHAR_RS_BRACES) {
+                throw error("Unexpected character " + c);
+            }
+
+            fieldName = readKey();
+            readColon();
+            afterFieldName = true;
+            return token = Token.FIELD_NAME;
+        }
+
+        if(depth > 0 && !inObject) {
+            if(c == Global.CHAR_RS_BRACES) {
+                position++;
+                depth--;
+                return token = Token.END_ARRAY;
+            } else if(c == Global.CHAR_RC_BRACES) {
+                throw error("Unexpected character " + c);
+            }
+        }
+
+        afterFieldName = false;
+
+        if(c == Global.CHAR_LC_BRACES) {
+            position++;
+            push(true);
+            return token = Token.START_OBJECT;
+        } else if(c == Global.CHAR_LS_BRACES) {
+            position++;
+            push(false);
+            return token = Token.START_ARRAY;
+        } else if(c == Global.CHAR_QUOTE || c == Global.CHAR_S_QUOTE) {
+            value = readString();
+            return token = Token.VALUE;
+        }
+
+        String literal = readLiteral();
+        //对象中 "key": } 的形式按 null 处理, 其他位置的空值是非法字符
+        if(literal.isEmpty() && !inObject) {
+            throw error("Unexpected character " + c);
+        }
+
+        value = JSONParser.literalValue(literal);
+        return token = Token.VALUE;
+    }
+
+    /**
+     * 跳过当前的值
+     *      当前标记为 FIELD_NAME 时跳过属性的值, 为 START_OBJECT/START_ARRAY 时跳过整个容器, 为 VALUE 时不做任何操作
+     * @throws IOException IO 异常
+     * @throws ParseException 解析异常
+     */
+    public void skipValue() throws IOException, ParseException {
+        if(token == Token.FIELD_NAME) {
+            next();
+        }
+
+        if(token == Token.START_OBJECT || token == Token.START_ARRAY) {
+            int targetDepth = depth - 1;
+            while(depth > targetDepth) {
+                next();
+            }
+        }
+    }
+
+    /**
+     * 读取当前的值, 对象解析成 HashMap, 数组解析成 ArrayList
+     *      当前标记为 FIELD_NAME 时读取属性的值, 为 START_OBJECT/START_ARRAY 时读取整个容器
+     * @return 解析后的对象
+     * @throws IOException IO 异常
+     * @throws ParseException 解析异常
+     */
+    public Object readValue() throws IOException, ParseException {
+        if(token == Token.FIELD_NAME) {
+            next();
+        }
+
+        if(token == Token.VALUE) {
+            return value;
+        }
+
+        return captureValue().parse();
+    }
+
+    /**
+     * 读取当前的值并绑定到指定的类型
+     *      当前标记为 FIELD_NAME 时读取属性的值, 为 START_OBJECT/START_ARRAY 时读取整个容器
+     * @param type 目标类型
+     * @param <T> 范型
+     * @return 绑定后的对象
+     * @throws IOException IO 异常
+     * @throws ParseException 解析异常
+     * @throws ReflectiveOperationException 反射异常
+     */
+    public <T> T readValue(Type type) throws IOException, ParseException, ReflectiveOperationException {
+        if(token == Token.FIELD_NAME) {
+            next();
+        }
+
+        if(token == Token.VALUE) {
+            if(value == null || (type instanceof Class && ((Class) type).isInstance(value))) {
+                return (T) value;
+            }
+            return TString.toObject(value.toString(), type, ignoreCase);
+        }
+
+        return captureValue().parse(type);
+    }
+
+    /**
+     * 读取当前容器的原始字符, 并构造对应的 JSONParser
+     * @return JSONParser 对象
+     * @throws IOException IO 异常
+     * @throws ParseException 解析异常
+     */
+    private JSONParser captureValue() throws IOException, ParseException {
+        if(token != Token.START_OBJECT && token != Token.START_ARRAY) {
+            throw error("Current token " + token + " is not a value");
+        }
+
+        if(capture == null || capture.capacity() > MAX_CACHED_CAPTURE_SIZE) {
+            capture = new StringBuilder();
+        }
+
+        capture.setLength(0);
+        capture.append(token == Token.START_OBJECT ? Global.CHAR_LC_BRACES : Global.CHAR_LS_BRACES);
+        captureStart = position;
+        try {
+            skipValue();
+            capture.append(buffer, captureStart, position - captureStart);
+        } finally {
+            captureStart = -1;
+        }
+
+        char[] chars = new char[capture.length()];
+        capture.getChars(0, chars.length, chars, 0);
+        return new JSONParser(chars, 0, chars.length).ignoreCase(ignoreCase).convertEscapeChar(convertEscapeChar);
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    //================================ 缓冲区处理 ================================
+
+    /**
+     * 确保缓冲区中从当前位置开始至少有 count 个字符
+     * @param count 字符数量
+     * @return true: 字符数量足够, false: 数据已经结束
+     * @throws IOException IO 异常
+     */
+    private boolean ensure(int count) throws IOException {
+        while(limit - position < count) {
+            if(eof) {
+                return false;
+            }
+
+            if(position > 0) {
+                //正在截取原始字符时, 将要丢弃的部分先保存下来
+                if(captureStart >= 0) {
+                    capture.append(buffer, captureStart, position - captureStart);
+                    captureStart = 0;
+                }
+
+                int remain = limit - position;
+                System.arraycopy(buffer, position, buffer, 0, remain);
+                offset = offset + position;
+                position = 0;
+                limit = remain;
+            } else if(limit == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+
+            int readSize = reader.read(buffer, limit, buffer.length - limit);
+            if(readSize < 0) {
+                eof = true;
+            } else {
+                limit = limit + readSize;
+            }
+        }
+
+        return true;
+    }
+
+    private ParseException error(String message) {
+        int start = Math.max(0, position - 20);
+        int end = Math.min(limit, position + 20);
+        int current = Math.min(position, limit);
+        String snippet = new String(buffer, start, current - start) + "^" + new String(buffer, current, end - current);
+        return new ParseException(message + ", position: " + (offset + position) + ", near: " + snippet, (int) (offset + position));
+    }
+
+    private void push(boolean isObject) {
+        if(depth == containers.length) {
+            containers = Arrays.copyOf(containers, depth * 2);
+        }
+        containers[depth++] = isObject;
+    }
+
+    //================================ 词法处理 ================================
+
+    /**
+     * 跳过空白字符和注释
+     * @param skipComma 是否跳过逗号
+     * @throws IOException IO 异常
+     */
+    private void skipBlank(boolean skipComma) throws IOException {
+        while(ensure(1)) {
+            char c = buffer[position];
+            if(c <= ' ' || Character.isWhitespace(c) || (skipComma && c == Global.CHAR_COMMA)) {
+                position++;
+            } else if(c == Global.CHAR_BACKSLASH && ensure(2) && buffer[position + 1] == Global.CHAR_BACKSLASH) {
+                //单行注释
+                position = position + 2;
+                while(ensure(1) && buffer[position] != Global.CHAR_LF) {
+                    position++;
+                }
+            } else if(c == Global.CHAR_BACKSLASH && ensure(2) && buffer[position + 1] == Global.CHAR_STAR) {
+                //多行注释
+                position = position + 2;
+                while(ensure(2) && !(buffer[position] == Global.CHAR_STAR && buffer[position + 1] == Global.CHAR_BACKSLASH)) {
+                    position++;
+                }
+                position = Math.min(limit, position + 2);
+            } else {
+                break;
+            }
+        }
+    }
+
+    /**
+     * 读取分割键值的 : 或者 =
+     * @throws IOException IO 异常
+     * @throws ParseException 解析异常
+     */
+    private void readColon() throws IOException, ParseException {
+        skipBlank(false);
+        if(ensure(1) && (buffer[position] == Global.CHAR_COLON || buffer[position] == Global.CHAR_EQUAL)) {
+            position++;
+        } else {
+            throw error("Expect ':' after key");
+        }
+    }
+
+    /**
+     * 读取键名
+     * @return 键名
+     * @throws IOException IO 异常
+     * @throws ParseException 解析异常
+     */
+    private String readKey() throws IOException, ParseException {
+        char c = buffer[position];
+        if(c == Global.CHAR_QUOTE || c == Global.CHAR_S_QUOTE) {
+            return readString();
+        }
+
+        stringBuilder.setLength(0);
+        while(true) {
+            if(!ensure(1)) {
+                throw error("Expect ':' after key");
+            }
+
+            int start = position;
+            while(position < limit && buffer[position] != Global.CHAR_COLON && buffer[position] != Global.CHAR_EQUAL) {
+                position++;
+            }
+            stringBuilder.append(buffer, start, position - start);
+
+            if(position < limit) {
+                return stringBuilder.toString().trim();
+            }
+        }
+    }
+
+    /**
+     * 判断引号是否是字符串的结束, 规则与 JSONParser 一致
+     * @return true: 字符串结束, false: 字符串内容
+     * @throws IOException IO 异常
+     */
+    private boolean isStringEnd() throws IOException {
+        for(int i = 0; ensure(i + 1); i++) {
+            char c = buffer[position + i];
+            if(c == Global.CHAR_LF || c == Global.CHAR_CR) {
+                return true;
+            } else if(c > ' ') {
+                return c == Global.CHAR_COMMA || c == Global.CHAR_COLON || c == Global.CHAR_EQUAL ||
+                        c == Global.CHAR_RC_BRACES || c == Global.CHAR_RS_BRACES || c == Global.CHAR_BACKSLASH;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 读取字符串, 包含两端的引号
+     * @return 字符串
+     * @throws IOException IO 异常
+     * @throws ParseException 解析异常
+     */
+    private String readString() throws IOException, ParseException {
+        char quote = buffer[position++];
+        stringBuilder.setLength(0);
+
+        while(true) {
+            int start = position;
+            while(position < limit && buffer[position] != quote && buffer[position] != Global.CHAR_SLASH) {
+                position++;
+            }
+            stringBuilder.append(buffer, start, position - start);
+
+            if(!ensure(1)) {
+                throw error("Unclosed string");
+            } else if(buffer[position] != quote && buffer[position] != Global.CHAR_SLASH) {
+                //缓冲区已重新填充, 继续读取
+                continue;
+            }
+
+            char c = buffer[position++];
+            if(c == quote) {
+                if(isStringEnd()) {
+                    return stringBuilder.toString();
+                }
+                stringBuilder.append(c);
+                continue;
+            }
+
+            //转义字符
+            if(!ensure(1)) {
+                stringBuilder.append(c);
+                continue;
+            }
+
+            char escape = buffer[position++];
+            if(!convertEscapeChar) {
+                stringBuilder.append(c).append(escape);
+                continue;
+            }
+
+            switch (escape) {
+                case '"'  : stringBuilder.append('"');  break;
+                case '\'' : stringBuilder.append('\''); break;
+                case '\\' : stringBuilder.append('\\'); break;
+                case '/'  : stringBuilder.append('/');  break;
+                case 'b'  : stringBuilder.append('\b'); break;
+                case 'f'  : stringBuilder.append('\f'); break;
+                case 'n'  : stringBuilder.append('\n'); break;
+                case 'r'  : stringBuilder.append('\r'); break;
+                case 't'  : stringBuilder.append('\t'); break;
+                case 'u'  : {
+                    if(ensure(4)) {
+                        try {
+                            stringBuilder.append((char) Integer.parseInt(new String(buffer, position, 4), 16));
+                            position = position + 4;
+                            break;
+                        } catch (NumberFormatException e) {
+                            //不是合法的 unicode 转义, 按原样保留
+                        }
+                    }
+                    stringBuilder.append(c).append(escape);
+                    break;
+                }
+                //不是合法的转义字符, 按原样保留, 兼容未转义 \ 的数据, 例如: src\main
+                default   : stringBuilder.append(c).append(escape);
+            }
+        }
+    }
+
+    /**
+     * 读取无引号的字面值, 到 , } ] 或者换行结束
+     * @return 字面值
+     * @throws IOException IO 异常
+     */
+    private String readLiteral() throws IOException {
+        stringBuilder.setLength(0);
+
+        //function 值, 以大括号的对称结束
+        if(ensure(8) && new String(buffer, position, 8).equals("function")) {
+            int braceDepth = 0;
+            while(ensure(1)) {
+                char c = buffer[position++];
+                stringBuilder.append(c);
+                if(c == Global.CHAR_LC_BRACES) {
+                    braceDepth++;
+                } else if(c == Global.CHAR_RC_BRACES) {
+                    braceDepth--;
+                    if(braceDepth == 0) {
+                        break;
+                    }
+                }
+            }
+            return stringBuilder.toString();
+        }
+
+        while(ensure(1)) {
+            int start = position;
+            while(position < limit) {
+                char c = buffer[position];
+                if(c == Global.CHAR_COMMA || c == Global.CHAR_RC_BRACES || c == Global.CHAR_RS_BRACES || c == Global.CHAR_LF || c == Global.CHAR_CR) {
+                    break;
+                }
+                position++;
+            }
+            stringBuilder.append(buffer, start, position - start);
+
+            if(position < limit) {
+                break;
+            }
+        }
+
+        return stringBuilder.toString().trim();
+    }
+
+    /**
+     * 将 ByteBufferChannel 适配为输入流, 从通道头部消费数据
+     */
+    private static class ByteBufferChannelInputStream extends InputStream {
+        private ByteBufferChannel byteBufferChannel;
+
+        private ByteBufferChannelInputStream(ByteBufferChannel byteBufferChannel) {
+            this.byteBufferChannel = byteBufferChannel;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] bytes = new byte[1];
+            return read(bytes, 0, 1) == -1 ? -1 : bytes[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if(length == 0) {
+                return 0;
+            }
+
+            if(byteBufferChannel.isReleased() || byteBufferChannel.size() == 0) {
+                return -1;
+            }
+
+            return byteBufferChannel.readHead(ByteBuffer.wrap(bytes, offset, length));
+        }
+    }
+}
@@ -0,0 +1,531 @@
+package org.voovan.tools.json;
+
+import org.voovan.tools.FastThreadLocal;
+import org.voovan.tools.TDateTime;
+import org.voovan.tools.reflect.TReflect;
+import org.voovan.tools.reflect.annotation.NotSerialization;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 流式 JSON 编码器
+ *      直接遍历对象的属性, 将 UTF-8 编码的 JSON 写入字节缓冲区, 缓冲区写满后输出到 OutputStream,
+ *      不再生成中间的 Map 和 String, 每个类的属性访问信息会被缓存
+ *
+ * @author helyho
+ *
+ * Voovan Framework.
+ * WebSite: https://github.com/helyho/Voovan
+ * Licence: Apache v2 License
+ */
+public class JSONWriter {
+    private final static int DEFAULT_BUFFER_SIZE = 8192;
+    private final static byte[] NULL_BYTES = "null".getBytes();
+    private final static byte[] TRUE_BYTES = "true".getBytes();
+    private final static byte[] FALSE_BYTES = "false".getBytes();
+    private final static byte[] LONG_MIN_BYTES = String.valueOf(Long.MIN_VALUE).getBytes();
+    private final static byte[] HEX_BYTES = "0123456789abcdef".getBytes();
+
+    private final static Map<Class, ClassEncoder> CLASS_ENCODERS = new ConcurrentHashMap<Class, ClassEncoder>();
+
+    private final static FastThreadLocal<JSONWriter> THREAD_WRITER = FastThreadLocal.withInitial(() -> new JSONWriter());
+
+    private byte[] buffer;
+    private int position = 0;
+    private OutputStream outputStream;
+    private boolean allField = false;
+    private boolean convertEscapeChar = JSON.isConvertEscapeChar();
+    private boolean inUse = false;
+
+    //复杂对象的嵌套深度, 兼容 TReflect.getMapfromObject 中 BigDecimal 被转换为字符串的行为
+    private int objectDepth = 0;
+
+    /**
+     * 构造函数, 数据保存在内部的缓冲区中
+     */
+    public JSONWriter() {
+        this(null, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * 构造函数
+     * @param outputStream 输出流, 缓冲区写满或者调用 flush 时数据将写入输出流
+     */
+    public JSONWriter(OutputStream outputStream) {
+        this(outputStream, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * 构造函数
+     * @param outputStream 输出流, 为 null 时数据保存在内部的缓冲区中
+     * @param bufferSize 缓冲区大小
+     */
+    public JSONWriter(OutputStream outputStream, int bufferSize) {
+        this.outputStream = outputStream;
+        this.buffer = new byte[bufferSize];
+    }
+
+    /**
+     * 获取当前线程可重复使用的 JSONWriter
+     *      使用完成后需要调用 release 归还, 当前线程的 JSONWriter 正在使用时返回一个新的对象
+     * @param outputStream 输出流, 为 null 时数据保存在内部的缓冲区中
+     * @return JSONWriter 对象
+     */
+    public static JSONWriter get(OutputStream outputStream) {
+        JSONWriter jsonWriter = THREAD_WRITER.get();
+        if(jsonWriter.inUse) {
+            jsonWriter = new JSONWriter();
+        }
+
+        jsonWriter.inUse = true;
+        jsonWriter.outputStream = outputStream;
+        jsonWriter.allField = false;
+        jsonWriter.convertEscapeChar = JSON.isConvertEscapeChar();
+        jsonWriter.reset();
+        return jsonWriter;
+    }
+
+    /**
+     * 归还通过 get 获取的 JSONWriter
+     */
+    public void release() {
+        outputStream = null;
+        reset();
+        inUse = false;
+    }
+
+    /**
+     * 设置是否序列化所有属性, 包括被 NotSerialization 注解的属性
+     * @param allField true: 是, false: 否
+     * @return JSONWriter 对象
+     */
+    public JSONWriter allField(boolean allField) {
+        this.allField = allField;
+        return this;
+    }
+
+    /**
+     * 设置是否进行 EscapeChar 的转换
+     * @param convertEscapeChar true: 是, false: 否
+     * @return JSONWriter 对象
+     */
+    public JSONWriter convertEscapeChar(boolean convertEscapeChar) {
+        this.convertEscapeChar = convertEscapeChar;
+        return this;
+    }
+
+    /**
+     * 清空缓冲区
+     */
+    public void reset() {
+        position = 0;
+        objectDepth = 0;
+    }
+
+    /**
+     * 获取缓冲区中数据的长度
+     * @return 数据长度
+     */
+    public int size() {
+        return position;
+    }
+
+    /**
+     * 获取缓冲区中的数据
+     * @return 字节数组
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, position);
+    }
+
+    @Override
+    public String toString() {
+        return new String(buffer, 0, position, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 将缓冲区中的数据写入输出流
+     * @throws IOException IO 异常
+     */
+    public void flush() throws IOException {
+        if(outputStream != null) {
+            if(position > 0) {
+                outputStream.write(buffer, 0, position);
+                position = 0;
+            }
+            outputStream.flush();
+        }
+    }
+
+    private void ensure(int length) throws IOException {
+        if(position + length <= buffer.length) {
+            return;
+        }
+
+        if(outputStream != null && position > 0) {
+            outputStream.write(buffer, 0, position);
+            position = 0;
+        }
+
+        if(length > buffer.length - position) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + length));
+        }
+    }
+
+    private void writeByte(byte b) throws IOException {
+        if(position == buffer.length) {
+            ensure(1);
+        }
+        buffer[position++] = b;
+    }
+
+    private void writeBytes(byte[] bytes) throws IOException {
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position = position + bytes.length;
+    }
+
+    private void writeAscii(String str) throws IOException {
+        int length = str.length();
+        ensure(length);
+        for(int i=0; i<length; i++) {
+            buffer[position++] = (byte) str.charAt(i);
+        }
+    }
+
+    private void writeLong(long value) throws IOException {
+        if(value == Long.MIN_VALUE) {
+            writeBytes(LONG_MIN_BYTES);
+            return;
+        }
+
+        ensure(20);
+        if(value < 0) {
+            buffer[position++] = '-';
+            value = -value;
+        }
+
+        int start = position;
+        do {
+            buffer[position++] = (byte) ('0' + (value % 10));
+            value = value / 10;
+        } while (value > 0);
+
+        //数字是逆序写入的, 这里进行翻转
+        for(int i = start, j = position - 1; i < j; i++, j--) {
+            byte tmp = buffer[i];
+            buffer[i] = buffer[j];
+            buffer[j] = tmp;
+        }
+    }
+
+    private void writeUnicodeEscape(char c) throws IOException {
+        ensure(6);
+        buffer[position++] = '\\';
+        buffer[position++] = 'u';
+        buffer[position++] = HEX_BYTES[(c >> 12) & 0xF];
+        buffer[position++] = HEX_BYTES[(c >> 8) & 0xF];
+        buffer[position++] = HEX_BYTES[(c >> 4) & 0xF];
+        buffer[position++] = HEX_BYTES[c & 0xF];
+    }
+
+    /**
+     * 写入 JSON 字符串, 包含两端的引号
+     *      转义的规则与 TString.convertEscapeChar 一致, 以便 JSONDecode 还原
+     * @param str 字符串
+     * @throws IOException IO 异常
+     */
+    private void writeString(CharSequence str) throws IOException {
+        writeByte((byte) '"');
+
+        int length = str.length();
+        for(int i=0; i<length; i++) {
+            char c = str.charAt(i);
+
+            if(c < 0x80) {
+                if(convertEscapeChar && (c == '"' || c == '\\' || c == '\'' || c == '\r' || c == '\n' || c == '\t' || c == '\b' || c == '\f')) {
+                    writeUnicodeEscape(c);
+                } else {
+                    writeByte((byte) c);
+                }
+            } else if(c < 0x800) {
+                ensure(2);
+                buffer[position++] = (byte) (0xC0 | (c >> 6));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            } else if(Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(str.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, str.charAt(++i));
+                ensure(4);
+                buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if(Character.isSurrogate(c)) {
+                writeByte((byte) '?');
+            } else {
+                ensure(3);
+                buffer[position++] = (byte) (0xE0 | (c >> 12));
+                buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+
+        writeByte((byte) '"');
+    }
+
+    /**
+     * 将对象以 JSON 格式写入
+     * @param object 待写入的对象
+     * @return JSONWriter 对象
+     * @throws IOException IO 异常
+     * @throws ReflectiveOperationException 反射异常
+     */
+    public JSONWriter write(Object object) throws IOException, ReflectiveOperationException {
+        if (object == null) {
+            writeBytes(NULL_BYTES);
+        } else if (object instanceof String) {
+            writeString((String) object);
+        } else if (object instanceof Integer || object instanceof Long || object instanceof Short) {
+            writeLong(((Number) object).longValue());
+        } else if (object instanceof Boolean) {
+            writeBytes((Boolean) object ? TRUE_BYTES : FALSE_BYTES);
+        } else if (object instanceof Float || object instanceof Double) {
+            writeAscii(object.toString());
+        } else if (object instanceof Class) {
+            writeString(TReflect.getClassName((Class) object));
+        } else if (object instanceof BigDecimal) {
+            BigDecimal bigDecimal = (BigDecimal) object;
+            if(BigDecimal.ZERO.compareTo(bigDecimal)==0){
+                bigDecimal = BigDecimal.ZERO;
+            }
+
+            if(objectDepth > 0) {
+                writeString(bigDecimal.toPlainString());
+            } else {
+                writeAscii(bigDecimal.toPlainString());
+            }
+        } else if (object instanceof Date) {
+            writeString(TDateTime.format((Date) object, TDateTime.STANDER_DATETIME_TEMPLATE));
+        } else if (object instanceof AtomicInteger || object instanceof AtomicLong) {
+            writeLong(((Number) object).longValue());
+        } else if (object instanceof AtomicBoolean) {
+            writeBytes(((AtomicBoolean) object).get() ? TRUE_BYTES : FALSE_BYTES);
+        } else if (object instanceof Map) {
+            writeMap((Map<?, ?>) object);
+        } else if (object instanceof Collection) {
+            writeCollection((Collection<?>) object);
+        } else if (object.getClass().isArray()) {
+            writeArray(object);
+        } else if (TReflect.isBasicType(object.getClass())) {
+            writeString(object.toString());
+        } else {
+            writeComplexObject(object);
+        }
+
+        return this;
+    }
+
+    private void writeMap(Map<?, ?> map) throws IOException, ReflectiveOperationException {
+        writeByte((byte) '{');
+
+        boolean first = true;
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            if(!first) {
+                writeByte((byte) ',');
+            }
+            first = false;
+
+            Object key = entry.getKey();
+            if(key == null || TReflect.isBasicType(key.getClass())) {
+                writeString(String.valueOf(key));
+            } else {
+                writeByte((byte) '"');
+                write(key);
+                writeByte((byte) '"');
+            }
+
+            writeByte((byte) ':');
+            write(entry.getValue());
+        }
+
+        writeByte((byte) '}');
+    }
+
+    private void writeCollection(Collection<?> collection) throws IOException, ReflectiveOperationException {
+        writeByte((byte) '[');
+
+        boolean first = true;
+        for (Object item : collection) {
+            if(!first) {
+                writeByte((byte) ',');
+            }
+            first = false;
+            write(item);
+        }
+
+        writeByte((byte) ']');
+    }
+
+    private void writeArray(Object array) throws IOException, ReflectiveOperationException {
+        writeByte((byte) '[');
+
+        Class componentType = array.getClass().getComponentType();
+        if(componentType == int.class) {
+            int[] values = (int[]) array;
+            for(int i=0; i<values.length; i++) {
+                if(i > 0) {
+                    writeByte((byte) ',');
+                }
+                writeLong(values[i]);
+            }
+        } else if(componentType == long.class) {
+            long[] values = (long[]) array;
+            for(int i=0; i<values.length; i++) {
+                if(i > 0) {
+                    writeByte((byte) ',');
+                }
+                writeLong(values[i]);
+            }
+        } else if(componentType.isPrimitive()) {
+            int length = Array.getLength(array);
+            for(int i=0; i<length; i++) {
+                if(i > 0) {
+                    writeByte((byte) ',');
+                }
+                write(Array.get(array, i));
+            }
+        } else {
+            Object[] values = (Object[]) array;
+            for(int i=0; i<values.length; i++) {
+                if(i > 0) {
+                    writeByte((byte) ',');
+                }
+                write(values[i]);
+            }
+        }
+
+        writeByte((byte) ']');
+    }
+
+    private void writeComplexObject(Object object) throws IOException, ReflectiveOperationException {
+        ClassEncoder classEncoder = getClassEncoder(object.getClass());
+        if(classEncoder.notSerialization) {
+            writeBytes(NULL_BYTES);
+            return;
+        }
+
+        objectDepth++;
+        try {
+            writeByte((byte) '{');
+
+            boolean first = true;
+            for (FieldEncoder fieldEncoder : classEncoder.fieldEncoders) {
+                if (!allField && fieldEncoder.notSerialization) {
+                    continue;
+                }
+
+                if (!first) {
+                    writeByte((byte) ',');
+                }
+                first = false;
+
+                writeBytes(fieldEncoder.nameBytes);
+                write(fieldEncoder.getValue(object));
+            }
+
+            writeByte((byte) '}');
+        } finally {
+            objectDepth--;
+        }
+    }
+
+    /**
+     * 获取类的编码信息
+     * @param clazz 类对象
+     * @return 类的编码信息
+     */
+    private static ClassEncoder getClassEncoder(Class clazz) {
+        ClassEncoder classEncoder = CLASS_ENCODERS.get(clazz);
+        if(classEncoder == null) {
+            classEncoder = CLASS_ENCODERS.computeIfAbsent(clazz, ClassEncoder::new);
+        }
+        return classEncoder;
+    }
+
+    /**
+     * 类的编码信息
+     */
+    private static class ClassEncoder {
+        private boolean notSerialization;
+        private FieldEncoder[] fieldEncoders;
+
+        private ClassEncoder(Class clazz) {
+            notSerialization = clazz.isAnnotationPresent(NotSerialization.class);
+
+            //属性是按子类->父类顺序排列的, 同名属性合并为一个 FieldEncoder
+            LinkedHashMap<String, FieldEncoder> fieldEncoderMap = new LinkedHashMap<String, FieldEncoder>();
+            for (Field field : TReflect.getFields(clazz)) {
+                int modifiers = field.getModifiers();
+                if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.getName().contains("$")) {
+                    continue;
+                }
+
+                FieldEncoder fieldEncoder = fieldEncoderMap.get(field.getName());
+                if (fieldEncoder == null) {
+                    fieldEncoderMap.put(field.getName(), new FieldEncoder(field));
+                } else {
+                    fieldEncoder.addField(field);
+                }
+            }
+
+            fieldEncoders = fieldEncoderMap.values().toArray(new FieldEncoder[0]);
+        }
+    }
+
+    /**
+     * 属性的编码信息
+     */
+    private static class FieldEncoder {
+        private byte[] nameBytes;
+        private Field[] fields;
+        private boolean notSerialization;
+
+        private FieldEncoder(Field field) {
+            //预先编码 "name":
+            this.nameBytes = ("\"" + field.getName() + "\":").getBytes(StandardCharsets.UTF_8);
+            this.fields = new Field[]{field};
+            this.notSerialization = field.isAnnotationPresent(NotSerialization.class);
+        }
+
+        private void addField(Field field) {
+            fields = Arrays.copyOf(fields, fields.length + 1);
+            fields[fields.length - 1] = field;
+        }
+
+        /**
+         * 获取属性值, 子类和父类有同名属性时, 返回第一个不为 null 的值
+         * @param object 对象
+         * @return 属性值
+         * @throws ReflectiveOperationException 反射异常
+         */
+        private Object getValue(Object object) throws ReflectiveOperationException {
+            for (Field field : fields) {
+                Object value = field.get(object);
+                if (value != null) {
+                    return value;
+                }
+            }
+            return null;
+        }
+    }
+}
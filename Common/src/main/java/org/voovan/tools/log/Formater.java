@@ -8,7 +8,7 @@ import java.io.*;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Vector;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  *	格式化日志信息并输出
@@ -38,9 +38,9 @@ import java.util.Vector;
  */
 public class Formater {
     private String template;
+    private LogTemplate logTemplate;
     private volatile LoggerThread loggerThread;
     private List<String> logLevel;
-    private String dateStamp;
     private int maxLineLength = -1;
     private String lineHead;
     private String lineTail;
@@ -56,41 +56,16 @@ public class Formater {
         }, 1);
     }
 
-    protected String getDateStamp() {
-        return dateStamp;
-    }
-
-    protected void setDateStamp(String dateStamp) {
-        this.dateStamp = dateStamp;
-    }
-
     /**
      * 构造函数
      * @param template 模板
      */
     public Formater(String template) {
         this.template = template;
+        this.logTemplate = new LogTemplate(template);
 
-        logLevel = new Vector<String>();
+        logLevel = new CopyOnWriteArrayList<String>();
         logLevel.addAll(TObject.asList(LoggerStatic.getLogConfig("LogLevel", LoggerStatic.LOG_LEVEL).split(",")));
-        this.dateStamp = DATE;
-
-        final Formater finalFormater = this;
-        Global.getHashWheelTimer().addTask(new HashWheelTask() {
-            @Override
-            public void run() {
-                if(Logger.isEnable()) {
-                    //压缩历史日志文件
-                    packLogFile();
-
-                    //如果日志发生变化则产生新的文件
-                    if (!finalFormater.getDateStamp().equals(DATE)) {
-                        loggerThread.setOutputStreams(getOutputStreams());
-                        finalFormater.setDateStamp(DATE);
-                    }
-                }
-            }
-        }, 1);
     }
 
     /**
@@ -101,6 +76,14 @@ public class Formater {
         return logLevel;
     }
 
+    /**
+     * 获取预编译的日志模板
+     * @return 日志模板
+     */
+    public LogTemplate getLogTemplate() {
+        return logTemplate;
+    }
+
     /**
      * 获得当前栈元素信息
      * @return 栈信息元素
@@ -119,17 +102,22 @@ public class Formater {
         return currentThread.getName();
     }
 
-    private int realLength(String str){
-        return str.replaceAll("\\{\\{n\\}\\}","").replaceAll("\\{\\{.*\\}\\}"," ").replaceAll("\033\\[\\d{2}m", "").length();
-    }
-
     /**
-     * 消息缩进
-     * @param message 消息对象
-     * @return 随进后的消息
+     * 获得日志调用者的栈元素信息, 跳过日志框架自身的栈帧
+     * @return 栈信息元素
      */
-    private String lineFormat(Message message){
-        return TString.tokenReplace(template, message.getTokens()) + TFile.getLineSeparator();
+    private static StackTraceElement callerStackLine() {
+        StackTraceElement[] stackTraceElements = new Throwable().getStackTrace();
+        for (StackTraceElement stackTraceElement : stackTraceElements) {
+            if (!stackTraceElement.getClassName().startsWith("org.voovan.tools.log.")) {
+                return stackTraceElement;
+            }
+        }
+        return stackTraceElements[stackTraceElements.length - 1];
+    }
+
+    private int realLength(String str){
+        return str.replaceAll("\\{\\{n\\}\\}","").replaceAll("\\{\\{.*\\}\\}"," ").replaceAll("\033\\[\\d{2}m", "").length();
     }
 
     /**
@@ -223,8 +211,9 @@ public class Formater {
      * @return 格式化后的消息
      */
     public String format(Message message) {
-        fillTokens(message);
-        return lineFormat(message);
+        StringBuilder stringBuilder = new StringBuilder();
+        render(stringBuilder, prepare(message), LoggerStatic.HAS_COLOR);
+        return stringBuilder.toString();
     }
 
     /**
@@ -233,9 +222,46 @@ public class Formater {
      * @return 格式化后的消息
      */
     public String simpleFormat(Message message){
-        //消息缩进
-        fillTokens(message);
-        return TString.tokenReplace(message.getMessage(), message.getTokens());
+        String msg = message.getMessage();
+        return msg.contains("{{") ? new LogTemplate(msg).render(prepare(message), LoggerStatic.HAS_COLOR) : msg;
+    }
+
+    /**
+     * 补全直接构造的消息对象中的调用位置
+     * @param message 消息对象
+     * @return 消息对象
+     */
+    private Message prepare(Message message) {
+        if (message.getThreadName() == null) {
+            message.setThreadName(currentThreadName());
+            message.setTimestamp(System.currentTimeMillis());
+        }
+
+        if (message.getStackElement() == null && logTemplate.hasStack()) {
+            message.setStackElement(callerStackLine());
+        }
+        return message;
+    }
+
+    /**
+     * 格式化消息并追加到 StringBuilder, 由日志线程调用
+     * @param stringBuilder 格式化结果追加到这个对象
+     * @param message 消息对象
+     * @param color true: 输出颜色, false: 忽略颜色标识
+     */
+    public void render(StringBuilder stringBuilder, Message message, boolean color) {
+        if ("SIMPLE".equals(message.getLevel())) {
+            String msg = message.getMessage();
+            if (msg.contains("{{")) {
+                new LogTemplate(msg).render(stringBuilder, message, color);
+            } else {
+                stringBuilder.append(msg);
+            }
+            stringBuilder.append("\r\n");
+        } else {
+            logTemplate.render(stringBuilder, message, color);
+            stringBuilder.append(TFile.getLineSeparator());
+        }
     }
 
     /**
@@ -244,14 +270,16 @@ public class Formater {
      * @return 是否可写入
      */
     public boolean messageWritable(Message message){
-        if(logLevel.contains("ALL")){
-            return true;
-        }
-        else if(logLevel.contains(message.getLevel())){
-            return true;
-        }else{
-            return false;
-        }
+        return messageWritable(message.getLevel());
+    }
+
+    /**
+     * 消息类型是否可以记录
+     * @param level 日志级别
+     * @return 是否可写入
+     */
+    public boolean messageWritable(String level){
+        return logLevel.contains("ALL") || logLevel.contains(level);
     }
 
     /**
@@ -259,72 +287,56 @@ public class Formater {
      * @param message 消息对象
      */
     public void writeFormatedLog(Message message) {
-        if(messageWritable(message)){
-            if("SIMPLE".equals(message.getLevel())){
-                writeLog(simpleFormat(message)+"\r\n");
-            }else{
-                writeLog(format(message));
+        if(messageWritable(message) && Logger.isEnable()){
+            prepare(message);
+            getLoggerThread().addLogMessage(message.getLevel(), message.getMessage(), message.getThreadName(),
+                    message.getTimestamp(), message.getStackElement());
+        }
+    }
+
+    /**
+     * 写入消息, 格式化在日志线程中进行
+     *      只有模板中包含调用位置相关的标识时才获取调用栈
+     * @param level 日志级别
+     * @param msg 消息内容
+     */
+    public void writeFormatedLog(String level, String msg) {
+        if(messageWritable(level) && Logger.isEnable()){
+            StackTraceElement stackElement = null;
+            if (logTemplate.hasStack() && !"SIMPLE".equals(level)) {
+                stackElement = callerStackLine();
             }
+
+            getLoggerThread().addLogMessage(level, msg, currentThreadName(), System.currentTimeMillis(), stackElement);
         }
     }
 
     /**
-     * 写入消息
+     * 写入已经格式化的消息
      * @param msg 消息字符串
      */
-    public synchronized void writeLog(String msg) {
+    public void writeLog(String msg) {
         if(Logger.isEnable()){
-            if (loggerThread == null || loggerThread.isFinished()) {
-                this.loggerThread = LoggerThread.start(getOutputStreams());
-            }
-
-            loggerThread.addLogMessage(msg);
+            getLoggerThread().addLogMessage(msg);
         }
     }
 
     /**
-     * 压缩历史日志文件
+     * 获取日志输出线程, 线程不存在或已经结束时启动新的线程
+     * @return 日志输出线程
      */
-    private void packLogFile(){
-        long packSize = (long) (Double.valueOf(LoggerStatic.getLogConfig("PackSize", "1024")) * 1024L * 1024L);
-        final String logFilePath = getFormatedLogFilePath();
-        final String tmpFilePath = TFile.getFileDirectory(logFilePath) + ".tmpPackLog";
-
-        File logFile = new File(logFilePath);
-        File tmpLogFile = new File(tmpFilePath);
-
-        if(packSize > 0 && logFile.length() > packSize){
-            //暂停日志输出
-            try {
-                if (loggerThread.pause()) {
-                    try {
-                        TFile.moveFile(logFile, tmpLogFile);
-
-                        //开启独立线程进行文件压缩
-                        Global.getThreadPool().execute(()->{
-                            String logFileExtendName = TFile.getFileExtension(logFilePath);
-                            String innerLogFilePath = logFilePath.replace("." + logFileExtendName, "");
-                            try {
-                                File packFile = new File(innerLogFilePath + "." + TDateTime.now("HHmmss") + "." + logFileExtendName + ".gz");
-                                TZip.encodeGZip(tmpLogFile, packFile);
-                                TFile.deleteFile(tmpLogFile);
-                            } catch (Exception e) {
-                                System.out.println("[ERROR] Pack log file " + innerLogFilePath + "error: ");
-                                e.printStackTrace();
-                            }
-                        });
-                    } catch (IOException e) {
-                        e.printStackTrace();
-                    }
-
-                    //重置文件输出流
-                    loggerThread.setOutputStreams(getOutputStreams());
+    private LoggerThread getLoggerThread() {
+        LoggerThread currentLoggerThread = loggerThread;
+        if (currentLoggerThread == null || currentLoggerThread.isFinished()) {
+            synchronized (this) {
+                currentLoggerThread = loggerThread;
+                if (currentLoggerThread == null || currentLoggerThread.isFinished()) {
+                    currentLoggerThread = LoggerThread.start(this, getOutputStreams());
+                    loggerThread = currentLoggerThread;
                 }
-            } finally {
-                //恢复日志输出
-                loggerThread.unpause();
             }
         }
+        return currentLoggerThread;
     }
 
     /**
@@ -352,6 +364,17 @@ public class Formater {
         return filePath;
     }
 
+    /**
+     * 获取日志文件路径模板, 保留日期标识由 RollingFileAppender 在滚动时替换
+     * @return 日志文件路径模板
+     */
+    private static String getLogFilePattern(){
+        String logFile = LoggerStatic.getLogConfig("LogFile", LoggerStatic.LOG_FILE);
+        Map<String, String> tokens = new HashMap<String, String>();
+        tokens.put("WorkDir", TFile.getContextPath());
+        return TString.tokenReplace(logFile, tokens);
+    }
+
     /**
      * 获得一个实例
      * @return 新的实例
@@ -366,7 +389,7 @@ public class Formater {
      */
     protected static OutputStream[] getOutputStreams(){
         String[] LogTypes = LoggerStatic.getLogConfig("LogType", LoggerStatic.LOG_TYPE).split(",");
-        String logFilePath = getFormatedLogFilePath();
+        long packSize = (long) (Double.valueOf(LoggerStatic.getLogConfig("PackSize", "1024")) * 1024L * 1024L);
 
         OutputStream[] outputStreams = new OutputStream[LogTypes.length];
         for (int i = 0; i < LogTypes.length; i++) {
@@ -379,11 +402,8 @@ public class Formater {
                     outputStreams[i] = System.err;
                     break;
                 case "FILE":
-                    try {
-                        outputStreams[i] = new FileOutputStream(logFilePath,true);
-                    } catch (FileNotFoundException e) {
-                        System.out.println("log file: ["+logFilePath+"] is not found.\r\n");
-                    }
+                    //按日期和 PackSize 滚动日志文件, 滚动后的文件压缩打包
+                    outputStreams[i] = new RollingFileAppender(getLogFilePattern()).maxFileSize(packSize).pack(true);
                     break;
                 default:
                     break;
@@ -0,0 +1,20 @@
+package org.voovan.tools.log;
+
+/**
+ * 结构化的日志记录
+ *      写入线程只保存记录中的字段, 由日志线程调用 render 格式化, 用于访问日志等高频的日志
+ *
+ * @author helyho
+ *
+ * Voovan Framework.
+ * WebSite: https://github.com/helyho/Voovan
+ * Licence: Apache v2 License
+ */
+public interface LogRecord {
+
+    /**
+     * 格式化日志记录, 在日志线程中调用
+     * @param stringBuilder 格式化结果追加到这个对象, 需要包含换行符
+     */
+    public void render(StringBuilder stringBuilder);
+}
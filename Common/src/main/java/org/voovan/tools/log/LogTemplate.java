@@ -0,0 +1,262 @@
+package org.voovan.tools.log;
+
+import org.voovan.tools.TEnv;
+import org.voovan.tools.TFile;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 预编译的日志模板
+ *      模板在构造时解析为文本段和标识段, 格式化时按顺序追加, 不再逐个标识做字符串替换
+ *      标识的含义参见 Formater
+ *
+ * @author helyho
+ *
+ * Voovan Framework.
+ * WebSite: https://github.com/helyho/Voovan
+ * Licence: Apache v2 License
+ */
+public class LogTemplate {
+    private static final int LITERAL    = 0;
+    private static final int COLOR      = 1;
+    private static final int MESSAGE    = 2;
+    private static final int LEVEL      = 3;
+    private static final int THREAD     = 4;
+    private static final int DATE       = 5;
+    private static final int RUNTIME    = 6;
+    private static final int STACK      = 7;
+    private static final int LINE       = 8;
+    private static final int METHOD     = 9;
+    private static final int FILE       = 10;
+    private static final int CLASS      = 11;
+
+    private static final boolean COLOR_SUPPORT = !TEnv.OS_NAME.toUpperCase().contains("WINDOWS");
+
+    private String template;
+    private int[] types;
+    private String[] literals;
+    private boolean hasStack = false;
+    private boolean hasColor = false;
+
+    private volatile DateCache dateCache;
+
+    /**
+     * 构造函数
+     * @param template 日志模板
+     */
+    public LogTemplate(String template) {
+        this.template = template;
+
+        List<Integer> typeList = new ArrayList<Integer>();
+        List<String> literalList = new ArrayList<String>();
+        StringBuilder literal = new StringBuilder();
+
+        int index = 0;
+        while (index < template.length()) {
+            int start = template.indexOf("{{", index);
+            int end = start < 0 ? -1 : template.indexOf("}}", start + 2);
+            if (end < 0) {
+                literal.append(template, index, template.length());
+                break;
+            }
+
+            literal.append(template, index, start);
+            String name = template.substring(start + 2, end);
+            index = end + 2;
+
+            int type = tokenType(name);
+            if (type == LITERAL) {
+                literal.append(tokenLiteral(name));
+                continue;
+            }
+
+            if (literal.length() > 0) {
+                typeList.add(LITERAL);
+                literalList.add(literal.toString());
+                literal.setLength(0);
+            }
+
+            typeList.add(type);
+            literalList.add(type == COLOR ? colorCode(name) : null);
+            hasStack = hasStack || type >= STACK;
+            hasColor = hasColor || type == COLOR;
+        }
+
+        if (literal.length() > 0) {
+            typeList.add(LITERAL);
+            literalList.add(literal.toString());
+        }
+
+        types = new int[typeList.size()];
+        for (int i = 0; i < types.length; i++) {
+            types[i] = typeList.get(i);
+        }
+        literals = literalList.toArray(new String[0]);
+    }
+
+    public String getTemplate() {
+        return template;
+    }
+
+    /**
+     * 模板中是否包含调用位置相关的标识: SI, L, M, F, C
+     * @return true: 包含, 写日志时需要获取调用栈
+     */
+    public boolean hasStack() {
+        return hasStack;
+    }
+
+    /**
+     * 模板中是否包含颜色标识
+     * @return true: 包含
+     */
+    public boolean hasColor() {
+        return hasColor;
+    }
+
+    private static int tokenType(String name) {
+        switch (name) {
+            case "I":   return MESSAGE;
+            case "P":   return LEVEL;
+            case "T":   return THREAD;
+            case "D":   return DATE;
+            case "R":   return RUNTIME;
+            case "SI":  return STACK;
+            case "L":   return LINE;
+            case "M":   return METHOD;
+            case "F":   return FILE;
+            case "C":   return CLASS;
+            default:
+                if (name.length() == 2 && (name.charAt(0) == 'F' || name.charAt(0) == 'B') &&
+                        (name.charAt(1) >= '0' && name.charAt(1) <= '7' || name.charAt(1) == 'D')) {
+                    return COLOR;
+                }
+                return LITERAL;
+        }
+    }
+
+    private static String tokenLiteral(String name) {
+        switch (name) {
+            case "s":   return " ";
+            case "t":   return "\t";
+            case "n":   return TFile.getLineSeparator();
+            //未知的标识原样保留
+            default:    return "{{" + name + "}}";
+        }
+    }
+
+    private static String colorCode(String name) {
+        if (!COLOR_SUPPORT) {
+            return "";
+        }
+
+        char color = name.charAt(1);
+        String code = color == 'D' ? "9" : String.valueOf(color);
+        return "\033[" + (name.charAt(0) == 'F' ? "3" : "4") + code + "m";
+    }
+
+    /**
+     * 格式化消息
+     * @param stringBuilder 格式化结果追加到这个对象
+     * @param message 消息对象
+     * @param color true: 输出颜色, false: 忽略颜色标识, 用于文件等非终端的输出
+     */
+    public void render(StringBuilder stringBuilder, Message message, boolean color) {
+        StackTraceElement stackElement = message.getStackElement();
+
+        for (int i = 0; i < types.length; i++) {
+            switch (types[i]) {
+                case LITERAL:
+                    stringBuilder.append(literals[i]);
+                    break;
+                case COLOR:
+                    if (color) {
+                        stringBuilder.append(literals[i]);
+                    }
+                    break;
+                case MESSAGE:
+                    stringBuilder.append(message.getMessage());
+                    break;
+                case LEVEL:
+                    stringBuilder.append(message.getLevel() == null ? "INFO" : message.getLevel());
+                    break;
+                case THREAD:
+                    stringBuilder.append(message.getThreadName());
+                    break;
+                case DATE:
+                    appendDate(stringBuilder, message.getTimestamp());
+                    break;
+                case RUNTIME:
+                    stringBuilder.append(message.getTimestamp() - LoggerStatic.getStartTimeMillis());
+                    break;
+                case STACK:
+                    stringBuilder.append(stackElement == null ? "" : stackElement.toString());
+                    break;
+                case LINE:
+                    stringBuilder.append(stackElement == null ? "" : Integer.toString(stackElement.getLineNumber()));
+                    break;
+                case METHOD:
+                    stringBuilder.append(stackElement == null ? "" : stackElement.getMethodName());
+                    break;
+                case FILE:
+                    stringBuilder.append(stackElement == null ? "" : stackElement.getFileName());
+                    break;
+                case CLASS:
+                    stringBuilder.append(stackElement == null ? "" : stackElement.getClassName());
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * 格式化消息
+     * @param message 消息对象
+     * @param color true: 输出颜色, false: 忽略颜色标识
+     * @return 格式化后的字符串
+     */
+    public String render(Message message, boolean color) {
+        StringBuilder stringBuilder = new StringBuilder();
+        render(stringBuilder, message, color);
+        return stringBuilder.toString();
+    }
+
+    /**
+     * 追加时间, 格式: yyyy-MM-dd HH:mm:ss:SS z
+     *      秒以上的部分每秒只格式化一次
+     * @param stringBuilder 格式化结果追加到这个对象
+     * @param timestamp 时间戳
+     */
+    private void appendDate(StringBuilder stringBuilder, long timestamp) {
+        long second = timestamp / 1000;
+        DateCache cache = dateCache;
+        if (cache == null || cache.second != second) {
+            cache = new DateCache(second);
+            dateCache = cache;
+        }
+
+        int millis = (int) (timestamp % 1000);
+        stringBuilder.append(cache.prefix);
+        if (millis < 10) {
+            stringBuilder.append('0');
+        }
+        stringBuilder.append(millis).append(cache.zone);
+    }
+
+    private static class DateCache {
+        private long second;
+        private String prefix;
+        private String zone;
+
+        private DateCache(long second) {
+            Date date = new Date(second * 1000);
+            this.second = second;
+            this.prefix = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss:").format(date);
+            this.zone = new SimpleDateFormat(" z").format(date);
+        }
+    }
+}
@@ -56,14 +56,13 @@ public class Logger {
 	}
 
 	public static void custom(String logLevel, Object msg, Throwable e) {
-		if(!Logger.isEnable()){
+		if(!Logger.isEnable() || !formater.messageWritable(logLevel)){
 			return;
 		}
 
 		try {
 			msg = buildMessage(msg, e);
-			Message message = Message.newInstance(logLevel, msg.toString());
-			formater.writeFormatedLog(message);
+			formater.writeFormatedLog(logLevel, msg.toString());
 		} catch (Exception oe) {
 			simple("Logger system error:"+oe.getMessage()+"\r\n");
 			simple(TEnv.getStackElementsMessage(oe.getStackTrace()));
@@ -80,7 +79,7 @@ public class Logger {
 	}
 
 	public static void customf(String logLevel, String msg, Throwable e, Object ... args){
-		if(!Logger.isEnable()){
+		if(!Logger.isEnable() || !formater.messageWritable(logLevel)){
 			return;
 		}
 
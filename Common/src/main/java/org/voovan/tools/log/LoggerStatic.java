@@ -31,6 +31,11 @@ public class LoggerStatic {
 			TString.regexMatch(LOG_TEMPLATE, "\\{\\{F\\}\\}") > 0 ||
 			TString.regexMatch(LOG_TEMPLATE, "\\{\\{C\\}\\}") > 0;
 
+	//日志环形缓冲区大小, 缓冲区满时的处理策略: BLOCK, DROP, SAMPLE, 以及 SAMPLE 策略的采样率
+	public static int BUFFER_SIZE = Integer.parseInt(LoggerStatic.getLogConfig("BufferSize", "8192").trim());
+	public static MessageRingBuffer.OverflowPolicy OVERFLOW_POLICY = MessageRingBuffer.OverflowPolicy.valueOf(LoggerStatic.getLogConfig("OverflowPolicy", "BLOCK").trim().toUpperCase());
+	public static int SAMPLE_RATE = Integer.parseInt(LoggerStatic.getLogConfig("SampleRate", "10").trim());
+
 	public static boolean HAS_LEVEL = TString.regexMatch(LOG_TEMPLATE, "\\{\\{P\\}\\}") > 0;
 	public static boolean HAS_DATE = TString.regexMatch(LOG_TEMPLATE, "\\{\\{D\\}\\}") > 0;
 	public static boolean HAS_THREAD = TString.regexMatch(LOG_TEMPLATE, "\\{\\{T\\}\\}") > 0;
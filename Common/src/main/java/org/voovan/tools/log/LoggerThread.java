@@ -7,12 +7,19 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
 import java.util.concurrent.ConcurrentLinkedDeque;
-import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * 日志输出线程
+ * 		消息写入预分配的环形缓冲区, 由日志线程批量格式化, 编码到堆外缓冲区后写入输出流
  *
  * @author helyho
  *
@@ -21,21 +28,44 @@ import java.util.concurrent.atomic.AtomicBoolean;
  * Licence: Apache v2 License
  */
 public class LoggerThread implements Runnable {
-	private ConcurrentLinkedDeque<String> logQueue;
+	//每批最多处理的消息数和字符数
+	private static final int BATCH_SIZE = 1024;
+	private static final int BATCH_CHARS = 32 * 1024;
+
+	private MessageRingBuffer ringBuffer;
+	private Formater formater;
 	private ConcurrentLinkedDeque<String> fileChangelogQueue;
-	private OutputStream[] outputStreams;
+	private volatile OutputStream[] outputStreams;
 	private volatile AtomicBoolean finished = new AtomicBoolean(false);
 	private volatile int pause = 0; // 0: 正常 , 1: 暂停中, 2: 暂停
 
+	//终端输出保留颜色, 其他输出剔除颜色
+	private StringBuilder consoleBuilder = new StringBuilder(BATCH_CHARS * 2);
+	private StringBuilder fileBuilder = new StringBuilder(BATCH_CHARS * 2);
+	private ByteBuffer encodeBuffer = ByteBuffer.allocateDirect(64 * 1024);
+	private byte[] writeBytes = new byte[encodeBuffer.capacity()];
+	private CharsetEncoder encoder = Charset.defaultCharset().newEncoder()
+			.onMalformedInput(CodingErrorAction.REPLACE)
+			.onUnmappableCharacter(CodingErrorAction.REPLACE);
+
 	/**
 	 * 构造函数
 	 * @param outputStreams 输出流数组
 	 */
 	public LoggerThread(OutputStream[] outputStreams) {
-		this.logQueue = new ConcurrentLinkedDeque<String>();
+		this(null, outputStreams);
+	}
+
+	/**
+	 * 构造函数
+	 * @param formater 格式化对象, 为 null 时只能写入已经格式化的消息
+	 * @param outputStreams 输出流数组
+	 */
+	public LoggerThread(Formater formater, OutputStream[] outputStreams) {
+		this.formater = formater;
+		this.ringBuffer = new MessageRingBuffer(LoggerStatic.BUFFER_SIZE, LoggerStatic.OVERFLOW_POLICY, LoggerStatic.SAMPLE_RATE);
 		this.fileChangelogQueue = new ConcurrentLinkedDeque<String>();
 		this.outputStreams = outputStreams;
-
 	}
 
 	/**
@@ -62,6 +92,26 @@ public class LoggerThread implements Runnable {
 		pause = 0;
 	}
 
+	/**
+	 * 进程退出时输出缓冲区中剩余的日志, 并关闭滚动日志文件以截断未使用的映射区域
+	 * @return true: 成功, false: 失败
+	 */
+	public boolean shutdown() {
+		TEnv.wait(1000, ()-> !ringBuffer.isEmpty());
+		boolean paused = pause();
+
+		for (OutputStream outputStream : outputStreams) {
+			if (outputStream instanceof RollingFileAppender) {
+				try {
+					outputStream.close();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+		}
+		return paused;
+	}
+
 	/**
 	 * 获取日志输出流集合
 	 * @return 输出流数组
@@ -77,9 +127,9 @@ public class LoggerThread implements Runnable {
 	public void setOutputStreams(OutputStream[] outputStreams) {
 		if(outputStreams != null) {
 			for (OutputStream outputStream : getOutputStreams()) {
-				if (outputStream instanceof FileOutputStream) {
+				if (outputStream instanceof FileOutputStream || outputStream instanceof RollingFileAppender) {
 					try {
-						((FileOutputStream) outputStream).close();
+						outputStream.close();
 					} catch (IOException e) {
 						e.printStackTrace();
 					}
@@ -90,6 +140,14 @@ public class LoggerThread implements Runnable {
 		this.outputStreams = outputStreams;
 	}
 
+	/**
+	 * 获取环形缓冲区
+	 * @return 环形缓冲区
+	 */
+	public MessageRingBuffer getRingBuffer() {
+		return ringBuffer;
+	}
+
 	/**
 	 * 关闭所有的OutputStream
 	 */
@@ -121,22 +179,59 @@ public class LoggerThread implements Runnable {
 	}
 
 	/**
-	 * 增加消息
+	 * 增加已经格式化的消息
 	 *
 	 * @param msg 消息字符串
 	 */
 	public void addLogMessage(String msg) {
-		logQueue.offer(msg);
+		long sequence = ringBuffer.claim(false);
+		if(sequence >= 0) {
+			Message message = ringBuffer.get(sequence);
+			message.fill(null, msg, null, 0, null);
+			message.setRaw(true);
+			ringBuffer.publish(sequence);
+		}
+	}
+
+	/**
+	 * 增加消息, 由日志线程格式化
+	 *
+	 * @param level 日志级别
+	 * @param msg 消息内容
+	 * @param threadName 线程名
+	 * @param timestamp 时间戳
+	 * @param stackElement 调用位置, 模板中没有栈信息时为 null
+	 */
+	public void addLogMessage(String level, String msg, String threadName, long timestamp, StackTraceElement stackElement) {
+		boolean important = "WARN".equals(level) || "ERROR".equals(level) || "FATAL".equals(level);
+		long sequence = ringBuffer.claim(important);
+		if(sequence >= 0) {
+			ringBuffer.get(sequence).fill(level, msg, threadName, timestamp, stackElement);
+			ringBuffer.publish(sequence);
+		}
+	}
+
+	/**
+	 * 增加结构化的日志记录, 由日志线程格式化
+	 *
+	 * @param record 日志记录
+	 * @param important true: 缓冲区满时总是等待, 不会被丢弃
+	 */
+	public void addLogRecord(LogRecord record, boolean important) {
+		long sequence = ringBuffer.claim(important);
+		if(sequence >= 0) {
+			ringBuffer.get(sequence).setRecord(record);
+			ringBuffer.publish(sequence);
+		}
 	}
 
 	@Override
 	public void run() {
-		String formatedMessage = null;
-
 		boolean needFlush = false;
+		int idle = 0;
 
 		try {
-			while (Logger.isEnable() || logQueue.isEmpty()) {
+			while (Logger.isEnable() || !ringBuffer.isEmpty()) {
 
 				try {
 					if (this.pause == 1) {
@@ -149,53 +244,25 @@ public class LoggerThread implements Runnable {
 						continue;
 					}
 
-					formatedMessage = logQueue.poll();
-
 					//优化日志输出事件
-					if (formatedMessage == null) {
+					if (drain() == 0) {
 
 						if (needFlush) {
 							flush();
 							needFlush = false;
 						}
 
-						Thread.sleep(10);
+						if(idle++ < 100) {
+							Thread.yield();
+						} else {
+							LockSupport.parkNanos(1000000);
+						}
 						continue;
 					}
 
-					if (formatedMessage != null && outputStreams != null) {
-						for (OutputStream outputStream : outputStreams) {
-							if (outputStream != null) {
-								if (LoggerStatic.HAS_COLOR && !(outputStream instanceof PrintStream)) {
-									//文件写入剔除出着色部分
-									formatedMessage = TString.fastReplaceAll(formatedMessage, "\033\\[\\d{2}m", "");
-								}
-
-								//对于文件输出检测
-								if(outputStream instanceof FileOutputStream) {
-									//文件如果关闭则将消息加入缓冲,跳过
-									if(!((FileOutputStream)outputStream).getChannel().isOpen()){
-										fileChangelogQueue.add(formatedMessage);
-										continue;
-									} else {
-										//如果文件输出可用,则尝试输出上一步缓冲中的消息
-										while(true) {
-											String message = fileChangelogQueue.poll();
-											if(message!=null) {
-												outputStream.write(message.getBytes());
-											} else {
-												break;
-											}
-										}
-									}
-								}
-
-								outputStream.write(formatedMessage.getBytes());
-
-								needFlush = true;
-							}
-						}
-					}
+					idle = 0;
+					write();
+					needFlush = true;
 				} catch (Exception e) {
 					e.printStackTrace();
 				}
@@ -210,7 +277,8 @@ public class LoggerThread implements Runnable {
 		} finally {
 			try {
 				for (OutputStream outputStream : outputStreams) {
-					if (outputStream != null) {
+					//标准输出不关闭
+					if (outputStream != null && !(outputStream instanceof PrintStream)) {
 						outputStream.close();
 					}
 				}
@@ -221,16 +289,160 @@ public class LoggerThread implements Runnable {
 
 	}
 
+	/**
+	 * 从环形缓冲区读取一批消息并格式化
+	 * @return 读取的消息数量
+	 */
+	private int drain() {
+		int count = 0;
+		Message message;
+		while (count < BATCH_SIZE && consoleBuilder.length() < BATCH_CHARS && fileBuilder.length() < BATCH_CHARS &&
+				(message = ringBuffer.peek()) != null) {
+			try {
+				if (message.getRecord() != null) {
+					appendRecord(message.getRecord());
+				} else if (message.isRaw()) {
+					appendRaw(message.getMessage());
+				} else if (formater != null) {
+					formater.render(consoleBuilder, message, true);
+					if (LoggerStatic.HAS_COLOR) {
+						formater.render(fileBuilder, message, false);
+					}
+				}
+			} catch (Exception e) {
+				e.printStackTrace();
+			} finally {
+				message.reset();
+				ringBuffer.release();
+			}
+			count++;
+		}
+
+		long droppedCount = ringBuffer.takeDroppedCount();
+		if (droppedCount > 0) {
+			appendRaw("[LOGGER] " + droppedCount + " messages dropped by overflow policy " + ringBuffer.getOverflowPolicy() + "\r\n");
+			count++;
+		}
+
+		return count;
+	}
+
+	private void appendRecord(LogRecord record) {
+		int start = consoleBuilder.length();
+		record.render(consoleBuilder);
+		if (LoggerStatic.HAS_COLOR) {
+			fileBuilder.append(consoleBuilder, start, consoleBuilder.length());
+		}
+	}
+
+	private void appendRaw(String msg) {
+		consoleBuilder.append(msg);
+		if (LoggerStatic.HAS_COLOR) {
+			//文件写入剔除出着色部分
+			fileBuilder.append(msg.indexOf('\033') >= 0 ? TString.fastReplaceAll(msg, "\033\\[\\d{2}m", "") : msg);
+		}
+	}
+
+	/**
+	 * 将格式化后的消息写入输出流
+	 * @throws IOException IO 异常
+	 */
+	private void write() throws IOException {
+		OutputStream[] currentOutputStreams = outputStreams;
+		try {
+			if (currentOutputStreams == null) {
+				return;
+			}
+
+			for (OutputStream outputStream : currentOutputStreams) {
+				if (outputStream == null) {
+					continue;
+				}
+
+				StringBuilder text = LoggerStatic.HAS_COLOR && !(outputStream instanceof PrintStream) ? fileBuilder : consoleBuilder;
+
+				//对于文件输出检测
+				if (outputStream instanceof FileOutputStream) {
+					//文件如果关闭则将消息加入缓冲,跳过
+					if (!((FileOutputStream) outputStream).getChannel().isOpen()) {
+						fileChangelogQueue.add(text.toString());
+						continue;
+					} else {
+						//如果文件输出可用,则尝试输出上一步缓冲中的消息
+						String message;
+						while ((message = fileChangelogQueue.poll()) != null) {
+							encodeAndWrite(message, outputStream);
+						}
+					}
+				}
+
+				encodeAndWrite(text, outputStream);
+			}
+		} finally {
+			consoleBuilder.setLength(0);
+			fileBuilder.setLength(0);
+		}
+	}
+
+	/**
+	 * 编码到堆外缓冲区后写入输出流, 文件输出直接通过 FileChannel 或内存映射写入
+	 * @param text 消息文本
+	 * @param outputStream 输出流
+	 * @throws IOException IO 异常
+	 */
+	private void encodeAndWrite(CharSequence text, OutputStream outputStream) throws IOException {
+		CharBuffer charBuffer = CharBuffer.wrap(text);
+		encoder.reset();
+		while (encoder.encode(charBuffer, encodeBuffer, true).isOverflow()) {
+			writeEncodeBuffer(outputStream);
+		}
+		while (encoder.flush(encodeBuffer).isOverflow()) {
+			writeEncodeBuffer(outputStream);
+		}
+		writeEncodeBuffer(outputStream);
+	}
+
+	private void writeEncodeBuffer(OutputStream outputStream) throws IOException {
+		encodeBuffer.flip();
+		try {
+			if (outputStream instanceof RollingFileAppender) {
+				((RollingFileAppender) outputStream).write(encodeBuffer);
+			} else if (outputStream instanceof FileOutputStream) {
+				FileChannel fileChannel = ((FileOutputStream) outputStream).getChannel();
+				while (encodeBuffer.hasRemaining()) {
+					fileChannel.write(encodeBuffer);
+				}
+			} else {
+				int size = encodeBuffer.remaining();
+				encodeBuffer.get(writeBytes, 0, size);
+				outputStream.write(writeBytes, 0, size);
+			}
+		} finally {
+			encodeBuffer.clear();
+		}
+	}
+
 	/**
 	 * 获取 Web 访问日志记录对象
 	 * @param outputStreams 输出流数组
 	 * @return 日志记录线程对象
 	 */
-	public synchronized static LoggerThread start(OutputStream[] outputStreams) {
-		LoggerThread loggerThread = new LoggerThread(outputStreams);
+	public static LoggerThread start(OutputStream[] outputStreams) {
+		return start(null, outputStreams);
+	}
+
+	/**
+	 * 启动日志线程
+	 * @param formater 格式化对象, 为 null 时只能写入已经格式化的消息
+	 * @param outputStreams 输出流数组
+	 * @return 日志记录线程对象
+	 */
+	public synchronized static LoggerThread start(Formater formater, OutputStream[] outputStreams) {
+		LoggerThread loggerThread = new LoggerThread(formater, outputStreams);
 		Thread loggerMainThread = new Thread(loggerThread,"VOOVAN@LOGGER_THREAD");
 		loggerMainThread.setDaemon(true);
 		loggerMainThread.start();
+		TEnv.addShutDownHook(loggerThread::shutdown);
 		return loggerThread;
 	}
 
@@ -4,7 +4,8 @@ import java.util.Map;
 
 /**
  * 日志消息对象
- * 
+ * 		同时作为日志环形缓冲区中的可复用槽位, 由写入线程填充, 日志线程格式化后重置
+ *
  * @author helyho
  *
  * Voovan Framework.
@@ -16,6 +17,14 @@ public class Message {
 	private String	message;
 	private Map<String, String> tokens;
 
+	private String threadName;
+	private long timestamp;
+	private StackTraceElement stackElement;
+	//已经格式化的消息, 直接输出
+	private boolean raw;
+	//结构化的日志记录, 由日志线程格式化
+	private LogRecord record;
+
 	public Message() {
 
 	}
@@ -23,6 +32,8 @@ public class Message {
 	public Message(String level, String message) {
 		this.level = level;
 		this.message = message;
+		this.threadName = Thread.currentThread().getName();
+		this.timestamp = System.currentTimeMillis();
 	}
 
 	public String getLevel() {
@@ -49,6 +60,76 @@ public class Message {
 		this.tokens = tokens;
 	}
 
+	public String getThreadName() {
+		return threadName;
+	}
+
+	public void setThreadName(String threadName) {
+		this.threadName = threadName;
+	}
+
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	public void setTimestamp(long timestamp) {
+		this.timestamp = timestamp;
+	}
+
+	public StackTraceElement getStackElement() {
+		return stackElement;
+	}
+
+	public void setStackElement(StackTraceElement stackElement) {
+		this.stackElement = stackElement;
+	}
+
+	public boolean isRaw() {
+		return raw;
+	}
+
+	public void setRaw(boolean raw) {
+		this.raw = raw;
+	}
+
+	public LogRecord getRecord() {
+		return record;
+	}
+
+	public void setRecord(LogRecord record) {
+		this.record = record;
+	}
+
+	/**
+	 * 填充消息
+	 * @param level 日志级别
+	 * @param message 消息内容
+	 * @param threadName 线程名
+	 * @param timestamp 时间戳
+	 * @param stackElement 调用位置, 模板中没有栈信息时为 null
+	 */
+	public void fill(String level, String message, String threadName, long timestamp, StackTraceElement stackElement) {
+		this.level = level;
+		this.message = message;
+		this.threadName = threadName;
+		this.timestamp = timestamp;
+		this.stackElement = stackElement;
+		this.raw = false;
+	}
+
+	/**
+	 * 重置消息, 释放引用的对象
+	 */
+	public void reset() {
+		this.level = null;
+		this.message = null;
+		this.tokens = null;
+		this.threadName = null;
+		this.stackElement = null;
+		this.raw = false;
+		this.record = null;
+	}
+
 	public static Message newInstance(String priority, String message) {
 		return new Message(priority, message);
 	}
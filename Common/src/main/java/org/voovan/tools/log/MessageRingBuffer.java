@@ -0,0 +1,173 @@
+package org.voovan.tools.log;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 日志消息环形缓冲区
+ *      多个写入线程, 一个日志线程消费, 槽位中的 Message 对象预先分配并反复使用
+ *      写入线程通过 CAS 申请序号, 填充槽位后发布; 日志线程按序号顺序读取已发布的槽位
+ *
+ * @author helyho
+ *
+ * Voovan Framework.
+ * WebSite: https://github.com/helyho/Voovan
+ * Licence: Apache v2 License
+ */
+public class MessageRingBuffer {
+
+    /**
+     * 缓冲区满时的处理策略
+     *      WARN, ERROR, FATAL 级别的消息在任何策略下都会等待, 不会被丢弃
+     */
+    public enum OverflowPolicy {
+        //等待日志线程腾出空间
+        BLOCK,
+        //丢弃消息
+        DROP,
+        //缓冲区使用超过 3/4 时按采样率保留消息, 缓冲区满时丢弃
+        SAMPLE
+    }
+
+    private final Message[] slots;
+    private final AtomicLongArray published;
+    private final int capacity;
+    private final int mask;
+
+    //已申请的最大序号
+    private final AtomicLong claimed = new AtomicLong(-1);
+    //已消费的最大序号, 只由日志线程修改
+    private volatile long consumed = -1;
+
+    private OverflowPolicy overflowPolicy;
+    private int sampleRate;
+    private final AtomicLong sampleCounter = new AtomicLong(0);
+    private final AtomicLong droppedCount = new AtomicLong(0);
+
+    /**
+     * 构造函数
+     * @param size 缓冲区大小, 会调整为 2 的幂
+     * @param overflowPolicy 缓冲区满时的处理策略
+     * @param sampleRate 采样率, SAMPLE 策略下每 sampleRate 条消息保留一条
+     */
+    public MessageRingBuffer(int size, OverflowPolicy overflowPolicy, int sampleRate) {
+        int capacity = 2;
+        while (capacity < size) {
+            capacity = capacity << 1;
+        }
+
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.slots = new Message[capacity];
+        this.published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new Message();
+            published.set(i, -1);
+        }
+
+        this.overflowPolicy = overflowPolicy;
+        this.sampleRate = Math.max(sampleRate, 1);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     * 已写入但未消费的消息数量
+     * @return 消息数量
+     */
+    public int size() {
+        return (int) (claimed.get() - consumed);
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * 获取并清零丢弃的消息数量
+     * @return 上次调用后丢弃的消息数量
+     */
+    public long takeDroppedCount() {
+        return droppedCount.getAndSet(0);
+    }
+
+    /**
+     * 申请一个槽位
+     * @param important true: 重要消息, 缓冲区满时总是等待
+     * @return 槽位的序号, -1: 消息被丢弃
+     */
+    public long claim(boolean important) {
+        if (!important && overflowPolicy == OverflowPolicy.SAMPLE && size() > capacity - (capacity >> 2)
+                && sampleCounter.incrementAndGet() % sampleRate != 0) {
+            droppedCount.incrementAndGet();
+            return -1;
+        }
+
+        boolean wait = important || overflowPolicy == OverflowPolicy.BLOCK;
+        int spins = 0;
+        while (true) {
+            long current = claimed.get();
+            long next = current + 1;
+
+            //槽位上一轮的消息还未被消费
+            if (next - consumed > capacity) {
+                if (!wait) {
+                    droppedCount.incrementAndGet();
+                    return -1;
+                }
+
+                if (spins++ < 100) {
+                    Thread.yield();
+                } else {
+                    LockSupport.parkNanos(10000);
+                }
+                continue;
+            }
+
+            if (claimed.compareAndSet(current, next)) {
+                return next;
+            }
+        }
+    }
+
+    /**
+     * 获取序号对应的槽位
+     * @param sequence 序号
+     * @return 槽位中的消息对象
+     */
+    public Message get(long sequence) {
+        return slots[(int) sequence & mask];
+    }
+
+    /**
+     * 发布填充完成的槽位
+     * @param sequence 序号
+     */
+    public void publish(long sequence) {
+        published.lazySet((int) sequence & mask, sequence);
+    }
+
+    /**
+     * 获取下一个待消费的消息, 只能由日志线程调用
+     * @return 消息对象, 没有已发布的消息时返回 null
+     */
+    public Message peek() {
+        long next = consumed + 1;
+        int index = (int) next & mask;
+        return published.get(index) == next ? slots[index] : null;
+    }
+
+    /**
+     * 消费完成 peek 返回的消息, 槽位可以被重新申请, 只能由日志线程调用
+     */
+    public void release() {
+        consumed = consumed + 1;
+    }
+}
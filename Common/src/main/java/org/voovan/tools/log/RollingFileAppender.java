@@ -0,0 +1,437 @@
+package org.voovan.tools.log;
+
+import org.voovan.Global;
+import org.voovan.tools.TDateTime;
+import org.voovan.tools.TFile;
+import org.voovan.tools.TString;
+import org.voovan.tools.TZip;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * 按大小和日期滚动的日志文件输出
+ *      文本日志写入内存映射的文件区域, 写满后映射下一个区域, 每秒最多强制刷盘一次
+ *      压缩日志每批消息压缩为一个 gzip 块追加到文件, 文件可直接使用 gzip 解压
+ *      滚动由日志线程在写入时完成, 不需要暂停日志输出
+ *
+ * 文件名中可以使用{{D}}表示当前日期(yyyyMMdd), 日期变化时切换到新的文件
+ *
+ * @author helyho
+ *
+ * Voovan Framework.
+ * WebSite: https://github.com/helyho/Voovan
+ * Licence: Apache v2 License
+ */
+public class RollingFileAppender extends OutputStream {
+    private static final int GZIP_BLOCK_SIZE = 256 * 1024;
+    private static final byte[] GZIP_HEADER = new byte[]{0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    private String filePattern;
+    private long maxFileSize = 0;
+    private int mapSize = 8 * 1024 * 1024;
+    private boolean gzip = false;
+    private boolean pack = false;
+    private int forceInterval = 1000;
+
+    private String filePath;
+    private RandomAccessFile randomAccessFile;
+    private FileChannel fileChannel;
+    private MappedByteBuffer mappedBuffer;
+    //日志文件中有效数据的长度
+    private long position;
+    private long nextRollingTime;
+    private long lastForceTime;
+    private boolean dirty = false;
+
+    private Deflater deflater;
+    private CRC32 crc32;
+    private byte[] gzipBlock;
+    private int gzipBlockSize = 0;
+    private byte[] deflateBuffer;
+
+    /**
+     * 构造函数
+     * @param filePattern 日志文件路径, 可以使用{{D}}表示当前日期
+     */
+    public RollingFileAppender(String filePattern) {
+        this.filePattern = filePattern;
+    }
+
+    public String getFilePattern() {
+        return filePattern;
+    }
+
+    public String getFilePath() {
+        return filePath;
+    }
+
+    public long getMaxFileSize() {
+        return maxFileSize;
+    }
+
+    /**
+     * 设置单个日志文件的最大长度, 超过后滚动到新的文件
+     * @param maxFileSize 最大长度, 单位: byte, 小于等于 0 时不按大小滚动
+     * @return RollingFileAppender 对象
+     */
+    public RollingFileAppender maxFileSize(long maxFileSize) {
+        this.maxFileSize = maxFileSize;
+        return this;
+    }
+
+    public int getMapSize() {
+        return mapSize;
+    }
+
+    /**
+     * 设置每次映射的文件区域大小
+     * @param mapSize 区域大小, 单位: byte
+     * @return RollingFileAppender 对象
+     */
+    public RollingFileAppender mapSize(int mapSize) {
+        this.mapSize = mapSize;
+        return this;
+    }
+
+    public boolean isGzip() {
+        return gzip;
+    }
+
+    /**
+     * 设置是否压缩写入
+     * @param gzip true: 以 gzip 格式写入, false: 写入文本
+     * @return RollingFileAppender 对象
+     */
+    public RollingFileAppender gzip(boolean gzip) {
+        this.gzip = gzip;
+        return this;
+    }
+
+    public boolean isPack() {
+        return pack;
+    }
+
+    /**
+     * 设置滚动后的文本日志文件是否压缩打包
+     * @param pack true: 压缩为 .gz 文件, false: 保留原文件
+     * @return RollingFileAppender 对象
+     */
+    public RollingFileAppender pack(boolean pack) {
+        this.pack = pack;
+        return this;
+    }
+
+    public int getForceInterval() {
+        return forceInterval;
+    }
+
+    /**
+     * 设置强制刷盘的最小时间间隔
+     * @param forceInterval 时间间隔, 单位: 毫秒
+     * @return RollingFileAppender 对象
+     */
+    public RollingFileAppender forceInterval(int forceInterval) {
+        this.forceInterval = forceInterval;
+        return this;
+    }
+
+    /**
+     * 当前日志文件中有效数据的长度
+     * @return 数据长度
+     */
+    public synchronized long getPosition() {
+        return position;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        write(ByteBuffer.wrap(b, off, len));
+    }
+
+    /**
+     * 写入数据, 日志线程编码后的堆外缓冲区直接复制到映射区域
+     * @param byteBuffer 数据
+     * @throws IOException IO 异常
+     */
+    public synchronized void write(ByteBuffer byteBuffer) throws IOException {
+        if (fileChannel == null || System.currentTimeMillis() >= nextRollingTime ||
+                (maxFileSize > 0 && position >= maxFileSize)) {
+            roll();
+        }
+
+        if (gzip) {
+            while (byteBuffer.hasRemaining()) {
+                int size = Math.min(byteBuffer.remaining(), gzipBlock.length - gzipBlockSize);
+                byteBuffer.get(gzipBlock, gzipBlockSize, size);
+                gzipBlockSize += size;
+                if (gzipBlockSize == gzipBlock.length) {
+                    writeGzipBlock();
+                }
+            }
+        } else {
+            while (byteBuffer.hasRemaining()) {
+                if (mappedBuffer == null || !mappedBuffer.hasRemaining()) {
+                    unmap();
+                    mappedBuffer = fileChannel.map(FileChannel.MapMode.READ_WRITE, position, mapSize);
+                }
+
+                int size = Math.min(byteBuffer.remaining(), mappedBuffer.remaining());
+                int limit = byteBuffer.limit();
+                byteBuffer.limit(byteBuffer.position() + size);
+                mappedBuffer.put(byteBuffer);
+                byteBuffer.limit(limit);
+                position += size;
+            }
+        }
+
+        dirty = true;
+    }
+
+    /**
+     * 一批消息写入完成后由日志线程调用, 压缩模式下输出 gzip 块, 按时间间隔强制刷盘
+     * @throws IOException IO 异常
+     */
+    @Override
+    public synchronized void flush() throws IOException {
+        if (fileChannel == null) {
+            return;
+        }
+
+        if (gzip) {
+            writeGzipBlock();
+        }
+
+        if (dirty && System.currentTimeMillis() - lastForceTime >= forceInterval) {
+            force();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        closeFile();
+    }
+
+    private void force() throws IOException {
+        if (mappedBuffer != null) {
+            mappedBuffer.force();
+        } else {
+            fileChannel.force(false);
+        }
+        lastForceTime = System.currentTimeMillis();
+        dirty = false;
+    }
+
+    /**
+     * 将缓存的数据压缩为一个完整的 gzip 块追加到文件
+     * @throws IOException IO 异常
+     */
+    private void writeGzipBlock() throws IOException {
+        if (gzipBlockSize == 0) {
+            return;
+        }
+
+        crc32.reset();
+        crc32.update(gzipBlock, 0, gzipBlockSize);
+        deflater.reset();
+        deflater.setInput(gzipBlock, 0, gzipBlockSize);
+        deflater.finish();
+
+        writeChannel(ByteBuffer.wrap(GZIP_HEADER));
+        while (!deflater.finished()) {
+            int size = deflater.deflate(deflateBuffer);
+            writeChannel(ByteBuffer.wrap(deflateBuffer, 0, size));
+        }
+
+        ByteBuffer trailer = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+        trailer.putInt((int) crc32.getValue()).putInt(gzipBlockSize).flip();
+        writeChannel(trailer);
+
+        gzipBlockSize = 0;
+    }
+
+    private void writeChannel(ByteBuffer byteBuffer) throws IOException {
+        while (byteBuffer.hasRemaining()) {
+            position += fileChannel.write(byteBuffer, position);
+        }
+    }
+
+    /**
+     * 滚动日志文件
+     *      日期变化且文件名包含日期时直接切换到新文件, 否则将当前文件改名后重新创建
+     * @throws IOException IO 异常
+     */
+    private void roll() throws IOException {
+        String lastFilePath = filePath;
+        boolean needRename = fileChannel != null && maxFileSize > 0 && position >= maxFileSize;
+        closeFile();
+
+        String newFilePath = resolveFilePath();
+        if (needRename && newFilePath.equals(lastFilePath)) {
+            rename(lastFilePath);
+        }
+
+        openFile(newFilePath);
+    }
+
+    private String resolveFilePath() {
+        Map<String, String> tokens = new HashMap<String, String>();
+        tokens.put("D", TDateTime.now("yyyyMMdd"));
+        return TString.tokenReplace(filePattern, tokens);
+    }
+
+    /**
+     * 将写满的日志文件改名, 文本日志按配置压缩打包
+     * @param path 日志文件路径
+     * @throws IOException IO 异常
+     */
+    private void rename(String path) throws IOException {
+        String extension = TFile.getFileExtension(path);
+        String basePath = extension == null ? path : path.substring(0, path.length() - extension.length() - 1);
+        String timestamp = filePattern.contains("{{D}}") ? TDateTime.now("HHmmss") : TDateTime.now("yyyyMMdd.HHmmss");
+        String extensionName = extension == null ? "" : "." + extension;
+        File targetFile = new File(basePath + "." + timestamp + extensionName);
+        //同一秒内多次滚动时增加序号
+        for (int index = 1; targetFile.exists() || new File(targetFile.getPath() + ".gz").exists(); index++) {
+            targetFile = new File(basePath + "." + timestamp + "." + index + extensionName);
+        }
+        final File rolledFile = targetFile;
+
+        if (!TFile.moveFile(new File(path), rolledFile)) {
+            System.out.println("[ERROR] Roll log file " + path + " error");
+            return;
+        }
+
+        if (pack && !gzip) {
+            Global.getThreadPool().execute(() -> {
+                try {
+                    TZip.encodeGZip(rolledFile, new File(rolledFile.getPath() + ".gz"));
+                    TFile.deleteFile(rolledFile);
+                } catch (Exception e) {
+                    System.out.println("[ERROR] Pack log file " + rolledFile.getPath() + " error: ");
+                    e.printStackTrace();
+                }
+            });
+        }
+    }
+
+    private void openFile(String path) throws IOException {
+        TFile.mkdir(path);
+        filePath = path;
+        randomAccessFile = new RandomAccessFile(path, "rw");
+        fileChannel = randomAccessFile.getChannel();
+        position = gzip ? fileChannel.size() : dataLength(fileChannel);
+        nextRollingTime = filePattern.contains("{{D}}") ? nextDayTime() : Long.MAX_VALUE;
+        lastForceTime = System.currentTimeMillis();
+
+        if (gzip && deflater == null) {
+            deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+            crc32 = new CRC32();
+            gzipBlock = new byte[GZIP_BLOCK_SIZE];
+            deflateBuffer = new byte[64 * 1024];
+        }
+    }
+
+    private void closeFile() throws IOException {
+        if (fileChannel == null) {
+            return;
+        }
+
+        try {
+            if (gzip) {
+                writeGzipBlock();
+            }
+            force();
+        } finally {
+            unmap();
+            //移除映射区域中未使用的部分
+            if (fileChannel.size() > position) {
+                fileChannel.truncate(position);
+            }
+            randomAccessFile.close();
+            fileChannel = null;
+            randomAccessFile = null;
+        }
+    }
+
+    /**
+     * 获取文本日志文件中有效数据的长度
+     *      进程异常退出时映射区域中未使用的部分会保留在文件末尾, 需要跳过末尾的 0 字节
+     * @param fileChannel 文件通道
+     * @return 有效数据的长度
+     * @throws IOException IO 异常
+     */
+    private static long dataLength(FileChannel fileChannel) throws IOException {
+        long end = fileChannel.size();
+        ByteBuffer byteBuffer = ByteBuffer.allocate(64 * 1024);
+        while (end > 0) {
+            long start = Math.max(0, end - byteBuffer.capacity());
+            byteBuffer.clear();
+            byteBuffer.limit((int) (end - start));
+            while (byteBuffer.hasRemaining()) {
+                if (fileChannel.read(byteBuffer, start + byteBuffer.position()) < 0) {
+                    break;
+                }
+            }
+
+            for (int i = byteBuffer.position() - 1; i >= 0; i--) {
+                if (byteBuffer.get(i) != 0) {
+                    return start + i + 1;
+                }
+            }
+            end = start;
+        }
+        return 0;
+    }
+
+    private static long nextDayTime() {
+        Calendar calendar = Calendar.getInstance();
+        calendar.add(Calendar.DAY_OF_MONTH, 1);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        return calendar.getTimeInMillis();
+    }
+
+    /**
+     * 释放映射区域, 否则在部分系统中无法截断和改名文件
+     */
+    private void unmap() {
+        if (mappedBuffer == null) {
+            return;
+        }
+
+        try {
+            Method cleanerMethod = mappedBuffer.getClass().getMethod("cleaner");
+            cleanerMethod.setAccessible(true);
+            Object cleaner = cleanerMethod.invoke(mappedBuffer);
+            if (cleaner != null) {
+                Method cleanMethod = cleaner.getClass().getMethod("clean");
+                cleanMethod.setAccessible(true);
+                cleanMethod.invoke(cleaner);
+            }
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            //无法主动释放时由 GC 回收
+        } finally {
+            mappedBuffer = null;
+        }
+    }
+}
@@ -2,8 +2,6 @@ package org.voovan.tools.log;
 
 import org.voovan.tools.TFile;
 
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.OutputStream;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -63,27 +61,66 @@ public class SingleLogger {
 		loggerThread.addLogMessage(msg);
 	}
 
-	public synchronized static SingleLogger writeLog(String fileName,String msg) {
-		SingleLogger singleLog = null;
-		if(!singleLoggerPool.containsKey(fileName) || singleLoggerPool.get(fileName).isFinished()) {
-			try {
-				singleLog = new SingleLogger(fileName);
-				OutputStream outputStream = null;
-				outputStream = new FileOutputStream(fileName, true);
-				LoggerThread loggerThread = LoggerThread.start(new OutputStream[]{outputStream});
-				singleLog.setLoggerThread(loggerThread);
-				synchronized (singleLoggerPool) {
+	/**
+	 * 写入日志
+	 * @param fileName 日志文件名
+	 * @param msg 消息字符串
+	 * @return 日志记录对象
+	 */
+	public static SingleLogger writeLog(String fileName,String msg) {
+		return writeLog(fileName, msg, 0, false);
+	}
+
+	/**
+	 * 写入日志
+	 * @param fileName 日志文件名, 可以使用{{D}}表示当前日期
+	 * @param msg 消息字符串
+	 * @param maxFileSize 单个日志文件的最大长度, 单位: byte, 小于等于 0 时不按大小滚动, 仅在首次写入时生效
+	 * @param gzip true: 以 gzip 格式写入, 仅在首次写入时生效
+	 * @return 日志记录对象
+	 */
+	public static SingleLogger writeLog(String fileName, String msg, long maxFileSize, boolean gzip) {
+		SingleLogger singleLog = getSingleLogger(fileName, maxFileSize, gzip);
+		singleLog.addLogMessage(msg);
+		return singleLog;
+	}
+
+	/**
+	 * 写入结构化的日志记录, 记录在日志线程中格式化
+	 * @param fileName 日志文件名, 可以使用{{D}}表示当前日期
+	 * @param record 日志记录
+	 * @param important true: 缓冲区满时总是等待, 不会被丢弃
+	 * @param maxFileSize 单个日志文件的最大长度, 单位: byte, 小于等于 0 时不按大小滚动, 仅在首次写入时生效
+	 * @param gzip true: 以 gzip 格式写入, 仅在首次写入时生效
+	 * @return 日志记录对象
+	 */
+	public static SingleLogger writeLog(String fileName, LogRecord record, boolean important, long maxFileSize, boolean gzip) {
+		SingleLogger singleLog = getSingleLogger(fileName, maxFileSize, gzip);
+		singleLog.loggerThread.addLogRecord(record, important);
+		return singleLog;
+	}
+
+	/**
+	 * 获取日志对象
+	 * 		日志对象在首次写入时创建, 之后的写入不加锁
+	 * @param fileName 日志文件名
+	 * @param maxFileSize 单个日志文件的最大长度
+	 * @param gzip true: 以 gzip 格式写入
+	 * @return 日志对象
+	 */
+	private static SingleLogger getSingleLogger(String fileName, long maxFileSize, boolean gzip) {
+		SingleLogger singleLog = singleLoggerPool.get(fileName);
+		if(singleLog == null || singleLog.isFinished()) {
+			synchronized (singleLoggerPool) {
+				singleLog = singleLoggerPool.get(fileName);
+				if(singleLog == null || singleLog.isFinished()) {
+					singleLog = new SingleLogger(fileName);
+					OutputStream outputStream = new RollingFileAppender(fileName).maxFileSize(maxFileSize).gzip(gzip);
+					LoggerThread loggerThread = LoggerThread.start(new OutputStream[]{outputStream});
+					singleLog.setLoggerThread(loggerThread);
 					singleLoggerPool.put(fileName, singleLog);
 				}
-			} catch (FileNotFoundException e) {
-				Logger.error("[SingleLogger] log file "+fileName+" not found.",e);
 			}
-		}else {
-			singleLog = singleLoggerPool.get(fileName);
-		}
-
-		if(singleLog!=null) {
-			singleLog.addLogMessage(msg);
 		}
 		return singleLog;
 	}
@@ -7,10 +7,11 @@ import org.voovan.tools.log.Logger;
 import org.voovan.tools.reflect.TReflect;
 import org.voovan.tools.reflect.annotation.NotSerialization;
 
-import java.util.Iterator;
+import java.lang.ref.WeakReference;
 import java.util.Objects;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
@@ -18,6 +19,9 @@ import java.util.function.Supplier;
  * 对象池
  *      支持超时清理,并且支持指定对象的借出和归还操作
  *      仅仅按照时间长短控制对象的存活周期
+ *      借出: 优先借出当前线程最后归还的对象, 其次从空闲队列获取, 借出状态通过 CAS 切换, 不使用锁
+ *      归还: 空闲队列为 LinkedTransferQueue, 有等待的借出线程时对象直接交给最早等待的线程
+ *      验证和超时清理在时间轮的异步任务中执行, 不占用借出线程
  *
  * @author helyho
  * <p>
@@ -29,8 +33,12 @@ public class ObjectPool<T> {
 
     //<ID, 缓存的对象>
     private volatile ConcurrentHashMap<Long, InnerObject<T>> objects = new ConcurrentHashMap<Long, InnerObject<T>>();
-    //未解出的对象 ID
-    private volatile LinkedBlockingDeque<Long> unborrowedIdList = new LinkedBlockingDeque<Long>();
+    //未借出的对象, 可能包含已被线程本地快速路径借出或已移除的对象, 借出时通过 CAS 判断
+    private LinkedTransferQueue<InnerObject<T>> unborrowedObjects = new LinkedTransferQueue<InnerObject<T>>();
+    //当前线程最后归还的对象
+    private ThreadLocal<WeakReference<InnerObject<T>>> lastRestitution = new ThreadLocal<WeakReference<InnerObject<T>>>();
+    //池中对象的数量, 包含正在构造的对象
+    private AtomicInteger objectCount = new AtomicInteger(0);
 
     private long aliveTime = 0;
     private boolean autoRefreshOnGet = true;
@@ -123,7 +131,7 @@ public class ObjectPool<T> {
 
     /**
      * 验证器
-     *  在获取对象时验证
+     *  在清理任务中对空闲的对象进行验证
      * @return Function 对象
      */
     public Function<T, Boolean> validator() {
@@ -132,7 +140,7 @@ public class ObjectPool<T> {
 
     /**
      * 设置验证器
-     *  在获取对象时验证
+     *  在清理任务中对空闲的对象进行验证, 验证失败的对象会被移除
      * @param validator Function 对象
      * @return ObjectPool 对象
      */
@@ -196,7 +204,7 @@ public class ObjectPool<T> {
         return add(obj, false);
     }
 
-  /**
+    /**
      * 增加池中的对象
      * @param obj 增加到池中的对象
      * @parma 是否默认为借出状态
@@ -206,132 +214,171 @@ public class ObjectPool<T> {
         Objects.requireNonNull(obj, "add a null object failed");
 
         if(obj instanceof IPooledObject) {
-            if (objects.size() >= maxSize) {
+            if (!reserve()) {
                 return null;
             }
 
-            long id = genObjectId();
-            ((IPooledObject)obj).setPoolObjectId(id);
+            return add0(obj, isBorrow).getId();
+        } else {
+            throw new RuntimeException("the Object is not implement IPooledObject interface, please make " + TReflect.getClassName(obj.getClass()) +
+                    " implemets IPooledObject.class or extends PooledObject or add use annotation @Pool on  " + TReflect.getClassName(obj.getClass()) +"  and Aop support");
+        }
+    }
+
+    /**
+     * 将对象加入池中, 调用前必须已经通过 reserve() 占用了容量
+     * @param obj 增加到池中的对象
+     * @param isBorrow 是否默认为借出状态
+     * @return 池中缓存的对象模型
+     */
+    private InnerObject<T> add0(T obj, boolean isBorrow) {
+        long id = genObjectId();
+        ((IPooledObject)obj).setPoolObjectId(id);
+
+        InnerObject<T> innerObject = new InnerObject<T>(this, id, obj);
+        innerObject.setBorrow(isBorrow);
+
+        objects.put(id, innerObject);
 
-            InnerObject innerObject = new InnerObject<T>(this, id, obj);
+        //默认借出状态不加入未借出队列
+        if(!isBorrow) {
+            offer(innerObject);
+        }
+
+        return innerObject;
+    }
 
-            objects.put(id, innerObject);
+    /**
+     * 占用一个对象的容量
+     * @return true: 成功, false: 对象池已满
+     */
+    private boolean reserve() {
+        while (true) {
+            int count = objectCount.get();
+            if (count >= maxSize) {
+                return false;
+            }
 
-            //默认借出状态不加入未借出队列
-            if(!isBorrow) {
-                unborrowedIdList.offer(id);
+            if (objectCount.compareAndSet(count, count + 1)) {
+                return true;
             }
+        }
+    }
 
-            return id;
+    /**
+     * 使用 supplier 构造新的对象并加入池中
+     * @param isBorrow 是否默认为借出状态
+     * @return 池中缓存的对象模型, 对象池已满或构造失败时返回 null
+     */
+    private InnerObject<T> create(boolean isBorrow) {
+        if(supplier == null || !reserve()) {
+            return null;
+        }
+
+        T obj;
+        try {
+            obj = supplier.get();
+        } catch (RuntimeException | Error e) {
+            objectCount.decrementAndGet();
+            throw e;
+        }
+
+        //构造失败, 归还占用的容量
+        if(obj == null) {
+            objectCount.decrementAndGet();
+            return null;
+        }
+
+        if(obj instanceof IPooledObject) {
+            return add0(obj, isBorrow);
         } else {
+            objectCount.decrementAndGet();
             throw new RuntimeException("the Object is not implement IPooledObject interface, please make " + TReflect.getClassName(obj.getClass()) +
                     " implemets IPooledObject.class or extends PooledObject or add use annotation @Pool on  " + TReflect.getClassName(obj.getClass()) +"  and Aop support");
         }
     }
 
     /**
-     * 获取池中的对象
-     * @param id 对象的id
-     * @return 池中的对象
+     * 将对象放入未借出队列
+     *      如果有等待的借出线程, 对象会直接交给最早等待的线程
+     * @param innerObject 池中缓存的对象模型
      */
-    private T get(Long id) {
-        if(id != null) {
-            InnerObject<T> innerObject = objects.get(id);
-            if (innerObject != null) {
-                if(innerObject.isBorrow()) {
-                    throw new RuntimeException("Object already borrowed");
-                }
-
-                innerObject.setBorrow(true);
-                return innerObject.getObject();
-            } else {
-                return null;
-            }
-        } else {
-            return null;
+    private void offer(InnerObject<T> innerObject) {
+        if(innerObject.inQueue.compareAndSet(false, true)) {
+            unborrowedObjects.offer(innerObject);
         }
     }
 
+    /**
+     * 从未借出队列中取出对象并尝试借出
+     * @param innerObject 从队列中取出的对象
+     * @return true: 借出成功, false: 对象已被借出或已移除
+     */
+    private boolean tryBorrow(InnerObject<T> innerObject) {
+        innerObject.inQueue.set(false);
+        return innerObject.tryBorrow();
+    }
+
     /**
      * 借出这个对象
      *         如果有提供 supplier 函数, 在没有可借出对象时会构造一个新的对象, 否则返回 null
      * @return 借出的对象
      */
     public T borrow() {
-        while (true) {
-            boolean useSupplier = false;
-            Long id = unborrowedIdList.poll();
-
-            //检查是否有重复借出
-            if (id != null && objects.get(id).isBorrow()) {
-                throw new RuntimeException("Object already borrowed");
-            }
-
-            T result = get(id);
-
-            if (result == null && supplier != null) {
-                synchronized (objects) {
-                    if (objects.size() < maxSize) {
-                        synchronized (unborrowedIdList) {
-                            result = get(add(supplier.get(), true));
-                            useSupplier = true;
-                        }
-                    } else {
-                        return null;
-                    }
-                }
+        //当前线程最后归还的对象, 有等待的借出线程时对象已经交给等待的线程, 不再优先借出
+        InnerObject<T> innerObject = null;
+        if(!unborrowedObjects.hasWaitingConsumer()) {
+            WeakReference<InnerObject<T>> reference = lastRestitution.get();
+            innerObject = reference == null ? null : reference.get();
+            if (innerObject != null && innerObject.tryBorrow()) {
+                return innerObject.getObject();
             }
+        }
 
-            //检查是否可用, 不可用则移除并重新获取
-            if (validator != null && result!=null  && !validator.apply(result)) {
-                remove(result);
-                if(useSupplier) {
-                   return null;
-                } else {
-                    continue;
-                }
+        while ((innerObject = unborrowedObjects.poll()) != null) {
+            if(tryBorrow(innerObject)) {
+                return innerObject.getObject();
             }
-
-            return result;
         }
 
+        innerObject = create(true);
+        return innerObject == null ? null : innerObject.getObject();
     }
 
     /**
      * 借出对象
-     * @param waitTime 超时时间
+     *      没有可借出的对象时, 按等待的先后顺序等待其他线程归还的对象
+     * @param waitTime 超时时间, 单位: 毫秒
      * @return 借出的对象, 超时返回 null
      * @throws TimeoutException 超时异常
      */
     public T borrow(long waitTime) throws TimeoutException {
-        while (true) {
-            Long id = null;
-
-            //放这里取一边的作用是, borrow()方法里有尝试使用 supplier 创建
-            T result = borrow();
-
-            if (result == null) {
-                try {
-                    id = unborrowedIdList.poll(waitTime, TimeUnit.MILLISECONDS);
+        T result = borrow();
+        if(result != null) {
+            return result;
+        }
 
-                    //检查是否有重复借出
-                    if (id != null && objects.get(id).isBorrow()) {
-                        throw new RuntimeException("Object already borrowed");
-                    }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitTime);
+        try {
+            while (true) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return null;
+                }
 
-                    result = get(id);
-                } catch (InterruptedException e) {
-                    throw new TimeoutException("borrow failed.");
+                InnerObject<T> innerObject = unborrowedObjects.poll(remaining, TimeUnit.NANOSECONDS);
+                if (innerObject == null) {
+                    return null;
                 }
-            }
 
-            //检查是否可用, 不可用则移除并重新获取
-            if (validator != null && result!=null && !validator.apply(result)) {
-                remove(result);
-                continue;
+                if (tryBorrow(innerObject)) {
+                    return innerObject.getObject();
+                }
             }
-
-            return result;
+        } catch (InterruptedException e) {
+            //恢复中断标记, 调用方仍可感知线程被中断
+            Thread.currentThread().interrupt();
+            throw new TimeoutException("borrow failed.");
         }
     }
 
@@ -345,19 +392,17 @@ public class ObjectPool<T> {
         }
 
         if (obj instanceof IPooledObject) {
-            if(validator==null || validator.apply(obj)) {
-                Long id = ((IPooledObject) obj).getPoolObjectId();
+            Long id = ((IPooledObject) obj).getPoolObjectId();
 
-                InnerObject innerObject = objects.get(id);
-                if(innerObject == null) {
-                    if(destory!=null) {
-                        destory.apply(obj);
-                    }
-                } else if (!innerObject.isRemoved() && objects.get(id).setBorrow(false)) {
-                    unborrowedIdList.offer(id);
+            InnerObject<T> innerObject = objects.get(id);
+            if(innerObject == null) {
+                if(destory!=null) {
+                    destory.apply(obj);
                 }
-            } else {
-                remove(obj);
+            } else if (!innerObject.isRemoved() && innerObject.setBorrow(false)) {
+                //有等待的借出线程时对象交给等待的线程, 当前线程不再记录为最后归还的对象
+                lastRestitution.set(unborrowedObjects.hasWaitingConsumer() ? null : innerObject.reference);
+                offer(innerObject);
             }
         } else {
             throw new RuntimeException("the Object is not implement IPooledObject interface, please make " + TReflect.getClassName(obj.getClass()) +
@@ -371,37 +416,35 @@ public class ObjectPool<T> {
      * @return true: 存在, false: 不存在
      */
     public boolean contains(long id){
-        return unborrowedIdList.contains(id);
+        InnerObject<T> innerObject = objects.get(id);
+        return innerObject != null && !innerObject.isBorrow();
     }
 
     /**
      * 移除池中的对象
-     * @param obj 清理的对象
+     *      如果有等待的借出线程, 使用 supplier 补充一个新的对象
+     * @param innerObject 池中缓存的对象模型
+     * @param destroy 是否调用销毁函数
      */
-    private void remove(T obj){
-        if(obj instanceof IPooledObject) {
-            Long id = ((IPooledObject) obj).getPoolObjectId();
-            remove(id);
-
-        } else {
-            throw new RuntimeException("the Object is not implement IPooledObject interface, please make " + TReflect.getClassName(obj.getClass()) +
-                    " implemets IPooledObject.class or extends PooledObject or add use annotation @Pool on  " + TReflect.getClassName(obj.getClass()) +"  and Aop support");
+    private void remove(InnerObject<T> innerObject, boolean destroy){
+        if(!objects.remove(innerObject.getId(), innerObject)) {
+            return;
         }
-    }
 
-    /**
-     * 移除池中的对象
-     * @param id 对象的 hash 值
-     */
-    private void remove(long id){
-        unborrowedIdList.remove(id);
+        innerObject.remove();
+        unborrowedObjects.remove(innerObject);
+        objectCount.decrementAndGet();
+
+        if(destroy && destory!=null) {
+            destory.apply(innerObject.object);
+        }
 
-        InnerObject innerObject = objects.remove(id);
-        if(innerObject !=null) {
-            if(destory!=null) {
-                destory.apply((T)innerObject.getObject());
+        if(unborrowedObjects.hasWaitingConsumer()) {
+            try {
+                create(false);
+            } catch (Exception e) {
+                Logger.error("Create object failed", e);
             }
-            innerObject.remove();
         }
     }
 
@@ -418,7 +461,13 @@ public class ObjectPool<T> {
      * @return 出借的对象数
      */
     public int borrowedSize(){
-        return objects.size() - unborrowedIdList.size();
+        int borrowedSize = 0;
+        for(InnerObject<T> innerObject : objects.values()) {
+            if(innerObject.isBorrow()) {
+                borrowedSize++;
+            }
+        }
+        return borrowedSize;
     }
 
     /**
@@ -426,7 +475,7 @@ public class ObjectPool<T> {
      * @return 可用的对象数
      */
     public int avaliableSize(){
-        return unborrowedIdList.size();
+        return objects.size() - borrowedSize();
     }
 
 
@@ -434,15 +483,60 @@ public class ObjectPool<T> {
      * 清理池中所有的对象
      */
     public synchronized void clear(){
-        for(InnerObject innerObject : objects.values()) {
-            if(destory!=null) {
-                destory.apply((T)innerObject.getObject());
+        for(InnerObject<T> innerObject : objects.values()) {
+            if(objects.remove(innerObject.getId(), innerObject)) {
+                innerObject.remove();
+                objectCount.decrementAndGet();
+                if (destory != null) {
+                    destory.apply(innerObject.object);
+                }
             }
-            innerObject.remove();
         }
 
-        unborrowedIdList.clear();
-        objects.clear();
+        unborrowedObjects.clear();
+    }
+
+    /**
+     * 检查池中空闲的对象
+     *      验证失败的对象被移除, 超时的对象在超过最小容量时被移除, 不足最小容量时使用 supplier 补充
+     */
+    private void check() {
+        for (InnerObject<T> innerObject : objects.values()) {
+            //锁定空闲的对象, 检查过程中不会被借出, 借出中的对象不做处理
+            if (!innerObject.tryBorrow()) {
+                continue;
+            }
+
+            if (validator != null && !validator.apply(innerObject.object)) {
+                remove(innerObject, true);
+                continue;
+            }
+
+            if (!innerObject.isAlive() && objects.size() > minSize) {
+                //销毁函数返回 true 则清理对象, 返回 false 则刷新对象
+                if (destory == null || destory.apply(innerObject.object)) {
+                    remove(innerObject, false);
+                    continue;
+                } else {
+                    innerObject.refresh();
+                }
+            }
+
+            if (innerObject.setBorrow(false)) {
+                offer(innerObject);
+            }
+        }
+
+        while (objects.size() < minSize) {
+            try {
+                if (create(false) == null) {
+                    break;
+                }
+            } catch (Exception e) {
+                Logger.error("Create object failed", e);
+                break;
+            }
+        }
     }
 
 
@@ -452,11 +546,19 @@ public class ObjectPool<T> {
     public void initObjects() {
         //初始化最小对象池
         if(supplier!=null && minSize > 0){
-            for(int i=0;i<minSize;i++) {
-                this.add(supplier.get());
+            //构造失败时不中断对象池的创建, 由借出或定时检查时再补充
+            while (objects.size() < minSize) {
+                try {
+                    if (create(false) == null) {
+                        break;
+                    }
+                } catch (Exception e) {
+                    Logger.error("Create object failed", e);
+                    break;
+                }
             }
 
-            Logger.fremawork("Object pool init " + minSize + " objects");
+            Logger.fremawork("Object pool init " + objects.size() + " objects");
         }
 
     }
@@ -470,52 +572,13 @@ public class ObjectPool<T> {
         initObjects();
 
         if(interval > 0) {
-            final ObjectPool finalobjectPool = this;
-
             Global.getHashWheelTimer().addTask(new HashWheelTask() {
                 @Override
                 public void run() {
                     try {
-                        Iterator<InnerObject<T>> iterator = objects.values().iterator();
-                        int totalSize = objects.size();
-                        while (iterator.hasNext()) {
-                            if (totalSize <= minSize) {
-                                break;
-                            }
-
-                            InnerObject<T> innerObject = iterator.next();
-
-                            if (!innerObject.isBorrow() &&
-                                    !innerObject.isAlive() ||
-                                    !(validator!=null && validator.apply(innerObject.object))) {
-                                if (destory != null) {
-                                    //如果返回 null 则 清理对象, 如果返回为非 null 则刷新对象
-                                    if (destory.apply(innerObject.getObject())) {
-                                        remove(innerObject.getId());
-                                    } else {
-                                        innerObject.refresh();
-                                    }
-                                } else {
-                                    remove(innerObject.getId());
-                                }
-                            }
-                        }
-
-                        int sizeDiff = minSize - totalSize;
-
-                        if(sizeDiff > 0 && supplier!=null) {
-                            for (int i = 0; i < sizeDiff; i++) {
-                                try {
-                                    add(supplier.get());
-                                } catch (Exception e) {
-                                    Logger.error("Create object failed", e);
-                                    break;
-                                }
-                            }
-                        }
-
+                        check();
                     } catch (Exception e) {
-                        e.printStackTrace();
+                        Logger.error("ObjectPool check failed", e);
                     }
                 }
             }, this.interval, true);
@@ -536,6 +599,10 @@ public class ObjectPool<T> {
         private ObjectPool objectCachedPool;
         private AtomicBoolean isBorrow = new AtomicBoolean(false);
         private AtomicBoolean isRemoved = new AtomicBoolean(false);
+        //是否在未借出队列中
+        private AtomicBoolean inQueue = new AtomicBoolean(false);
+        //线程本地快速路径使用的弱引用
+        private WeakReference<InnerObject<T>> reference = new WeakReference<InnerObject<T>>(this);
 
         public InnerObject(ObjectPool objectCachedPool, long id, T object) {
             this.objectCachedPool = objectCachedPool;
@@ -552,6 +619,19 @@ public class ObjectPool<T> {
             return isBorrow.get();
         }
 
+        /**
+         * 尝试借出对象
+         * @return true: 借出成功, false: 对象已借出或已移除
+         */
+        protected boolean tryBorrow() {
+            if(isRemoved() || !setBorrow(true)) {
+                return false;
+            }
+
+            //借出的同时被移除
+            return !isRemoved();
+        }
+
         public boolean remove() {
             return this.isRemoved.compareAndSet(false, true);
         }
@@ -617,7 +697,7 @@ public class ObjectPool<T> {
     }
 
     public String toString(){
-        return "{Total:" + objects.size() + ", unborrow:" + unborrowedIdList.size()+"}";
+        return "{Total:" + objects.size() + ", unborrow:" + avaliableSize()+"}";
     }
 }
 
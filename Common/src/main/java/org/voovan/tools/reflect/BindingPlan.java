@@ -0,0 +1,187 @@
+package org.voovan.tools.reflect;
+
+import org.voovan.tools.TString;
+import org.voovan.tools.reflect.annotation.NotSerialization;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 类的绑定计划
+ *      在第一次转换时解析类的类型分类、属性的类型和范型信息, 之后 Map 和对象之间的转换只需要按计划循环处理,
+ *      不再重复查找属性和判断类型.
+ *
+ * @author helyho
+ *
+ * Voovan Framework.
+ * WebSite: https://github.com/helyho/Voovan
+ * Licence: Apache v2 License
+ */
+final class BindingPlan {
+
+    /**
+     * 类型分类, 判断的顺序和 TReflect.getObjectFromMap 一致
+     */
+    enum Kind {
+        OBJECT, PRIMITIVE, BASIC, BIG_DECIMAL, ATOMIC, DATE, MAP, COLLECTION, ARRAY, BEAN
+    }
+
+    private final Class clazz;
+    private final Kind kind;
+
+    //精确匹配的属性, 子类的属性优先
+    private final Map<String, FieldBinding> fields = new HashMap<String, FieldBinding>();
+    //忽略大小写匹配的属性, 键为小写的属性名
+    private final Map<String, FieldBinding> lowerCaseFields = new HashMap<String, FieldBinding>();
+
+    //转换为 Map 时需要输出的属性
+    private final FieldBinding[] serializeFields;
+    private final FieldBinding[] allFields;
+
+    BindingPlan(Class clazz) {
+        this.clazz = clazz;
+        this.kind = kindOf(clazz);
+
+        List<FieldBinding> serializeList = new ArrayList<FieldBinding>();
+        List<FieldBinding> allList = new ArrayList<FieldBinding>();
+        Set<String> serializeNames = new HashSet<String>();
+        Set<String> allNames = new HashSet<String>();
+
+        Field[] classFields = kind == Kind.BEAN ? TReflect.getFields(clazz) : new Field[0];
+        for (int i = 0; i < classFields.length; i++) {
+            Field field = classFields[i];
+            String name = field.getName();
+
+            FieldBinding fieldBinding = new FieldBinding(field, i);
+            if (!fields.containsKey(name)) {
+                fields.put(name, fieldBinding);
+            }
+
+            String lowerCaseName = name.toLowerCase();
+            if (!lowerCaseFields.containsKey(lowerCaseName)) {
+                lowerCaseFields.put(lowerCaseName, fieldBinding);
+            }
+
+            int modifiers = field.getModifiers();
+            if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers)) {
+                continue;
+            }
+
+            //子类和父类有同名属性时, 和 TReflect.getFieldValue 一致读取的都是子类的属性(即使子类的属性被过滤), 只保留第一个
+            FieldBinding readBinding = fields.get(name);
+            if (allNames.add(name)) {
+                allList.add(readBinding);
+            }
+
+            if (!field.isAnnotationPresent(NotSerialization.class) && serializeNames.add(name)) {
+                serializeList.add(readBinding);
+            }
+        }
+
+        serializeFields = serializeList.toArray(new FieldBinding[0]);
+        allFields = allList.toArray(new FieldBinding[0]);
+    }
+
+    private static Kind kindOf(Class clazz) {
+        if (clazz == Object.class) {
+            return Kind.OBJECT;
+        } else if (clazz.isPrimitive()) {
+            return Kind.PRIMITIVE;
+        } else if (TReflect.isBasicType(clazz)) {
+            return Kind.BASIC;
+        } else if (clazz == BigDecimal.class) {
+            return Kind.BIG_DECIMAL;
+        } else if (clazz == AtomicLong.class || clazz == AtomicInteger.class || clazz == AtomicBoolean.class) {
+            return Kind.ATOMIC;
+        } else if (TReflect.isExtendsByClass(clazz, Date.class)) {
+            return Kind.DATE;
+        } else if (TReflect.isImpByInterface(clazz, Map.class)) {
+            return Kind.MAP;
+        } else if (TReflect.isImpByInterface(clazz, Collection.class)) {
+            return Kind.COLLECTION;
+        } else if (clazz.isArray()) {
+            return Kind.ARRAY;
+        } else {
+            return Kind.BEAN;
+        }
+    }
+
+    Class getClazz() {
+        return clazz;
+    }
+
+    Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * 查找属性的绑定, 匹配规则与 TReflect.findField 和 TReflect.findFieldIgnoreCase 一致
+     * @param name 属性名
+     * @param ignoreCase 是否忽略大小写, 忽略大小写时同时匹配下划线转驼峰后的名称
+     * @return 属性的绑定, 不存在时返回 null
+     */
+    FieldBinding findField(String name, boolean ignoreCase) {
+        if (name == null) {
+            return null;
+        }
+
+        if (!ignoreCase) {
+            return fields.get(name);
+        }
+
+        FieldBinding fieldBinding = lowerCaseFields.get(name.toLowerCase());
+        if (name.indexOf('_') > 0) {
+            FieldBinding camelBinding = lowerCaseFields.get(TString.underlineToCamel(name).toLowerCase());
+            if (fieldBinding == null || (camelBinding != null && camelBinding.index < fieldBinding.index)) {
+                fieldBinding = camelBinding;
+            }
+        }
+        return fieldBinding;
+    }
+
+    /**
+     * 获取转换为 Map 时需要输出的属性
+     * @param allField 是否包含 NotSerialization 注解的属性
+     * @return 属性的绑定数组
+     */
+    FieldBinding[] getMapFields(boolean allField) {
+        return allField ? allFields : serializeFields;
+    }
+
+    /**
+     * 属性的绑定信息
+     */
+    static final class FieldBinding {
+        final Field field;
+        final String name;
+        final Class type;
+        final Type genericType;
+        final Class[] genericClasses;
+        final boolean isFinal;
+        final boolean isMap;
+        final boolean isCollection;
+        final boolean isBasic;
+        final boolean isSpecialName;
+        final int index;
+
+        private FieldBinding(Field field, int index) {
+            this.field = field;
+            this.name = field.getName();
+            this.type = field.getType();
+            this.genericType = field.getGenericType();
+            this.genericClasses = TReflect.getGenericClass(genericType);
+            this.isFinal = Modifier.isFinal(field.getModifiers());
+            this.isMap = TReflect.isImpByInterface(type, Map.class);
+            this.isCollection = TReflect.isImpByInterface(type, Collection.class);
+            this.isBasic = TReflect.isBasicType(type);
+            this.isSpecialName = name.contains("$");
+            this.index = index;
+        }
+    }
+}
@@ -0,0 +1,385 @@
+package org.voovan.tools.reflect;
+
+import org.voovan.tools.log.Logger;
+
+import java.lang.invoke.*;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 类的访问器
+ *      使用 LambdaMetafactory 为 getter/setter 和无参构造方法生成直接调用的 lambda, 调用速度与直接调用相同,
+ *      其他的方法和构造方法使用 MethodHandle 调用. 不需要运行时编译, 也不依赖 JDK 的 javac.
+ *
+ * @author helyho
+ *
+ * Voovan Framework.
+ * WebSite: https://github.com/helyho/Voovan
+ * Licence: Apache v2 License
+ */
+public class ClassAccessor {
+    private final static MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private final static MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+    private final static MethodType SUPPLIER_TYPE = MethodType.methodType(Object.class);
+    private final static MethodType METHOD_INVOKER_TYPE = MethodType.methodType(Object.class, Object.class, Object[].class);
+    private final static MethodType CONSTRUCTOR_INVOKER_TYPE = MethodType.methodType(Object.class, Object[].class);
+
+    private static Method PRIVATE_LOOKUP_IN;
+    private static MethodHandles.Lookup IMPL_LOOKUP;
+
+    static {
+        //获取目标类上有完整访问权限的 Lookup, lambda 定义在目标类中, 可以支持不同的 ClassLoader 和非 public 的方法
+        try {
+            //JDK 9 及以上
+            PRIVATE_LOOKUP_IN = MethodHandles.class.getMethod("privateLookupIn", Class.class, MethodHandles.Lookup.class);
+        } catch (NoSuchMethodException e) {
+            //JDK 8
+            try {
+                Field field = MethodHandles.Lookup.class.getDeclaredField("IMPL_LOOKUP");
+                field.setAccessible(true);
+                IMPL_LOOKUP = (MethodHandles.Lookup) field.get(null);
+            } catch (Exception ex) {
+                Logger.warn("ClassAccessor can't get IMPL_LOOKUP, reflection will be used");
+            }
+        }
+    }
+
+    private Class clazz;
+    private Map<String, Function<Object, Object>> getters = new HashMap<String, Function<Object, Object>>();
+    private Map<String, BiConsumer<Object, Object>> setters = new HashMap<String, BiConsumer<Object, Object>>();
+    private Supplier<Object> defaultConstructor;
+    private List<Invoker> constructors = new ArrayList<Invoker>();
+    private Map<String, List<Invoker>> methods = new HashMap<String, List<Invoker>>();
+
+    private ClassAccessor(Class clazz) {
+        this.clazz = clazz;
+    }
+
+    /**
+     * 获取目标类
+     * @return 目标类
+     */
+    public Class getClazz() {
+        return clazz;
+    }
+
+    /**
+     * 获取属性的读取器
+     * @param fieldName 属性名
+     * @return 属性的读取器, 属性没有 getter 方法或者无法生成时返回 null
+     */
+    public Function<Object, Object> getGetter(String fieldName) {
+        return getters.get(fieldName);
+    }
+
+    /**
+     * 获取属性的写入器
+     * @param fieldName 属性名
+     * @return 属性的写入器, 属性没有 setter 方法或者无法生成时返回 null
+     */
+    public BiConsumer<Object, Object> getSetter(String fieldName) {
+        return setters.get(fieldName);
+    }
+
+    /**
+     * 获取无参构造方法
+     * @return 无参构造方法, 不存在时返回 null
+     */
+    public Supplier<Object> getDefaultConstructor() {
+        return defaultConstructor;
+    }
+
+    /**
+     * 查找和参数匹配的构造方法
+     * @param args 构造参数
+     * @return 构造方法的调用器, 不存在时返回 null
+     */
+    public Invoker findConstructor(Object[] args) {
+        return find(constructors, args);
+    }
+
+    /**
+     * 查找和参数匹配的方法
+     * @param methodName 方法名
+     * @param args 方法参数
+     * @return 方法的调用器, 不存在时返回 null
+     */
+    public Invoker findMethod(String methodName, Object[] args) {
+        List<Invoker> invokers = methods.get(methodName);
+        return invokers == null ? null : find(invokers, args);
+    }
+
+    private static Invoker find(List<Invoker> invokers, Object[] args) {
+        for(Invoker invoker : invokers) {
+            if(invoker.match(args)) {
+                return invoker;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 构造类的访问器
+     * @param clazz 目标类
+     * @return 类的访问器
+     */
+    public static ClassAccessor create(Class clazz) {
+        ClassAccessor classAccessor = createFieldAccessor(clazz);
+
+        if(!Modifier.isAbstract(clazz.getModifiers()) && !clazz.isInterface()) {
+            for (Constructor constructor : TReflect.getConstructors(clazz)) {
+                if (Modifier.isPrivate(constructor.getModifiers())) {
+                    continue;
+                }
+
+                try {
+                    MethodHandles.Lookup lookup = lookup(clazz);
+                    if(lookup == null) {
+                        constructor.setAccessible(true);
+                        lookup = MethodHandles.lookup();
+                    }
+                    MethodHandle handle = lookup.unreflectConstructor(constructor);
+                    handle = handle.asSpreader(Object[].class, constructor.getParameterCount()).asType(CONSTRUCTOR_INVOKER_TYPE);
+                    classAccessor.constructors.add(new Invoker(constructor.getParameterTypes(), handle));
+                } catch (Exception e) {
+                    //无法访问时由调用方使用反射调用
+                }
+            }
+        }
+
+        for(Method method : TReflect.getMethods(clazz)) {
+            int modifier = method.getModifiers();
+            if(Modifier.isStatic(modifier) || Modifier.isPrivate(modifier) || method.getName().startsWith("$")) {
+                continue;
+            }
+
+            try {
+                MethodHandles.Lookup lookup = lookup(method.getDeclaringClass());
+                if(lookup == null) {
+                    method.setAccessible(true);
+                    lookup = MethodHandles.lookup();
+                }
+                MethodHandle handle = lookup.unreflect(method);
+                handle = handle.asSpreader(Object[].class, method.getParameterCount()).asType(METHOD_INVOKER_TYPE);
+
+                List<Invoker> invokers = classAccessor.methods.get(method.getName());
+                if(invokers == null) {
+                    invokers = new ArrayList<Invoker>();
+                    classAccessor.methods.put(method.getName(), invokers);
+                }
+                invokers.add(new Invoker(method.getParameterTypes(), handle));
+            } catch (Exception e) {
+                //无法访问时由调用方使用反射调用
+            }
+        }
+
+        return classAccessor;
+    }
+
+    /**
+     * 构造只包含属性的 getter/setter 和无参构造方法的访问器, 不生成其他方法和构造方法的调用器
+     * @param clazz 目标类
+     * @return 类的访问器
+     */
+    public static ClassAccessor createFieldAccessor(Class clazz) {
+        ClassAccessor classAccessor = new ClassAccessor(clazz);
+
+        for(Field field : TReflect.getFields(clazz)) {
+            if(Modifier.isStatic(field.getModifiers()) || field.getName().startsWith("$")) {
+                continue;
+            }
+
+            String fieldName = field.getName();
+            String upperName = Character.toUpperCase(fieldName.charAt(0)) + fieldName.substring(1);
+
+            Method getter = TReflect.findMethod(clazz, "get" + upperName);
+            if(getter == null && (field.getType() == boolean.class || field.getType() == Boolean.class)) {
+                getter = TReflect.findMethod(clazz, "is" + upperName);
+            }
+
+            if(getter != null && isAccessor(getter) && getter.getReturnType() == field.getType()) {
+                Function<Object, Object> function = createGetter(getter);
+                if(function != null) {
+                    classAccessor.getters.put(fieldName, function);
+                }
+            }
+
+            Method setter = TReflect.findMethod(clazz, "set" + upperName, field.getType());
+            if(setter != null && isAccessor(setter)) {
+                BiConsumer<Object, Object> consumer = createSetter(setter);
+                if(consumer != null) {
+                    classAccessor.setters.put(fieldName, consumer);
+                }
+            }
+        }
+
+        if(!Modifier.isAbstract(clazz.getModifiers()) && !clazz.isInterface()) {
+            for (Constructor constructor : TReflect.getConstructors(clazz)) {
+                if (!Modifier.isPrivate(constructor.getModifiers()) && constructor.getParameterCount() == 0) {
+                    classAccessor.defaultConstructor = createSupplier(constructor);
+                }
+            }
+        }
+
+        return classAccessor;
+    }
+
+    private static boolean isAccessor(Method method) {
+        int modifier = method.getModifiers();
+        return !Modifier.isStatic(modifier) && !Modifier.isAbstract(modifier);
+    }
+
+    /**
+     * 获取目标类上有完整访问权限的 Lookup
+     * @param clazz 目标类
+     * @return Lookup 对象, 无法获取时返回 null, 此时使用反射访问
+     */
+    private static MethodHandles.Lookup lookup(Class clazz) {
+        try {
+            if(PRIVATE_LOOKUP_IN != null) {
+                return (MethodHandles.Lookup) PRIVATE_LOOKUP_IN.invoke(null, clazz, MethodHandles.lookup());
+            } else if(IMPL_LOOKUP != null) {
+                return IMPL_LOOKUP.in(clazz);
+            }
+        } catch (Exception e) {
+            //目标类所在的模块没有开放
+        }
+        return null;
+    }
+
+    private static Class wrap(Class clazz) {
+        return MethodType.methodType(clazz).wrap().returnType();
+    }
+
+    private static Function<Object, Object> createGetter(Method method) {
+        try {
+            Class declaringClass = method.getDeclaringClass();
+            MethodHandles.Lookup lookup = lookup(declaringClass);
+            if(lookup == null) {
+                return null;
+            }
+            CallSite callSite = LambdaMetafactory.metafactory(lookup, "apply",
+                    MethodType.methodType(Function.class), GETTER_TYPE, lookup.unreflect(method),
+                    MethodType.methodType(wrap(method.getReturnType()), declaringClass));
+            return (Function<Object, Object>) callSite.getTarget().invoke();
+        } catch (Throwable e) {
+            //无法生成 lambda 时由调用方使用反射访问
+            return null;
+        }
+    }
+
+    private static BiConsumer<Object, Object> createSetter(Method method) {
+        try {
+            Class declaringClass = method.getDeclaringClass();
+            MethodHandles.Lookup lookup = lookup(declaringClass);
+            if(lookup == null) {
+                return null;
+            }
+            CallSite callSite = LambdaMetafactory.metafactory(lookup, "accept",
+                    MethodType.methodType(BiConsumer.class), SETTER_TYPE, lookup.unreflect(method),
+                    MethodType.methodType(void.class, declaringClass, wrap(method.getParameterTypes()[0])));
+            return (BiConsumer<Object, Object>) callSite.getTarget().invoke();
+        } catch (Throwable e) {
+            //无法生成 lambda 时由调用方使用反射访问
+            return null;
+        }
+    }
+
+    private static Supplier<Object> createSupplier(Constructor constructor) {
+        try {
+            Class declaringClass = constructor.getDeclaringClass();
+            MethodHandles.Lookup lookup = lookup(declaringClass);
+            if(lookup == null) {
+                return null;
+            }
+            CallSite callSite = LambdaMetafactory.metafactory(lookup, "get",
+                    MethodType.methodType(Supplier.class), SUPPLIER_TYPE, lookup.unreflectConstructor(constructor),
+                    MethodType.methodType(declaringClass));
+            return (Supplier<Object>) callSite.getTarget().invoke();
+        } catch (Throwable e) {
+            //无法生成 lambda 时由调用方使用反射访问
+            return null;
+        }
+    }
+
+    /**
+     * 方法或者构造方法的调用器
+     */
+    public static class Invoker {
+        private Class[] paramTypes;
+        private Class[] wrapTypes;
+        private MethodHandle handle;
+
+        private Invoker(Class[] paramTypes, MethodHandle handle) {
+            this.paramTypes = paramTypes;
+            this.wrapTypes = new Class[paramTypes.length];
+            for(int i = 0; i < paramTypes.length; i++) {
+                wrapTypes[i] = wrap(paramTypes[i]);
+            }
+            this.handle = handle;
+        }
+
+        /**
+         * 判断参数是否匹配, null 只能匹配非原始类型的参数
+         * @param args 参数
+         * @return true: 匹配, false: 不匹配
+         */
+        private boolean match(Object[] args) {
+            int length = args == null ? 0 : args.length;
+            if(length != paramTypes.length) {
+                return false;
+            }
+
+            for(int i = 0; i < length; i++) {
+                Object arg = args[i];
+                if(arg == null ? paramTypes[i].isPrimitive() : !wrapTypes[i].isInstance(arg)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * 调用方法
+         * @param obj 对象
+         * @param args 参数
+         * @param <T> 返回值范型
+         * @return 方法的返回值
+         * @throws ReflectiveOperationException 反射异常
+         */
+        public <T> T invoke(Object obj, Object[] args) throws ReflectiveOperationException {
+            try {
+                Object[] params = args == null ? new Object[0] : args;
+                return (T) (Object) handle.invokeExact(obj, params);
+            } catch (ReflectiveOperationException | RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new ReflectiveOperationException(e.getMessage(), e);
+            }
+        }
+
+        /**
+         * 调用构造方法
+         * @param args 参数
+         * @param <T> 返回值范型
+         * @return 构造的对象
+         * @throws ReflectiveOperationException 反射异常
+         */
+        public <T> T newInstance(Object[] args) throws ReflectiveOperationException {
+            try {
+                Object[] params = args == null ? new Object[0] : args;
+                return (T) (Object) handle.invokeExact(params);
+            } catch (ReflectiveOperationException | RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new ReflectiveOperationException(e.getMessage(), e);
+            }
+        }
+    }
+}
@@ -3,7 +3,6 @@ package org.voovan.tools.reflect;
 
 import org.voovan.Global;
 import org.voovan.tools.*;
-import org.voovan.tools.compiler.function.DynamicFunction;
 import org.voovan.tools.log.Logger;
 import org.voovan.tools.reflect.annotation.NotSerialization;
 import org.voovan.tools.security.THash;
@@ -19,6 +18,9 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * 反射工具类
@@ -63,272 +65,65 @@ public class TReflect {
     private static Map<Class, String>            NAME_CLASS           = new ConcurrentHashMap<Class ,String>();
     private static Map<String, Class>            CLASS_NAME           = new ConcurrentHashMap<String, Class>();
     private static Map<Class, Boolean>           CLASS_BASIC_TYPE     = new ConcurrentHashMap<Class ,Boolean>();
-    private static Map<Class, DynamicFunction>   FIELD_READER         = new ConcurrentHashMap<Class, DynamicFunction>();
-    private static Map<Class, DynamicFunction>   FIELD_WRITER         = new ConcurrentHashMap<Class, DynamicFunction>();
-    private static Map<Class, DynamicFunction>   CONSTRUCTOR_INVOKE   = new ConcurrentHashMap<Class, DynamicFunction>();
-    private static Map<String, DynamicFunction>  METHOD_INVOKE        = new ConcurrentHashMap<String, DynamicFunction>();
+    private static Map<Class, ClassAccessor>     CLASS_ACCESSORS      = new ConcurrentHashMap<Class, ClassAccessor>();
+    private static Map<Class, BindingPlan>       BINDING_PLANS        = new ConcurrentHashMap<Class, BindingPlan>();
 
 
     /**
      * 注册一个类, 尝试采用 native 方式进行反射调用
+     *      使用 LambdaMetafactory 和 MethodHandle 生成类的访问器, 不需要运行时编译
      * @param clazz 类对象
      * @return true: 成功, false: 失败
      */
     public static boolean register(Class clazz) {
-        try {
-            if(getClassName(clazz).startsWith("java")){
-                return false;
-            }
-            TReflect.genFieldReader(clazz);
-            TReflect.genFieldWriter(clazz);
-            TReflect.genConstructorInvoker(clazz);
-            TReflect.genMethodInvoker(clazz);
-            return true;
-        } catch (ReflectiveOperationException e) {
-            e.printStackTrace();
+        if(getClassName(clazz).startsWith("java")){
             return false;
         }
+
+        CLASS_ACCESSORS.put(clazz, ClassAccessor.create(clazz));
+        return true;
     }
 
     /**
      * 清理所有的已经注册的 native 调用类
      */
     public static void clearRegister() {
-        TReflect.FIELD_READER.clear();
-        TReflect.FIELD_WRITER.clear();
-        TReflect.CONSTRUCTOR_INVOKE.clear();
-        TReflect.METHOD_INVOKE.clear();
-    }
-
-    /**
-     * 生成对象的读取的动态编译方法
-     * @param clazz 目标对象类
-     */
-    private static void genFieldReader(Class clazz) throws ReflectiveOperationException {
-        Field[] fields = getFields(clazz);
-
-        //arg1 obj, arg2 fieldName
-        String code = "switch(fieldName) {";
-        for(Field field : fields) {
-            int modifier = field.getModifiers();
-            if(Modifier.isStatic(modifier) ||
-                    field.getName().startsWith("$")) {
-                continue;
-            }
-
-            String methodName = "get"+TString.upperCaseHead(field.getName());
-
-            if(TReflect.findMethod(clazz, methodName,  field.getType()) == null){
-                continue;
-            }
-
-            code = code + "case \"" + field.getName() + "\" : ";
-
-            String getMethodName = methodName + "();";
-            code = code + "return obj."+getMethodName + " \r\n";
-        }
-        code = code + "default : return null;\r\n }";
-
-        DynamicFunction dynamicFunction = new DynamicFunction(clazz.getSimpleName()+"_READER", code);
-        dynamicFunction.addImport(clazz);
-        dynamicFunction.addPrepareArg(0, clazz, "obj");     //目标对象
-        dynamicFunction.addPrepareArg(1, String.class, "fieldName"); //取值字段
-        dynamicFunction.compileCode();
-
-        FIELD_READER.put(clazz, dynamicFunction);
+        TReflect.CLASS_ACCESSORS.clear();
     }
 
     /**
-     * 生成对象的写入的动态编译方法
-     * @param clazz 目标对象类
+     * 获取已经注册的类的访问器
+     * @param clazz 类对象
+     * @return 类的访问器, 类没有注册时返回 null
      */
-    private static void genFieldWriter(Class clazz) throws ReflectiveOperationException {
-        Field[] fields = getFields(clazz);
-
-        //arg1 obj, arg2 fieldName, arg3 value
-        String code = "switch(fieldName) {";
-        for(Field field : fields) {
-            int modifier = field.getModifiers();
-            if(Modifier.isStatic(modifier) ||
-                    field.getName().startsWith("$")) {
-                continue;
-            }
-
-            String methodName = "set"+TString.upperCaseHead(field.getName());
-
-            if(TReflect.findMethod(clazz, methodName,  field.getType()) == null){
-                continue;
-            }
-
-            code = code + "case \"" + field.getName() + "\" : ";
-
-            String setMethodName =methodName + "(("+field.getType().getName()+")value); return true;";
-            code = code + "obj."+setMethodName + " \r\n";
-        }
-
-        code = code + "default : return null;\r\n }";
-
-        DynamicFunction dynamicFunction = new DynamicFunction(clazz.getSimpleName()+"_WRITER", code);
-        dynamicFunction.addImport(clazz);
-        dynamicFunction.addPrepareArg(0, clazz, "obj");     //目标对象
-        dynamicFunction.addPrepareArg(1, String.class, "fieldName"); //写入字段
-        dynamicFunction.addPrepareArg(2, Object.class, "value");     //写入数据
-        dynamicFunction.compileCode();
-
-        FIELD_WRITER.put(clazz, dynamicFunction);
+    public static ClassAccessor getClassAccessor(Class clazz) {
+        return CLASS_ACCESSORS.get(clazz);
     }
 
     /**
-     * 生成构造方法的原生调用代码
-     * @param clazz 根绝这个对象的元信息生成静态调用代码
+     * 获取类的绑定计划, 第一次使用时构造并缓存
+     * @param clazz 类对象
+     * @return 类的绑定计划
      */
-    private static void genConstructorInvoker(Class clazz) {
-        Constructor[] constructors = getConstructors(clazz);
-        String paramtypeCode = "int paramTypeLength = params==null ? 0 : params.length;\r\n\r\n";
-
-        StringBuilder code = new StringBuilder();
-        for(Constructor constructor : constructors) {
-            int modifier = constructor.getModifiers();
-            if(Modifier.isStatic(modifier) ||
-                    Modifier.isPrivate(modifier) ||
-                    constructor.getName().startsWith("$")) {
-                continue;
-            }
-
-            Class[] paramTypes = constructor.getParameterTypes();
-            code.append(code.length() == 0 ? "if" : "else if");
-            code.append("(paramTypeLength == " + paramTypes.length );
-
-            //参数类型匹配
-            for(int i=0;i<paramTypes.length;i++) {
-                Class paramClazz = paramTypes[i];
-                code.append(" && params["+i+"] instanceof " + TReflect.getPackageType(TReflect.getClassName(paramClazz)));
-            }
-
-            code.append(" ) {");
-
-            code.append("return new " + TReflect.getClassName(clazz)+"(");
-
-            //拼装方法参数代码, 类似: (java.lang.String) params[i],
-            if(paramTypes.length > 0) {
-                for (int i = 0; i < paramTypes.length; i++) {
-                    code.append("(" + TReflect.getClassName(paramTypes[i]) + ") params[" + i + "],");
-                }
-                code.setLength(code.length() - 1);
-            }
-
-            code.append(");}\r\n");
-        }
-
-        code.append("else { return null; }");
-
-        code.insert(0, paramtypeCode);
-
-        DynamicFunction dynamicFunction = new DynamicFunction(clazz.getSimpleName()+"_CONSTRUCTOR", code.toString());
-        dynamicFunction.addImport(TReflect.class);
-        dynamicFunction.addImport(clazz);
-        dynamicFunction.addPrepareArg(0, Class.class, "clazz");     //写入数据
-        dynamicFunction.addPrepareArg(1, Object[].class, "params");     //写入数据
-
-        try {
-            //编译代码
-            dynamicFunction.compileCode();
-        } catch (ReflectiveOperationException e) {
-            Logger.error("TReflect.genMethodInvoker error", e);
-        }
-
-        CONSTRUCTOR_INVOKE.put(clazz, dynamicFunction);
-        if(Global.IS_DEBUG_MODE) {
-            Logger.debug(code);
-        }
+    static BindingPlan getBindingPlan(Class clazz) {
+        BindingPlan bindingPlan = BINDING_PLANS.get(clazz);
+        if(bindingPlan == null) {
+            bindingPlan = new BindingPlan(clazz);
+            BindingPlan oldBindingPlan = BINDING_PLANS.putIfAbsent(clazz, bindingPlan);
+            bindingPlan = oldBindingPlan == null ? bindingPlan : oldBindingPlan;
+        }
+        return bindingPlan;
     }
 
-
     /**
      * 生成方法的原生调用代码
+     *      与 register 相同, 生成类的访问器
      * @param clazz 根绝这个对象的元信息生成静态调用代码
      */
     public static void genMethodInvoker(Class clazz) {
-        String className = clazz.getCanonicalName();
-        Method[] methods = getMethods(clazz);
-
-        StringBuilder code = new StringBuilder();
-        String paramtypeCode = "int paramTypeLength = params==null ? 0 : params.length;\r\n\r\n";
-
-        for(Method method : methods) {
-            int modifier = method.getModifiers();
-            if(Modifier.isStatic(modifier) ||
-                    Modifier.isPrivate(modifier) ||
-                    method.getName().startsWith("$")) {
-                continue;
-            }
-
-            Class[] paramTypes = method.getParameterTypes();
-            code.append(code.length() == 0 ? "if" : "else if");
-            code.append("(methodName.equals(\"" + method.getName() + "\") && ");
-            code.append("paramTypeLength == " + paramTypes.length);
-
-            //参数类型匹配
-            for(int i=0;i<paramTypes.length;i++) {
-                Class paramClazz = paramTypes[i];
-                code.append(" && params["+i+"] instanceof " + TReflect.getPackageType(TReflect.getClassName(paramClazz)));
-            }
-
-            code.append(" ) {");
-
-            //准备接收方法返回值的分段代码, 用于后面拼接
-            Class returnClass = method.getReturnType();
-            String resultCode = ""; //接收响应数据
-            String returnCode = ""; //通过 return 返回数据
-            if(returnClass != void.class) {
-                resultCode = returnClass.getCanonicalName() + " result = ";
-                returnCode = " return result;";
-            } else {
-                returnCode = " return null;";
-            }
-
-            code.append(resultCode + "obj." + method.getName()+"(");
-
-            //拼装方法参数代码, 类似: (java.lang.String) params[i],
-            if(paramTypes.length > 0) {
-                for (int i = 0; i < paramTypes.length; i++) {
-                    code.append("(" + paramTypes[i].getCanonicalName() + ") params[" + i + "],");
-                }
-                code.setLength(code.length() - 1);
-            }
-
-            code.append(");");
-
-            //拼装 return 代码
-            code.append(returnCode + "} \r\n");
-        }
-
-        code.append("else { return null; }");
-
-        code.insert(0, paramtypeCode);
-
-        DynamicFunction dynamicFunction = new DynamicFunction(clazz.getSimpleName()+"Reader", code.toString());
-        dynamicFunction.addImport(ConcurrentHashMap.class);
-        dynamicFunction.addImport(Arrays.class);
-        dynamicFunction.addImport(clazz);
-        dynamicFunction.addPrepareArg(0, clazz, "obj");        //目标对象
-        dynamicFunction.addPrepareArg(1, String.class,   "methodName"); //写入字段
-        dynamicFunction.addPrepareArg(2, Object[].class, "params");     //写入数据
-
-        try {
-            //编译代码
-            dynamicFunction.compileCode();
-        } catch (ReflectiveOperationException e) {
-            Logger.error("TReflect.genMethodInvoker error", e);
-        }
-
-        METHOD_INVOKE.put(className, dynamicFunction);
-        if(Global.IS_DEBUG_MODE) {
-            Logger.debug(code);
-        }
+        register(clazz);
     }
 
-
     /**
      * 通过原生调用的方式获取 Field 的值
      * @param obj  对象
@@ -338,20 +133,17 @@ public class TReflect {
      * @throws ReflectiveOperationException 调用异常
      */
     public static <T> T getFieldValueNatvie(Object obj, String fieldName) throws ReflectiveOperationException {
-        DynamicFunction dynamicFunction = FIELD_READER.get(obj.getClass());
+        ClassAccessor classAccessor = CLASS_ACCESSORS.get(obj.getClass());
+        Function<Object, Object> getter = classAccessor == null ? null : classAccessor.getGetter(fieldName);
 
-        if(dynamicFunction == null) {
+        if(getter == null) {
             return null;
         }
 
         try {
-            return dynamicFunction.call(obj, fieldName);
+            return (T) getter.apply(obj);
         } catch (Exception e) {
-            if (!(e instanceof ReflectiveOperationException)) {
-                throw new ReflectiveOperationException(e.getMessage(), e);
-            } else {
-                throw  (ReflectiveOperationException) e;
-            }
+            throw new ReflectiveOperationException(e.getMessage(), e);
         }
     }
 
@@ -364,20 +156,18 @@ public class TReflect {
      * @return true:成功, false:失败
      */
     public static Boolean setFieldValueNatvie(Object obj, String fieldName, Object value) throws ReflectiveOperationException {
-        DynamicFunction dynamicFunction = FIELD_WRITER.get(obj.getClass());
+        ClassAccessor classAccessor = CLASS_ACCESSORS.get(obj.getClass());
+        BiConsumer<Object, Object> setter = classAccessor == null ? null : classAccessor.getSetter(fieldName);
 
-        if(dynamicFunction == null) {
+        if(setter == null) {
             return false;
         }
 
         try {
-            return dynamicFunction.call(obj, fieldName, value);
+            setter.accept(obj, value);
+            return true;
         } catch (Exception e) {
-            if (!(e instanceof ReflectiveOperationException)) {
-                throw new ReflectiveOperationException(e.getMessage(), e);
-            } else {
-                throw  (ReflectiveOperationException) e;
-            }
+            throw new ReflectiveOperationException(e.getMessage(), e);
         }
     }
 
@@ -390,21 +180,26 @@ public class TReflect {
      * @throws ReflectiveOperationException 调用异常
      */
     public static <T> T newInstanceNative(Class clazz, Object ... params) throws ReflectiveOperationException {
+        ClassAccessor classAccessor = CLASS_ACCESSORS.get(clazz);
 
-        DynamicFunction dynamicFunction = CONSTRUCTOR_INVOKE.get(clazz);
-
-        if(dynamicFunction == null) {
+        if(classAccessor == null) {
             return null;
         }
 
         try {
-            return dynamicFunction.call(clazz, params);
-        } catch (Exception e) {
-            if (!(e instanceof ReflectiveOperationException)) {
-                throw new ReflectiveOperationException(e.getMessage(), e);
-            } else {
-                throw  (ReflectiveOperationException) e;
+            if (params == null || params.length == 0) {
+                Supplier<Object> supplier = classAccessor.getDefaultConstructor();
+                if (supplier != null) {
+                    return (T) supplier.get();
+                }
             }
+
+            ClassAccessor.Invoker invoker = classAccessor.findConstructor(params);
+            return invoker == null ? null : invoker.newInstance(params);
+        } catch (ReflectiveOperationException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ReflectiveOperationException(e.getMessage(), e);
         }
     }
 
@@ -418,20 +213,19 @@ public class TReflect {
      * @throws ReflectiveOperationException 调用异常
      */
     public static <T> T invokeMethodNative(Object obj, String methodName, Object ... params) throws ReflectiveOperationException {
-        DynamicFunction dynamicFunction = METHOD_INVOKE.get(getClassName(obj.getClass()));
+        ClassAccessor classAccessor = CLASS_ACCESSORS.get(obj.getClass());
+        ClassAccessor.Invoker invoker = classAccessor == null ? null : classAccessor.findMethod(methodName, params);
 
-        if(dynamicFunction == null) {
+        if(invoker == null) {
             return null;
         }
 
         try {
-            return dynamicFunction.call(obj, methodName, params);
+            return invoker.invoke(obj, params);
+        } catch (ReflectiveOperationException e) {
+            throw e;
         } catch (Exception e) {
-            if (!(e instanceof ReflectiveOperationException)) {
-                throw new ReflectiveOperationException(e.getMessage(), e);
-            } else {
-                throw  (ReflectiveOperationException) e;
-            }
+            throw new ReflectiveOperationException(e.getMessage(), e);
         }
     }
 
@@ -651,13 +445,13 @@ public class TReflect {
     static public <T> T getFieldValue(Object obj, String fieldName)
             throws ReflectiveOperationException {
         //尝试 native 方法
-        T t = getFieldValueNatvie(obj, fieldName);
-        if(t==null) {
-            Field field = findField(obj.getClass(), fieldName);
-            t = (T) field.get(obj);
+        ClassAccessor classAccessor = CLASS_ACCESSORS.get(obj.getClass());
+        if(classAccessor != null && classAccessor.getGetter(fieldName) != null) {
+            return getFieldValueNatvie(obj, fieldName);
         }
 
-        return t;
+        Field field = findField(obj.getClass(), fieldName);
+        return (T) field.get(obj);
     }
 
 
@@ -919,9 +713,12 @@ public class TReflect {
     public static <T> T invokeMethod(Object obj, String methodName, Object... args)
             throws ReflectiveOperationException {
         //尝试 native 方法
-        T t = invokeMethodNative(obj, methodName, args);
-        if(t!=null){
-            return t;
+        ClassAccessor classAccessor = CLASS_ACCESSORS.get(obj.getClass());
+        if(classAccessor != null) {
+            ClassAccessor.Invoker invoker = classAccessor.findMethod(methodName, args);
+            if(invoker != null) {
+                return invoker.invoke(obj, args);
+            }
         }
 
         if(args==null){
@@ -1270,181 +1067,190 @@ public class TReflect {
             singleValue = mapArg.values().iterator().next();
         }
 
-        //对象类型
-        if(clazz == Object.class){
-            if(mapArg.containsKey(SINGLE_VALUE_KEY)) {
-                obj = (T) singleValue;
-            } else {
-                obj = (T) mapArg;
-            }
-        }
+        BindingPlan bindingPlan = getBindingPlan(clazz);
 
-        //java标准对象
-        else if (clazz.isPrimitive()){
-            if(singleValue!=null && singleValue.getClass() !=  clazz) {
-                obj = TString.toObject(singleValue.toString(), clazz);
-            } else {
-                obj = (T)singleValue;
+        switch (bindingPlan.getKind()) {
+            //对象类型
+            case OBJECT: {
+                if (mapArg.containsKey(SINGLE_VALUE_KEY)) {
+                    obj = (T) singleValue;
+                } else {
+                    obj = (T) mapArg;
+                }
+                break;
             }
-        }
-        //java基本对象
-        else if (TReflect.isBasicType(clazz)) {
-            //取 Map.Values 里的递第一个值
-            obj = (T)(singleValue==null ? null : newInstance(clazz,  singleValue.toString()));
-        }
-        //java BigDecimal对象
-        else if (clazz == BigDecimal.class) {
-            //取 Map.Values 里的递第一个值
-            String value = singleValue==null ? null:singleValue.toString();
-            obj = (T)(singleValue==null ? null : new BigDecimal(value));
-        }
-        //对 Atom 类型的处理
-        else if (clazz == AtomicLong.class || clazz == AtomicInteger.class || clazz == AtomicBoolean.class) {
-            if(singleValue==null){
-                obj = null;
-            } else {
-                obj = (T) TReflect.newInstance(clazz, singleValue);
+            //java标准对象
+            case PRIMITIVE: {
+                if (singleValue != null && singleValue.getClass() != clazz) {
+                    obj = TString.toObject(singleValue.toString(), clazz);
+                } else {
+                    obj = (T) singleValue;
+                }
+                break;
             }
-        }
-        //java 日期对象
-        else if(isExtendsByClass(clazz, Date.class)){
-            //取 Map.Values 里的递第一个值
-            String value = singleValue == null ? null : singleValue.toString();
-            SimpleDateFormat dateFormat = new SimpleDateFormat(TDateTime.STANDER_DATETIME_TEMPLATE);
-            Date dateObj = singleValue != null ? dateFormat.parse(value.toString()) : null;
-            obj = (T)TReflect.newInstance(clazz,dateObj.getTime());
-        }
-        //Map 类型
-        else if(isImpByInterface(clazz, Map.class)){
-            Map mapObject = (Map)newInstance(clazz);
-
-            if(genericType!=null) {
-                Iterator iterator = mapArg.entrySet().iterator();
-                while (iterator.hasNext()) {
-                    Entry entry = (Entry) iterator.next();
-                    Map keyOfMap = null;
-                    Map valueOfMap = null;
-
-                    if (entry.getKey() instanceof Map) {
-                        keyOfMap = (Map) entry.getKey();
-                    } else {
-                        keyOfMap = TObject.asMap(SINGLE_VALUE_KEY, entry.getKey());
-                    }
-
-                    if (entry.getValue() instanceof Map) {
-                        valueOfMap = (Map) entry.getValue();
-                    } else {
-                        valueOfMap = TObject.asMap(SINGLE_VALUE_KEY, entry.getValue());
-                    }
-
-                    Object keyObj = getObjectFromMap(genericType[0], keyOfMap, ignoreCase);
-                    Object valueObj = getObjectFromMap(genericType[1], valueOfMap, ignoreCase);
-                    mapObject.put(keyObj, valueObj);
+            //java基本对象
+            case BASIC: {
+                //取 Map.Values 里的递第一个值
+                obj = (T) (singleValue == null ? null : newInstance(clazz, singleValue.toString()));
+                break;
+            }
+            //java BigDecimal对象
+            case BIG_DECIMAL: {
+                //取 Map.Values 里的递第一个值
+                String value = singleValue == null ? null : singleValue.toString();
+                obj = (T) (singleValue == null ? null : new BigDecimal(value));
+                break;
+            }
+            //对 Atom 类型的处理
+            case ATOMIC: {
+                if (singleValue == null) {
+                    obj = null;
+                } else {
+                    obj = (T) TReflect.newInstance(clazz, singleValue);
                 }
-            }else{
-                mapObject.putAll(mapArg);
+                break;
             }
-            obj = (T)mapObject;
-        }
-        //Collection 类型
-        else if(isImpByInterface(clazz, Collection.class)){
-            Collection collectionObject = (Collection)newInstance(clazz);
+            //java 日期对象
+            case DATE: {
+                //取 Map.Values 里的递第一个值
+                String value = singleValue == null ? null : singleValue.toString();
+                SimpleDateFormat dateFormat = new SimpleDateFormat(TDateTime.STANDER_DATETIME_TEMPLATE);
+                Date dateObj = singleValue != null ? dateFormat.parse(value.toString()) : null;
+                obj = (T) TReflect.newInstance(clazz, dateObj.getTime());
+                break;
+            }
+            //Map 类型
+            case MAP: {
+                Map mapObject = (Map) newInstance(clazz);
 
-            if(singleValue!=null){
-                if(genericType!=null){
-                    for (Object listItem : (Collection)singleValue) {
+                if (genericType != null) {
+                    Iterator iterator = mapArg.entrySet().iterator();
+                    while (iterator.hasNext()) {
+                        Entry entry = (Entry) iterator.next();
+                        Map keyOfMap = null;
                         Map valueOfMap = null;
-                        if (listItem instanceof Map) {
-                            valueOfMap = (Map) listItem;
+
+                        if (entry.getKey() instanceof Map) {
+                            keyOfMap = (Map) entry.getKey();
+                        } else {
+                            keyOfMap = TObject.asMap(SINGLE_VALUE_KEY, entry.getKey());
+                        }
+
+                        if (entry.getValue() instanceof Map) {
+                            valueOfMap = (Map) entry.getValue();
                         } else {
-                            valueOfMap = TObject.asMap(SINGLE_VALUE_KEY, listItem);
+                            valueOfMap = TObject.asMap(SINGLE_VALUE_KEY, entry.getValue());
                         }
 
-                        Object item = getObjectFromMap(genericType[0], valueOfMap, ignoreCase);
-                        collectionObject.add(item);
+                        Object keyObj = getObjectFromMap(genericType[0], keyOfMap, ignoreCase);
+                        Object valueObj = getObjectFromMap(genericType[1], valueOfMap, ignoreCase);
+                        mapObject.put(keyObj, valueObj);
                     }
-                }else{
-                    collectionObject.addAll((Collection)singleValue);
+                } else {
+                    mapObject.putAll(mapArg);
                 }
+                obj = (T) mapObject;
+                break;
             }
-            obj = (T)collectionObject;
-        }
-        //Array 类型
-        else if(clazz.isArray()){
-            Class arrayClass = clazz.getComponentType();
-            Object tempArrayObj = Array.newInstance(arrayClass, 0);
-            return (T)((Collection)singleValue).toArray((Object[])tempArrayObj);
-        }
-        // 复杂对象
-        else {
-            try {
-                obj = (T) newInstance(clazz);
-            } catch (InstantiationException e){
-                return null;
+            //Collection 类型
+            case COLLECTION: {
+                Collection collectionObject = (Collection) newInstance(clazz);
+
+                if (singleValue != null) {
+                    if (genericType != null) {
+                        for (Object listItem : (Collection) singleValue) {
+                            Map valueOfMap = null;
+                            if (listItem instanceof Map) {
+                                valueOfMap = (Map) listItem;
+                            } else {
+                                valueOfMap = TObject.asMap(SINGLE_VALUE_KEY, listItem);
+                            }
+
+                            Object item = getObjectFromMap(genericType[0], valueOfMap, ignoreCase);
+                            collectionObject.add(item);
+                        }
+                    } else {
+                        collectionObject.addAll((Collection) singleValue);
+                    }
+                }
+                obj = (T) collectionObject;
+                break;
+            }
+            //Array 类型
+            case ARRAY: {
+                Class arrayClass = clazz.getComponentType();
+                Object tempArrayObj = Array.newInstance(arrayClass, 0);
+                return (T) ((Collection) singleValue).toArray((Object[]) tempArrayObj);
             }
-            for(Entry<String,?> argEntry : mapArg.entrySet()){
-                String key = argEntry.getKey();
-                Object value = argEntry.getValue();
-
-                Field field = null;
-                if(ignoreCase) {
-                    //忽略大小写匹配
-                    field = findFieldIgnoreCase(clazz, key);
-                }else{
-                    //精确匹配属性
-                    field = findField(clazz, key);
+            // 复杂对象
+            default: {
+                try {
+                    obj = (T) newInstance(clazz);
+                } catch (InstantiationException e) {
+                    return null;
                 }
+                fillObject(obj, bindingPlan, mapArg, ignoreCase);
+            }
+        }
+        return obj;
+    }
 
-                if(field!=null && !Modifier.isFinal(field.getModifiers())) {
-                    String fieldName = field.getName();
-                    Class fieldType = field.getType();
-                    Type fieldGenericType = field.getGenericType();
-                    try {
-
-                        //value 和 fieldType class类型不同时，且　value 不为空时处理
-                        if(value != null && fieldType != value.getClass()) {
-                            //通过 JSON 将,String类型的 value转换,将 String 转换成 Collection, Map 或者 复杂类型 对象作为参数
-                            if( value instanceof String &&
-                                    (
-                                            isImpByInterface(fieldType, Map.class) ||
-                                                    isImpByInterface(fieldType, Collection.class) ||
-                                                    !TReflect.isBasicType(fieldType)
-                                    )
-                            ){
-                                value = TString.toObject(value.toString(), fieldType);
-                            }
+    /**
+     * 按绑定计划使用 Map 中的数据填充对象的属性
+     * @param obj 被填充的对象
+     * @param bindingPlan 对象的绑定计划
+     * @param mapArg Map 对象
+     * @param ignoreCase 匹配属性名是否不区分大小写
+     * @throws ReflectiveOperationException 反射异常
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static void fillObject(Object obj, BindingPlan bindingPlan, Map<String, ?> mapArg, boolean ignoreCase)
+            throws ReflectiveOperationException {
+        for(Entry<String,?> argEntry : mapArg.entrySet()){
+            BindingPlan.FieldBinding fieldBinding = bindingPlan.findField(argEntry.getKey(), ignoreCase);
 
-                            //对于 目标对象类型为 Map 的属性进行处理,查找范型,并转换为范型定义的类型
-                            else if (isImpByInterface(fieldType, Map.class) && value instanceof Map) {
-                                value = getObjectFromMap(fieldGenericType, (Map<String,?>)value, ignoreCase);
-                            }
-                            //对于 目标对象类型为 Collection 的属性进行处理,查找范型,并转换为范型定义的类型
-                            else if (isImpByInterface(fieldType, Collection.class) && value instanceof Collection) {
-                                value = getObjectFromMap(fieldGenericType, TObject.asMap(SINGLE_VALUE_KEY, value), ignoreCase);
-                            }
-                            //对于 目标对象类型不是 Map,则认定为复杂类型
-                            else if (!isImpByInterface(fieldType, Map.class)) {
-                                if (value instanceof Map) {
-                                    value = getObjectFromMap(fieldType, (Map<String, ?>) value, ignoreCase);
-                                } else {
-                                    value = getObjectFromMap(fieldType, TObject.asMap(SINGLE_VALUE_KEY, value), ignoreCase);
-                                }
-                            }else{
-                                throw new ReflectiveOperationException("Conver field object error! Exception type: " +
-                                        fieldType.getName() +
-                                        ", Object type: "+
-                                        value.getClass().getName());
-                            }
+            if(fieldBinding==null || fieldBinding.isFinal) {
+                continue;
+            }
+
+            Object value = argEntry.getValue();
+            Class fieldType = fieldBinding.type;
+            try {
+                //value 和 fieldType class类型不同时，且　value 不为空时处理
+                if(value != null && fieldType != value.getClass()) {
+                    //通过 JSON 将,String类型的 value转换,将 String 转换成 Collection, Map 或者 复杂类型 对象作为参数
+                    if( value instanceof String && (fieldBinding.isMap || fieldBinding.isCollection || !fieldBinding.isBasic)){
+                        value = TString.toObject(value.toString(), fieldType);
+                    }
+
+                    //对于 目标对象类型为 Map 的属性进行处理,查找范型,并转换为范型定义的类型
+                    else if (fieldBinding.isMap && value instanceof Map) {
+                        value = getObjectFromMap(fieldBinding.genericType, (Map<String,?>)value, fieldBinding.genericClasses, ignoreCase);
+                    }
+                    //对于 目标对象类型为 Collection 的属性进行处理,查找范型,并转换为范型定义的类型
+                    else if (fieldBinding.isCollection && value instanceof Collection) {
+                        value = getObjectFromMap(fieldBinding.genericType, TObject.asMap(SINGLE_VALUE_KEY, value), fieldBinding.genericClasses, ignoreCase);
+                    }
+                    //对于 目标对象类型不是 Map,则认定为复杂类型
+                    else if (!fieldBinding.isMap) {
+                        if (value instanceof Map) {
+                            value = getObjectFromMap(fieldType, (Map<String, ?>) value, null, ignoreCase);
+                        } else {
+                            value = getObjectFromMap(fieldType, TObject.asMap(SINGLE_VALUE_KEY, value), null, ignoreCase);
                         }
-                        setFieldValue(obj, field, value);
-                    }catch(Exception e){
-                        throw new ReflectiveOperationException("Fill object " + getClassName(obj.getClass()) +
-                                Global.CHAR_SHAPE+fieldName+" failed", e);
+                    }else{
+                        throw new ReflectiveOperationException("Conver field object error! Exception type: " +
+                                fieldType.getName() +
+                                ", Object type: "+
+                                value.getClass().getName());
                     }
                 }
+                setFieldValue(obj, fieldBinding.field, value);
+            }catch(Exception e){
+                throw new ReflectiveOperationException("Fill object " + getClassName(obj.getClass()) +
+                        Global.CHAR_SHAPE+fieldBinding.name+" failed", e);
             }
         }
-        return obj;
     }
 
     /**
@@ -1539,43 +1345,24 @@ public class TReflect {
         }
         //复杂对象类型
         else {
-            Field[] fields =  TReflect.getFields(obj.getClass());
-            for(Field field : fields){
-                if(Modifier.isStatic(field.getModifiers())){
-                    continue;
-                }
-
-                //过滤不可序列化的字段
-                if (!allField) {
-                    if(field.isAnnotationPresent(NotSerialization.class)) {
-                        continue;
-                    }
-                }
-
-                if (Modifier.isTransient(field.getModifiers())) {
-                    continue;
-                }
-
-                String key = field.getName();
+            ClassAccessor classAccessor = CLASS_ACCESSORS.get(obj.getClass());
+            for(BindingPlan.FieldBinding fieldBinding : getBindingPlan(obj.getClass()).getMapFields(allField)){
+                String key = fieldBinding.name;
                 Object value = null;
                 try {
-                    value = getFieldValue(obj, key);
+                    //尝试 native 方法
+                    Function<Object, Object> getter = classAccessor == null ? null : classAccessor.getGetter(key);
+                    value = getter == null ? fieldBinding.field.get(obj) : getter.apply(obj);
                 } catch (Exception e) {
-                    e.printStackTrace();
+                    Logger.error("TReflect.getMapfromObject get field " + key + " failed", e);
                 }
 
                 if(value == null){
-                    //由于属性是按子类->父类顺序处理的, 所以如果子类和父类有重复属性, 则只在子类为空时用父类的属性覆盖
-                    if(mapResult.get(key) == null) {
-                        mapResult.put(key, value);
-                    }
-                }else if(!key.contains("$")){
+                    mapResult.put(key, null);
+                }else if(!fieldBinding.isSpecialName){
                     Class valueClass = value.getClass();
                     if(TReflect.isBasicType(valueClass)){
-                        //由于属性是按子类->父类顺序处理的, 所以如果子类和父类有重复属性, 则只在子类为空时用父类的属性覆盖
-                        if(mapResult.get(key) == null) {
-                            mapResult.put(key, value);
-                        }
+                        mapResult.put(key, value);
                     }else {
                         //如果是复杂类型则递归调用
                         Map resultMap = getMapfromObject(value, allField);
@@ -0,0 +1,852 @@
+package org.voovan.tools.serialize;
+
+import org.voovan.tools.FastThreadLocal;
+import org.voovan.tools.exception.SerializeException;
+import org.voovan.tools.reflect.ClassAccessor;
+import org.voovan.tools.reflect.TReflect;
+import org.voovan.tools.reflect.annotation.NotSerialization;
+import org.voovan.tools.security.THash;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 框架内的二进制序列化实现
+ *      数据格式: 4 字节的类型 hash + 带类型标记的值, 字节数组不包含类型 hash
+ *      整数和长度使用 Varint 编码, 有符号整数使用 ZigZag 编码, 类型使用 TSerialize 中注册的类型 hash
+ *      复杂对象的属性以 编号+值 的形式写入, 编号由属性名的 hash 生成, 与属性的声明顺序无关, 编号 0 表示对象结束,
+ *      读取时跳过不认识的编号, 新增、删除和调整属性的顺序都可以兼容旧的数据
+ *      写入时检查循环引用, 读取时长度前缀不能超过剩余的数据, 避免不可信的数据分配过大的数组
+ *
+ * @author helyho
+ *
+ * Voovan Framework.
+ * WebSite: https://github.com/helyho/Voovan
+ * Licence: Apache v2 License
+ */
+public class BinarySerialize implements Serialize {
+    private final static byte NULL              = 0;
+    private final static byte TRUE              = 1;
+    private final static byte FALSE             = 2;
+    private final static byte BYTE              = 3;
+    private final static byte SHORT             = 4;
+    private final static byte CHAR              = 5;
+    private final static byte INT               = 6;
+    private final static byte LONG              = 7;
+    private final static byte FLOAT             = 8;
+    private final static byte DOUBLE            = 9;
+    private final static byte STRING            = 10;
+    private final static byte BYTES             = 11;
+    private final static byte BIG_DECIMAL       = 12;
+    private final static byte BIG_INTEGER       = 13;
+    private final static byte DATE              = 14;
+    private final static byte ENUM              = 15;
+    private final static byte ARRAY             = 16;
+    private final static byte PRIMITIVE_ARRAY   = 17;
+    private final static byte COLLECTION        = 18;
+    private final static byte MAP               = 19;
+    private final static byte OBJECT            = 20;
+
+    //超过这个大小的线程缓冲区在使用后释放
+    private final static int MAX_CACHED_BUFFER_SIZE = 64 * 1024;
+
+    //读取时允许的最大嵌套层数
+    private final static int MAX_DEPTH = 512;
+
+    private final static FastThreadLocal<Output> THREAD_OUTPUT = FastThreadLocal.withInitial(() -> new Output());
+
+    private final static Map<Class, ClassPlan> CLASS_PLANS = new ConcurrentHashMap<Class, ClassPlan>();
+    private final static Map<Class, Supplier<Object>> CONTAINER_CONSTRUCTORS = new ConcurrentHashMap<Class, Supplier<Object>>();
+
+    @Override
+    public byte[] serialize(Object obj) {
+        //字节数组直接返回
+        if(obj instanceof byte[]) {
+            return (byte[])obj;
+        }
+
+        Output output = acquire();
+        try {
+            write(output, obj);
+            return Arrays.copyOf(output.buffer, output.position);
+        } finally {
+            release(output);
+        }
+    }
+
+    @Override
+    public void serialize(Object obj, OutputStream outputStream) throws IOException {
+        if(obj instanceof byte[]) {
+            outputStream.write((byte[])obj);
+            return;
+        }
+
+        Output output = acquire();
+        try {
+            write(output, obj);
+            outputStream.write(output.buffer, 0, output.position);
+        } finally {
+            release(output);
+        }
+    }
+
+    @Override
+    public int serialize(Object obj, ByteBuffer byteBuffer) {
+        if(obj instanceof byte[]) {
+            byteBuffer.put((byte[])obj);
+            return ((byte[])obj).length;
+        }
+
+        Output output = acquire();
+        try {
+            write(output, obj);
+            byteBuffer.put(output.buffer, 0, output.position);
+            return output.position;
+        } finally {
+            release(output);
+        }
+    }
+
+    @Override
+    public <T> T unserialize(byte[] bytes) {
+        return unserialize(bytes, 0, bytes.length);
+    }
+
+    @Override
+    public <T> T unserialize(byte[] bytes, int offset, int length) {
+        Class clazz = null;
+        try {
+            if (length >= 4) {
+                Input input = new Input(bytes, offset, offset + length);
+                clazz = TSerialize.getClassByHash(input.readFixedInt());
+                if (clazz != null) {
+                    return (T) readValue(input);
+                }
+            }
+        } catch (SerializeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new SerializeException("BinarySerialize.unserialize " + (clazz == null ? "" : clazz.getName()) + " failed", e);
+        }
+
+        //如果没有明确的类指示,则直接返回字节数组
+        return (T) (offset == 0 && length == bytes.length ? bytes : Arrays.copyOfRange(bytes, offset, offset + length));
+    }
+
+    private static Output acquire() {
+        Output output = THREAD_OUTPUT.get();
+        if(output.inUse) {
+            output = new Output();
+        }
+        output.inUse = true;
+        output.position = 0;
+        output.writing.clear();
+        return output;
+    }
+
+    private static void release(Output output) {
+        if(output.buffer.length > MAX_CACHED_BUFFER_SIZE) {
+            output.buffer = new byte[256];
+        }
+        output.writing.clear();
+        output.inUse = false;
+    }
+
+    private static void write(Output output, Object obj) {
+        try {
+            output.writeFixedInt(TSerialize.getHashByClass(obj.getClass()));
+            writeValue(output, obj);
+        } catch (SerializeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new SerializeException("BinarySerialize.serialize " + obj.getClass().getName() + " failed", e);
+        }
+    }
+
+    private static ClassPlan getClassPlan(Class clazz) {
+        ClassPlan classPlan = CLASS_PLANS.get(clazz);
+        if(classPlan == null) {
+            classPlan = CLASS_PLANS.computeIfAbsent(clazz, ClassPlan::new);
+        }
+        return classPlan;
+    }
+
+    private static void writeValue(Output output, Object obj) throws ReflectiveOperationException {
+        if(obj == null) {
+            output.writeByte(NULL);
+            return;
+        }
+
+        Class clazz = obj.getClass();
+        if(clazz == String.class) {
+            output.writeByte(STRING);
+            output.writeString((String) obj);
+        } else if(clazz == Integer.class) {
+            output.writeByte(INT);
+            output.writeSignedVarInt((Integer) obj);
+        } else if(clazz == Long.class) {
+            output.writeByte(LONG);
+            output.writeSignedVarLong((Long) obj);
+        } else if(clazz == Boolean.class) {
+            output.writeByte((Boolean) obj ? TRUE : FALSE);
+        } else if(clazz == Double.class) {
+            output.writeByte(DOUBLE);
+            output.writeFixedLong(Double.doubleToLongBits((Double) obj));
+        } else if(clazz == Float.class) {
+            output.writeByte(FLOAT);
+            output.writeFixedInt(Float.floatToIntBits((Float) obj));
+        } else if(clazz == Short.class) {
+            output.writeByte(SHORT);
+            output.writeSignedVarInt((Short) obj);
+        } else if(clazz == Byte.class) {
+            output.writeByte(BYTE);
+            output.writeByte((Byte) obj);
+        } else if(clazz == Character.class) {
+            output.writeByte(CHAR);
+            output.writeVarInt((Character) obj);
+        } else if(clazz == byte[].class) {
+            byte[] bytes = (byte[]) obj;
+            output.writeByte(BYTES);
+            output.writeVarInt(bytes.length);
+            output.writeBytes(bytes, 0, bytes.length);
+        } else if(clazz == BigDecimal.class) {
+            output.writeByte(BIG_DECIMAL);
+            output.writeString(obj.toString());
+        } else if(clazz == BigInteger.class) {
+            byte[] bytes = ((BigInteger) obj).toByteArray();
+            output.writeByte(BIG_INTEGER);
+            output.writeVarInt(bytes.length);
+            output.writeBytes(bytes, 0, bytes.length);
+        } else if(obj instanceof Date) {
+            output.writeByte(DATE);
+            output.writeFixedInt(TSerialize.getHashByClass(clazz));
+            output.writeSignedVarLong(((Date) obj).getTime());
+        } else if(obj instanceof Enum) {
+            output.writeByte(ENUM);
+            output.writeFixedInt(TSerialize.getHashByClass(((Enum) obj).getDeclaringClass()));
+            output.writeString(((Enum) obj).name());
+        } else if(clazz.isArray() && clazz.getComponentType().isPrimitive()) {
+            writeArray(output, obj, clazz.getComponentType());
+        } else {
+            //格式中没有对象引用, 循环引用的对象无法写入
+            if(!output.writing.add(obj)) {
+                throw new SerializeException("BinarySerialize found circular reference of " + clazz.getName());
+            }
+
+            try {
+                writeContainer(output, obj, clazz);
+            } finally {
+                output.writing.remove(obj);
+            }
+        }
+    }
+
+    private static void writeContainer(Output output, Object obj, Class clazz) throws ReflectiveOperationException {
+        if(clazz.isArray()) {
+            writeArray(output, obj, clazz.getComponentType());
+        } else if(obj instanceof Collection) {
+            Collection collection = (Collection) obj;
+            output.writeByte(COLLECTION);
+            output.writeFixedInt(TSerialize.getHashByClass(clazz));
+            output.writeVarInt(collection.size());
+            for(Object item : collection) {
+                writeValue(output, item);
+            }
+        } else if(obj instanceof Map) {
+            Map<?, ?> map = (Map) obj;
+            output.writeByte(MAP);
+            output.writeFixedInt(TSerialize.getHashByClass(clazz));
+            output.writeVarInt(map.size());
+            for(Map.Entry entry : map.entrySet()) {
+                writeValue(output, entry.getKey());
+                writeValue(output, entry.getValue());
+            }
+        } else {
+            output.writeByte(OBJECT);
+            output.writeFixedInt(TSerialize.getHashByClass(clazz));
+
+            ClassPlan classPlan = getClassPlan(clazz);
+            for(int i = 0; i < classPlan.fields.length; i++) {
+                Object value = classPlan.get(i, obj);
+                if(value != null) {
+                    output.writeVarInt(classPlan.tags[i]);
+                    writeValue(output, value);
+                }
+            }
+            output.writeVarInt(0);
+        }
+    }
+
+    private static void writeArray(Output output, Object array, Class componentType) throws ReflectiveOperationException {
+        int length = Array.getLength(array);
+
+        if(!componentType.isPrimitive()) {
+            output.writeByte(ARRAY);
+            output.writeFixedInt(TSerialize.getHashByClass(componentType));
+            output.writeVarInt(length);
+            Object[] objects = (Object[]) array;
+            for (Object item : objects) {
+                writeValue(output, item);
+            }
+            return;
+        }
+
+        output.writeByte(PRIMITIVE_ARRAY);
+        if(componentType == int.class) {
+            output.writeByte(INT);
+            output.writeVarInt(length);
+            for(int value : (int[]) array) {
+                output.writeSignedVarInt(value);
+            }
+        } else if(componentType == long.class) {
+            output.writeByte(LONG);
+            output.writeVarInt(length);
+            for(long value : (long[]) array) {
+                output.writeSignedVarLong(value);
+            }
+        } else if(componentType == double.class) {
+            output.writeByte(DOUBLE);
+            output.writeVarInt(length);
+            for(double value : (double[]) array) {
+                output.writeFixedLong(Double.doubleToLongBits(value));
+            }
+        } else if(componentType == float.class) {
+            output.writeByte(FLOAT);
+            output.writeVarInt(length);
+            for(float value : (float[]) array) {
+                output.writeFixedInt(Float.floatToIntBits(value));
+            }
+        } else if(componentType == short.class) {
+            output.writeByte(SHORT);
+            output.writeVarInt(length);
+            for(short value : (short[]) array) {
+                output.writeSignedVarInt(value);
+            }
+        } else if(componentType == char.class) {
+            output.writeByte(CHAR);
+            output.writeVarInt(length);
+            for(char value : (char[]) array) {
+                output.writeVarInt(value);
+            }
+        } else {
+            output.writeByte(TRUE);
+            output.writeVarInt(length);
+            for(boolean value : (boolean[]) array) {
+                output.writeByte(value ? 1 : 0);
+            }
+        }
+    }
+
+    private static Object readValue(Input input) throws ReflectiveOperationException {
+        byte type = input.readByte();
+        if(type >= ARRAY) {
+            if(++input.depth > MAX_DEPTH) {
+                throw new SerializeException("BinarySerialize nesting exceeds " + MAX_DEPTH + " at " + input.position);
+            }
+
+            try {
+                return readContainer(input, type);
+            } finally {
+                input.depth--;
+            }
+        }
+
+        switch (type) {
+            case NULL:          return null;
+            case TRUE:          return Boolean.TRUE;
+            case FALSE:         return Boolean.FALSE;
+            case BYTE:          return input.readByte();
+            case SHORT:         return (short) input.readSignedVarInt();
+            case CHAR:          return (char) input.readVarInt();
+            case INT:           return input.readSignedVarInt();
+            case LONG:          return input.readSignedVarLong();
+            case FLOAT:         return Float.intBitsToFloat(input.readFixedInt());
+            case DOUBLE:        return Double.longBitsToDouble(input.readFixedLong());
+            case STRING:        return input.readString();
+            case BYTES:         return input.readBytes(input.readLength(1));
+            case BIG_DECIMAL:   return new BigDecimal(input.readString());
+            case BIG_INTEGER:   return new BigInteger(input.readBytes(input.readLength(1)));
+            case DATE: {
+                Class clazz = TSerialize.getClassByHash(input.readFixedInt());
+                long time = input.readSignedVarLong();
+                return clazz == null || clazz == Date.class ? new Date(time) : TReflect.newInstance(clazz, time);
+            }
+            case ENUM: {
+                Class clazz = TSerialize.getClassByHash(input.readFixedInt());
+                String name = input.readString();
+                return clazz == null ? null : Enum.valueOf(clazz, name);
+            }
+            default:
+                throw new SerializeException("BinarySerialize unknown type " + type + " at " + (input.position - 1));
+        }
+    }
+
+    private static Object readContainer(Input input, byte type) throws ReflectiveOperationException {
+        switch (type) {
+            case ARRAY: {
+                Class componentType = TSerialize.getClassByHash(input.readFixedInt());
+                int length = input.readLength(1);
+                Object[] array = (Object[]) Array.newInstance(componentType == null ? Object.class : componentType, length);
+                for(int i = 0; i < length; i++) {
+                    array[i] = readValue(input);
+                }
+                return array;
+            }
+            case PRIMITIVE_ARRAY:   return readPrimitiveArray(input);
+            case COLLECTION: {
+                Class clazz = TSerialize.getClassByHash(input.readFixedInt());
+                int size = input.readLength(1);
+                Collection collection = (Collection) newContainer(clazz, Set.class.isAssignableFrom(clazz == null ? Object.class : clazz) ? LinkedHashSet.class : ArrayList.class);
+                for(int i = 0; i < size; i++) {
+                    collection.add(readValue(input));
+                }
+                return collection;
+            }
+            case MAP: {
+                Class clazz = TSerialize.getClassByHash(input.readFixedInt());
+                int size = input.readLength(2);
+                Map map = (Map) newContainer(clazz, LinkedHashMap.class);
+                for(int i = 0; i < size; i++) {
+                    map.put(readValue(input), readValue(input));
+                }
+                return map;
+            }
+            case OBJECT: {
+                Class clazz = TSerialize.getClassByHash(input.readFixedInt());
+                ClassPlan classPlan = clazz == null ? null : getClassPlan(clazz);
+                Object obj = classPlan == null ? null : classPlan.newInstance();
+
+                int tag;
+                int index = 0;
+                while((tag = input.readVarInt()) != 0) {
+                    Object value = readValue(input);
+                    //不认识的属性编号直接跳过
+                    index = obj == null ? -1 : classPlan.indexOf(tag, index);
+                    if(index >= 0) {
+                        classPlan.set(index, obj, value);
+                        index++;
+                    } else {
+                        index = 0;
+                    }
+                }
+                return obj;
+            }
+            default:
+                throw new SerializeException("BinarySerialize unknown type " + type + " at " + (input.position - 1));
+        }
+    }
+
+    private static Object readPrimitiveArray(Input input) {
+        byte componentType = input.readByte();
+        int length = input.readLength(componentType == DOUBLE ? 8 : componentType == FLOAT ? 4 : 1);
+        switch (componentType) {
+            case INT: {
+                int[] array = new int[length];
+                for(int i = 0; i < length; i++) {
+                    array[i] = input.readSignedVarInt();
+                }
+                return array;
+            }
+            case LONG: {
+                long[] array = new long[length];
+                for(int i = 0; i < length; i++) {
+                    array[i] = input.readSignedVarLong();
+                }
+                return array;
+            }
+            case DOUBLE: {
+                double[] array = new double[length];
+                for(int i = 0; i < length; i++) {
+                    array[i] = Double.longBitsToDouble(input.readFixedLong());
+                }
+                return array;
+            }
+            case FLOAT: {
+                float[] array = new float[length];
+                for(int i = 0; i < length; i++) {
+                    array[i] = Float.intBitsToFloat(input.readFixedInt());
+                }
+                return array;
+            }
+            case SHORT: {
+                short[] array = new short[length];
+                for(int i = 0; i < length; i++) {
+                    array[i] = (short) input.readSignedVarInt();
+                }
+                return array;
+            }
+            case CHAR: {
+                char[] array = new char[length];
+                for(int i = 0; i < length; i++) {
+                    array[i] = (char) input.readVarInt();
+                }
+                return array;
+            }
+            case TRUE: {
+                boolean[] array = new boolean[length];
+                for(int i = 0; i < length; i++) {
+                    array[i] = input.readByte() != 0;
+                }
+                return array;
+            }
+            default:
+                throw new SerializeException("BinarySerialize unknown primitive array type " + componentType);
+        }
+    }
+
+    /**
+     * 构造集合或 Map, 没有可用的无参构造方法的类型(例如不可变集合)使用默认类型
+     */
+    private static Object newContainer(Class clazz, Class defaultClazz) throws ReflectiveOperationException {
+        Object container = clazz == null ? null : CONTAINER_CONSTRUCTORS.computeIfAbsent(clazz, BinarySerialize::containerConstructor).get();
+        return container == null ? TReflect.newInstance(defaultClazz) : container;
+    }
+
+    /**
+     * 集合和 Map 只需要 public 的无参构造方法, 不构造 ClassPlan, 避免访问 JDK 集合类的私有属性
+     * @param clazz 集合或 Map 的类型
+     * @return 构造方法, 不可用时返回 null 的 Supplier
+     */
+    private static Supplier<Object> containerConstructor(Class clazz) {
+        try {
+            if(Modifier.isPublic(clazz.getModifiers()) && !Modifier.isAbstract(clazz.getModifiers())) {
+                Constructor constructor = clazz.getConstructor();
+                return () -> {
+                    try {
+                        return constructor.newInstance();
+                    } catch (ReflectiveOperationException e) {
+                        return null;
+                    }
+                };
+            }
+        } catch (NoSuchMethodException | SecurityException e) {
+            //没有 public 的无参构造方法
+        }
+        return () -> null;
+    }
+
+    /**
+     * 类的序列化计划
+     *      属性的编号由属性名的 hash 生成, 被子类同名属性覆盖的父类属性使用 类名.属性名 生成, 读取优先使用 ClassAccessor 生成的 getter
+     */
+    private static class ClassPlan {
+        private final Class clazz;
+        private final Field[] fields;
+        private final int[] tags;
+        private final Function<Object, Object>[] getters;
+        private final Supplier<Object> constructor;
+
+        private ClassPlan(Class clazz) {
+            this.clazz = clazz;
+
+            List<Class> hierarchy = new ArrayList<Class>();
+            for(Class loopClazz = clazz; loopClazz != null && loopClazz != Object.class; loopClazz = loopClazz.getSuperclass()) {
+                hierarchy.add(0, loopClazz);
+            }
+
+            List<Field> fieldList = new ArrayList<Field>();
+            for(Class loopClazz : hierarchy) {
+                for(Field field : loopClazz.getDeclaredFields()) {
+                    int modifiers = field.getModifiers();
+                    if(Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) ||
+                            field.isSynthetic() || field.isAnnotationPresent(NotSerialization.class)) {
+                        continue;
+                    }
+                    field.setAccessible(true);
+                    fieldList.add(field);
+                }
+            }
+            fields = fieldList.toArray(new Field[0]);
+
+            tags = new int[fields.length];
+            for(int i = 0; i < fields.length; i++) {
+                String name = fields[i].getName();
+                String tagName = fields[i].equals(TReflect.findField(clazz, name)) ? name : fields[i].getDeclaringClass().getName() + "." + name;
+                //限制在 4 字节的 Varint 内, 0 表示对象结束
+                int tag = THash.HashFNV1(tagName) & 0x0FFFFFFF;
+                tags[i] = tag == 0 ? 1 : tag;
+
+                for(int j = 0; j < i; j++) {
+                    if(tags[j] == tags[i]) {
+                        throw new SerializeException("BinarySerialize field tag of " + clazz.getName() + "." + name + " conflicts with " + fields[j].getName());
+                    }
+                }
+            }
+
+            //只需要属性的访问器, 无法创建时使用 Field 读取
+            ClassAccessor classAccessor = null;
+            if(!clazz.isInterface() && !clazz.isArray() && !clazz.isPrimitive()) {
+                try {
+                    classAccessor = TReflect.getClassAccessor(clazz);
+                    classAccessor = classAccessor == null ? ClassAccessor.createFieldAccessor(clazz) : classAccessor;
+                } catch (Exception e) {
+                    classAccessor = null;
+                }
+            }
+
+            getters = new Function[fields.length];
+            for(int i = 0; i < fields.length; i++) {
+                //同名属性只有子类的属性使用 getter
+                if(classAccessor != null && fields[i].equals(TReflect.findField(clazz, fields[i].getName()))) {
+                    getters[i] = classAccessor.getGetter(fields[i].getName());
+                }
+            }
+
+            Supplier<Object> defaultConstructor = null;
+            if(classAccessor != null && hasDefaultConstructor(clazz)) {
+                defaultConstructor = classAccessor.getDefaultConstructor();
+            }
+            constructor = defaultConstructor;
+        }
+
+        private static boolean hasDefaultConstructor(Class clazz) {
+            for(Constructor constructor : TReflect.getConstructors(clazz)) {
+                if(constructor.getParameterCount() == 0 && !Modifier.isPrivate(constructor.getModifiers())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private Object newInstance() throws ReflectiveOperationException {
+            //没有无参构造方法的类和 ProtoStuff 一样直接分配对象
+            return constructor == null ? TReflect.allocateInstance(clazz) : constructor.get();
+        }
+
+        /**
+         * 查找编号对应的属性
+         * @param tag 属性编号
+         * @param hint 预期的位置, 按写入的顺序读取时一般直接命中
+         * @return 属性的位置, 不认识的编号返回 -1
+         */
+        private int indexOf(int tag, int hint) {
+            if(hint < tags.length && tags[hint] == tag) {
+                return hint;
+            }
+
+            for(int i = 0; i < tags.length; i++) {
+                if(tags[i] == tag) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private Object get(int index, Object obj) throws ReflectiveOperationException {
+            Function<Object, Object> getter = getters[index];
+            return getter == null ? fields[index].get(obj) : getter.apply(obj);
+        }
+
+        private void set(int index, Object obj, Object value) throws ReflectiveOperationException {
+            Field field = fields[index];
+            if(value == null && field.getType().isPrimitive()) {
+                return;
+            }
+            field.set(obj, value);
+        }
+    }
+
+    /**
+     * 写入的缓冲区
+     */
+    private static class Output {
+        private byte[] buffer = new byte[256];
+        private int position = 0;
+        private boolean inUse = false;
+        //正在写入的对象, 用于检查循环引用
+        private final Set<Object> writing = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+
+        private void ensure(int size) {
+            if(position + size > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + size));
+            }
+        }
+
+        private void writeByte(int value) {
+            ensure(1);
+            buffer[position++] = (byte) value;
+        }
+
+        private void writeBytes(byte[] bytes, int offset, int length) {
+            ensure(length);
+            System.arraycopy(bytes, offset, buffer, position, length);
+            position += length;
+        }
+
+        private void writeVarInt(int value) {
+            ensure(5);
+            while((value & ~0x7F) != 0) {
+                buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        private void writeVarLong(long value) {
+            ensure(10);
+            while((value & ~0x7FL) != 0) {
+                buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        private void writeSignedVarInt(int value) {
+            writeVarInt((value << 1) ^ (value >> 31));
+        }
+
+        private void writeSignedVarLong(long value) {
+            writeVarLong((value << 1) ^ (value >> 63));
+        }
+
+        private void writeFixedInt(int value) {
+            ensure(4);
+            buffer[position++] = (byte) value;
+            buffer[position++] = (byte) (value >> 8);
+            buffer[position++] = (byte) (value >> 16);
+            buffer[position++] = (byte) (value >> 24);
+        }
+
+        private void writeFixedLong(long value) {
+            writeFixedInt((int) value);
+            writeFixedInt((int) (value >> 32));
+        }
+
+        private void writeString(String value) {
+            int length = value.length();
+
+            //ASCII 字符串直接写入, 不需要编码
+            boolean ascii = true;
+            for(int i = 0; i < length; i++) {
+                if(value.charAt(i) >= 0x80) {
+                    ascii = false;
+                    break;
+                }
+            }
+
+            if(ascii) {
+                writeVarInt(length);
+                ensure(length);
+                for(int i = 0; i < length; i++) {
+                    buffer[position++] = (byte) value.charAt(i);
+                }
+            } else {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                writeVarInt(bytes.length);
+                writeBytes(bytes, 0, bytes.length);
+            }
+        }
+    }
+
+    /**
+     * 读取的数据
+     */
+    private static class Input {
+        private final byte[] bytes;
+        private int position;
+        private final int limit;
+        private int depth = 0;
+
+        private Input(byte[] bytes, int offset, int limit) {
+            this.bytes = bytes;
+            this.position = offset;
+            this.limit = limit;
+        }
+
+        private void check(int size) {
+            if(position + size > limit) {
+                throw new SerializeException("BinarySerialize unexpected end of data at " + position);
+            }
+        }
+
+        private byte readByte() {
+            check(1);
+            return bytes[position++];
+        }
+
+        /**
+         * 读取长度前缀, 长度不能超过剩余的数据能容纳的元素数量
+         * @param elementSize 每个元素最少占用的字节数
+         * @return 长度
+         */
+        private int readLength(int elementSize) {
+            int length = readVarInt();
+            if(length < 0 || length > (limit - position) / elementSize) {
+                throw new SerializeException("BinarySerialize invalid length " + length + " at " + position);
+            }
+            return length;
+        }
+
+        private byte[] readBytes(int length) {
+            check(length);
+            byte[] result = Arrays.copyOfRange(bytes, position, position + length);
+            position += length;
+            return result;
+        }
+
+        private int readVarInt() {
+            int value = 0;
+            for(int shift = 0; shift < 32; shift += 7) {
+                byte b = readByte();
+                value |= (b & 0x7F) << shift;
+                if((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new SerializeException("BinarySerialize malformed varint at " + position);
+        }
+
+        private long readVarLong() {
+            long value = 0;
+            for(int shift = 0; shift < 64; shift += 7) {
+                byte b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new SerializeException("BinarySerialize malformed varint at " + position);
+        }
+
+        private int readSignedVarInt() {
+            int value = readVarInt();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        private long readSignedVarLong() {
+            long value = readVarLong();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        private int readFixedInt() {
+            check(4);
+            int value = (bytes[position] & 0xff) | (bytes[position + 1] & 0xff) << 8 |
+                    (bytes[position + 2] & 0xff) << 16 | (bytes[position + 3] & 0xff) << 24;
+            position += 4;
+            return value;
+        }
+
+        private long readFixedLong() {
+            return (readFixedInt() & 0xffffffffL) | ((long) readFixedInt() << 32);
+        }
+
+        private String readString() {
+            int length = readLength(1);
+            String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+    }
+}
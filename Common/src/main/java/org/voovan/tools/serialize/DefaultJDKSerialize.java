@@ -3,6 +3,7 @@ package org.voovan.tools.serialize;
 import org.voovan.tools.log.Logger;
 
 import java.io.*;
+import java.nio.ByteBuffer;
 
 /**
  * 默认 JDK 序列化的实现
@@ -52,13 +53,35 @@ public class DefaultJDKSerialize implements Serialize {
         return result;
     }
 
+    @Override
+    public void serialize(Object obj, OutputStream outputStream) throws IOException {
+        if(!(obj instanceof Serializable)){
+            throw new IllegalArgumentException("object must be implement Serializable");
+        }
+
+        //不关闭 ObjectOutputStream, 避免关闭调用方的输出流
+        ObjectOutputStream objectOutputStream = new ObjectOutputStream(outputStream);
+        objectOutputStream.writeObject(obj);
+        objectOutputStream.flush();
+    }
+
+    @Override
+    public int serialize(Object obj, ByteBuffer byteBuffer) {
+        return TSerialize.serializeByStream(this, obj, byteBuffer);
+    }
+
     @Override
     public <T> T unserialize(byte[] bytes) {
+        return unserialize(bytes, 0, bytes.length);
+    }
+
+    @Override
+    public <T> T unserialize(byte[] bytes, int offset, int length) {
         ByteArrayInputStream byteArrayInputStream = null;
 
         Object result = null;
         try {
-            byteArrayInputStream = new ByteArrayInputStream(bytes);
+            byteArrayInputStream = new ByteArrayInputStream(bytes, offset, length);
             ObjectInputStream ois = new ObjectInputStream(byteArrayInputStream);
             result = ois.readObject();
         } catch (Exception e){
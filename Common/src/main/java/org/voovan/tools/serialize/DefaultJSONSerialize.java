@@ -6,6 +6,9 @@ import org.voovan.tools.json.JSONPath;
 import org.voovan.tools.log.Logger;
 import org.voovan.tools.reflect.TReflect;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.Map;
 
@@ -18,39 +21,64 @@ import java.util.Map;
  * Licence: Apache v2 License
  */
 public class DefaultJSONSerialize implements Serialize {
-    @Override
-    public byte[] serialize(Object obj) {
-        try{
-            Class clazz = obj.getClass();
-            Class[] genericClazzs = TReflect.getGenericClass(obj);
-
-            Integer[] genericClazzsHash = null;
-            if(genericClazzs!=null) {
-                genericClazzsHash = new Integer[genericClazzs.length];
-                for (int i = 0; i < genericClazzs.length; i++) {
-                    genericClazzsHash[i] = TSerialize.getHashByClass(genericClazzs[i]);
-                }
-            }
-            Map result = TObject.asMap("T", TSerialize.getHashByClass(clazz), "V", obj);
+    /**
+     * 构造包含类型 hash 和范型 hash 的 Map
+     * @param obj 待序列化的对象
+     * @return 序列化使用的 Map
+     */
+    private Map wrap(Object obj) {
+        Class clazz = obj.getClass();
+        Class[] genericClazzs = TReflect.getGenericClass(obj);
 
-            if(genericClazzsHash!=null) {
-                result.put("G", genericClazzsHash);
+        Integer[] genericClazzsHash = null;
+        if(genericClazzs!=null) {
+            genericClazzsHash = new Integer[genericClazzs.length];
+            for (int i = 0; i < genericClazzs.length; i++) {
+                genericClazzsHash[i] = TSerialize.getHashByClass(genericClazzs[i]);
             }
+        }
+        Map result = TObject.asMap("T", TSerialize.getHashByClass(clazz), "V", obj);
 
-            return JSON.toJSON(result).getBytes();
+        if(genericClazzsHash!=null) {
+            result.put("G", genericClazzsHash);
+        }
+
+        return result;
+    }
+
+    @Override
+    public byte[] serialize(Object obj) {
+        try{
+            return JSON.toJSON(wrap(obj)).getBytes();
         } catch (Exception e){
             Logger.error("TSerialize.serializeJDK error: ", e);
             return null;
         }
     }
 
+    @Override
+    public void serialize(Object obj, OutputStream outputStream) throws IOException {
+        //直接以 UTF-8 编码写入输出流, 不生成中间的 JSON 字符串
+        JSON.toJSON(wrap(obj), outputStream);
+    }
+
+    @Override
+    public int serialize(Object obj, ByteBuffer byteBuffer) {
+        return TSerialize.serializeByStream(this, obj, byteBuffer);
+    }
+
     @Override
     public <T> T unserialize(byte[] bytes) {
+        return unserialize(bytes, 0, bytes.length);
+    }
+
+    @Override
+    public <T> T unserialize(byte[] bytes, int offset, int length) {
         try {
 
             Class mainClazz = null;
 
-            JSONPath jsonPath = new JSONPath(new String(bytes));
+            JSONPath jsonPath = new JSONPath(new String(bytes, offset, length));
 
             mainClazz = TSerialize.getClassByHash(jsonPath.value("/T", Integer.class));
             List<Integer> genericClazzStrs = jsonPath.listObject("/G", Integer.class);
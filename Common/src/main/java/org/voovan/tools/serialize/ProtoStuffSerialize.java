@@ -5,15 +5,21 @@ import io.protostuff.ProtostuffIOUtil;
 import io.protostuff.Schema;
 import io.protostuff.runtime.RuntimeSchema;
 import org.voovan.tools.TByte;
+import org.voovan.tools.buffer.ByteBufferOutputStream;
 import org.voovan.tools.collection.ObjectThreadPool;
+import org.voovan.tools.exception.SerializeException;
 import org.voovan.tools.reflect.TReflect;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * ProtoStuff 的序列化实现
+ *      数据格式: 4 字节的类型 hash + ProtoStuff 数据, 字节数组不包含类型 hash
  *
  * @author: helyho
  * ignite-test Framework.
@@ -29,12 +35,24 @@ public class ProtoStuffSerialize implements Serialize {
     public Schema getSchema(Class clazz) {
         Schema schema = SCHEMAS.get(clazz);
         if(schema == null) {
-            schema = RuntimeSchema.getSchema(clazz);
+            schema = SCHEMAS.computeIfAbsent(clazz, RuntimeSchema::getSchema);
         }
 
         return schema;
     }
 
+    private static void writeHeader(byte[] bytes, int offset, int hashcode) {
+        bytes[offset]     = (byte) (hashcode & 0xff);
+        bytes[offset + 1] = (byte) ((hashcode >> 8) & 0xff);
+        bytes[offset + 2] = (byte) ((hashcode >> 16) & 0xff);
+        bytes[offset + 3] = (byte) ((hashcode >> 24) & 0xff);
+    }
+
+    private static int readHeader(byte[] bytes, int offset) {
+        return (0xff & bytes[offset]) | (0xff00 & (bytes[offset + 1] << 8)) |
+                (0xff0000 & (bytes[offset + 2] << 16)) | (0xff000000 & (bytes[offset + 3] << 24));
+    }
+
     @Override
     public byte[] serialize(Object obj) {
         //字节数组直接返回
@@ -42,49 +60,96 @@ public class ProtoStuffSerialize implements Serialize {
             return (byte[])obj;
         }
 
-        byte[] buf = null;
-        buf = TByte.toBytes(obj);
-        if(buf==null) {
-            Schema schema = getSchema(obj.getClass());
-            LinkedBuffer buffer =objectThreadPool.get(()->LinkedBuffer.allocate(512));
-            try {
-                buf = ProtostuffIOUtil.toByteArray(obj, schema, buffer);
-            } finally {
-                buffer.clear();
-            }
+        int hashcode = TSerialize.getHashByClass(obj.getClass());
+
+        byte[] buf = TByte.toBytes(obj);
+        if(buf != null) {
+            byte[] result = new byte[buf.length + 4];
+            writeHeader(result, 0, hashcode);
+            System.arraycopy(buf, 0, result, 4, buf.length);
+            return result;
         }
 
-        byte[] type = TByte.getBytes(TSerialize.getHashByClass(obj.getClass()));
-        buf = TByte.byteArrayConcat(type, type.length, buf, buf.length);
+        Schema schema = getSchema(obj.getClass());
+        LinkedBuffer buffer = objectThreadPool.get(()->LinkedBuffer.allocate(512));
+        try {
+            //先写入 LinkedBuffer 获得长度, 再一次性复制到包含类型头的结果中
+            int size = ProtostuffIOUtil.writeTo(buffer, obj, schema);
+            byte[] result = new byte[size + 4];
+            writeHeader(result, 0, hashcode);
+            LinkedBuffer.writeTo(new ByteBufferOutputStream(ByteBuffer.wrap(result, 4, size)), buffer);
+            return result;
+        } catch (IOException e) {
+            throw new SerializeException("ProtoStuffSerialize.serialize failed", e);
+        } finally {
+            buffer.clear();
+        }
+    }
+
+    @Override
+    public void serialize(Object obj, OutputStream outputStream) throws IOException {
+        //字节数组直接写入
+        if(obj instanceof byte[]) {
+            outputStream.write((byte[])obj);
+            return;
+        }
 
-        return buf;
+        byte[] header = new byte[4];
+        writeHeader(header, 0, TSerialize.getHashByClass(obj.getClass()));
+        outputStream.write(header);
+
+        byte[] buf = TByte.toBytes(obj);
+        if(buf != null) {
+            outputStream.write(buf);
+            return;
+        }
+
+        Schema schema = getSchema(obj.getClass());
+        LinkedBuffer buffer = objectThreadPool.get(()->LinkedBuffer.allocate(512));
+        try {
+            ProtostuffIOUtil.writeTo(outputStream, obj, schema, buffer);
+        } finally {
+            buffer.clear();
+        }
+    }
+
+    @Override
+    public int serialize(Object obj, ByteBuffer byteBuffer) {
+        return TSerialize.serializeByStream(this, obj, byteBuffer);
     }
 
     @Override
     public <T> T unserialize(byte[] bytes) {
+        return unserialize(bytes, 0, bytes.length);
+    }
+
+    @Override
+    public <T> T unserialize(byte[] bytes, int offset, int length) {
         try {
             Integer hashcode = null;
-            if(bytes.length >= 4) {
-                hashcode = TByte.getInt(bytes);
+            if(length >= 4) {
+                hashcode = readHeader(bytes, offset);
             }
 
             Class innerClazz = hashcode==null ? null : TSerialize.getClassByHash(hashcode);
 
             //如果没有明确的类指示,则直接返回字节数组
             if(innerClazz != null) {
-                byte[] valueBytes = Arrays.copyOfRange(bytes, 4, bytes.length);
+                Object obj = null;
 
-                Object obj = TByte.toObject(valueBytes, innerClazz);
+                if (TReflect.isBasicType(innerClazz) || innerClazz == byte[].class) {
+                    obj = TByte.toObject(Arrays.copyOfRange(bytes, offset + 4, offset + length), innerClazz);
+                }
 
                 if (obj == null) {
                     Schema schema = getSchema(innerClazz);
                     obj = TReflect.newInstance(innerClazz);
-                    ProtostuffIOUtil.mergeFrom(valueBytes, 0, valueBytes.length, obj, schema);
+                    ProtostuffIOUtil.mergeFrom(bytes, offset + 4, length - 4, obj, schema);
                 }
 
                 return (T) obj;
             } else {
-                return (T) bytes;
+                return (T) (offset == 0 && length == bytes.length ? bytes : Arrays.copyOfRange(bytes, offset, offset + length));
             }
         } catch (Exception e) {
             e.printStackTrace();
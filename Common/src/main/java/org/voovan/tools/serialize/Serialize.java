@@ -1,7 +1,14 @@
 package org.voovan.tools.serialize;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
 /**
  * 序列化实现接口
+ *      byte[] 形式的方法必须实现, ByteBuffer 和 OutputStream 形式的方法默认委托给 byte[] 形式的方法,
+ *      实现类可以覆盖这些方法直接在目标中写入类型头和数据, 避免中间的字节数组复制
  *
  * @author: helyho
  * DBase Framework.
@@ -18,4 +25,69 @@ public interface Serialize {
      * @return 反序列化后的目标对象
      */
      public <T> T unserialize(byte[] bytes);
+
+    /**
+     * 序列化对象并写入输出流
+     * @param obj 待序列化的对象
+     * @param outputStream 输出流
+     * @throws IOException IO 异常
+     */
+    public default void serialize(Object obj, OutputStream outputStream) throws IOException {
+        byte[] bytes = serialize(obj);
+        if(bytes != null) {
+            outputStream.write(bytes);
+        }
+    }
+
+    /**
+     * 序列化对象并从 ByteBuffer 的 position 开始写入, 写入后 position 后移
+     * @param obj 待序列化的对象
+     * @param byteBuffer 写入的 ByteBuffer, 空间不足时抛出 BufferOverflowException
+     * @return 写入的字节数
+     */
+    public default int serialize(Object obj, ByteBuffer byteBuffer) {
+        byte[] bytes = serialize(obj);
+        if(bytes == null) {
+            return 0;
+        }
+
+        byteBuffer.put(bytes);
+        return bytes.length;
+    }
+
+    /**
+     * 反序列化字节数组中的一段数据
+     * @param <T> 范型类型
+     * @param bytes 字节数组
+     * @param offset 数据的起始位置
+     * @param length 数据的长度
+     * @return 反序列化后的目标对象
+     */
+    public default <T> T unserialize(byte[] bytes, int offset, int length) {
+        if(offset == 0 && length == bytes.length) {
+            return unserialize(bytes);
+        }
+
+        return unserialize(Arrays.copyOfRange(bytes, offset, offset + length));
+    }
+
+    /**
+     * 反序列化 ByteBuffer 中的一段数据, 不改变 ByteBuffer 的 position
+     * @param <T> 范型类型
+     * @param byteBuffer ByteBuffer 对象
+     * @param offset 数据在 ByteBuffer 中的绝对位置
+     * @param length 数据的长度
+     * @return 反序列化后的目标对象
+     */
+    public default <T> T unserialize(ByteBuffer byteBuffer, int offset, int length) {
+        if(byteBuffer.hasArray()) {
+            return unserialize(byteBuffer.array(), byteBuffer.arrayOffset() + offset, length);
+        }
+
+        byte[] bytes = new byte[length];
+        ByteBuffer duplicate = byteBuffer.duplicate();
+        duplicate.limit(offset + length).position(offset);
+        duplicate.get(bytes);
+        return unserialize(bytes);
+    }
 }
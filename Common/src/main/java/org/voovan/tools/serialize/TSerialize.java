@@ -1,11 +1,15 @@
 package org.voovan.tools.serialize;
 
 import org.voovan.tools.TProperties;
+import org.voovan.tools.buffer.ByteBufferOutputStream;
 import org.voovan.tools.exception.SerializeException;
 import org.voovan.tools.log.Logger;
 import org.voovan.tools.reflect.TReflect;
 import org.voovan.tools.security.THash;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -27,6 +31,8 @@ public class TSerialize {
             serializeType = "org.voovan.tools.serialize.DefaultJDKSerialize";
         } else if("ProtoStuff".equalsIgnoreCase(serializeType.trim())){
             serializeType = "org.voovan.tools.serialize.ProtoStuffSerialize";
+        } else if("Binary".equalsIgnoreCase(serializeType.trim())){
+            serializeType = "org.voovan.tools.serialize.BinarySerialize";
         } else if(serializeType == null){
             serializeType = "org.voovan.tools.serialize.DefaultJDKSerialize";
         }
@@ -60,6 +66,65 @@ public class TSerialize {
         return bytes == null ? null : SERIALIZE.unserialize(bytes);
     }
 
+    /**
+     * 序列化对象并写入输出流
+     * @param object 待序列化的对象
+     * @param outputStream 输出流
+     * @throws IOException IO 异常
+     */
+    public static void serialize(Object object, OutputStream outputStream) throws IOException {
+        if(object != null) {
+            SERIALIZE.serialize(object, outputStream);
+        }
+    }
+
+    /**
+     * 序列化对象并从 ByteBuffer 的 position 开始写入
+     * @param object 待序列化的对象
+     * @param byteBuffer 写入的 ByteBuffer
+     * @return 写入的字节数
+     */
+    public static int serialize(Object object, ByteBuffer byteBuffer) {
+        return object == null ? 0 : SERIALIZE.serialize(object, byteBuffer);
+    }
+
+    /**
+     * 反序列化字节数组中的一段数据
+     * @param bytes 字节数组
+     * @param offset 数据的起始位置
+     * @param length 数据的长度
+     * @return 反序列化的对象
+     */
+    public static Object unserialize(byte[] bytes, int offset, int length){
+        return bytes == null ? null : SERIALIZE.unserialize(bytes, offset, length);
+    }
+
+    /**
+     * 反序列化 ByteBuffer 中 position 到 limit 之间的数据, 不改变 ByteBuffer 的 position
+     * @param byteBuffer ByteBuffer 对象
+     * @return 反序列化的对象
+     */
+    public static Object unserialize(ByteBuffer byteBuffer){
+        return byteBuffer == null ? null : SERIALIZE.unserialize(byteBuffer, byteBuffer.position(), byteBuffer.remaining());
+    }
+
+    /**
+     * 通过输出流形式的序列化方法直接写入 ByteBuffer
+     * @param serialize 序列化实现
+     * @param object 待序列化的对象
+     * @param byteBuffer 写入的 ByteBuffer
+     * @return 写入的字节数
+     */
+    static int serializeByStream(Serialize serialize, Object object, ByteBuffer byteBuffer) {
+        int position = byteBuffer.position();
+        try {
+            serialize.serialize(object, new ByteBufferOutputStream(byteBuffer));
+        } catch (IOException e) {
+            throw new SerializeException("TSerialize.serialize to ByteBuffer failed", e);
+        }
+        return byteBuffer.position() - position;
+    }
+
     static ConcurrentHashMap<Class, Integer> CLASS_AND_HASH = new ConcurrentHashMap<Class, Integer>();
     static ConcurrentHashMap<Integer, Class> HASH_AND_CLASS = new ConcurrentHashMap<Integer, Class>();
 
@@ -80,16 +145,12 @@ public class TSerialize {
      * @param clazz 类对象
      */
     public static void register(Integer code, Class clazz){
-        if(HASH_AND_CLASS.contains(code)) {
-            throw new RuntimeException("simple name is exists");
-        }
-
-        if(HASH_AND_CLASS.containsKey(code) && !CLASS_AND_HASH.containsKey(clazz)) {
+        Class registeredClazz = HASH_AND_CLASS.putIfAbsent(code, clazz);
+        if(registeredClazz != null && registeredClazz != clazz) {
             throw new SerializeException("TSerialize.registerClassWithSimpleName failed, because class or simplename is registerd");
-        } else {
-            CLASS_AND_HASH.put(clazz, code);
-            HASH_AND_CLASS.put(code, clazz);
         }
+
+        CLASS_AND_HASH.put(clazz, code);
     }
 
     static {
@@ -120,14 +181,30 @@ public class TSerialize {
         }
     }
 
-    protected static synchronized Integer getHashByClass(Class clazz){
-       Integer hashcode = CLASS_AND_HASH.get(clazz);
+    /**
+     * 获取类的 hash, 类没有注册时自动注册
+     *      已注册的类直接读取, 未注册的类通过 computeIfAbsent 注册, 不需要全局锁
+     * @param clazz 类对象
+     * @return 类的 hash
+     */
+    protected static Integer getHashByClass(Class clazz){
+        Integer hashcode = CLASS_AND_HASH.get(clazz);
+
+        if (hashcode == null) {
+            hashcode = CLASS_AND_HASH.computeIfAbsent(clazz, TSerialize::registerHash);
+        }
 
-       if (hashcode == null) {
-           hashcode = register(clazz);
-       }
+        return hashcode;
+    }
 
-       return hashcode;
+    private static Integer registerHash(Class clazz) {
+        Integer hashcode = THash.HashFNV1(clazz.getName());
+        Class registeredClazz = HASH_AND_CLASS.putIfAbsent(hashcode, clazz);
+        if(registeredClazz != null && registeredClazz != clazz) {
+            throw new SerializeException("TSerialize.getHashByClass failed, class hash of " + clazz.getName() + " is conflict with " + registeredClazz.getName());
+        }
+
+        return hashcode;
     }
 
     protected static Class getClassByHash(Integer hashcode) throws ClassNotFoundException {
@@ -0,0 +1,97 @@
+package org.voovan.test.tools;
+
+import junit.framework.TestCase;
+import org.voovan.tools.TObject;
+import org.voovan.tools.reflect.TReflect;
+import org.voovan.tools.reflect.annotation.NotSerialization;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 类文字命名
+ *
+ * @author: helyho
+ * voovan Framework.
+ * WebSite: https://github.com/helyho/voovan
+ * Licence: Apache v2 License
+ */
+public class BindingPlanTest extends TestCase {
+
+    public static class Parent {
+        private String name = "parent";
+        protected int age;
+    }
+
+    public static class Child extends Parent {
+        private String name;
+        private String userName;
+        private transient String cache = "cache";
+        @NotSerialization
+        private String secret = "secret";
+        private List<SimpleObject> items = new ArrayList<SimpleObject>();
+        private Map<String, SimpleObject> itemMap = new HashMap<String, SimpleObject>();
+        private final String constant = "constant";
+    }
+
+    public static class ShadowParent {
+        private String code = "parent";
+    }
+
+    public static class ShadowChild extends ShadowParent {
+        private transient String code = "child";
+    }
+
+    public void testObjectToMap() throws Exception {
+        Child child = new Child();
+        child.items.add(new SimpleObject("item"));
+
+        Map<String, Object> map = TReflect.getMapfromObject(child);
+        //子类的属性为空时不被父类的同名属性覆盖, 读取的都是子类的属性
+        assertTrue(map.containsKey("name"));
+        assertNull(map.get("name"));
+        assertEquals(0, map.get("age"));
+        assertFalse(map.containsKey("cache"));
+        assertFalse(map.containsKey("secret"));
+        assertEquals("item", ((Map) ((List) map.get("items")).get(0)).get("valueS"));
+
+        map = TReflect.getMapfromObject(child, true);
+        assertEquals("secret", map.get("secret"));
+        assertFalse(map.containsKey("cache"));
+
+        //父类的同名属性输出时, 和 TReflect.getFieldValue 一致读取子类的属性
+        map = TReflect.getMapfromObject(new ShadowChild());
+        assertEquals(1, map.size());
+        assertEquals("child", map.get("code"));
+    }
+
+    public void testMapToObject() throws Exception {
+        Map<String, Object> map = new HashMap<String, Object>();
+        map.put("name", "child");
+        map.put("age", "12");
+        map.put("constant", "changed");
+        map.put("unknown", "unknown");
+        map.put("items", TObject.asList(TObject.asMap("valueS", "a"), TObject.asMap("valueI", 2)));
+        map.put("itemMap", TObject.asMap("k", TObject.asMap("valueS", "v")));
+
+        Child child = TReflect.getObjectFromMap(Child.class, map, false);
+        assertEquals("child", child.name);
+        assertEquals(12, child.age);
+        assertEquals("constant", child.constant);
+        assertEquals(2, child.items.size());
+        assertEquals("a", child.items.get(0).getValueS());
+        assertEquals(Integer.valueOf(2), child.items.get(1).getValueI());
+        assertEquals("v", child.itemMap.get("k").getValueS());
+
+        //忽略大小写时同时匹配下划线形式的属性名
+        child = (Child) TReflect.getObjectFromMap(Child.class, (Map<String, ?>) TObject.asMap("USER_NAME", "helyho", "AGE", 3), true);
+        assertEquals("helyho", child.userName);
+        assertEquals(3, child.age);
+
+        //精确匹配时不受忽略大小写匹配结果的影响
+        child = (Child) TReflect.getObjectFromMap(Child.class, (Map<String, ?>) TObject.asMap("USER_NAME", "helyho"), false);
+        assertNull(child.userName);
+    }
+}
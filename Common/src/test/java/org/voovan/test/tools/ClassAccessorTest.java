@@ -0,0 +1,107 @@
+package org.voovan.test.tools;
+
+import junit.framework.TestCase;
+import org.voovan.tools.reflect.ClassAccessor;
+import org.voovan.tools.reflect.TReflect;
+
+/**
+ * 类文字命名
+ *
+ * @author: helyho
+ * voovan Framework.
+ * WebSite: https://github.com/helyho/voovan
+ * Licence: Apache v2 License
+ */
+public class ClassAccessorTest extends TestCase {
+
+    //非 public 的类, 验证可以生成访问器
+    static class Counter {
+        private int count;
+        private boolean enabled;
+        private String name;
+
+        Counter() {
+        }
+
+        Counter(String name, int count) {
+            this.name = name;
+            this.count = count;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public void setCount(int count) {
+            this.count = count;
+        }
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void increase() {
+            count++;
+        }
+
+        public int add(int value, Integer other) {
+            count = count + value + (other == null ? 0 : other);
+            return count;
+        }
+    }
+
+    public void setUp() {
+        TReflect.register(Counter.class);
+        TReflect.register(SimpleObject.class);
+    }
+
+    public void tearDown() {
+        TReflect.clearRegister();
+    }
+
+    public void testField() throws Exception {
+        Counter counter = new Counter("counter", 3);
+        ClassAccessor classAccessor = TReflect.getClassAccessor(Counter.class);
+
+        assertEquals(3, classAccessor.getGetter("count").apply(counter));
+        assertEquals(false, classAccessor.getGetter("enabled").apply(counter));
+        assertNull(classAccessor.getSetter("name"));
+
+        assertTrue(TReflect.setFieldValueNatvie(counter, "count", 5));
+        assertTrue(TReflect.setFieldValueNatvie(counter, "enabled", true));
+        assertEquals(Integer.valueOf(5), TReflect.getFieldValueNatvie(counter, "count"));
+        assertTrue(counter.isEnabled());
+
+        //没有 setter 的属性使用反射写入
+        assertFalse(TReflect.setFieldValueNatvie(counter, "name", "x"));
+        TReflect.setFieldValue(counter, "name", "renamed");
+        assertEquals("renamed", TReflect.getFieldValue(counter, "name"));
+    }
+
+    public void testInvoke() throws Exception {
+        Counter counter = TReflect.newInstanceNative(Counter.class);
+        assertNotNull(counter);
+
+        counter = TReflect.newInstanceNative(Counter.class, "counter", 1);
+        assertEquals("counter", counter.getName());
+        assertEquals(1, counter.getCount());
+
+        //void 方法只执行一次
+        TReflect.invokeMethod(counter, "increase");
+        assertEquals(2, counter.getCount());
+
+        assertEquals(Integer.valueOf(5), TReflect.invokeMethod(counter, "add", 3, null));
+        assertNull(TReflect.invokeMethodNative(counter, "add", "wrong", 1));
+
+        SimpleObject simpleObject = TReflect.newInstance(SimpleObject.class, "helyho");
+        assertEquals("helyho", simpleObject.getValueS());
+    }
+}
@@ -0,0 +1,186 @@
+package org.voovan.test.tools;
+
+import junit.framework.TestCase;
+import org.voovan.tools.TEnv;
+import org.voovan.tools.pool.ObjectPool;
+import org.voovan.tools.pool.PooledObject;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 对象池借出和归还测试
+ *
+ * @author helyho
+ *
+ * Voovan Framework.
+ * WebSite: https://github.com/helyho/Voovan
+ * Licence: Apache v2 License
+ */
+public class ObjectPoolTest extends TestCase {
+
+    public static class Item extends PooledObject {
+        private AtomicBoolean using = new AtomicBoolean(false);
+        private volatile boolean valid = true;
+    }
+
+    public void testBorrowAndRestitution() throws TimeoutException {
+        ObjectPool<Item> objectPool = new ObjectPool<Item>().maxSize(2).interval(0).supplier(Item::new).create();
+
+        Item item1 = objectPool.borrow();
+        Item item2 = objectPool.borrow();
+        assertNotNull(item1);
+        assertNotNull(item2);
+        assertNotSame(item1, item2);
+        assertNull(objectPool.borrow());
+        assertEquals(2, objectPool.borrowedSize());
+
+        //超时返回 null
+        long start = System.currentTimeMillis();
+        assertNull(objectPool.borrow(100));
+        assertTrue(System.currentTimeMillis() - start >= 90);
+
+        //优先借出当前线程最后归还的对象
+        objectPool.restitution(item1);
+        objectPool.restitution(item2);
+        assertEquals(0, objectPool.borrowedSize());
+        assertEquals(2, objectPool.avaliableSize());
+        assertTrue(objectPool.contains(item2.getPoolObjectId()));
+        assertSame(item2, objectPool.borrow());
+        assertSame(item1, objectPool.borrow());
+        assertEquals(2, objectPool.size());
+
+        //重复归还不会产生重复借出
+        objectPool.restitution(item1);
+        objectPool.restitution(item1);
+        assertSame(item1, objectPool.borrow());
+        assertNull(objectPool.borrow());
+    }
+
+    public void testHandOff() throws Exception {
+        ObjectPool<Item> objectPool = new ObjectPool<Item>().maxSize(1).interval(0).supplier(Item::new).create();
+        Item item = objectPool.borrow();
+
+        Item[] result = new Item[1];
+        CountDownLatch countDownLatch = new CountDownLatch(1);
+        Thread thread = new Thread(() -> {
+            try {
+                result[0] = objectPool.borrow(5000);
+            } catch (TimeoutException e) {
+                e.printStackTrace();
+            }
+            countDownLatch.countDown();
+        });
+        thread.start();
+
+        TEnv.sleep(100);
+        objectPool.restitution(item);
+        //有等待的线程时, 归还的线程不能优先借回对象
+        assertNull(objectPool.borrow());
+        countDownLatch.await();
+        assertSame(item, result[0]);
+    }
+
+    public void testInterrupt() throws Exception {
+        ObjectPool<Item> objectPool = new ObjectPool<Item>().maxSize(1).interval(0).supplier(Item::new).create();
+        objectPool.borrow();
+
+        AtomicBoolean interrupted = new AtomicBoolean(false);
+        Thread thread = new Thread(() -> {
+            try {
+                objectPool.borrow(5000);
+            } catch (TimeoutException e) {
+                //等待被中断后保留线程的中断标记
+                interrupted.set(Thread.currentThread().isInterrupted());
+            }
+        });
+        thread.start();
+
+        TEnv.sleep(100);
+        thread.interrupt();
+        thread.join();
+        assertTrue(interrupted.get());
+    }
+
+    public void testSupplierFailure() throws Exception {
+        AtomicInteger count = new AtomicInteger(0);
+        ObjectPool<Item> objectPool = new ObjectPool<Item>().maxSize(1).interval(0).supplier(() -> {
+            switch (count.getAndIncrement()) {
+                case 0:  return null;
+                case 1:  throw new IllegalStateException("connect failed");
+                default: return new Item();
+            }
+        }).create();
+
+        //构造失败时归还占用的容量
+        assertNull(objectPool.borrow());
+        try {
+            objectPool.borrow();
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("connect failed", e.getMessage());
+        }
+        assertNotNull(objectPool.borrow());
+        assertEquals(1, objectPool.size());
+    }
+
+    public void testConcurrent() throws Exception {
+        ObjectPool<Item> objectPool = new ObjectPool<Item>().maxSize(4).interval(0).supplier(Item::new).create();
+
+        int threadSize = 8;
+        AtomicInteger failed = new AtomicInteger(0);
+        CountDownLatch countDownLatch = new CountDownLatch(threadSize);
+        for (int i = 0; i < threadSize; i++) {
+            new Thread(() -> {
+                try {
+                    for (int k = 0; k < 20000; k++) {
+                        Item item = objectPool.borrow(1000);
+                        //同一个对象同时只能被一个线程借出
+                        if (item == null || !item.using.compareAndSet(false, true)) {
+                            failed.incrementAndGet();
+                            continue;
+                        }
+                        item.using.set(false);
+                        objectPool.restitution(item);
+                    }
+                } catch (TimeoutException e) {
+                    failed.incrementAndGet();
+                } finally {
+                    countDownLatch.countDown();
+                }
+            }).start();
+        }
+
+        countDownLatch.await();
+        assertEquals(0, failed.get());
+        assertTrue(objectPool.size() <= 4);
+        assertEquals(0, objectPool.borrowedSize());
+    }
+
+    public void testAsyncValidate() throws Exception {
+        AtomicInteger destoryCount = new AtomicInteger(0);
+        ObjectPool<Item> objectPool = new ObjectPool<Item>().minSize(2).maxSize(2).supplier(Item::new)
+                .validator(item -> item.valid)
+                .destory(item -> {
+                    destoryCount.incrementAndGet();
+                    return true;
+                }).create();
+
+        Item item = objectPool.borrow();
+        item.valid = false;
+        objectPool.restitution(item);
+
+        //验证失败的对象在清理任务中被移除, 并补充到最小容量
+        for (int i = 0; i < 50 && destoryCount.get() == 0; i++) {
+            TEnv.sleep(100);
+        }
+        TEnv.sleep(100);
+
+        assertEquals(1, destoryCount.get());
+        assertEquals(2, objectPool.size());
+        assertFalse(objectPool.contains(item.getPoolObjectId()));
+        objectPool.clear();
+    }
+}
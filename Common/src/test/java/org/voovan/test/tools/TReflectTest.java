@@ -4,6 +4,7 @@ import org.voovan.tools.TEnv;
 import org.voovan.tools.json.JSON;
 import org.voovan.tools.reflect.TReflect;
 
+import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
@@ -23,7 +24,12 @@ public class TReflectTest {
         obj.setValueS("xxxxxxx");
         obj.setValueI(123123);
 
-        TReflect.register(SimpleObject.class);
+        //生成访问器的耗时
+        TEnv.measure("register:", ()->{
+            TReflect.register(SimpleObject.class);
+        }, TimeUnit.MILLISECONDS);
+
+        Field field = TReflect.findField(SimpleObject.class, "valueS");
 
         //get
         String val = TReflect.getFieldValueNatvie(obj, "valueS");
@@ -99,6 +105,16 @@ public class TReflectTest {
             }
         })/1000000f);
 
+        System.out.println("Field.get: " + TEnv.measure(()->{
+            for(int i=0;i<500000;i++){
+                try {
+                    field.get(obj);
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }
+        })/1000000f);
+
         clear();
         System.out.println("reflect: " + TEnv.measure(()->{
             for(int i=0;i<500000;i++){
@@ -133,6 +149,16 @@ public class TReflectTest {
             }
         })/1000000f);
 
+        System.out.println("Field.set: " + TEnv.measure(()->{
+            for(int i=0;i<500000;i++){
+                try {
+                    field.set(obj, "123123");
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }
+        })/1000000f);
+
         clear();
         System.out.println("reflect: " + TEnv.measure(()->{
             for(int i=0;i<500000;i++){
@@ -5,7 +5,9 @@ import org.voovan.Global;
 import org.voovan.tools.TEnv;
 import org.voovan.tools.collection.CacheMap;
 
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -66,6 +68,132 @@ public class CacheMapTest extends TestCase{
         }
     }
 
+    public void testEvict() {
+        CacheMap<String, String> cacheMap = new CacheMap<String, String>().maxSize(100);
+
+        //热点数据
+        for(int i=0;i<10;i++) {
+            cacheMap.put("hot_" + i, "value_" + i);
+        }
+
+        for(int i=0;i<10000;i++) {
+            cacheMap.get("hot_" + (i % 10));
+            cacheMap.put("cold_" + i, "value_" + i);
+            assertTrue(cacheMap.size() <= 100);
+        }
+
+        for(int i=0;i<10;i++) {
+            assertEquals("value_" + i, cacheMap.get("hot_" + i));
+        }
+
+        assertTrue(cacheMap.getEvictCount() > 0);
+    }
+
+    public void testConcurrentRemove() throws Exception {
+        CacheMap<String, String> cacheMap = new CacheMap<String, String>().maxSize(100);
+
+        //并发写入和移除相同的 key
+        Thread[] threads = new Thread[8];
+        for(int t=0;t<threads.length;t++) {
+            threads[t] = new Thread(() -> {
+                for(int i=0;i<20000;i++) {
+                    String key = "key_" + ThreadLocalRandom.current().nextInt(50);
+                    if(i % 2 == 0) {
+                        cacheMap.put(key, key);
+                    } else {
+                        cacheMap.remove(key);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for(Thread thread : threads) {
+            thread.join();
+        }
+
+        for(int i=0;i<50;i++) {
+            cacheMap.remove("key_" + i);
+        }
+        assertEquals(0, cacheMap.size());
+
+        //淘汰策略中没有残留的节点占用容量
+        for(int i=0;i<100;i++) {
+            cacheMap.put("new_" + i, "value_" + i);
+        }
+        assertEquals(100, cacheMap.size());
+        assertEquals(0, cacheMap.getEvictCount());
+    }
+
+    public void testSingleFlight() throws Exception {
+        CacheMap<String, String> cacheMap = new CacheMap<String, String>().create();
+        AtomicInteger loadCount = new AtomicInteger(0);
+
+        //两个 key 的加载都进入 supplier 后才放行, 证明不同的 key 并行加载
+        CountDownLatch loading = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(20);
+        for(int i=0;i<20;i++) {
+            final int fi = i;
+            Global.getThreadPool().execute(() -> {
+                //同一个 key 只加载一次
+                cacheMap.get("key_" + (fi % 2), (key) -> {
+                    loadCount.incrementAndGet();
+                    loading.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return key + "_value";
+                });
+                finished.countDown();
+            });
+        }
+
+        assertTrue(loading.await(10, TimeUnit.SECONDS));
+        release.countDown();
+        assertTrue(finished.await(10, TimeUnit.SECONDS));
+        assertEquals(2, loadCount.get());
+        assertEquals("key_0_value", cacheMap.get("key_0"));
+        assertEquals("key_1_value", cacheMap.get("key_1"));
+    }
+
+    public void testRefreshAhead() throws Exception {
+        AtomicInteger loadCount = new AtomicInteger(0);
+        CountDownLatch refreshing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CacheMap<String, String> cacheMap = new CacheMap<String, String>()
+                .expire(10)
+                .refreshAhead(0.99)
+                .supplier((key) -> {
+                    int count = loadCount.incrementAndGet();
+                    if(count == 2) {
+                        refreshing.countDown();
+                        try {
+                            release.await();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                    return key + "_" + count;
+                })
+                .create();
+
+        assertEquals("test_1", cacheMap.get("test"));
+        //存活时间超过 1% 后进入提前刷新区间
+        TEnv.sleep(200);
+        //返回旧数据并异步刷新
+        assertEquals("test_1", cacheMap.get("test"));
+        assertTrue(refreshing.await(10, TimeUnit.SECONDS));
+        //刷新过程中仍然返回旧数据
+        assertEquals("test_1", cacheMap.get("test"));
+        release.countDown();
+
+        TEnv.wait(10000, () -> "test_1".equals(cacheMap.get("test")));
+        assertFalse("test_1".equals(cacheMap.get("test")));
+        assertTrue(loadCount.get() >= 2);
+    }
+
     public void testLockTest(){
         CacheMap cacheMap = new CacheMap().create().expire(1);
         for(int i=0;i<10;i++) {
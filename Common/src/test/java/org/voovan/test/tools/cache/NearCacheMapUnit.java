@@ -0,0 +1,60 @@
+package org.voovan.test.tools.cache;
+
+import junit.framework.TestCase;
+import org.voovan.tools.TEnv;
+import org.voovan.tools.collection.NearCacheMap;
+import org.voovan.tools.collection.RedisMap;
+
+/**
+ * 类文字命名
+ *
+ * @author: helyho
+ * Voovan Framework.
+ * WebSite: https://github.com/helyho/Voovan
+ * Licence: Apache v2 License
+ */
+public class NearCacheMapUnit extends TestCase {
+
+    private NearCacheMap<String, String> nearCacheMap1;
+    private NearCacheMap<String, String> nearCacheMap2;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        nearCacheMap1 = new NearCacheMap<String, String>(new RedisMap<String, String>("127.0.0.1", 6379, 2000, 100, "NearMap", null), 1000, 10);
+        nearCacheMap2 = new NearCacheMap<String, String>(new RedisMap<String, String>("127.0.0.1", 6379, 2000, 100, "NearMap", null), 1000, 10);
+        TEnv.sleep(200);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        nearCacheMap1.close();
+        nearCacheMap2.close();
+        super.tearDown();
+    }
+
+    public void testInvalidate() {
+        nearCacheMap1.put("name", "helyho");
+        nearCacheMap1.flush();
+        assertEquals("helyho", nearCacheMap2.get("name"));
+
+        //另一个实例写入后本地缓存被失效
+        nearCacheMap1.put("name", "voovan");
+        nearCacheMap1.flush();
+        TEnv.sleep(100);
+        assertEquals("voovan", nearCacheMap2.get("name"));
+
+        nearCacheMap2.remove("name");
+        nearCacheMap2.flush();
+        TEnv.sleep(100);
+        assertNull(nearCacheMap1.get("name"));
+    }
+
+    public void testLocalHit() {
+        nearCacheMap1.put("local", "value");
+        for(int i=0;i<1000;i++) {
+            assertEquals("value", nearCacheMap1.get("local"));
+        }
+        System.out.println("local hit rate: " + nearCacheMap1.getLocal().getHitRate());
+    }
+}
@@ -0,0 +1,84 @@
+package org.voovan.test.tools.cache;
+
+import junit.framework.TestCase;
+import org.voovan.tools.TEnv;
+import org.voovan.tools.TString;
+import org.voovan.tools.collection.OffHeapCacheMap;
+
+/**
+ * 类文字命名
+ *
+ * @author: helyho
+ * Voovan Framework.
+ * WebSite: https://github.com/helyho/Voovan
+ * Licence: Apache v2 License
+ */
+public class OffHeapCacheMapTest extends TestCase {
+
+    public void testBasic() {
+        OffHeapCacheMap<String, String> cacheMap = new OffHeapCacheMap<String, String>();
+
+        for(int i=0;i<10000;i++) {
+            cacheMap.put("key_" + i, "value_" + i);
+        }
+        assertEquals(10000, cacheMap.size());
+
+        for(int i=0;i<10000;i++) {
+            assertEquals("value_" + i, cacheMap.get("key_" + i));
+        }
+
+        //更新为不同大小的数据
+        cacheMap.put("key_1", TString.rightPad("", 4096, 'x'));
+        assertEquals(4096, cacheMap.get("key_1").length());
+        cacheMap.put("key_1", "v");
+        assertEquals("v", cacheMap.get("key_1"));
+
+        for(int i=0;i<10000;i+=2) {
+            cacheMap.remove("key_" + i);
+        }
+        assertEquals(5000, cacheMap.size());
+        assertNull(cacheMap.get("key_0"));
+        assertEquals("value_9999", cacheMap.get("key_9999"));
+        assertEquals(5000, cacheMap.keySet().size());
+
+        assertEquals("value_3", cacheMap.putIfAbsent("key_3", "other"));
+        assertNull(cacheMap.putIfAbsent("key_4", "value_4"));
+
+        cacheMap.clear();
+        assertEquals(0, cacheMap.size());
+        assertEquals(0, cacheMap.getUsedMemory());
+        cacheMap.close();
+    }
+
+    public void testExpire() {
+        OffHeapCacheMap<String, String> cacheMap = new OffHeapCacheMap<String, String>().create();
+
+        cacheMap.put("expire", "value", 1);
+        cacheMap.put("forever", "value");
+        assertEquals(1, cacheMap.getTTL("expire"));
+
+        TEnv.sleep(2100);
+        assertNull(cacheMap.get("expire"));
+        assertEquals(1, cacheMap.size());
+        assertEquals("value", cacheMap.get("forever"));
+
+        assertEquals("test_value", cacheMap.get("test", key -> key + "_value"));
+        assertTrue(cacheMap.containsKey("test"));
+        cacheMap.close();
+    }
+
+    public void testMaxSize() {
+        OffHeapCacheMap<String, String> cacheMap = new OffHeapCacheMap<String, String>(100);
+
+        for(int i=0;i<1000;i++) {
+            cacheMap.put("key_" + i, "value_" + i);
+            assertTrue(cacheMap.size() <= 100);
+        }
+        assertEquals(100, cacheMap.size());
+        assertEquals(100, cacheMap.keySet().size());
+
+        cacheMap.maxSize(10);
+        assertEquals(10, cacheMap.size());
+        cacheMap.close();
+    }
+}
@@ -5,6 +5,8 @@ import org.voovan.tools.collection.RedisList;
 import org.voovan.tools.json.JSON;
 import org.voovan.tools.log.Logger;
 
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
 
@@ -110,4 +112,21 @@ public class RedisListUnit extends TestCase{
         super.tearDown();
         redisList.close();
     }
+
+    public void testBatch(){
+        RedisList<String> list = new RedisList<String>("127.0.0.1", 6379, 2000, 100, "BatchList", null);
+        list.batch().addLast(list, "a").addLast(list, "b").addFirst(list, "c").flush();
+        assertEquals(3, list.toArray().length);
+
+        int count = 0;
+        Iterator<String> iterator = list.pageIterator(2);
+        while(iterator.hasNext()) {
+            iterator.next();
+            count++;
+        }
+        assertEquals(3, count);
+
+        list.removeAll(Arrays.asList("a", "b", "c"));
+        assertEquals(0, list.size());
+    }
 }
@@ -12,6 +12,10 @@ import org.voovan.tools.log.Logger;
 import org.voovan.tools.reflect.TReflect;
 import redis.clients.jedis.Jedis;
 
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -230,4 +234,33 @@ public class RedisMapUnit extends TestCase{
         String cursor = scanObject.getCursor();
         System.out.println(scanObject.getResultList());
     }
+
+    public void testBatch() {
+        RedisMap<String, String> redisMap = new RedisMap<String, String>("127.0.0.1", 6379, 2000, 100);
+
+        Map<String, String> data = new HashMap<String, String>();
+        for(int i=0;i<1000;i++) {
+            data.put("batch_" + i, "value_" + i);
+        }
+        redisMap.putAll(data, 60);
+
+        Map<String, String> result = redisMap.getAll(Arrays.asList("batch_1", "batch_2", "batch_none"));
+        assertEquals(2, result.size());
+        assertEquals("value_1", result.get("batch_1"));
+
+        redisMap.batch().put(redisMap, "batch_x", "x", 60).remove(redisMap, "batch_1").flush();
+        assertEquals("x", redisMap.get("batch_x"));
+        assertNull(redisMap.get("batch_1"));
+
+        int count = 0;
+        Iterator<String> iterator = redisMap.keyIterator(100);
+        while(iterator.hasNext()) {
+            if(iterator.next().startsWith("batch_")) {
+                count++;
+            }
+        }
+        assertTrue(count >= 1000);
+
+        assertEquals(999, redisMap.removeAll(data.keySet()));
+    }
 }
@@ -3,7 +3,9 @@ package org.voovan.test.tools.cache;
 import junit.framework.TestCase;
 import org.voovan.tools.collection.RedisZSet;
 
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
 
 /**
@@ -133,4 +135,20 @@ public class RedisZSetUnit extends TestCase {
         Object value = redisSortedSet.scan("99", "*", 1);
         System.out.println(value);
     }
+
+    public void testBatch(){
+        RedisZSet<String> zset = new RedisZSet<String>("127.0.0.1", 6379, 2000, 100, "BatchZSet", null);
+        zset.batch().add(zset, 1, "a").add(zset, 2, "b").add(zset, 3, "c").flush();
+        assertEquals(3, zset.size());
+
+        int count = 0;
+        Iterator<String> iterator = zset.iterator(1);
+        while(iterator.hasNext()) {
+            iterator.next();
+            count++;
+        }
+        assertEquals(3, count);
+
+        assertEquals(3, zset.removeAll(Arrays.asList("a", "b", "c")));
+    }
 }
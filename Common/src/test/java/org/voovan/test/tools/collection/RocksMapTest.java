@@ -3,12 +3,19 @@ package org.voovan.test.tools.collection;
 import junit.framework.TestCase;
 import org.rocksdb.*;
 import org.voovan.tools.TObject;
+import org.voovan.tools.collection.RocksCodec;
 import org.voovan.tools.collection.RocksMap;
+import org.voovan.tools.collection.RocksWriteBehind;
+import org.voovan.tools.exception.RocksMapException;
 import org.voovan.tools.json.JSON;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * 类文字命名
@@ -365,4 +372,235 @@ public class RocksMapTest extends TestCase {
 
 
     }
+
+    public void testSizeMode() {
+        RocksMap<String, Integer> rocksMap = new RocksMap<String, Integer>("sizetest", "exact", RocksMap.SizeMode.EXACT);
+        rocksMap.clear();
+        assertTrue(rocksMap.isEmpty());
+
+        for(int i=0;i<100;i++){
+            rocksMap.put("key" + (i < 10 ? "0" + i : i), i);
+        }
+        //覆盖写入不改变计数
+        rocksMap.put("key00", 100);
+        assertEquals(100, rocksMap.size());
+
+        rocksMap.remove("key00");
+        rocksMap.remove("none");
+        assertEquals(99, rocksMap.size());
+
+        HashMap<String, Integer> m = new HashMap<String, Integer>();
+        m.put("key01", 1);
+        m.put("new1", 1);
+        m.put("new2", 2);
+        rocksMap.putAll(m);
+        assertEquals(101, rocksMap.size());
+
+        rocksMap.removeAll(TObject.asList("new1", "new2", "none"));
+        assertEquals(99, rocksMap.size());
+
+        //[key10, key20)
+        rocksMap.removeRange("key10", "key20");
+        assertEquals(89, rocksMap.size());
+
+        assertNull(rocksMap.putIfAbsent("absent", 1));
+        assertEquals(1, (int)rocksMap.putIfAbsent("absent", 2));
+        assertEquals(90, rocksMap.size());
+
+        //事务中可以看到未提交的计数, 回滚后计数恢复
+        rocksMap.withTransaction((map)->{
+            map.put("trans1", 1);
+            map.remove("key30");
+            map.remove("key31");
+            assertEquals(89, map.size());
+            return null;
+        });
+        assertEquals(90, rocksMap.size());
+
+        rocksMap.withTransaction((map)->{
+            map.put("trans1", 1);
+            return true;
+        });
+        assertEquals(91, rocksMap.size());
+
+        //计数器持久化在元数据列族中, 与遍历计数一致
+        RocksMap<String, Integer> duplicateMap = rocksMap.duplicate("exact");
+        assertEquals(91, duplicateMap.size());
+        assertEquals(91, new RocksMap<String, Integer>("sizetest", "exact").size());
+
+        rocksMap.clear();
+        assertEquals(0, rocksMap.size());
+        assertTrue(rocksMap.isEmpty());
+
+        //超过一个批次的范围删除
+        for(int i=0;i<3000;i++){
+            rocksMap.put("range" + (10000 + i), i);
+        }
+        rocksMap.removeRange("range10100", "range12600");
+        assertEquals(500, rocksMap.size());
+        assertEquals(500, new RocksMap<String, Integer>("sizetest", "exact").size());
+        rocksMap.clear();
+
+        RocksMap<String, Integer> estimateMap = new RocksMap<String, Integer>("sizetest", "estimate", RocksMap.SizeMode.ESTIMATE);
+        estimateMap.clear();
+        for(int i=0;i<1000;i++){
+            estimateMap.put("key" + i, i);
+        }
+        assertTrue(estimateMap.size() > 0);
+        assertEquals(estimateMap.estimateSize(), estimateMap.longSize());
+    }
+
+    public void testCodec() {
+        RocksMap<Long, String> longMap = new RocksMap<Long, String>("codectest", "long")
+                .keyCodec(RocksCodec.LONG).valueCodec(RocksCodec.STRING);
+        longMap.clear();
+        long[] keys = new long[]{-300, 5, Long.MIN_VALUE, 0, -1, 256, Long.MAX_VALUE, 1000};
+        for(long key : keys) {
+            longMap.put(key, "v" + key);
+        }
+
+        //字节序和数值的自然顺序一致
+        assertEquals(Long.MIN_VALUE, (long)longMap.firstKey());
+        assertEquals(Long.MAX_VALUE, (long)longMap.lastKey());
+        assertEquals(TObject.asList(Long.MIN_VALUE, -300L, -1L, 0L, 5L, 256L, 1000L, Long.MAX_VALUE), new ArrayList(longMap.keySet()));
+        assertEquals("v-300", longMap.get(-300L));
+
+        //subMap 包含 toKey, toKey 不存在时在超过 toKey 的位置结束
+        assertEquals(TObject.asList(-1L, 0L, 5L), new ArrayList(longMap.subMap(-1L, 6L).keySet()));
+        assertEquals(TObject.asList(-1L, 0L, 5L, 256L), new ArrayList(longMap.subMap(-1L, 256L).keySet()));
+
+        //迭代器为 [fromKey, toKey)
+        List<Long> iterated = new ArrayList<Long>();
+        try(RocksMap.RocksMapIterator iterator = longMap.iterator(0L, 1000L, 0, 0)) {
+            while(iterator.hasNext()) {
+                iterated.add((Long) iterator.next().getKey());
+            }
+        }
+        assertEquals(TObject.asList(0L, 5L, 256L), iterated);
+
+        longMap.removeRange(-300L, 256L);
+        assertEquals(TObject.asList(Long.MIN_VALUE, 256L, 1000L, Long.MAX_VALUE), new ArrayList(longMap.keySet()));
+
+        //wal 中的 key 和 value 使用编解码器解码
+        long sequence = longMap.getLastSequence() + 1;
+        longMap.put(7L, "v7");
+        longMap.remove(7L);
+        List<RocksMap.RocksWalRecord> walRecords = longMap.getWalSince(sequence, true);
+        assertEquals(2, walRecords.size());
+        assertEquals(TObject.asList(7L, "v7"), walRecords.get(0).getChunks());
+        assertEquals(TObject.asList(7L), walRecords.get(1).getChunks());
+
+        //字符串前缀查找
+        RocksMap<String, byte[]> stringMap = new RocksMap<String, byte[]>("codectest", "string")
+                .keyCodec(RocksCodec.STRING).valueCodec(RocksCodec.BYTES);
+        stringMap.clear();
+        for(String key : new String[]{"b", "ab2", "a", "ab1", "abc", "ac"}) {
+            stringMap.put(key, key.getBytes());
+        }
+        assertEquals(TObject.asList("ab1", "ab2", "abc"), new ArrayList(stringMap.startWith("ab").keySet()));
+        assertEquals("abc", new String(stringMap.get("abc")));
+
+        //组合 key: 先按字符串, 再按 long 排序
+        RocksMap<List<Object>, Long> tupleMap = new RocksMap<List<Object>, Long>("codectest", "tuple")
+                .keyCodec(RocksCodec.tuple(RocksCodec.STRING, RocksCodec.LONG)).valueCodec(RocksCodec.LONG);
+        tupleMap.clear();
+        tupleMap.put(TObject.asList("user", 10L), 1L);
+        tupleMap.put(TObject.asList("user", -2L), 2L);
+        tupleMap.put(TObject.asList("use", 99L), 3L);
+        tupleMap.put(TObject.asList("user\0x", 1L), 4L);
+        tupleMap.put(TObject.asList("user\u0000", 1L), 5L);
+
+        List<List<Object>> tupleKeys = new ArrayList<List<Object>>(tupleMap.keySet());
+        assertEquals(5, tupleKeys.size());
+        assertEquals(TObject.asList("use", 99L), tupleKeys.get(0));
+        assertEquals(TObject.asList("user", -2L), tupleKeys.get(1));
+        assertEquals(TObject.asList("user", 10L), tupleKeys.get(2));
+        assertEquals(TObject.asList("user\u0000", 1L), tupleKeys.get(3));
+        assertEquals(5L, (long)tupleMap.get(TObject.asList("user\u0000", 1L)));
+    }
+
+    public void testWriteBehind() throws Exception {
+        RocksMap<String, Integer> rocksMap = new RocksMap<String, Integer>("writebehindtest", "wb", RocksMap.SizeMode.EXACT)
+                .writeBehind(256, 1, 1024);
+        rocksMap.clear();
+
+        //多个线程的写入合并成批次写入
+        final int threadCount = 8;
+        final int count = 2000;
+        final List<CompletableFuture<Void>> futures = new Vector<CompletableFuture<Void>>();
+        Thread[] threads = new Thread[threadCount];
+        for(int t=0;t<threadCount;t++) {
+            final int threadIndex = t;
+            threads[t] = new Thread(() -> {
+                for(int i=0;i<count;i++) {
+                    futures.add(rocksMap.putAsync(threadIndex + "_" + i, i));
+                }
+            });
+            threads[t].start();
+        }
+        for(Thread thread : threads) {
+            thread.join();
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get();
+        assertEquals(threadCount * count, rocksMap.size());
+        assertEquals(1999, (int)rocksMap.get("7_1999"));
+
+        //同步写入返回后可以读到
+        rocksMap.put("sync", 1);
+        assertEquals(1, (int)rocksMap.get("sync"));
+        assertEquals(1, (int)rocksMap.remove("sync"));
+        assertNull(rocksMap.get("sync"));
+
+        rocksMap.removeAsync("0_0");
+        rocksMap.putAsync("0_1", 100);
+        rocksMap.flushWrites();
+        assertFalse(rocksMap.containsKey("0_0"));
+        assertEquals(100, (int)rocksMap.get("0_1"));
+        assertEquals(threadCount * count - 1, rocksMap.size());
+
+        //事务中直接写入事务
+        rocksMap.withTransaction((map)->{
+            map.putAsync("trans", 1);
+            return null;
+        });
+        assertNull(rocksMap.get("trans"));
+
+        //putIfAbsent/replace/putAll 和事务可以看到排队中的写入
+        rocksMap.putAsync("queued", 1);
+        assertEquals(1, (int)rocksMap.putIfAbsent("queued", 2));
+        rocksMap.putAsync("queued", 3);
+        assertTrue(rocksMap.replace("queued", 3, 4));
+        rocksMap.removeAsync("queued");
+        rocksMap.putAll(Collections.singletonMap("queued", 5));
+        assertEquals(5, (int)rocksMap.get("queued"));
+        rocksMap.putAsync("queued", 6);
+        assertEquals(6, (int)rocksMap.withTransaction((map)->map.get("queued")));
+
+        //扫描可以看到排队中的写入, 扫描中的删除经由相同的异步写入按顺序生效
+        rocksMap.putAsync("scan", 1);
+        List<String> scanKeys = new ArrayList<String>();
+        rocksMap.scan((entry)->{
+            if("scan".equals(entry.getKey())) {
+                scanKeys.add(entry.getKey());
+                entry.remove();
+            }
+            return true;
+        });
+        assertEquals(1, scanKeys.size());
+        assertFalse(rocksMap.containsKey("scan"));
+
+        //扫描使用的副本关闭后父对象的异步写入仍然可用
+        rocksMap.putAsync("scan", 2).get();
+        assertEquals(2, (int)rocksMap.get("scan"));
+
+        //关闭后提交的写入失败
+        RocksWriteBehind writeBehind = rocksMap.getWriteBehind();
+        writeBehind.close();
+        try {
+            writeBehind.write("closed".getBytes(), null);
+            fail();
+        } catch (RocksMapException e) {
+            //已关闭
+        }
+    }
 }
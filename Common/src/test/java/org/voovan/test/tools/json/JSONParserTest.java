@@ -0,0 +1,125 @@
+package org.voovan.test.tools.json;
+
+import junit.framework.TestCase;
+import org.voovan.tools.json.JSON;
+import org.voovan.tools.json.JSONDecode;
+import org.voovan.tools.json.JSONParser;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 类文字命名
+ *
+ * @author helyho
+ *         <p>
+ *         Voovan Framework.
+ *         WebSite: https://github.com/helyho/Voovan
+ *         Licence: Apache v2 License
+ */
+public class JSONParserTest extends TestCase {
+
+    public void testParse() throws Exception {
+        String jsonStr = "{\n" +
+                "  //注释\n" +
+                "  \"int\": 12, 'str': 'single \\\"quote\\\"', unquoted = hello world\n" +
+                "  /* 多行\n注释 */\n" +
+                "  \"long\": 3000000000, \"float\": 1.5, \"decimal\": 1.5E10, \"bool\": TRUE,\n" +
+                "  \"list\": [1, null, \"两\", {\"a\": null}], \"empty\": \"\", \"nil\": null\n" +
+                "}";
+
+        Map map;
+        JSONParser jsonParser = JSONParser.get(jsonStr).convertEscapeChar(true);
+        try {
+            map = (Map) jsonParser.parse();
+        } finally {
+            jsonParser.release();
+        }
+
+        assertEquals(12, map.get("int"));
+        assertEquals("single \"quote\"", map.get("str"));
+        assertEquals("hello world", map.get("unquoted"));
+        assertEquals(3000000000L, map.get("long"));
+        assertEquals(1.5f, map.get("float"));
+        assertEquals(new BigDecimal("1.5E10"), map.get("decimal"));
+        assertEquals(true, map.get("bool"));
+        assertEquals("", map.get("empty"));
+        assertTrue(map.containsKey("nil"));
+        assertNull(map.get("nil"));
+
+        List list = (List) map.get("list");
+        assertEquals(3, list.size());
+        assertEquals("两", list.get(1));
+
+        //未转义的引号, 以引号后的结构字符判断字符串结束
+        map = (Map) JSON.parse("{\"a\": \"say \"hi\" now\", \"b\": \"x\"}");
+        assertEquals("say \"hi\" now", map.get("a"));
+        assertEquals("x", map.get("b"));
+
+        assertNull(JSON.parse("{\"a\": [1, 2}"));
+    }
+
+    public void testBind() throws Exception {
+        String jsonStr = "{\"string\":\"helyho\",\"bint\":32,\"unknown\":{\"x\":[1,2]}," +
+                "\"tb2\":{\"bint\":56,\"string\":\"bingo\",\"list\":[\"item\"],\"map\":{\"k\":\"v\"}}," +
+                "\"list\":[\"a\",\"b\"],\"map\":{\"m\":1}}";
+
+        TestObject testObject = JSONDecode.fromJSON(jsonStr, TestObject.class);
+        assertEquals("helyho", testObject.getString());
+        assertEquals(32, testObject.getBint());
+        assertEquals(56, testObject.getTb2().getBint());
+        assertEquals("item", testObject.getTb2().getList().get(0));
+        assertEquals("v", testObject.getTb2().getMap().get("k"));
+        assertEquals(2, testObject.getList().size());
+        assertEquals(1, testObject.getMap().get("m"));
+
+        //忽略大小写绑定
+        testObject = JSONDecode.fromJSON("{\"STRING\":\"helyho\",\"BINT\":\"33\"}", TestObject.class, true);
+        assertEquals("helyho", testObject.getString());
+        assertEquals(33, testObject.getBint());
+
+        //下划线命名和未知的属性名
+        for(int i=0; i<100; i++) {
+            testObject = JSONDecode.fromJSON("{\"b_int\":" + i + ",\"unknown_" + i + "\":1}", TestObject.class, true);
+            assertEquals(i, testObject.getBint());
+        }
+
+        //直接从 UTF-8 字节绑定
+        ByteBuffer byteBuffer = ByteBuffer.wrap(jsonStr.getBytes(StandardCharsets.UTF_8));
+        testObject = JSONDecode.fromJSON(byteBuffer, TestObject.class, false);
+        assertEquals("bingo", testObject.getTb2().getString());
+        assertEquals(0, byteBuffer.position());
+
+        int[] array = JSONDecode.fromJSON("[1, 2, 3]", int[].class, false);
+        assertEquals(3, array.length);
+        assertEquals(3, array[2]);
+    }
+
+    public void testRoundTrip() throws Exception {
+        TestObject testObject = new TestObject();
+        testObject.setString("中文 \"quote\" \r\n src\\main 😀");
+        testObject.setBint(1);
+        testObject.getTb2().setString("tb2");
+
+        //包含换行的字符串需要开启 EscapeChar 的转换
+        boolean convertEscapeChar = JSON.isConvertEscapeChar();
+        JSON.setConvertEscapeChar(true);
+        try {
+            String jsonStr = JSON.toJSON(testObject);
+            assertEquals(testObject, JSON.toObject(jsonStr, TestObject.class));
+
+            byte[] jsonBytes = JSON.toJSONBytes(testObject);
+            JSONParser jsonParser = JSONParser.get(jsonBytes, 0, jsonBytes.length);
+            try {
+                assertEquals(testObject, jsonParser.parse(TestObject.class));
+            } finally {
+                jsonParser.release();
+            }
+        } finally {
+            JSON.setConvertEscapeChar(convertEscapeChar);
+        }
+    }
+}
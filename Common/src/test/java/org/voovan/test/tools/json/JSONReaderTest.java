@@ -0,0 +1,152 @@
+package org.voovan.test.tools.json;
+
+import junit.framework.TestCase;
+import org.voovan.tools.buffer.ByteBufferChannel;
+import org.voovan.tools.json.JSON;
+import org.voovan.tools.json.JSONPath;
+import org.voovan.tools.json.JSONReader;
+import org.voovan.tools.json.JSONReader.Token;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 类文字命名
+ *
+ * @author helyho
+ *         <p>
+ *         Voovan Framework.
+ *         WebSite: https://github.com/helyho/Voovan
+ *         Licence: Apache v2 License
+ */
+public class JSONReaderTest extends TestCase {
+
+    public void testTokens() throws Exception {
+        String jsonStr = "{\"name\": \"helyho\", /* 注释 */ 'list': [1, 2.5, null, true], unquoted = hello, \"empty\": {}}";
+
+        //使用很小的缓冲区, 验证跨缓冲区读取
+        JSONReader jsonReader = new JSONReader(new StringReader(jsonStr), 4);
+        List<Object> tokens = new ArrayList<Object>();
+        Token token;
+        while((token = jsonReader.next()) != Token.END_DOCUMENT) {
+            tokens.add(token == Token.FIELD_NAME ? jsonReader.getFieldName() : token == Token.VALUE ? jsonReader.getValue() : token);
+        }
+
+        assertEquals("[START_OBJECT, name, helyho, list, START_ARRAY, 1, 2.5, null, true, END_ARRAY, unquoted, hello, empty, START_OBJECT, END_OBJECT, END_OBJECT]",
+                tokens.toString());
+
+        jsonReader = new JSONReader(new StringReader("[1, 2}"), 4);
+        try {
+            while (jsonReader.next() != Token.END_DOCUMENT) {
+            }
+            fail();
+        } catch (java.text.ParseException e) {
+            assertTrue(e.getMessage().startsWith("Unexpected character }"));
+        }
+    }
+
+    public void testReadValue() throws Exception {
+        TestObject testObject = new TestObject();
+        testObject.setString("helyho");
+        testObject.setBint(32);
+        testObject.getList().add("listitem");
+        testObject.getMap().put("mapitem", "mapitem");
+        testObject.getTb2().setString("bingo");
+
+        String jsonStr = "{\"skip\": {\"a\": [1, {\"b\": 2}]}, \"obj\": " + JSON.toJSON(testObject) + ", \"map\": {\"k\": [1, 2]}, \"int\": \"12\"}";
+        JSONReader jsonReader = new JSONReader(new StringReader(jsonStr), 8);
+
+        assertEquals(Token.START_OBJECT, jsonReader.next());
+        assertEquals(Token.FIELD_NAME, jsonReader.next());
+        jsonReader.skipValue();
+
+        assertEquals(Token.FIELD_NAME, jsonReader.next());
+        assertEquals("obj", jsonReader.getFieldName());
+        assertEquals(testObject, jsonReader.readValue(TestObject.class));
+
+        assertEquals(Token.FIELD_NAME, jsonReader.next());
+        Map map = (Map) jsonReader.readValue();
+        assertEquals(2, ((List) map.get("k")).size());
+
+        assertEquals(Token.FIELD_NAME, jsonReader.next());
+        assertEquals(Integer.valueOf(12), jsonReader.readValue(Integer.class));
+
+        assertEquals(Token.END_OBJECT, jsonReader.next());
+        assertEquals(Token.END_DOCUMENT, jsonReader.next());
+    }
+
+    public void testStreamPath() throws Exception {
+        InputStream inputStream = new ByteArrayInputStream(JSONPathTest.tmpStr.getBytes(StandardCharsets.UTF_8));
+        List<Object> values = new ArrayList<Object>();
+
+        try(JSONReader jsonReader = new JSONReader(inputStream)) {
+            assertEquals(1, JSONPath.stream(jsonReader, "/[0]/Version/Index", values::add));
+        }
+        assertEquals(108573, values.get(0));
+
+        values.clear();
+        try(JSONReader jsonReader = new JSONReader(new StringReader(JSONPathTest.tmpStr), 16)) {
+            assertEquals(2, JSONPath.stream(jsonReader, "/[*]/Endpoint/VirtualIPs[*]/Addr", values::add));
+        }
+        assertEquals("[10.255.0.2/16, 10.0.0.2/24]", values.toString());
+
+        //与 JSONPath.value 的结果一致
+        values.clear();
+        try(JSONReader jsonReader = new JSONReader(new StringReader(JSONPathTest.tmpStr), 16)) {
+            JSONPath.stream(jsonReader, "/[0]/Spec/TaskTemplate/ContainerSpec/Mounts[0]", values::add);
+        }
+        assertEquals(new JSONPath(JSONPathTest.tmpStr).value("/[0]/Spec/TaskTemplate/ContainerSpec/Mounts[0]"), values.get(0));
+    }
+
+    public void testLargeStream() throws Exception {
+        //生成数据的同时读取, 验证不需要完整的 JSON 在内存中
+        final int count = 20000;
+        InputStream inputStream = new InputStream() {
+            private int index = -1;
+            private byte[] current = "{\"items\": [".getBytes();
+            private int position = 0;
+
+            @Override
+            public int read() {
+                while(position >= current.length) {
+                    index++;
+                    if(index < count) {
+                        current = ((index > 0 ? "," : "") + "{\"bint\": " + index + ", \"string\": \"item" + index + "\"}").getBytes();
+                    } else if(index == count) {
+                        current = "]}".getBytes();
+                    } else {
+                        return -1;
+                    }
+                    position = 0;
+                }
+                return current[position++];
+            }
+        };
+
+        final long[] sum = new long[1];
+        try(JSONReader jsonReader = new JSONReader(inputStream)) {
+            int matched = JSONPath.stream(jsonReader, "/items[*]", TestObject.class, (TestObject testObject) -> {
+                assertEquals("item" + testObject.getBint(), testObject.getString());
+                sum[0] = sum[0] + testObject.getBint();
+            });
+            assertEquals(count, matched);
+        }
+        assertEquals((long) count * (count - 1) / 2, sum[0]);
+    }
+
+    public void testByteBufferChannel() throws Exception {
+        ByteBufferChannel byteBufferChannel = new ByteBufferChannel(64);
+        byteBufferChannel.writeEnd(ByteBuffer.wrap("{\"a\": 1}\n{\"a\": 2}\n{\"a\": 3}".getBytes(StandardCharsets.UTF_8)));
+
+        //每行一个 JSON 的数据
+        List<Object> values = new ArrayList<Object>();
+        JSONPath.stream(new JSONReader(byteBufferChannel), "/*", values::add);
+        assertEquals("[1, 2, 3]", values.toString());
+        assertEquals(0, byteBufferChannel.size());
+        byteBufferChannel.release();
+    }
+}
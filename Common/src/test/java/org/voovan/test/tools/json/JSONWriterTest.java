@@ -0,0 +1,80 @@
+package org.voovan.test.tools.json;
+
+import junit.framework.TestCase;
+import org.voovan.tools.json.JSON;
+import org.voovan.tools.json.JSONDecode;
+import org.voovan.tools.json.JSONWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 类文字命名
+ *
+ * @author helyho
+ *         <p>
+ *         Voovan Framework.
+ *         WebSite: https://github.com/helyho/Voovan
+ *         Licence: Apache v2 License
+ */
+public class JSONWriterTest extends TestCase {
+
+    private TestObject createTestObject() {
+        TestObject testObject = new TestObject();
+        testObject.setString("helyho \"中文\" 😀");
+        testObject.setBint(32);
+        testObject.getList().add("listitem1");
+        testObject.getList().add(2);
+        testObject.getMap().put("mapitem1", "mapitem1");
+        testObject.getTb2().setString("bingo\r\nsrc\\main\\kkk");
+        testObject.getTb2().setBint(56);
+        testObject.getTb2().getList().add("tb2 list item");
+        testObject.getTb2().getMap().put("tb2 map item", "tb2 map item");
+        return testObject;
+    }
+
+    public void testRoundTrip() throws Exception {
+        TestObject testObject = createTestObject();
+
+        String jsonStr = new String(JSON.toJSONBytes(testObject), StandardCharsets.UTF_8);
+        TestObject testObject2 = JSONDecode.fromJSON(jsonStr, TestObject.class);
+        assertEquals(testObject, testObject2);
+        assertEquals(jsonStr, JSON.toJSON(testObject));
+    }
+
+    public void testStream() throws Exception {
+        TestObject testObject = createTestObject();
+
+        //缓冲区小于输出数据, 验证分块写入输出流
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        new JSONWriter(outputStream, 16).write(testObject).flush();
+        assertTrue(Arrays.equals(JSON.toJSONBytes(testObject), outputStream.toByteArray()));
+
+        outputStream.reset();
+        JSON.toJSON(Arrays.asList(testObject, testObject), outputStream);
+        List list = (List) JSON.parse(new String(outputStream.toByteArray(), StandardCharsets.UTF_8));
+        assertEquals(2, list.size());
+    }
+
+    public void testValues() throws Exception {
+        Map<String, Object> map = new LinkedHashMap<String, Object>();
+        map.put("int", -123);
+        map.put("long", Long.MIN_VALUE);
+        map.put("bool", true);
+        map.put("double", 1.5d);
+        map.put("decimal", new BigDecimal("12.30"));
+        map.put("ints", new int[]{1, -2, 3});
+        map.put("null", null);
+
+        assertEquals("{\"int\":-123,\"long\":-9223372036854775808,\"bool\":true,\"double\":1.5,\"decimal\":12.30,\"ints\":[1,-2,3],\"null\":null}",
+                new JSONWriter().write(map).toString());
+
+        JSONWriter jsonWriter = new JSONWriter().convertEscapeChar(false);
+        assertEquals("\"a\"b\"", jsonWriter.write("a\"b").toString());
+    }
+}
@@ -0,0 +1,170 @@
+package org.voovan.test.tools.log;
+
+import junit.framework.TestCase;
+import org.voovan.tools.TEnv;
+import org.voovan.tools.log.Formater;
+import org.voovan.tools.log.LogTemplate;
+import org.voovan.tools.log.LoggerThread;
+import org.voovan.tools.log.Message;
+import org.voovan.tools.log.MessageRingBuffer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 日志环形缓冲区和预编译模板测试
+ *
+ * @author helyho
+ *
+ * Voovan Framework.
+ * WebSite: https://github.com/helyho/Voovan
+ * Licence: Apache v2 License
+ */
+public class MessageRingBufferTest extends TestCase {
+
+    private static void write(MessageRingBuffer ringBuffer, String msg, boolean important) {
+        long sequence = ringBuffer.claim(important);
+        if (sequence >= 0) {
+            ringBuffer.get(sequence).fill("INFO", msg, "main", 0, null);
+            ringBuffer.publish(sequence);
+        }
+    }
+
+    private static String read(MessageRingBuffer ringBuffer) {
+        Message message = ringBuffer.peek();
+        if (message == null) {
+            return null;
+        }
+
+        String msg = message.getMessage();
+        message.reset();
+        ringBuffer.release();
+        return msg;
+    }
+
+    public void testOrder() {
+        MessageRingBuffer ringBuffer = new MessageRingBuffer(5, MessageRingBuffer.OverflowPolicy.BLOCK, 1);
+        assertEquals(8, ringBuffer.getCapacity());
+        assertNull(ringBuffer.peek());
+
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 8; i++) {
+                write(ringBuffer, "msg" + i, false);
+            }
+            assertEquals(8, ringBuffer.size());
+
+            for (int i = 0; i < 8; i++) {
+                assertEquals("msg" + i, read(ringBuffer));
+            }
+            assertTrue(ringBuffer.isEmpty());
+        }
+    }
+
+    public void testDrop() {
+        MessageRingBuffer ringBuffer = new MessageRingBuffer(4, MessageRingBuffer.OverflowPolicy.DROP, 1);
+        for (int i = 0; i < 10; i++) {
+            write(ringBuffer, "msg" + i, false);
+        }
+        assertEquals(4, ringBuffer.size());
+        assertEquals(6, ringBuffer.takeDroppedCount());
+        assertEquals(0, ringBuffer.takeDroppedCount());
+        assertEquals("msg0", read(ringBuffer));
+
+        //重要消息不会被丢弃
+        write(ringBuffer, "important", true);
+        assertEquals(4, ringBuffer.size());
+        assertEquals(0, ringBuffer.takeDroppedCount());
+    }
+
+    public void testSample() {
+        MessageRingBuffer ringBuffer = new MessageRingBuffer(16, MessageRingBuffer.OverflowPolicy.SAMPLE, 4);
+        for (int i = 0; i < 12; i++) {
+            write(ringBuffer, "msg" + i, false);
+        }
+        assertEquals(12, ringBuffer.size());
+
+        //超过 3/4 后每 4 条保留 1 条
+        for (int i = 0; i < 8; i++) {
+            write(ringBuffer, "sample" + i, false);
+        }
+        assertEquals(14, ringBuffer.size());
+        assertEquals(6, ringBuffer.takeDroppedCount());
+    }
+
+    public void testBlock() throws InterruptedException {
+        final MessageRingBuffer ringBuffer = new MessageRingBuffer(8, MessageRingBuffer.OverflowPolicy.BLOCK, 1);
+        final int threadCount = 4;
+        final int count = 10000;
+        final CountDownLatch countDownLatch = new CountDownLatch(threadCount);
+
+        for (int t = 0; t < threadCount; t++) {
+            final int threadIndex = t;
+            new Thread(() -> {
+                for (int i = 0; i < count; i++) {
+                    write(ringBuffer, threadIndex + ":" + i, false);
+                }
+                countDownLatch.countDown();
+            }).start();
+        }
+
+        //每个写入线程的消息保持顺序
+        int[] next = new int[threadCount];
+        long readCount = 0;
+        long start = System.currentTimeMillis();
+        while (readCount < threadCount * count && System.currentTimeMillis() - start < 30000) {
+            String msg = read(ringBuffer);
+            if (msg == null) {
+                Thread.yield();
+                continue;
+            }
+
+            int index = msg.indexOf(':');
+            int threadIndex = Integer.parseInt(msg.substring(0, index));
+            assertEquals(next[threadIndex]++, Integer.parseInt(msg.substring(index + 1)));
+            readCount++;
+        }
+
+        countDownLatch.await();
+        assertEquals(threadCount * count, readCount);
+        assertEquals(0, ringBuffer.takeDroppedCount());
+    }
+
+    public void testTemplate() {
+        LogTemplate logTemplate = new LogTemplate("[{{P}}]{{s}}{{F1}}{{T}}{{FD}}{{t}}{{I}} {{X}} at {{M}}");
+        assertTrue(logTemplate.hasStack());
+        assertTrue(logTemplate.hasColor());
+
+        Message message = new Message();
+        message.fill("WARN", "hello", "worker", System.currentTimeMillis(),
+                new StackTraceElement("Demo", "doWork", "Demo.java", 10));
+        assertEquals("[WARN] worker\thello {{X}} at doWork", logTemplate.render(message, false));
+        assertTrue(logTemplate.render(message, true).contains("worker"));
+
+        logTemplate = new LogTemplate("{{D}} {{I}}");
+        assertFalse(logTemplate.hasStack());
+        assertTrue(logTemplate.render(message, false).matches("\\d{4}-\\d{2}-\\d{2} \\d{2}:\\d{2}:\\d{2}:\\d{2,3} .+ hello"));
+    }
+
+    public void testLoggerThread() {
+        final AtomicLong size = new AtomicLong();
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream() {
+            @Override
+            public synchronized void write(byte[] b, int off, int len) {
+                super.write(b, off, len);
+                size.addAndGet(len);
+            }
+        };
+
+        Formater formater = new Formater("{{P}} {{T}} {{I}}");
+        LoggerThread loggerThread = LoggerThread.start(formater, new OutputStream[]{byteArrayOutputStream});
+        loggerThread.addLogMessage("INFO", "first", "main", System.currentTimeMillis(), null);
+        loggerThread.addLogMessage("raw line\r\n");
+        loggerThread.addLogMessage("SIMPLE", "simple", "main", System.currentTimeMillis(), null);
+
+        String expected = "INFO main first" + System.lineSeparator() + "raw line\r\nsimple\r\n";
+        TEnv.wait(5000, () -> size.get() < expected.length());
+        assertEquals(expected, byteArrayOutputStream.toString());
+    }
+}
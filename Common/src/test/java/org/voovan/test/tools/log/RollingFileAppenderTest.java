@@ -0,0 +1,123 @@
+package org.voovan.test.tools.log;
+
+import junit.framework.TestCase;
+import org.voovan.tools.TFile;
+import org.voovan.tools.TZip;
+import org.voovan.tools.log.RollingFileAppender;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+
+/**
+ * 滚动日志文件输出测试
+ *
+ * @author helyho
+ *
+ * Voovan Framework.
+ * WebSite: https://github.com/helyho/Voovan
+ * Licence: Apache v2 License
+ */
+public class RollingFileAppenderTest extends TestCase {
+
+    private File dir;
+
+    @Override
+    protected void setUp() throws Exception {
+        dir = Files.createTempDirectory("voovan-log").toFile();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    private static String read(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()));
+    }
+
+    public void testMappedWrite() throws IOException {
+        File file = new File(dir, "test.log");
+        RollingFileAppender appender = new RollingFileAppender(file.getPath()).mapSize(16);
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            String line = "line " + i + "\r\n";
+            appender.write(ByteBuffer.wrap(line.getBytes()));
+            expected.append(line);
+        }
+        appender.flush();
+        assertEquals(expected.length(), appender.getPosition());
+        appender.close();
+
+        //关闭后文件截断到有效长度
+        assertEquals(expected.toString(), read(file));
+
+        //模拟异常退出后残留的映射区域, 重新打开后从有效数据末尾追加
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        randomAccessFile.setLength(file.length() + 100);
+        randomAccessFile.close();
+
+        appender = new RollingFileAppender(file.getPath());
+        appender.write("tail\r\n".getBytes());
+        appender.close();
+        assertEquals(expected + "tail\r\n", read(file));
+    }
+
+    public void testSizeRolling() throws IOException {
+        File file = new File(dir, "size.log");
+        RollingFileAppender appender = new RollingFileAppender(file.getPath()).maxFileSize(100).mapSize(64);
+        for (int i = 0; i < 30; i++) {
+            appender.write("0123456789".getBytes());
+        }
+        appender.close();
+
+        File[] files = dir.listFiles();
+        assertEquals(3, files.length);
+        long total = 0;
+        for (File logFile : files) {
+            assertTrue(logFile.length() <= 100);
+            total += logFile.length();
+        }
+        assertEquals(300, total);
+        assertEquals(100, file.length());
+    }
+
+    public void testDatePattern() throws IOException {
+        RollingFileAppender appender = new RollingFileAppender(dir.getPath() + File.separator + "{{D}}.log");
+        appender.write("date\r\n".getBytes());
+        appender.close();
+
+        assertTrue(appender.getFilePath().matches(".*\\d{8}\\.log"));
+        assertEquals("date\r\n", read(new File(appender.getFilePath())));
+    }
+
+    public void testGzip() throws IOException {
+        File file = new File(dir, "access.log.gz");
+        StringBuilder expected = new StringBuilder();
+
+        //每次打开和每批写入都生成独立的 gzip 块, 整个文件可以连续解压
+        for (int round = 0; round < 2; round++) {
+            RollingFileAppender appender = new RollingFileAppender(file.getPath()).gzip(true);
+            for (int i = 0; i < 1000; i++) {
+                String line = "GET /index" + i + " 200\r\n";
+                appender.write(line.getBytes());
+                expected.append(line);
+                if (i % 300 == 0) {
+                    appender.flush();
+                }
+            }
+            appender.close();
+        }
+
+        assertTrue(file.length() < expected.length());
+        assertEquals(expected.toString(), new String(TZip.decodeGZip(TFile.loadFile(file))));
+    }
+}
@@ -0,0 +1,212 @@
+package org.voovan.test.tools.serialize;
+
+import junit.framework.TestCase;
+import org.voovan.test.tools.json.TestObject;
+import org.voovan.tools.exception.SerializeException;
+import org.voovan.tools.serialize.BinarySerialize;
+import org.voovan.tools.serialize.DefaultJDKSerialize;
+import org.voovan.tools.serialize.DefaultJSONSerialize;
+import org.voovan.tools.serialize.ProtoStuffSerialize;
+import org.voovan.tools.serialize.Serialize;
+import org.voovan.tools.serialize.TSerialize;
+
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 类文字命名
+ *
+ * @author: helyho
+ * voovan Framework.
+ * WebSite: https://github.com/helyho/voovan
+ * Licence: Apache v2 License
+ */
+public class SerializeTest extends TestCase {
+
+    private static TestObject createTestObject() {
+        TestObject testObject = new TestObject();
+        testObject.setBint(111);
+        testObject.setString("str");
+        testObject.getList().add("v1111");
+        testObject.getMap().put("m1", "v1");
+        testObject.getTb2().setString("tb2");
+        return testObject;
+    }
+
+    private static void check(Serialize serialize, Object obj) throws Exception {
+        byte[] bytes = serialize.serialize(obj);
+
+        //输出流和 byte[] 形式的结果一致
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        serialize.serialize(obj, outputStream);
+        assertTrue(Arrays.equals(bytes, outputStream.toByteArray()));
+
+        //从 ByteBuffer 的 position 开始写入
+        for(ByteBuffer byteBuffer : new ByteBuffer[]{ByteBuffer.allocate(1024), ByteBuffer.allocateDirect(1024)}) {
+            byteBuffer.put((byte) 1);
+            assertEquals(bytes.length, serialize.serialize(obj, byteBuffer));
+            assertEquals(bytes.length + 1, byteBuffer.position());
+
+            byteBuffer.flip();
+            assertEquals(obj, serialize.unserialize(byteBuffer, 1, bytes.length));
+            assertEquals(0, byteBuffer.position());
+        }
+
+        //反序列化字节数组中的一段数据
+        byte[] padding = new byte[bytes.length + 8];
+        System.arraycopy(bytes, 0, padding, 3, bytes.length);
+        assertEquals(obj, serialize.unserialize(padding, 3, bytes.length));
+        assertEquals(obj, serialize.unserialize(bytes));
+    }
+
+    public void testProtoStuff() throws Exception {
+        Serialize serialize = new ProtoStuffSerialize();
+        check(serialize, createTestObject());
+        check(serialize, "string");
+        check(serialize, 123L);
+    }
+
+    public void testJDK() throws Exception {
+        Serialize serialize = new DefaultJDKSerialize();
+        check(serialize, createTestObject());
+        check(serialize, "string");
+    }
+
+    public void testJSON() throws Exception {
+        check(new DefaultJSONSerialize(), createTestObject());
+    }
+
+    public static class Version1 {
+        private int id;
+        private String name;
+    }
+
+    //新增属性, 并调整了属性的顺序
+    public static class Version2 {
+        private List<String> tags = new ArrayList<String>();
+        private String name;
+        private int id;
+    }
+
+    public static class Complex {
+        private int[] ints = {1, -2, Integer.MAX_VALUE};
+        private long[] longs = {Long.MIN_VALUE, 0};
+        private double[] doubles = {1.5};
+        private boolean[] booleans = {true, false};
+        private char[] chars = {'中', 'a'};
+        private String[] strings = {"a", null, "中文"};
+        private TimeUnit unit = TimeUnit.SECONDS;
+        private Date date = new Date();
+        private BigDecimal decimal = new BigDecimal("1.0500");
+        private Map<String, Object> map = new HashMap<String, Object>();
+        private Set<Integer> set = new TreeSet<Integer>(Arrays.asList(3, 1, 2));
+        private List<Object> readOnly = Collections.unmodifiableList(Arrays.asList((Object) 1L, "x"));
+        private Object empty;
+        private transient String cache;
+    }
+
+    public void testBinary() throws Exception {
+        Serialize serialize = new BinarySerialize();
+        check(serialize, createTestObject());
+        check(serialize, "string");
+        check(serialize, -123L);
+        check(serialize, Arrays.asList(1, "2", 3.0f, null));
+
+        Complex complex = new Complex();
+        complex.cache = "cache";
+        complex.map.put("obj", createTestObject());
+        complex.map.put("short", (short) -5);
+        Complex result = serialize.unserialize(serialize.serialize(complex));
+        assertTrue(Arrays.equals(complex.ints, result.ints));
+        assertTrue(Arrays.equals(complex.longs, result.longs));
+        assertTrue(Arrays.equals(complex.doubles, result.doubles));
+        assertTrue(Arrays.equals(complex.booleans, result.booleans));
+        assertTrue(Arrays.equals(complex.chars, result.chars));
+        assertTrue(Arrays.equals(complex.strings, result.strings));
+        assertEquals(complex.unit, result.unit);
+        assertEquals(complex.date, result.date);
+        assertEquals(complex.decimal, result.decimal);
+        assertEquals(complex.map, result.map);
+        assertEquals(TreeSet.class, result.set.getClass());
+        assertEquals(complex.set, result.set);
+        assertEquals(complex.readOnly, result.readOnly);
+        assertNull(result.empty);
+        assertNull(result.cache);
+
+        //比 JDK 序列化的结果小
+        assertTrue(serialize.serialize(createTestObject()).length < new DefaultJDKSerialize().serialize(createTestObject()).length);
+    }
+
+    private static byte[] replaceHash(byte[] bytes, Class from, Class to) {
+        byte[] fromHash = hashBytes(TSerialize.register(from));
+        byte[] toHash = hashBytes(TSerialize.register(to));
+        bytes = bytes.clone();
+        for(int i = 0; i + 4 <= bytes.length; i++) {
+            if(bytes[i] == fromHash[0] && bytes[i + 1] == fromHash[1] && bytes[i + 2] == fromHash[2] && bytes[i + 3] == fromHash[3]) {
+                System.arraycopy(toHash, 0, bytes, i, 4);
+            }
+        }
+        return bytes;
+    }
+
+    private static byte[] hashBytes(int hash) {
+        return new byte[]{(byte) hash, (byte) (hash >> 8), (byte) (hash >> 16), (byte) (hash >> 24)};
+    }
+
+    public void testBinarySchemaEvolution() throws Exception {
+        Serialize serialize = new BinarySerialize();
+
+        //新版本的数据由旧版本读取, 跳过新增的属性
+        Version2 version2 = new Version2();
+        version2.id = 2;
+        version2.name = "v2";
+        version2.tags.add("tag");
+        Version1 version1 = serialize.unserialize(replaceHash(serialize.serialize(version2), Version2.class, Version1.class));
+        assertEquals(2, version1.id);
+        assertEquals("v2", version1.name);
+
+        //旧版本的数据由新版本读取, 新增的属性保持默认值
+        version1.id = 1;
+        version2 = serialize.unserialize(replaceHash(serialize.serialize(version1), Version1.class, Version2.class));
+        assertEquals(1, version2.id);
+        assertEquals("v2", version2.name);
+        assertTrue(version2.tags.isEmpty());
+    }
+
+    public void testBinaryMalformed() throws Exception {
+        Serialize serialize = new BinarySerialize();
+
+        //循环引用
+        List<Object> list = new ArrayList<Object>();
+        list.add(list);
+        try {
+            serialize.serialize(list);
+            fail();
+        } catch (SerializeException e) {
+            assertTrue(e.getMessage().contains("circular"));
+        }
+
+        //同一个对象被多次引用不是循环引用
+        List<Object> item = Arrays.asList((Object) "a");
+        assertEquals(Arrays.asList(item, item), serialize.unserialize(serialize.serialize(Arrays.asList(item, item))));
+
+        //长度前缀超过剩余的数据时不分配数组, 数据格式: 4 字节类型 hash, PRIMITIVE_ARRAY, LONG, 长度
+        byte[] bytes = serialize.serialize(new long[]{1, 2});
+        byte[] hugeLength = Arrays.copyOf(bytes, 11);
+        hugeLength[6] = (byte) 0xFF;
+        hugeLength[7] = (byte) 0xFF;
+        hugeLength[8] = (byte) 0xFF;
+        hugeLength[9] = (byte) 0xFF;
+        hugeLength[10] = (byte) 0x07;
+        try {
+            serialize.unserialize(hugeLength);
+            fail();
+        } catch (SerializeException e) {
+            assertTrue(e.getMessage().contains("invalid length"));
+        }
+    }
+}
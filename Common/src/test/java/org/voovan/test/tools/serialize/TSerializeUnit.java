@@ -4,12 +4,14 @@ import junit.framework.TestCase;
 import org.voovan.test.tools.json.TestObject;
 import org.voovan.tools.TObject;
 import org.voovan.tools.reflect.TReflect;
-import org.voovan.tools.serialize.TSerialize;
+import org.voovan.tools.serialize.*;
 
 import java.text.ParseException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Vector;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 类文字命名
@@ -44,4 +46,73 @@ public class TSerializeUnit extends TestCase {
         Object o = TReflect.getObjectFromMap(TestObject.class, TObject.asMap(), false);
         System.out.println(object);
     }
+
+    /**
+     * 多线程序列化吞吐量, 线程数增加时吞吐量应同步增加
+     */
+    public static void testMultiThreadThroughput() throws Exception {
+        TestObject m = new TestObject();
+        m.setBint(111);
+        m.setString("str");
+        m.getList().add("v1111");
+        m.getMap().put("m1", "v1");
+
+        int loopCount = 100000;
+        int maxThreadCount = Runtime.getRuntime().availableProcessors();
+
+        for(int threadCount = 1; threadCount <= maxThreadCount; threadCount = threadCount * 2) {
+            CountDownLatch countDownLatch = new CountDownLatch(threadCount);
+            AtomicLong failCount = new AtomicLong();
+
+            long startTime = System.nanoTime();
+            for (int i = 0; i < threadCount; i++) {
+                new Thread(() -> {
+                    for (int x = 0; x < loopCount; x++) {
+                        Object object = TSerialize.unserialize(TSerialize.serialize(m));
+                        if (!m.equals(object)) {
+                            failCount.incrementAndGet();
+                        }
+                    }
+                    countDownLatch.countDown();
+                }).start();
+            }
+            countDownLatch.await();
+
+            long cost = System.nanoTime() - startTime;
+            System.out.println("threads: " + threadCount + ", ops/s: " + (long)(threadCount * loopCount / (cost / 1000000000d)));
+            assertEquals(0, failCount.get());
+        }
+    }
+
+    /**
+     * 对比各个序列化实现在 RocksMap/RedisMap 常见的值类型上的大小和速度
+     */
+    public static void testCompare() throws Exception {
+        TestObject testObject = new TestObject();
+        testObject.setBint(111);
+        testObject.setString("str");
+        testObject.getList().add("v1111");
+        testObject.getMap().put("m1", "v1");
+        testObject.getTb2().setString("tb2");
+
+        Map<String, Object> mapValue = new HashMap<String, Object>();
+        mapValue.put("id", 123456789L);
+        mapValue.put("name", "helyho");
+        mapValue.put("score", 99.5d);
+
+        Serialize[] serializes = new Serialize[]{new DefaultJDKSerialize(), new DefaultJSONSerialize(), new ProtoStuffSerialize(), new BinarySerialize()};
+        for(Object value : new Object[]{testObject, mapValue, "string value", 123456789L}) {
+            System.out.println("========== " + value.getClass().getSimpleName() + " ==========");
+            for (Serialize serialize : serializes) {
+                int loopCount = 50000;
+                byte[] bytes = serialize.serialize(value);
+                long startTime = System.nanoTime();
+                for (int i = 0; i < loopCount; i++) {
+                    serialize.unserialize(serialize.serialize(value));
+                }
+                long cost = System.nanoTime() - startTime;
+                System.out.println(serialize.getClass().getSimpleName() + ": size=" + bytes.length + ", ops/s=" + (long)(loopCount / (cost / 1000000000d)));
+            }
+        }
+    }
 }
@@ -14,6 +14,7 @@ import org.voovan.tools.log.Logger;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.SelectionKey;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.TimeoutException;
 
 /**
@@ -54,6 +55,8 @@ public abstract class IoSession<T extends SocketContext> extends Attributes {
 	private State state;
 	private SelectionKey selectionKey;
 	private SocketSelector socketSelector;
+	private volatile int readHighWaterMark = -1;
+	private AtomicBoolean readSuspended = new AtomicBoolean(false);
 
 	/**
 	 * 会话状态管理
@@ -563,6 +566,49 @@ public abstract class IoSession<T extends SocketContext> extends Attributes {
 		messageLoader.enable(useSpliter);
 	}
 
+	/**
+	 * 获取读缓冲区的高水位
+	 * @return 高水位, 单位: 字节, 小于等于 0 时不做读流控
+	 */
+	public int getReadHighWaterMark() {
+		return readHighWaterMark;
+	}
+
+	/**
+	 * 设置读缓冲区的高水位
+	 *      读缓冲区中的数据达到高水位时暂停从 Socket 读取, 由消费方读取数据后调用 resumeRead() 恢复
+	 * @param readHighWaterMark 高水位, 单位: 字节, 小于等于 0 时不做读流控
+	 */
+	public void setReadHighWaterMark(int readHighWaterMark) {
+		this.readHighWaterMark = readHighWaterMark;
+	}
+
+	/**
+	 * 读取是否已暂停
+	 * @return true: 已暂停, false: 未暂停
+	 */
+	public boolean isReadSuspended() {
+		return readSuspended.get();
+	}
+
+	/**
+	 * 暂停从 Socket 读取数据
+	 */
+	public void suspendRead() {
+		if(socketSelector != null && selectionKey != null && readSuspended.compareAndSet(false, true)) {
+			socketSelector.suspendRead(selectionKey);
+		}
+	}
+
+	/**
+	 * 恢复从 Socket 读取数据
+	 */
+	public void resumeRead() {
+		if(socketSelector != null && selectionKey != null && readSuspended.compareAndSet(true, false)) {
+			socketSelector.resumeRead(selectionKey);
+		}
+	}
+
 	/**
 	 * 会话是否连接
 	 * @return	true: 连接,false: 关闭
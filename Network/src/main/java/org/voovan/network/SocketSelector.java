@@ -186,6 +186,51 @@ public class SocketSelector implements Closeable {
 		return eventRunner.getThread() == Thread.currentThread();
 	}
 
+	/**
+	 * 暂停读事件
+	 *      在选择器的事件线程中移除 OP_READ, 数据停留在 Socket 的接收缓冲区中, 由 TCP 的窗口通知对端放慢发送
+	 * @param selectionKey SelectionKey 对象
+	 */
+	public void suspendRead(SelectionKey selectionKey) {
+		changeOps(selectionKey, SelectionKey.OP_READ, false);
+	}
+
+	/**
+	 * 恢复读事件
+	 * @param selectionKey SelectionKey 对象
+	 */
+	public void resumeRead(SelectionKey selectionKey) {
+		changeOps(selectionKey, SelectionKey.OP_READ, true);
+	}
+
+	private void changeOps(SelectionKey selectionKey, int ops, boolean isAdd) {
+		Callable<Boolean> change = () -> {
+			if (selectionKey.isValid()) {
+				if (isAdd) {
+					NioUtil.addOps(selectionKey, ops);
+				} else {
+					NioUtil.removeOps(selectionKey, ops);
+				}
+			}
+			return true;
+		};
+
+		if(inEventRunner()) {
+			try {
+				change.call();
+			} catch (Exception e) {
+				Logger.error("SocketSelector change ops error:", e);
+			}
+		} else {
+			addChooseEvent(6, change);
+
+			//正在 select 则唤醒
+			if (selecting.get()) {
+				selector.wakeup();
+			}
+		}
+	}
+
 	/**
 	 * 向执行器中增加一个选择事件
 	 */
@@ -567,6 +612,12 @@ public class SocketSelector implements Closeable {
 						appByteBufferChannel.writeEnd(readTempBuffer);
 					}
 
+					//读缓冲区达到高水位时暂停读取
+					int readHighWaterMark = session.getReadHighWaterMark();
+					if (readHighWaterMark > 0 && appByteBufferChannel.size() >= readHighWaterMark) {
+						session.suspendRead();
+					}
+
 					if (session.isConnected() && !session.getState().isReceive() && appByteBufferChannel.size() > 0) {
 						// 触发 onReceive 事件
 						EventTrigger.fireReceiveAsEvent(session);
@@ -0,0 +1,264 @@
+package org.voovan.http.client;
+
+import org.voovan.Global;
+import org.voovan.http.message.Request;
+import org.voovan.http.message.Response;
+import org.voovan.tools.hashwheeltimer.HashWheelTask;
+import org.voovan.tools.hashwheeltimer.HashWheelTimer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 异步 HTTP 客户端
+ *      请求立即返回 CompletableFuture, 连接共享全局的 IO 事件线程, 不会阻塞调用线程
+ *      每个主机维护一个按需扩容的连接池, 在 keep-alive 的连接上可以流水线发送请求
+ *      响应在 IO 线程中完成, 耗时的处理请使用 CompletableFuture 的 *Async 方法
+ *
+ * @author helyho
+ *
+ * Voovan Framework.
+ * WebSite: https://github.com/helyho/Voovan
+ * Licence: Apache v2 License
+ */
+public class AsyncHttpClient implements Closeable {
+    //超时时间轮的步长, 单位: 毫秒
+    private static final int TIMEOUT_TICK_STEP = 100;
+    private static HashWheelTimer TIMEOUT_WHEEL_TIMER;
+
+    private int timeout = 5000;
+    private int maxConnectionsPerHost = 8;
+    private int maxPipeline = 1;
+    private int keepAliveTimeout = 60;
+    private String charset = "UTF-8";
+
+    private ConcurrentHashMap<String, HttpConnectionPool> pools = new ConcurrentHashMap<String, HttpConnectionPool>();
+    private HashWheelTask idleCheckTask;
+    private volatile boolean closed = false;
+
+    /**
+     * 构造函数
+     */
+    public AsyncHttpClient() {
+        idleCheckTask = new HashWheelTask() {
+            @Override
+            public void run() {
+                for(HttpConnectionPool pool : pools.values()) {
+                    pool.checkIdle(keepAliveTimeout * 1000L);
+                }
+            }
+        };
+
+        Global.getHashWheelTimer().addTask(idleCheckTask, 1);
+    }
+
+    /**
+     * 获取请求超时使用的时间轮
+     * @return HashWheelTimer 对象
+     */
+    static synchronized HashWheelTimer getTimeoutWheelTimer() {
+        if(TIMEOUT_WHEEL_TIMER == null) {
+            TIMEOUT_WHEEL_TIMER = new HashWheelTimer("AsyncHttpClient", 100, TIMEOUT_TICK_STEP);
+            TIMEOUT_WHEEL_TIMER.rotate();
+        }
+
+        return TIMEOUT_WHEEL_TIMER;
+    }
+
+    public int getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * 设置请求超时时间, 同时用作连接超时时间
+     * @param timeout 超时时间, 单位: 毫秒
+     * @return AsyncHttpClient 对象
+     */
+    public AsyncHttpClient timeout(int timeout) {
+        this.timeout = timeout;
+        return this;
+    }
+
+    public int getMaxConnectionsPerHost() {
+        return maxConnectionsPerHost;
+    }
+
+    /**
+     * 设置单个主机的最大连接数
+     * @param maxConnectionsPerHost 单个主机的最大连接数
+     * @return AsyncHttpClient 对象
+     */
+    public AsyncHttpClient maxConnectionsPerHost(int maxConnectionsPerHost) {
+        this.maxConnectionsPerHost = maxConnectionsPerHost;
+        return this;
+    }
+
+    public int getMaxPipeline() {
+        return maxPipeline;
+    }
+
+    /**
+     * 设置单个连接上同时等待响应的最大请求数
+     *      默认为 1, 即不使用流水线, 服务端完整支持 HTTP 流水线时可以调大
+     * @param maxPipeline 单个连接上同时等待响应的最大请求数
+     * @return AsyncHttpClient 对象
+     */
+    public AsyncHttpClient maxPipeline(int maxPipeline) {
+        this.maxPipeline = maxPipeline;
+        return this;
+    }
+
+    public int getKeepAliveTimeout() {
+        return keepAliveTimeout;
+    }
+
+    /**
+     * 设置连接的空闲超时时间
+     * @param keepAliveTimeout 空闲超时时间, 单位: 秒
+     * @return AsyncHttpClient 对象
+     */
+    public AsyncHttpClient keepAliveTimeout(int keepAliveTimeout) {
+        this.keepAliveTimeout = keepAliveTimeout;
+        return this;
+    }
+
+    public String getCharset() {
+        return charset;
+    }
+
+    /**
+     * 设置请求的字符集
+     * @param charset 字符集
+     * @return AsyncHttpClient 对象
+     */
+    public AsyncHttpClient charset(String charset) {
+        this.charset = charset;
+        return this;
+    }
+
+    /**
+     * 获取主机的连接池
+     * @param host 主机地址
+     * @param port 端口
+     * @param ssl 是否使用 SSL
+     * @return 连接池对象, 不存在时返回 null
+     */
+    public HttpConnectionPool getConnectionPool(String host, int port, boolean ssl) {
+        return pools.get(getPoolKey(host, port, ssl));
+    }
+
+    private static String getPoolKey(String host, int port, boolean ssl) {
+        return (ssl ? "https://" : "http://") + host + ":" + port;
+    }
+
+    /**
+     * 发送 GET 请求
+     * @param urlString 请求的 URL 地址
+     * @return 响应的 CompletableFuture 对象
+     */
+    public CompletableFuture<Response> get(String urlString) {
+        return send(urlString, new Request());
+    }
+
+    /**
+     * 发送 POST 请求
+     * @param urlString 请求的 URL 地址
+     * @param contentType 报文类型
+     * @param data 请求内容
+     * @return 响应的 CompletableFuture 对象
+     */
+    public CompletableFuture<Response> post(String urlString, String contentType, String data) {
+        Request request = new Request();
+        request.protocol().setMethod("POST");
+        request.header().put("Content-Type", contentType);
+        if(data != null) {
+            request.body().write(data, charset);
+        }
+        return send(urlString, request);
+    }
+
+    /**
+     * 发送请求
+     *      请求的路径和主机由 URL 决定, 方法, 请求头和报文由 Request 对象决定
+     *      Request 对象在发送后会被清理, 不能重复使用
+     * @param urlString 请求的 URL 地址
+     * @param request 请求对象
+     * @return 响应的 CompletableFuture 对象
+     */
+    public CompletableFuture<Response> send(String urlString, Request request) {
+        HttpExchange exchange = new HttpExchange(request);
+
+        if(closed) {
+            exchange.fail(new IOException("AsyncHttpClient is closed"));
+            return exchange.getFuture();
+        }
+
+        URL url;
+        try {
+            url = new URL(urlString);
+        } catch (MalformedURLException e) {
+            exchange.fail(e);
+            return exchange.getFuture();
+        }
+
+        boolean ssl = "https".equalsIgnoreCase(url.getProtocol());
+        String host = url.getHost();
+        int port = url.getPort() == -1 ? url.getDefaultPort() : url.getPort();
+
+        initRequest(request, url);
+
+        exchange.startTimeout((timeout + TIMEOUT_TICK_STEP - 1) / TIMEOUT_TICK_STEP);
+
+        HttpConnectionPool pool = pools.computeIfAbsent(getPoolKey(host, port, ssl), key -> new HttpConnectionPool(this, host, port, ssl));
+        pool.execute(exchange);
+
+        //关闭过程中创建的连接池由这里关闭
+        if(closed) {
+            pool.close();
+        }
+
+        return exchange.getFuture();
+    }
+
+    /**
+     * 初始化请求路径和默认的请求头
+     * @param request 请求对象
+     * @param url URL 对象
+     */
+    private void initRequest(Request request, URL url) {
+        String path = url.getFile();
+        request.protocol().setPath(path.isEmpty() ? "/" : path);
+
+        if(!request.header().contain("Host")) {
+            request.header().put("Host", url.getPort() == -1 ? url.getHost() : url.getHost() + ":" + url.getPort());
+        }
+        if(!request.header().contain("User-Agent")) {
+            request.header().put("User-Agent", "Voovan Http Client");
+        }
+        if(!request.header().contain("Accept-Encoding")) {
+            request.header().put("Accept-Encoding", "gzip");
+        }
+        if(!request.header().contain("Connection")) {
+            request.header().put("Connection", "keep-alive");
+        }
+    }
+
+    /**
+     * 关闭客户端
+     *      关闭所有连接, 未完成的请求以异常结束
+     */
+    @Override
+    public void close() {
+        closed = true;
+        idleCheckTask.cancel();
+
+        for(HttpConnectionPool pool : pools.values()) {
+            pool.close();
+        }
+        pools.clear();
+    }
+}
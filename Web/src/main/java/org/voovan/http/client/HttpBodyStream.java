@@ -0,0 +1,425 @@
+package org.voovan.http.client;
+
+import org.voovan.http.message.HttpStatic;
+import org.voovan.http.message.Response;
+import org.voovan.network.IoSession;
+import org.voovan.tools.TEnv;
+import org.voovan.tools.buffer.ByteBufferChannel;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * 流式读取的 HTTP 响应报文体
+ *      报文体直接从会话的读缓冲区中按需读取, chunked 和 gzip/deflate 在读取过程中逐段解码
+ *      读缓冲区达到高水位时暂停从 Socket 读取, 被消费到低水位后恢复, 内存占用与报文体大小无关
+ *      报文体读取完成后 HttpClient 可以继续发送请求, 未读完就关闭时连接会被关闭
+ *
+ * @author helyho
+ *
+ * Voovan Framework.
+ * WebSite: https://github.com/helyho/Voovan
+ * Licence: Apache v2 License
+ */
+public class HttpBodyStream extends InputStream implements ReadableByteChannel {
+    private HttpClient httpClient;
+    private Response response;
+    private IoSession session;
+    private ByteBufferChannel byteBufferChannel;
+    private int timeout;
+    private int lowWaterMark;
+
+    private BodyInputStream bodyInputStream;
+    private InputStream inputStream;
+    private boolean closed = false;
+    private boolean complete = false;
+
+    /**
+     * 构造函数
+     * @param httpClient HttpClient 对象
+     * @param session 会话对象
+     * @param response 只包含协议行和报文头的响应对象
+     * @param hasBody 响应是否有报文体, HEAD 请求以及 1xx/204/304 响应没有报文体
+     * @param decode 是否按 Content-Encoding 解压报文体, false: 读取原始的报文体, 用于转发等场景
+     * @throws IOException IO 异常
+     */
+    HttpBodyStream(HttpClient httpClient, IoSession session, Response response, boolean hasBody, boolean decode) throws IOException {
+        this.httpClient = httpClient;
+        this.session = session;
+        this.response = response;
+        this.byteBufferChannel = session.getReadByteBufferChannel();
+        this.timeout = session.socketContext().getReadTimeout();
+        this.lowWaterMark = session.getReadHighWaterMark() / 2;
+
+        String transferEncoding = response.header().get(HttpStatic.TRANSFER_ENCODING_STRING);
+        String contentLength = response.header().get(HttpStatic.CONTENT_LENGTH_STRING);
+
+        if(!hasBody) {
+            bodyInputStream = new BodyInputStream(0);
+        } else if(transferEncoding != null && transferEncoding.toLowerCase().contains(HttpStatic.CHUNKED_STRING)) {
+            bodyInputStream = new BodyInputStream(-2);
+        } else if(contentLength != null) {
+            bodyInputStream = new BodyInputStream(Long.parseLong(contentLength.trim()));
+        } else {
+            //没有长度信息时读取到连接关闭
+            bodyInputStream = new BodyInputStream(-1);
+        }
+
+        String contentEncoding = response.header().get(HttpStatic.CONTENT_ENCODING_STRING);
+        if(decode && contentEncoding != null && hasBody && !bodyInputStream.isEnd()) {
+            contentEncoding = contentEncoding.trim().toLowerCase();
+            if (HttpStatic.GZIP_STRING.equals(contentEncoding) || HttpStatic.X_GZIP_STRING.equals(contentEncoding)) {
+                inputStream = new GZIPInputStream(bodyInputStream);
+            } else if ("deflate".equals(contentEncoding)) {
+                inputStream = new InflaterInputStream(bodyInputStream);
+            }
+        }
+
+        if(inputStream == null) {
+            inputStream = bodyInputStream;
+        }
+
+        if(bodyInputStream.isEnd()) {
+            finish();
+        }
+    }
+
+    /**
+     * 获取响应对象
+     *      只包含协议行和报文头, 报文体通过当前流读取
+     * @return 响应对象
+     */
+    public Response getResponse() {
+        return response;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] bytes = new byte[1];
+        int readSize = read(bytes, 0, 1);
+        return readSize == -1 ? -1 : bytes[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        if(closed) {
+            if(complete) {
+                return -1;
+            }
+            throw new IOException("HttpBodyStream is closed");
+        }
+
+        if(length == 0) {
+            return 0;
+        }
+
+        int readSize = inputStream.read(bytes, offset, length);
+        if(readSize == -1) {
+            //解压的流结束时原始报文体可能还有未读取的数据, 例如 chunked 的结束块, 读取完成后连接才能继续使用
+            try {
+                bodyInputStream.skipToEnd();
+            } catch (IOException e) {
+                close();
+                throw e;
+            }
+            finish();
+        } else if(bodyInputStream.isEnd() && inputStream == bodyInputStream) {
+            finish();
+        }
+        return readSize;
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        if(!dst.hasRemaining()) {
+            return 0;
+        }
+
+        if(dst.hasArray()) {
+            int readSize = read(dst.array(), dst.arrayOffset() + dst.position(), dst.remaining());
+            if(readSize > 0) {
+                dst.position(dst.position() + readSize);
+            }
+            return readSize;
+        } else {
+            byte[] bytes = new byte[Math.min(dst.remaining(), 8192)];
+            int readSize = read(bytes, 0, bytes.length);
+            if(readSize > 0) {
+                dst.put(bytes, 0, readSize);
+            }
+            return readSize;
+        }
+    }
+
+    @Override
+    public int available() throws IOException {
+        return closed ? 0 : inputStream.available();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return !closed;
+    }
+
+    /**
+     * 报文体读取完成, 恢复 HttpClient 的状态
+     */
+    private void finish() {
+        if(!closed) {
+            closed = true;
+            complete = true;
+            httpClient.streamFinished(response, true);
+        }
+    }
+
+    /**
+     * 关闭流
+     *      报文体未读取完成时关闭连接
+     */
+    @Override
+    public void close() {
+        if(!closed) {
+            closed = true;
+            httpClient.streamFinished(response, false);
+        }
+    }
+
+    /**
+     * 按 Content-Length, chunked 或连接关闭确定边界的原始报文体
+     */
+    private class BodyInputStream extends InputStream {
+        //剩余长度, -1: 读取到连接关闭, -2: chunked
+        private long remaining;
+        private boolean chunked;
+        private long chunkRemaining = 0;
+        private boolean end = false;
+
+        BodyInputStream(long length) {
+            if(length == -2) {
+                chunked = true;
+                remaining = -1;
+            } else {
+                remaining = length;
+                end = length == 0;
+            }
+        }
+
+        boolean isEnd() {
+            return end;
+        }
+
+        /**
+         * 跳过剩余的报文体, 读取到连接关闭的报文体不跳过
+         * @throws IOException IO 异常
+         */
+        void skipToEnd() throws IOException {
+            if(!chunked && remaining < 0) {
+                return;
+            }
+
+            byte[] bytes = new byte[512];
+            while(read(bytes, 0, bytes.length) != -1) {
+                //丢弃剩余的数据
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] bytes = new byte[1];
+            int readSize = read(bytes, 0, 1);
+            return readSize == -1 ? -1 : bytes[0] & 0xFF;
+        }
+
+        @Override
+        public int available() throws IOException {
+            if(end) {
+                return 0;
+            }
+
+            //两个 chunk 之间, 下一个 chunk 的长度行已经在缓冲区中时先读取长度行
+            if(chunked && chunkRemaining == 0) {
+                if(!readBufferedChunkSize()) {
+                    return 0;
+                }
+            }
+
+            long size = byteBufferChannel.isReleased() ? 0 : byteBufferChannel.size();
+            if(chunked) {
+                size = Math.min(size, chunkRemaining);
+            } else if(remaining >= 0) {
+                size = Math.min(size, remaining);
+            }
+            return (int) size;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if(end) {
+                return -1;
+            }
+
+            if(chunked) {
+                if(chunkRemaining == 0) {
+                    chunkRemaining = readChunkSize();
+                    if(chunkRemaining == 0) {
+                        end = true;
+                        return -1;
+                    }
+                }
+                length = (int) Math.min(length, chunkRemaining);
+            } else if(remaining >= 0) {
+                length = (int) Math.min(length, remaining);
+            }
+
+            int readSize = readData(bytes, offset, length);
+            if(readSize == -1) {
+                //按长度读取时连接提前关闭
+                if(remaining > 0 || chunked) {
+                    throw new IOException("HttpBodyStream connection closed before body end");
+                }
+                end = true;
+                return -1;
+            }
+
+            if(chunked) {
+                chunkRemaining = chunkRemaining - readSize;
+                if(chunkRemaining == 0) {
+                    readLine();
+                }
+            } else if(remaining >= 0) {
+                remaining = remaining - readSize;
+                end = remaining == 0;
+            }
+
+            return readSize;
+        }
+
+        /**
+         * 读取 chunk 的长度行, 长度为 0 时跳过尾部的报文头
+         * @return chunk 的长度
+         * @throws IOException IO 异常
+         */
+        private long readChunkSize() throws IOException {
+            String line = readLine();
+            int extensionIndex = line.indexOf(';');
+            if(extensionIndex >= 0) {
+                line = line.substring(0, extensionIndex);
+            }
+
+            long chunkSize;
+            try {
+                chunkSize = Long.parseLong(line.trim(), 16);
+            } catch (NumberFormatException e) {
+                throw new IOException("HttpBodyStream invalid chunk size: " + line);
+            }
+
+            if(chunkSize == 0) {
+                while(!readLine().isEmpty()) {
+                    //跳过 trailer
+                }
+            }
+            return chunkSize;
+        }
+
+        /**
+         * 不等待数据, 读取缓冲区中完整的 chunk 长度行, 最后一个 chunk 需要 trailer 也完整才会读取
+         * @return true: 已读取到非 0 长度的 chunk, false: 缓冲区中的数据不足或报文体已结束
+         * @throws IOException IO 异常
+         */
+        private boolean readBufferedChunkSize() throws IOException {
+            if(byteBufferChannel.isReleased()) {
+                return false;
+            }
+
+            int lineEnd = byteBufferChannel.indexOf(new byte[]{'\n'});
+            if(lineEnd < 0) {
+                return false;
+            }
+
+            //最后一个 chunk 的 trailer 以空行结束, 空行不在缓冲区中时由后续的 read 等待读取
+            if(isZeroChunkLine(lineEnd) && byteBufferChannel.indexOf(new byte[]{'\r', '\n', '\r', '\n'}) < 0 &&
+                    byteBufferChannel.indexOf(new byte[]{'\n', '\n'}) < 0) {
+                return false;
+            }
+
+            chunkRemaining = readChunkSize();
+            end = chunkRemaining == 0;
+            return !end;
+        }
+
+        /**
+         * 判断缓冲区开头的长度行是否是最后一个 chunk 的长度行
+         * @param lineEnd 换行符的位置
+         * @return true: 长度为 0, false: 长度不为 0
+         */
+        private boolean isZeroChunkLine(int lineEnd) {
+            boolean zero = false;
+            for(int i = 0; i < lineEnd; i++) {
+                byte b = byteBufferChannel.get(i);
+                if(b == ';' || b == '\r') {
+                    break;
+                } else if(b == '0') {
+                    zero = true;
+                } else if(b != ' ' && b != '\t') {
+                    return false;
+                }
+            }
+            return zero;
+        }
+
+        /**
+         * 读取一行, 不包含换行符
+         * @return 行内容
+         * @throws IOException IO 异常
+         */
+        private String readLine() throws IOException {
+            byte[] lineMark = new byte[]{'\n'};
+            if(!byteBufferChannel.waitData(lineMark, timeout, () -> {}) && byteBufferChannel.indexOf(lineMark) < 0) {
+                throw new IOException("HttpBodyStream read chunk line timeout");
+            }
+
+            String line = byteBufferChannel.readLine();
+            resumeIfDrained();
+            return line == null ? "" : line.trim();
+        }
+
+        /**
+         * 从读缓冲区读取数据, 没有数据时等待
+         * @return 读取的字节数, -1: 连接已关闭
+         */
+        private int readData(byte[] bytes, int offset, int length) throws IOException {
+            if(byteBufferChannel.isReleased() || byteBufferChannel.size() == 0) {
+                //等待期间确保读取没有被暂停
+                session.resumeRead();
+
+                //一次等待直到收到数据, 连接关闭或超时
+                TEnv.wait(timeout, () -> !byteBufferChannel.isReleased() && byteBufferChannel.size() == 0 && session.isConnected());
+
+                if(byteBufferChannel.isReleased() || byteBufferChannel.size() == 0) {
+                    if(byteBufferChannel.isReleased() || !session.isConnected()) {
+                        return -1;
+                    }
+
+                    throw new IOException("HttpBodyStream read timeout");
+                }
+            }
+
+            int readSize = byteBufferChannel.readHead(ByteBuffer.wrap(bytes, offset, length));
+            resumeIfDrained();
+            return readSize;
+        }
+
+        /**
+         * 读缓冲区中的数据被消费到低水位时恢复读取
+         */
+        private void resumeIfDrained() {
+            if(session.isReadSuspended() && !byteBufferChannel.isReleased() && byteBufferChannel.size() <= lowWaterMark) {
+                session.resumeRead();
+            }
+        }
+    }
+}
@@ -2,12 +2,14 @@ package org.voovan.http.client;
 
 import org.voovan.http.HttpRequestType;
 import org.voovan.http.HttpSessionParam;
+import org.voovan.http.message.HttpParser;
 import org.voovan.http.message.Request;
 import org.voovan.http.message.Response;
 import org.voovan.http.message.packet.Cookie;
 import org.voovan.http.message.packet.Header;
 import org.voovan.http.message.packet.Part;
 import org.voovan.http.server.HttpRequest;
+import org.voovan.http.server.exception.HttpParserException;
 import org.voovan.http.websocket.WebSocketFrame;
 import org.voovan.http.websocket.WebSocketRouter;
 import org.voovan.http.websocket.WebSocketSession;
@@ -61,6 +63,9 @@ public class HttpClient extends PooledObject implements Closeable{
 	private String hostString;
 	private AsyncHandler asyncHandler;
 	private boolean paramInUrl = false;
+	private volatile boolean keepAlive = true;
+	private volatile int keepAliveTimeout = -1;
+	private volatile long lastActiveTime = System.currentTimeMillis();
 
 	/**
 	 * 构建函数
@@ -546,6 +551,144 @@ public class HttpClient extends PooledObject implements Closeable{
 		return null;
 	}
 
+	/**
+	 * 连接并发送请求, 以流的方式读取响应的报文体
+	 * 		返回时只完成了协议行和报文头的解析, 报文体通过 HttpBodyStream 从连接中按需读取,
+	 * 		chunked 和 gzip/deflate 在读取过程中逐段解码, 读缓冲区达到上限的一半时暂停从 Socket 读取.
+	 * 		报文体读取完成前不能发送其他请求, 未读完就关闭流会同时关闭连接
+	 * @param location 请求 URL
+	 * @return 响应报文体流
+	 * @throws SendMessageException  发送异常
+	 * @throws ReadMessageException  读取异常
+	 */
+	public HttpBodyStream sendStream(String location) throws SendMessageException, ReadMessageException {
+		return sendStream(location, true);
+	}
+
+	/**
+	 * 连接并发送请求, 以流的方式读取响应的报文体
+	 * @param location 请求 URL
+	 * @param decode 是否按 Content-Encoding 解压报文体, false: 读取原始的报文体, 用于转发等场景
+	 * @return 响应报文体流
+	 * @throws SendMessageException  发送异常
+	 * @throws ReadMessageException  读取异常
+	 */
+	public synchronized HttpBodyStream sendStream(String location, boolean decode) throws SendMessageException, ReadMessageException {
+		if (isWebSocket) {
+			throw new SendMessageException("The WebSocket is connect, you can't send an http request.");
+		}
+
+		if(asyncHandler.isRunning()) {
+			throw new SendMessageException("The asyn is running, you can't send other http request. please wait a moment");
+		}
+
+		IoSession session = socket.getSession();
+		if(!session.getMessageLoader().isEnable()) {
+			throw new SendMessageException("The stream is reading, you can't send other http request. please close the stream first");
+		}
+
+		//构造 Request 对象
+		buildRequest(TString.isNullOrEmpty(location) ? "/" : location);
+		boolean isHead = "HEAD".equals(httpRequest.protocol().getMethod());
+
+		session.getReadByteBufferChannel().clear();
+		session.getSendByteBufferChannel().clear();
+		((SynchronousHandler)socket.handler()).clearResponse();
+
+		//不使用分割器, 报文保留在读缓冲区中由当前线程解析
+		//读缓冲区会被 IO 线程和当前线程同时访问, 需要线程安全
+		session.getReadByteBufferChannel().setThreadSafe(true);
+		session.enabledMessageSpliter(false);
+		session.setReadHighWaterMark(session.getReadByteBufferChannel().getMaxSize() / 2);
+
+		//发送报文
+		try {
+			httpRequest.send(session);
+			httpRequest.flush();
+		} catch (Exception e) {
+			streamFinished(null, false);
+			throw new SendMessageException("HttpClient writeToChannel error", e);
+		}
+
+		try {
+			int readTimeout = socket.getReadTimeout();
+			if(!session.getReadByteBufferChannel().waitData("\r\n\r\n".getBytes(), readTimeout, ()->{
+				if(!session.isConnected()) {
+					throw new HttpParserException("Socket is disconnect");
+				}
+			})) {
+				throw new TimeoutException("HttpClient read response head timeout");
+			}
+
+			Response response = HttpParser.parseResponseHead(session, session.getReadByteBufferChannel(), readTimeout);
+			if(response == null) {
+				throw new ReadMessageException("HttpClient parse response head failed");
+			}
+
+			//响应对象为线程内复用的对象, 重置后由流持有
+			HttpParser.resetThreadLocal();
+
+			int status = response.protocol().getStatus();
+			boolean hasBody = !isHead && status >= 200 && status != 204 && status != 304;
+			return new HttpBodyStream(this, session, response, hasBody, decode);
+		} catch (Exception e) {
+			streamFinished(null, false);
+			if(e instanceof ReadMessageException) {
+				throw (ReadMessageException) e;
+			}
+			throw new ReadMessageException("HttpClient read response error", e);
+		}
+	}
+
+	/**
+	 * 连接并发送请求, 报文体按到达的数据块回调
+	 * 		回调的 ByteBuffer 在回调返回后会被复用, 需要保留数据时请复制
+	 * @param location 请求 URL
+	 * @param consumer 报文体数据块的消费对象
+	 * @return 响应对象, 报文体为空
+	 * @throws SendMessageException  发送异常
+	 * @throws ReadMessageException  读取异常
+	 */
+	public Response sendStream(String location, Consumer<ByteBuffer> consumer) throws SendMessageException, ReadMessageException {
+		HttpBodyStream httpBodyStream = sendStream(location);
+		ByteBuffer byteBuffer = ByteBuffer.allocate(socket.getReadBufferSize());
+		try {
+			while (httpBodyStream.read(byteBuffer) != -1) {
+				byteBuffer.flip();
+				if(byteBuffer.hasRemaining()) {
+					consumer.accept(byteBuffer);
+				}
+				byteBuffer.clear();
+			}
+			return httpBodyStream.getResponse();
+		} catch (IOException e) {
+			throw new ReadMessageException("HttpClient read response body error", e);
+		} finally {
+			httpBodyStream.close();
+		}
+	}
+
+	/**
+	 * 流式读取结束
+	 * @param response 响应对象
+	 * @param complete true: 报文体已读取完成, 连接可继续使用, false: 报文体未读取完成, 关闭连接
+	 */
+	void streamFinished(Response response, boolean complete) {
+		IoSession session = socket.getSession();
+		session.setReadHighWaterMark(-1);
+		session.resumeRead();
+		session.enabledMessageSpliter(true);
+
+		//结束操作
+		finished(response);
+
+		//报文体未读完, 连接中残留的数据无法再区分, 不能复用
+		if(!complete) {
+			keepAlive = false;
+			session.close();
+		}
+	}
+
 	/**
 	 * 连接并发送请求
 	 * @return Response 对象
@@ -581,6 +724,13 @@ public class HttpClient extends PooledObject implements Closeable{
 	 * @param response 请求对象
 	 */
 	protected void finished(Response response){
+		//记录连接的复用信息
+		if(response!=null) {
+			keepAlive = isKeepAlive(response);
+			keepAliveTimeout = getKeepAliveTimeout(response);
+		}
+		lastActiveTime = System.currentTimeMillis();
+
 		//传递 cookie 到 Request 对象
 		if(response!=null
 				&& response.cookies()!=null
@@ -696,6 +846,68 @@ public class HttpClient extends PooledObject implements Closeable{
 		}
 	}
 
+	/**
+	 * 最后一次响应是否允许复用连接
+	 * @return true: 允许复用, false: 不允许复用
+	 */
+	public boolean isKeepAlive() {
+		return keepAlive && !isWebSocket;
+	}
+
+	/**
+	 * 获取服务端通过 Keep-Alive 响应头声明的空闲超时时间
+	 * @return 空闲超时时间, 单位: 秒, 未声明时返回 -1
+	 */
+	public int getKeepAliveTimeout() {
+		return keepAliveTimeout;
+	}
+
+	/**
+	 * 获取最后一次完成请求的时间
+	 * @return 最后一次完成请求的时间, 单位: 毫秒
+	 */
+	public long getLastActiveTime() {
+		return lastActiveTime;
+	}
+
+	/**
+	 * 根据响应的 Connection 响应头判断连接是否可以复用
+	 *      HTTP/1.1 默认复用, HTTP/1.0 需要明确声明 keep-alive
+	 * @param response 响应对象
+	 * @return true: 可以复用, false: 不可复用
+	 */
+	static boolean isKeepAlive(Response response) {
+		String connection = response.header().get("Connection");
+		if("1.0".equals(response.protocol().getVersion())) {
+			return "keep-alive".equalsIgnoreCase(connection);
+		} else {
+			return !"close".equalsIgnoreCase(connection);
+		}
+	}
+
+	/**
+	 * 解析响应头 Keep-Alive 中的超时时间, 例如: Keep-Alive: timeout=5, max=100
+	 * @param response 响应对象
+	 * @return 空闲超时时间, 单位: 秒, 未声明时返回 -1
+	 */
+	static int getKeepAliveTimeout(Response response) {
+		String keepAlive = response.header().get("Keep-Alive");
+		if(keepAlive != null) {
+			for (String item : keepAlive.split(",")) {
+				String[] pair = item.trim().split("=");
+				if (pair.length == 2 && "timeout".equalsIgnoreCase(pair[0].trim())) {
+					try {
+						return Integer.parseInt(pair[1].trim());
+					} catch (NumberFormatException e) {
+						return -1;
+					}
+				}
+			}
+		}
+
+		return -1;
+	}
+
 	/**
 	 * 判断是否处于连接状态
 	 * @return 是否连接
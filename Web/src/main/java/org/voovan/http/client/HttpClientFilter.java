@@ -30,6 +30,10 @@ public class HttpClientFilter implements IoFilter {
 
 	private HttpClient httpClient;
 
+	/**
+	 * 构造函数
+	 * @param httpClient HttpClient 对象, 为 null 时不处理 WebSocket 升级
+	 */
 	public HttpClientFilter(HttpClient httpClient){
 		this.httpClient = httpClient;
 	}
@@ -68,8 +72,8 @@ public class HttpClientFilter implements IoFilter {
 				}else {
 					Response response = HttpParser.parseResponse(session, byteBufferChannel, session.socketContext().getReadTimeout());
 					HttpParser.resetThreadLocal();
-					if(response.protocol().getStatus() == 101 &&
-							response.header().get("Sec-WebSocket-Accept").equals("F2D56gI8wPj3dJw+vgY0KFJEtIM=")){
+					if(httpClient != null && response.protocol().getStatus() == 101 &&
+							"F2D56gI8wPj3dJw+vgY0KFJEtIM=".equals(response.header().get("Sec-WebSocket-Accept"))){
 
 						//初始化 WebSocket
 						httpClient.initWebSocket();
@@ -0,0 +1,502 @@
+package org.voovan.http.client;
+
+import org.voovan.Global;
+import org.voovan.tools.hashwheeltimer.HashWheelTask;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * HttpClient 连接管理器
+ *      按 scheme+host+port 划分路由, 每个路由缓存空闲的 keep-alive 连接
+ *      同时限制单路由的最大连接数和全部路由的最大连接数
+ *      连接根据响应的 Connection/Keep-Alive 响应头决定是否复用, 空闲连接在时间轮中定时清理
+ *      建立连接失败后的一段时间内, 同一路由的请求直接失败, 避免连接风暴阻塞请求线程
+ *
+ * @author helyho
+ *
+ * Voovan Framework.
+ * WebSite: https://github.com/helyho/Voovan
+ * Licence: Apache v2 License
+ */
+public class HttpClientManager implements Closeable {
+    private int maxPerRoute = 8;
+    private int maxTotal = 64;
+    private int idleTimeout = 60;
+    private int timeout = 5;
+    private int connectRetryInterval = 1000;
+    private String charset = "UTF-8";
+
+    //以下属性通过 this 同步
+    private Map<String, Route> routes = new HashMap<String, Route>();
+    private Map<HttpClient, Route> leasedClients = new HashMap<HttpClient, Route>();
+    private int total = 0;
+    private boolean closed = false;
+
+    private HashWheelTask evictTask;
+
+    /**
+     * 构造函数
+     */
+    public HttpClientManager() {
+        evictTask = new HashWheelTask() {
+            @Override
+            public void run() {
+                evictIdle();
+            }
+        };
+
+        Global.getHashWheelTimer().addTask(evictTask, 1, true);
+    }
+
+    public int getMaxPerRoute() {
+        return maxPerRoute;
+    }
+
+    /**
+     * 设置单个路由的最大连接数
+     * @param maxPerRoute 单个路由的最大连接数
+     * @return HttpClientManager 对象
+     */
+    public HttpClientManager maxPerRoute(int maxPerRoute) {
+        this.maxPerRoute = maxPerRoute;
+        return this;
+    }
+
+    public int getMaxTotal() {
+        return maxTotal;
+    }
+
+    /**
+     * 设置全部路由的最大连接数
+     * @param maxTotal 全部路由的最大连接数
+     * @return HttpClientManager 对象
+     */
+    public HttpClientManager maxTotal(int maxTotal) {
+        this.maxTotal = maxTotal;
+        return this;
+    }
+
+    public int getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    /**
+     * 设置空闲连接的超时时间
+     *      服务端通过 Keep-Alive 响应头声明了更短的超时时间时, 以服务端为准
+     * @param idleTimeout 空闲超时时间, 单位: 秒
+     * @return HttpClientManager 对象
+     */
+    public HttpClientManager idleTimeout(int idleTimeout) {
+        this.idleTimeout = idleTimeout;
+        return this;
+    }
+
+    public int getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * 设置 HttpClient 的超时时间
+     * @param timeout 超时时间, 单位: 秒
+     * @return HttpClientManager 对象
+     */
+    public HttpClientManager timeout(int timeout) {
+        this.timeout = timeout;
+        return this;
+    }
+
+    public int getConnectRetryInterval() {
+        return connectRetryInterval;
+    }
+
+    /**
+     * 设置建立连接失败后重新尝试的间隔, 间隔内同一路由的请求直接失败
+     * @param connectRetryInterval 重试间隔, 单位: 毫秒
+     * @return HttpClientManager 对象
+     */
+    public HttpClientManager connectRetryInterval(int connectRetryInterval) {
+        this.connectRetryInterval = connectRetryInterval;
+        return this;
+    }
+
+    public String getCharset() {
+        return charset;
+    }
+
+    /**
+     * 设置 HttpClient 的字符集
+     * @param charset 字符集
+     * @return HttpClientManager 对象
+     */
+    public HttpClientManager charset(String charset) {
+        this.charset = charset;
+        return this;
+    }
+
+    /**
+     * 获取 URL 对应的路由标识
+     * @param urlString URL 地址
+     * @return 路由标识, 格式: scheme://host:port
+     * @throws MalformedURLException URL 格式异常
+     */
+    public static String getRouteKey(String urlString) throws MalformedURLException {
+        String lowerUrl = urlString.toLowerCase();
+        if(lowerUrl.startsWith("ws")) {
+            urlString = "http" + urlString.substring(2);
+        }
+
+        URL url = new URL(urlString);
+        int port = url.getPort() == -1 ? url.getDefaultPort() : url.getPort();
+        return url.getProtocol().toLowerCase() + "://" + url.getHost().toLowerCase() + ":" + port;
+    }
+
+    /**
+     * 租借一个 HttpClient
+     *      优先复用路由中最近归还的空闲连接, 没有空闲连接且未达到连接数上限时建立新的连接, 否则等待其他线程归还
+     * @param urlString URL 地址, 用于确定路由
+     * @param waitTime 等待的超时时间, 单位: 毫秒
+     * @return HttpClient 对象
+     * @throws IOException 建立连接失败或管理器已关闭
+     * @throws TimeoutException 等待超时
+     */
+    public HttpClient lease(String urlString, long waitTime) throws IOException, TimeoutException {
+        String routeKey = getRouteKey(urlString);
+        long deadline = System.currentTimeMillis() + waitTime;
+        List<HttpClient> staleClients = new ArrayList<HttpClient>();
+        Route route;
+
+        try {
+            synchronized (this) {
+                route = routes.get(routeKey);
+                if (route == null) {
+                    route = new Route(routeKey);
+                    routes.put(routeKey, route);
+                }
+
+                route.pending++;
+                try {
+                    while (true) {
+                        if (closed) {
+                            throw new IOException("HttpClientManager is closed");
+                        }
+
+                        //复用空闲连接, 后进先出, 优先使用最近活跃的连接
+                        HttpClient httpClient;
+                        while ((httpClient = route.idleClients.pollFirst()) != null) {
+                            if (isStale(httpClient, System.currentTimeMillis())) {
+                                total--;
+                                staleClients.add(httpClient);
+                            } else {
+                                route.leased++;
+                                leasedClients.put(httpClient, route);
+                                return httpClient;
+                            }
+                        }
+
+                        if (System.currentTimeMillis() < route.connectFailedTime + connectRetryInterval) {
+                            throw new IOException("HttpClientManager connect to " + routeKey + " failed recently");
+                        }
+
+                        //全部路由的连接数已满时, 尝试清理其他路由中最久未使用的空闲连接
+                        if (route.size() < maxPerRoute && total >= maxTotal) {
+                            HttpClient oldestClient = pollOldestIdle();
+                            if (oldestClient != null) {
+                                total--;
+                                staleClients.add(oldestClient);
+                            }
+                        }
+
+                        if (route.size() < maxPerRoute && total < maxTotal) {
+                            route.connecting++;
+                            total++;
+                            break;
+                        }
+
+                        long remaining = deadline - System.currentTimeMillis();
+                        if (remaining <= 0) {
+                            throw new TimeoutException("HttpClientManager lease " + routeKey + " timeout");
+                        }
+
+                        try {
+                            this.wait(remaining);
+                        } catch (InterruptedException e) {
+                            throw new TimeoutException("HttpClientManager lease " + routeKey + " interrupted");
+                        }
+                    }
+                } finally {
+                    route.pending--;
+                }
+            }
+        } finally {
+            closeAll(staleClients);
+        }
+
+        //在同步块外建立连接, 不阻塞其他路由
+        HttpClient httpClient = null;
+        try {
+            httpClient = new HttpClient(urlString, charset, timeout);
+        } catch (RuntimeException e) {
+            httpClient = null;
+        }
+
+        boolean connected = httpClient != null && httpClient.isConnect();
+        synchronized (this) {
+            route.connecting--;
+            if (connected && !closed) {
+                route.leased++;
+                leasedClients.put(httpClient, route);
+                return httpClient;
+            }
+
+            total--;
+            if(!connected) {
+                route.connectFailedTime = System.currentTimeMillis();
+            }
+            this.notifyAll();
+        }
+
+        if(httpClient != null) {
+            httpClient.close();
+        }
+        throw new IOException("HttpClientManager connect to " + routeKey + " failed");
+    }
+
+    /**
+     * 归还 HttpClient
+     *      服务端不允许复用或已断开的连接会被关闭
+     * @param httpClient HttpClient 对象
+     */
+    public void release(HttpClient httpClient) {
+        boolean reuse = false;
+        synchronized (this) {
+            Route route = leasedClients.remove(httpClient);
+            if(route == null) {
+                return;
+            }
+
+            route.leased--;
+            if(!closed && !isStale(httpClient, System.currentTimeMillis())) {
+                route.idleClients.addFirst(httpClient);
+                reuse = true;
+            } else {
+                total--;
+            }
+
+            this.notifyAll();
+        }
+
+        if(!reuse) {
+            httpClient.close();
+        }
+    }
+
+    /**
+     * 判断空闲连接是否已经失效
+     *      不发起网络请求, 仅检查连接状态, 复用标记, 空闲时间和读缓冲区中是否有未预期的数据
+     * @param httpClient HttpClient 对象
+     * @param now 当前时间
+     * @return true: 已失效, false: 可以复用
+     */
+    private boolean isStale(HttpClient httpClient, long now) {
+        if(!httpClient.isConnect() || !httpClient.isKeepAlive()) {
+            return true;
+        }
+
+        long timeout = idleTimeout * 1000L;
+        if(httpClient.getKeepAliveTimeout() > 0) {
+            timeout = Math.min(timeout, httpClient.getKeepAliveTimeout() * 1000L);
+        }
+
+        if(now - httpClient.getLastActiveTime() > timeout) {
+            return true;
+        }
+
+        return httpClient.getSocket().getSession().getReadByteBufferChannel().size() > 0;
+    }
+
+    /**
+     * 取出所有路由中最久未使用的空闲连接
+     *      需在 this 同步块中调用
+     * @return HttpClient 对象, 没有空闲连接时返回 null
+     */
+    private HttpClient pollOldestIdle() {
+        Route oldestRoute = null;
+        for(Route route : routes.values()) {
+            HttpClient last = route.idleClients.peekLast();
+            if(last != null && (oldestRoute == null ||
+                    last.getLastActiveTime() < oldestRoute.idleClients.peekLast().getLastActiveTime())) {
+                oldestRoute = route;
+            }
+        }
+
+        return oldestRoute == null ? null : oldestRoute.idleClients.pollLast();
+    }
+
+    /**
+     * 清理失效的空闲连接
+     */
+    private void evictIdle() {
+        List<HttpClient> staleClients = new ArrayList<HttpClient>();
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            Iterator<Route> routeIterator = routes.values().iterator();
+            while(routeIterator.hasNext()) {
+                Route route = routeIterator.next();
+                Iterator<HttpClient> iterator = route.idleClients.iterator();
+                while (iterator.hasNext()) {
+                    HttpClient httpClient = iterator.next();
+                    if (isStale(httpClient, now)) {
+                        iterator.remove();
+                        total--;
+                        staleClients.add(httpClient);
+                    }
+                }
+
+                //移除长时间未使用的路由
+                if(route.size() == 0 && route.pending == 0 &&
+                        now - route.connectFailedTime > connectRetryInterval) {
+                    routeIterator.remove();
+                }
+            }
+
+            if(!staleClients.isEmpty()) {
+                this.notifyAll();
+            }
+        }
+
+        closeAll(staleClients);
+    }
+
+    private static void closeAll(List<HttpClient> httpClients) {
+        for(HttpClient httpClient : httpClients) {
+            httpClient.close();
+        }
+    }
+
+    /**
+     * 租借中的连接数
+     * @return 连接数
+     */
+    public synchronized int getLeasedSize() {
+        return leasedClients.size();
+    }
+
+    /**
+     * 空闲的连接数
+     * @return 连接数
+     */
+    public synchronized int getIdleSize() {
+        int idleSize = 0;
+        for(Route route : routes.values()) {
+            idleSize = idleSize + route.idleClients.size();
+        }
+        return idleSize;
+    }
+
+    /**
+     * 等待租借的请求数
+     * @return 请求数
+     */
+    public synchronized int getPendingSize() {
+        int pendingSize = 0;
+        for(Route route : routes.values()) {
+            pendingSize = pendingSize + route.pending;
+        }
+        return pendingSize;
+    }
+
+    /**
+     * 全部连接数, 包括租借中, 空闲和正在建立的连接
+     * @return 连接数
+     */
+    public synchronized int size() {
+        return total;
+    }
+
+    /**
+     * 获取路由的统计信息
+     * @param urlString URL 地址
+     * @return 路由对象, 路由不存在时返回 null
+     * @throws MalformedURLException URL 格式异常
+     */
+    public Route getRoute(String urlString) throws MalformedURLException {
+        String routeKey = getRouteKey(urlString);
+        synchronized (this) {
+            return routes.get(routeKey);
+        }
+    }
+
+    /**
+     * 关闭管理器
+     *      关闭所有空闲连接, 租借中的连接在归还时关闭
+     */
+    @Override
+    public void close() {
+        List<HttpClient> idleClients = new ArrayList<HttpClient>();
+        synchronized (this) {
+            closed = true;
+            evictTask.cancel();
+            for(Route route : routes.values()) {
+                idleClients.addAll(route.idleClients);
+                total = total - route.idleClients.size();
+                route.idleClients.clear();
+            }
+            this.notifyAll();
+        }
+
+        closeAll(idleClients);
+    }
+
+    /**
+     * 路由
+     *      统计信息的读取与管理器使用同一个锁
+     */
+    public class Route {
+        private String key;
+        private LinkedList<HttpClient> idleClients = new LinkedList<HttpClient>();
+        private int leased = 0;
+        private int connecting = 0;
+        private int pending = 0;
+        private long connectFailedTime = 0;
+
+        private Route(String key) {
+            this.key = key;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        private int size() {
+            return leased + connecting + idleClients.size();
+        }
+
+        public int getLeasedSize() {
+            synchronized (HttpClientManager.this) {
+                return leased;
+            }
+        }
+
+        public int getIdleSize() {
+            synchronized (HttpClientManager.this) {
+                return idleClients.size();
+            }
+        }
+
+        public int getPendingSize() {
+            synchronized (HttpClientManager.this) {
+                return pending;
+            }
+        }
+    }
+}
@@ -1,9 +1,11 @@
 package org.voovan.http.client;
 
-import org.voovan.tools.TEnv;
 import org.voovan.tools.TPerformance;
 import org.voovan.tools.pool.ObjectPool;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ConnectException;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -27,11 +29,13 @@ public class HttpClientPool {
     public HttpClientPool(String host, Integer timeout, Integer minSize, Integer maxSize) {
         pool = new ObjectPool<HttpClient>()
             .minSize(minSize).maxSize(maxSize)
-            .validator(httpClient -> httpClient.isConnect())
+            .validator(httpClient -> httpClient.isConnect() && httpClient.isKeepAlive())
             .supplier(()->{
+                //连接失败时抛出异常, 由借出方处理, 不阻塞当前线程
                 HttpClient httpClient = new HttpClient(host, timeout);
                 if(!httpClient.isConnect()) {
-                    TEnv.sleep(timeout*1000);
+                    httpClient.close();
+                    throw new UncheckedIOException(new ConnectException("HttpClientPool connect to " + host + " failed"));
                 }
                 return httpClient;
             }).destory(httpClient -> {
@@ -48,22 +52,41 @@ public class HttpClientPool {
         return pool;
     }
 
-    public HttpClient getHttpClient(long timeout, TimeUnit timeUnit) throws TimeoutException {
-        HttpClient httpClient = null;
-        timeout = TimeUnit.MILLISECONDS.convert(timeout, timeUnit);
-        long start = System.currentTimeMillis();
-        do {
-            if(System.currentTimeMillis() - start > timeout) {
-                throw new TimeoutException("get httpclient timeout");
-            }
-            httpClient = pool.borrow();
-        } while (httpClient==null);
+    /**
+     * 获取 HttpClient
+     *      没有可用的连接时按请求的先后顺序等待其他线程归还的连接
+     * @param timeout 超时时间
+     * @param timeUnit 超时时间单位
+     * @return HttpClient 对象
+     * @throws TimeoutException 超时异常
+     * @throws IOException 需要新建连接时连接失败
+     */
+    public HttpClient getHttpClient(long timeout, TimeUnit timeUnit) throws TimeoutException, IOException {
+        HttpClient httpClient;
+        try {
+            httpClient = pool.borrow(TimeUnit.MILLISECONDS.convert(timeout, timeUnit));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        if(httpClient == null) {
+            throw new TimeoutException("get httpclient timeout");
+        }
 
         return httpClient;
     }
 
-    public HttpClient getHttpClient() {
-       return pool.borrow();
+    /**
+     * 获取 HttpClient
+     * @return HttpClient 对象, 连接池已满时返回 null
+     * @throws IOException 需要新建连接时连接失败
+     */
+    public HttpClient getHttpClient() throws IOException {
+        try {
+            return pool.borrow();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
     }
 
     public void restitution(HttpClient httpClient) {
@@ -0,0 +1,248 @@
+package org.voovan.http.client;
+
+import org.voovan.http.message.Response;
+import org.voovan.network.IoHandler;
+import org.voovan.network.IoSession;
+import org.voovan.network.SSLManager;
+import org.voovan.network.messagesplitter.HttpMessageSplitter;
+import org.voovan.network.tcp.TcpSocket;
+
+import java.io.IOException;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 异步 HTTP 连接
+ *      一个连接按发送顺序流水线处理多个请求, 响应按 FIFO 的顺序对应到请求上
+ *      事件在共享的 IO 线程中处理, 不阻塞调用线程
+ *
+ * @author helyho
+ *
+ * Voovan Framework.
+ * WebSite: https://github.com/helyho/Voovan
+ * Licence: Apache v2 License
+ */
+class HttpConnection implements IoHandler {
+    private HttpConnectionPool pool;
+    private TcpSocket socket;
+
+    //已发送等待响应的请求, 通过 this 同步
+    private LinkedList<HttpExchange> exchanges = new LinkedList<HttpExchange>();
+
+    //已分配到当前连接的请求数, 由连接池在分配时增加
+    private AtomicInteger inflight = new AtomicInteger(0);
+    private volatile boolean keepAlive = true;
+    private volatile int keepAliveTimeout = -1;
+    private volatile boolean closed = false;
+    private volatile long lastActiveTime;
+
+    /**
+     * 构造函数
+     * @param pool 所属的连接池
+     */
+    HttpConnection(HttpConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * 建立连接
+     *      阻塞方法, 由连接池在工作线程中调用
+     * @throws IOException IO 异常
+     */
+    void connect() throws IOException {
+        socket = new TcpSocket(pool.getHost(), pool.getPort(), pool.getClient().getTimeout());
+        socket.filterChain().add(new HttpClientFilter(null));
+        socket.messageSplitter(new HttpMessageSplitter());
+        socket.handler(this);
+
+        if(pool.isSSL()) {
+            try {
+                socket.setSSLManager(new SSLManager("TLS"));
+            } catch (NoSuchAlgorithmException e) {
+                throw new IOException("HttpConnection init SSLManager failed", e);
+            }
+        }
+
+        socket.syncStart();
+
+        if(!socket.isConnected()) {
+            socket.close();
+            throw new IOException("HttpConnection connect to " + pool.getHost() + ":" + pool.getPort() + " failed");
+        }
+
+        lastActiveTime = System.currentTimeMillis();
+    }
+
+    int getInflight() {
+        return inflight.get();
+    }
+
+    /**
+     * 占用一个流水线位置
+     */
+    void reserve() {
+        inflight.incrementAndGet();
+    }
+
+    boolean isKeepAlive() {
+        return keepAlive;
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    long getLastActiveTime() {
+        return lastActiveTime;
+    }
+
+    /**
+     * 获取服务端声明的空闲超时时间
+     * @return 空闲超时时间, 单位: 秒, 未声明时返回 -1
+     */
+    int getKeepAliveTimeout() {
+        return keepAliveTimeout;
+    }
+
+    /**
+     * 连接是否可以继续分配请求
+     * @return true: 可以分配, false: 不可分配
+     */
+    boolean isAvailable() {
+        return !closed && keepAlive && socket.isConnected();
+    }
+
+    /**
+     * 发送请求
+     *      调用前需通过 reserve() 占用流水线位置
+     * @param exchange 请求交互对象
+     */
+    void send(HttpExchange exchange) {
+        //等待中已超时的请求直接释放位置
+        if(exchange.isDone()) {
+            inflight.decrementAndGet();
+            pool.release(this);
+            return;
+        }
+
+        exchange.setConnection(this);
+
+        synchronized (this) {
+            if(!closed) {
+                //先登记再发送, 保证响应到达时能找到对应的请求
+                exchanges.add(exchange);
+                try {
+                    IoSession session = socket.getSession();
+                    exchange.getRequest().send(session);
+                    session.flush();
+                    lastActiveTime = System.currentTimeMillis();
+                    return;
+                } catch (Exception e) {
+                    exchanges.remove(exchange);
+                    exchange.fail(e);
+                }
+            } else {
+                exchange.fail(new IOException("HttpConnection is closed"));
+            }
+        }
+
+        close();
+    }
+
+    /**
+     * 关闭连接
+     *      所有等待响应的请求以异常结束
+     */
+    void close() {
+        List<HttpExchange> failedExchanges;
+        synchronized (this) {
+            if(closed) {
+                return;
+            }
+
+            closed = true;
+            failedExchanges = new ArrayList<HttpExchange>(exchanges);
+            exchanges.clear();
+        }
+
+        if(socket != null) {
+            socket.close();
+        }
+
+        pool.remove(this);
+
+        IOException exception = new IOException("HttpConnection is closed");
+        for(HttpExchange exchange : failedExchanges) {
+            exchange.fail(exception);
+        }
+    }
+
+    @Override
+    public Object onConnect(IoSession session) {
+        return null;
+    }
+
+    @Override
+    public void onDisconnect(IoSession session) {
+        close();
+    }
+
+    @Override
+    public Object onReceive(IoSession session, Object obj) {
+        HttpExchange exchange;
+        synchronized (this) {
+            exchange = exchanges.poll();
+        }
+
+        //没有对应请求的响应, 连接状态已不可信
+        if(exchange == null || !(obj instanceof Response)) {
+            close();
+            return null;
+        }
+
+        Response response = (Response) obj;
+        lastActiveTime = System.currentTimeMillis();
+        if(!HttpClient.isKeepAlive(response)) {
+            keepAlive = false;
+        }
+        keepAliveTimeout = HttpClient.getKeepAliveTimeout(response);
+
+        inflight.decrementAndGet();
+        pool.release(this);
+
+        exchange.complete(response);
+        return null;
+    }
+
+    @Override
+    public void onSent(IoSession session, Object obj) {
+
+    }
+
+    @Override
+    public void onFlush(IoSession session) {
+
+    }
+
+    @Override
+    public void onException(IoSession session, Exception e) {
+        List<HttpExchange> failedExchanges;
+        synchronized (this) {
+            failedExchanges = new ArrayList<HttpExchange>(exchanges);
+        }
+
+        for(HttpExchange exchange : failedExchanges) {
+            exchange.fail(e);
+        }
+
+        close();
+    }
+
+    @Override
+    public void onIdle(IoSession session) {
+
+    }
+}
@@ -0,0 +1,287 @@
+package org.voovan.http.client;
+
+import org.voovan.Global;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * 单个主机的异步 HTTP 连接池
+ *      没有可用连接时请求进入等待队列, 并按需建立新连接, 直到达到单主机最大连接数
+ *      连接建立在工作线程中完成, 不阻塞调用线程
+ *
+ * @author helyho
+ *
+ * Voovan Framework.
+ * WebSite: https://github.com/helyho/Voovan
+ * Licence: Apache v2 License
+ */
+public class HttpConnectionPool {
+    private AsyncHttpClient client;
+    private String host;
+    private int port;
+    private boolean ssl;
+
+    //以下属性通过 this 同步
+    private List<HttpConnection> connections = new ArrayList<HttpConnection>();
+    private LinkedList<HttpExchange> waitings = new LinkedList<HttpExchange>();
+    private int connecting = 0;
+    private boolean closed = false;
+
+    /**
+     * 构造函数
+     * @param client 所属的异步 HTTP 客户端
+     * @param host 主机地址
+     * @param port 端口
+     * @param ssl 是否使用 SSL
+     */
+    HttpConnectionPool(AsyncHttpClient client, String host, int port, boolean ssl) {
+        this.client = client;
+        this.host = host;
+        this.port = port;
+        this.ssl = ssl;
+    }
+
+    AsyncHttpClient getClient() {
+        return client;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public boolean isSSL() {
+        return ssl;
+    }
+
+    /**
+     * 当前的连接数
+     * @return 连接数
+     */
+    public synchronized int size() {
+        return connections.size();
+    }
+
+    /**
+     * 等待连接的请求数
+     * @return 等待连接的请求数
+     */
+    public synchronized int waitingSize() {
+        return waitings.size();
+    }
+
+    /**
+     * 执行请求
+     *      有空闲流水线位置的连接时直接发送, 否则进入等待队列
+     * @param exchange 请求交互对象
+     */
+    void execute(HttpExchange exchange) {
+        HttpConnection connection;
+        synchronized (this) {
+            if(closed) {
+                exchange.fail(new IOException("HttpConnectionPool is closed"));
+                return;
+            }
+
+            connection = select();
+            if(connection == null) {
+                waitings.add(exchange);
+            }
+        }
+
+        if(connection != null) {
+            connection.send(exchange);
+        } else {
+            tryConnect();
+        }
+    }
+
+    /**
+     * 选择流水线中请求最少的可用连接, 并占用一个流水线位置
+     *      需在 this 同步块中调用
+     * @return 连接对象, 没有可用连接时返回 null
+     */
+    private HttpConnection select() {
+        HttpConnection selected = null;
+        int maxPipeline = client.getMaxPipeline();
+        for(HttpConnection connection : connections) {
+            int inflight = connection.getInflight();
+            if(inflight < maxPipeline && connection.isAvailable() &&
+                    (selected == null || inflight < selected.getInflight())) {
+                selected = connection;
+                if(inflight == 0) {
+                    break;
+                }
+            }
+        }
+
+        if(selected != null) {
+            selected.reserve();
+        }
+
+        return selected;
+    }
+
+    /**
+     * 在等待请求多于建立中的连接, 且连接数未达到上限时建立新的连接
+     */
+    private void tryConnect() {
+        synchronized (this) {
+            if(closed || waitings.size() <= connecting ||
+                    connections.size() + connecting >= client.getMaxConnectionsPerHost()) {
+                return;
+            }
+            connecting++;
+        }
+
+        Global.getThreadPool().execute(() -> {
+            HttpConnection connection = new HttpConnection(this);
+            try {
+                connection.connect();
+            } catch (Exception e) {
+                List<HttpExchange> failedExchanges = null;
+                synchronized (this) {
+                    connecting--;
+                    //没有其他连接可以处理等待的请求
+                    if(connections.isEmpty() && connecting == 0) {
+                        failedExchanges = new ArrayList<HttpExchange>(waitings);
+                        waitings.clear();
+                    }
+                }
+
+                if(failedExchanges != null) {
+                    for (HttpExchange exchange : failedExchanges) {
+                        exchange.fail(e);
+                    }
+                }
+                return;
+            }
+
+            boolean isClosed;
+            synchronized (this) {
+                connecting--;
+                isClosed = closed;
+                if(!isClosed) {
+                    connections.add(connection);
+                }
+            }
+
+            if(isClosed) {
+                connection.close();
+            } else {
+                dispatch();
+            }
+        });
+    }
+
+    /**
+     * 将等待队列中的请求分配到可用的连接上
+     */
+    private void dispatch() {
+        while(true) {
+            HttpExchange exchange;
+            HttpConnection connection;
+            synchronized (this) {
+                //丢弃等待中已超时的请求
+                while(!waitings.isEmpty() && waitings.peek().isDone()) {
+                    waitings.poll();
+                }
+
+                if(waitings.isEmpty()) {
+                    return;
+                }
+
+                connection = select();
+                if(connection == null) {
+                    break;
+                }
+
+                exchange = waitings.poll();
+            }
+
+            connection.send(exchange);
+        }
+
+        tryConnect();
+    }
+
+    /**
+     * 连接完成一个请求后释放流水线位置
+     * @param connection 连接对象
+     */
+    void release(HttpConnection connection) {
+        if(!connection.isKeepAlive() && connection.getInflight() == 0) {
+            connection.close();
+        } else {
+            dispatch();
+        }
+    }
+
+    /**
+     * 从连接池中移除已关闭的连接
+     * @param connection 连接对象
+     */
+    void remove(HttpConnection connection) {
+        synchronized (this) {
+            connections.remove(connection);
+        }
+
+        dispatch();
+    }
+
+    /**
+     * 关闭空闲超时的连接
+     * @param keepAliveTimeout 空闲超时时间, 单位: 毫秒
+     */
+    void checkIdle(long keepAliveTimeout) {
+        List<HttpConnection> idleConnections = new ArrayList<HttpConnection>();
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            //流水线位置只在同步块中分配, 这里判断为空闲的连接不会再被分配
+            for(HttpConnection connection : connections) {
+                //服务端声明的空闲超时更短时, 按服务端的超时提前关闭
+                long timeout = connection.getKeepAliveTimeout() > 0 ?
+                        Math.min(keepAliveTimeout, connection.getKeepAliveTimeout() * 1000L) : keepAliveTimeout;
+                if(connection.getInflight() == 0 && now - connection.getLastActiveTime() > timeout) {
+                    idleConnections.add(connection);
+                }
+            }
+            connections.removeAll(idleConnections);
+        }
+
+        for(HttpConnection connection : idleConnections) {
+            connection.close();
+        }
+    }
+
+    /**
+     * 关闭连接池
+     *      关闭所有连接, 等待中的请求以异常结束
+     */
+    void close() {
+        List<HttpConnection> closedConnections;
+        List<HttpExchange> failedExchanges;
+        synchronized (this) {
+            closed = true;
+            closedConnections = new ArrayList<HttpConnection>(connections);
+            failedExchanges = new ArrayList<HttpExchange>(waitings);
+            connections.clear();
+            waitings.clear();
+        }
+
+        for(HttpConnection connection : closedConnections) {
+            connection.close();
+        }
+
+        IOException exception = new IOException("HttpConnectionPool is closed");
+        for(HttpExchange exchange : failedExchanges) {
+            exchange.fail(exception);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package org.voovan.http.client;
+
+import org.voovan.http.message.Request;
+import org.voovan.http.message.Response;
+import org.voovan.tools.hashwheeltimer.HashWheelTask;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 异步 HTTP 请求的一次交互
+ *      包含请求对象, 响应的 CompletableFuture 和超时任务
+ *
+ * @author helyho
+ *
+ * Voovan Framework.
+ * WebSite: https://github.com/helyho/Voovan
+ * Licence: Apache v2 License
+ */
+class HttpExchange {
+    private Request request;
+    private CompletableFuture<Response> future;
+    private HashWheelTask timeoutTask;
+    private volatile HttpConnection connection;
+
+    /**
+     * 构造函数
+     * @param request 请求对象
+     */
+    HttpExchange(Request request) {
+        this.request = request;
+        this.future = new CompletableFuture<Response>();
+    }
+
+    Request getRequest() {
+        return request;
+    }
+
+    CompletableFuture<Response> getFuture() {
+        return future;
+    }
+
+    HttpConnection getConnection() {
+        return connection;
+    }
+
+    void setConnection(HttpConnection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * 是否已经完成, 包括正常响应, 异常和超时
+     * @return true: 已完成, false: 未完成
+     */
+    boolean isDone() {
+        return future.isDone();
+    }
+
+    /**
+     * 启动超时任务
+     *      超时时如果请求已经发送, 则关闭所在的连接, 避免后续的响应错位
+     * @param timeoutTicks 超时的槽数
+     */
+    void startTimeout(int timeoutTicks) {
+        timeoutTask = new HashWheelTask() {
+            @Override
+            public void run() {
+                this.cancel();
+
+                if(future.completeExceptionally(new TimeoutException("AsyncHttpClient request timeout"))) {
+                    HttpConnection currentConnection = connection;
+                    if(currentConnection != null) {
+                        currentConnection.close();
+                    }
+                }
+            }
+        };
+
+        AsyncHttpClient.getTimeoutWheelTimer().addTask(timeoutTask, Math.max(timeoutTicks, 1), true);
+    }
+
+    /**
+     * 完成请求
+     * @param response 响应对象
+     */
+    void complete(Response response) {
+        cancelTimeout();
+        future.complete(response);
+    }
+
+    /**
+     * 请求失败
+     * @param e 异常对象
+     */
+    void fail(Throwable e) {
+        cancelTimeout();
+        future.completeExceptionally(e);
+    }
+
+    private void cancelTimeout() {
+        if(timeoutTask != null) {
+            timeoutTask.cancel();
+        }
+    }
+}
@@ -125,6 +125,7 @@ public class WebSocketHandler implements IoHandler{
                 ByteBuffer byteBuffer = byteBufferChannel.getByteBuffer();
 
                 try {
+                    webSocketSession.setBinary(reqWebSocketFrame.getOpcode() == WebSocketFrame.Opcode.BINARY);
                     result = webSocketRouter.filterDecoder(webSocketSession, byteBuffer);
 
                     //触发 onRecive
@@ -473,6 +473,24 @@ public class HttpParser {
 	public static Map<String, Object> parser(IoSession session, Map<String, Object> packetMap, int type,
 											 ByteBufferChannel byteBufferChannel, int timeout,
 											 long requestMaxSize) throws IOException {
+		return parser(session, packetMap, type, byteBufferChannel, timeout, requestMaxSize, true);
+	}
+
+	/**
+	 * 解析 HTTP 报文
+	 * @param session socket 会话对象
+	 * @param packetMap 用于填充的解析 map
+	 * @param type 解析的报文类型, 0: Request, 1: Response
+	 * @param byteBufferChannel 输入流
+	 * @param timeout 读取超时时间参数
+	 * @param requestMaxSize 上传文件的最大尺寸, 单位: kb
+	 * @param parseBody 是否解析报文体, false: 只解析协议行和报文头, 报文体保留在输入流中
+	 * @return 解析后的 Map
+	 * @throws IOException IO 异常
+	 */
+	public static Map<String, Object> parser(IoSession session, Map<String, Object> packetMap, int type,
+											 ByteBufferChannel byteBufferChannel, int timeout,
+											 long requestMaxSize, boolean parseBody) throws IOException {
 		int totalLength = 0;
 		long mark = 0;
 		int headerMark = 0;
@@ -591,6 +609,11 @@ public class HttpParser {
 				byteBufferChannel.compact();
 			}
 
+			//只解析协议行和报文头
+			if(!parseBody) {
+				break;
+			}
+
 			if(packetMap.containsKey(HttpStatic.CONTENT_TYPE_STRING)) {
 				hasBody = true;
 			}
@@ -982,8 +1005,25 @@ public class HttpParser {
 	 */
 	@SuppressWarnings("unchecked")
 	public static Response parseResponse(IoSession session, ByteBufferChannel byteBufferChannel, int timeOut) throws IOException {
+		return parseResponse(session, byteBufferChannel, timeOut, true);
+	}
+
+	/**
+	 * 解析响应报文的协议行和报文头
+	 * 		报文体保留在输入流中, 由调用方按 Content-Length 或 Transfer-Encoding 自行读取
+	 * @param session socket 会话对象
+	 * @param byteBufferChannel  输入字节流
+	 * @param timeOut 读取超时时间参数
+	 * @return   返回响应报文, 报文体为空
+	 * @throws IOException IO 异常
+	 */
+	public static Response parseResponseHead(IoSession session, ByteBufferChannel byteBufferChannel, int timeOut) throws IOException {
+		return parseResponse(session, byteBufferChannel, timeOut, false);
+	}
+
+	private static Response parseResponse(IoSession session, ByteBufferChannel byteBufferChannel, int timeOut, boolean parseBody) throws IOException {
 		Map<String, Object> packetMap = THREAD_PACKET_MAP.get();
-		packetMap = parser(session, packetMap, PARSER_TYPE_RESPONSE, byteBufferChannel, timeOut, -1);
+		packetMap = parser(session, packetMap, PARSER_TYPE_RESPONSE, byteBufferChannel, timeOut, -1, parseBody);
 		packetMap.remove(HTTP_HEADER_MARK);
 
 		//如果解析的Map为空,则直接返回空
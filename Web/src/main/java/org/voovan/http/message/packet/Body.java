@@ -10,6 +10,8 @@ import org.voovan.tools.security.THash;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.nio.ByteBuffer;
 
@@ -234,6 +236,29 @@ public class Body {
 		return read(byteBuffer);
 	}
 
+	/**
+	 * 获取读取 body 的输入流
+	 * 		与 read 方法一样会消费 body 中的数据, 用于 JSONReader 等流式读取
+	 * @return 输入流
+	 */
+	public InputStream getInputStream(){
+		return new InputStream() {
+			@Override
+			public int read() {
+				byte[] bytes = new byte[1];
+				return read(bytes, 0, 1) == -1 ? -1 : bytes[0] & 0xFF;
+			}
+
+			@Override
+			public int read(byte[] bytes, int offset, int length) {
+				if(length == 0) {
+					return 0;
+				}
+				return Body.this.read(ByteBuffer.wrap(bytes, offset, length));
+			}
+		};
+	}
+
 	public Integer getMark() {
 		return mark;
 	}
@@ -251,7 +276,7 @@ public class Body {
 				mark = mark==0 ? hash : mark + hash;
 				ByteBuffer bodyTmp = ByteBuffer.wrap(body);
 				bodyTmp.position(offset);
-				bodyTmp.limit(length);
+				bodyTmp.limit(offset + length);
 				if(!byteBufferChannel.isReleased()) {
 					byteBufferChannel.writeEnd(bodyTmp);
 				}
@@ -271,6 +296,25 @@ public class Body {
 		write(body, 0, body.length);
 	}
 
+	/**
+	 * 获取写入 body 的输出流
+	 * 		写入输出流的数据会追加到 body 中, 用于 JSONWriter 等流式输出
+	 * @return 输出流
+	 */
+	public OutputStream getOutputStream(){
+		return new OutputStream() {
+			@Override
+			public void write(int b) {
+				Body.this.write(new byte[]{(byte) b}, 0, 1);
+			}
+
+			@Override
+			public void write(byte[] bytes, int offset, int length) {
+				Body.this.write(bytes, offset, length);
+			}
+		};
+	}
+
 	/**
 	 * 使用特定的字符集写入 body 字符串
 	 * @param content body 字符串
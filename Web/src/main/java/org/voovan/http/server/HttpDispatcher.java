@@ -293,6 +293,7 @@ public class HttpDispatcher {
 			try {
 				String routePath = (String)routerInfo.get(0);
 				HttpRouter router = (HttpRouter)routerInfo.get(1);
+				request.setRoutePath(routePath);
 
 				//获取路径变量
 				Map<String, String> pathVariables = fetchPathVariables(requestPath, routePath, webConfig.isMatchRouteIgnoreCase());
@@ -30,6 +30,8 @@ public class HttpRequest extends Request {
 	private Map<String, Object> attributes;
 	private IoSession socketSession;
 	private SessionManager sessionManager;
+	private long startTime;
+	private String routePath;
 
 	/**
 	 * 构造函数
@@ -44,6 +46,7 @@ public class HttpRequest extends Request {
 		attributes = new HashMap<String, Object>();
 		parseQueryString();
 		this.socketSession = socketSession;
+		this.startTime = System.nanoTime();
 	}
 
 
@@ -68,6 +71,8 @@ public class HttpRequest extends Request {
         session = null;
 		parseQueryString();
 		this.socketSession = socketSession;
+		this.startTime = System.nanoTime();
+		this.routePath = null;
 	}
 
 	protected void setSessionManager(SessionManager sessionManager) {
@@ -149,6 +154,26 @@ public class HttpRequest extends Request {
 		this.session = session;
 	}
 
+	/**
+	 * 获取请求开始处理的时间
+	 * @return 开始处理的时间, 单位: 纳秒, 仅用于计算耗时
+	 */
+	public long getStartTime() {
+		return startTime;
+	}
+
+	/**
+	 * 获取匹配到的路由路径
+	 * @return 路由路径, 例如: /user/:id, 未匹配到路由时为 null
+	 */
+	public String getRoutePath() {
+		return routePath;
+	}
+
+	protected void setRoutePath(String routePath) {
+		this.routePath = routePath;
+	}
+
 	/**
 	 * 获取对端连接的 IP
 	 *
@@ -4,6 +4,7 @@ import org.voovan.http.message.packet.Cookie;
 import org.voovan.http.server.context.WebServerConfig;
 import org.voovan.tools.collection.ICacheMap;
 import org.voovan.tools.collection.CacheMap;
+import org.voovan.tools.collection.OffHeapCacheMap;
 import org.voovan.tools.json.JSON;
 import org.voovan.tools.log.Logger;
 import org.voovan.tools.reflect.TReflect;
@@ -35,6 +36,8 @@ public class SessionManager{
 
 		if(httpSessions instanceof CacheMap){
 			((CacheMap)httpSessions).create();
+		} else if(httpSessions instanceof OffHeapCacheMap){
+			((OffHeapCacheMap)httpSessions).create();
 		}
 
 		if(httpSessions == null){
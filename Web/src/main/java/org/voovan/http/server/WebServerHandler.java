@@ -352,7 +352,8 @@ public class WebServerHandler implements IoHandler {
 			if(webSocketFrame.getErrorCode()==0){
 				ByteBuffer byteBuffer =byteBufferChannel.getByteBuffer();
 				try {
-					respWebSocketFrame = webSocketDispatcher.fireReceivedEvent(session, reqWebSocket, byteBuffer);
+					respWebSocketFrame = webSocketDispatcher.fireReceivedEvent(session, reqWebSocket, byteBuffer,
+							webSocketFrame.getOpcode() == WebSocketFrame.Opcode.BINARY);
 				} finally {
 					byteBufferChannel.compact();
 					byteBufferChannel.clear();
@@ -259,6 +259,22 @@ public class WebSocketDispatcher {
 	 * @return WebSocketFrame WebSocket 帧
 	 */
 	public  WebSocketFrame fireReceivedEvent(IoSession session, HttpRequest request, ByteBuffer byteBuffer){
+		return fireReceivedEvent(session, request, byteBuffer, false);
+	}
+
+	/**
+	 * 触发 WebSocket Received 事件
+	 * @param session socket 会话对象
+	 * @param request http 请求对象
+	 * @param byteBuffer 收到的报文数据
+	 * @param binary 是否是二进制帧
+	 * @return WebSocketFrame WebSocket 帧
+	 */
+	public  WebSocketFrame fireReceivedEvent(IoSession session, HttpRequest request, ByteBuffer byteBuffer, boolean binary){
+		WebSocketSession webSocketSession = webSocketSessions.get(session);
+		if(webSocketSession != null) {
+			webSocketSession.setBinary(binary);
+		}
 		return process(WebSocketEvent.RECIVED, session, request, byteBuffer);
 	}
 
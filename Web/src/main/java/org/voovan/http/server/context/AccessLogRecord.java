@@ -0,0 +1,239 @@
+package org.voovan.http.server.context;
+
+import org.voovan.http.server.HttpRequest;
+import org.voovan.http.server.HttpResponse;
+import org.voovan.tools.TDateTime;
+import org.voovan.tools.TString;
+import org.voovan.tools.log.LogRecord;
+
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 访问日志记录
+ *      请求线程只保存字段, 由日志线程格式化为文本或 JSON
+ *
+ * @author helyho
+ *
+ * Voovan Framework.
+ * WebSite: https://github.com/helyho/Voovan
+ * Licence: Apache v2 License
+ */
+public class AccessLogRecord implements LogRecord {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private long timestamp;
+    private long startTime;
+    private String remoteAddress;
+    private int remotePort;
+    private String protocol;
+    private String method;
+    private String path;
+    private String queryString;
+    private String route;
+    private String userAgent;
+    private String referer;
+    private long bytesIn;
+
+    private int status;
+    private long bytesOut;
+    private long latency;
+    private int upstreamStatus = -1;
+    private boolean json;
+
+    private WebServerConfig webServerConfig;
+    //延迟写入的记录: 需要路由处理完成并且响应完成后才能写入
+    private AtomicInteger pending;
+
+    /**
+     * 构造函数, 保存请求相关的字段
+     * @param request HTTP 请求对象
+     */
+    public AccessLogRecord(HttpRequest request) {
+        this.timestamp = System.currentTimeMillis();
+        this.startTime = request.getStartTime();
+        this.remoteAddress = request.getRemoteAddres();
+        this.remotePort = request.getRemotePort();
+        this.protocol = request.protocol().getProtocol() + "/" + request.protocol().getVersion();
+        this.method = request.protocol().getMethod();
+        this.path = request.protocol().getPath();
+        this.queryString = request.protocol().getQueryString();
+        this.route = request.getRoutePath();
+        this.userAgent = request.header().get("User-Agent");
+        this.referer = request.header().get("Referer");
+        this.bytesIn = request.body().size();
+    }
+
+    /**
+     * 保存响应相关的字段
+     * @param response HTTP 响应对象
+     * @return AccessLogRecord 对象
+     */
+    public AccessLogRecord complete(HttpResponse response) {
+        return complete(response.protocol().getStatus(), response.body().size(), -1);
+    }
+
+    /**
+     * 保存响应相关的字段
+     * @param status 响应状态码
+     * @param bytesOut 响应报文体长度
+     * @param upstreamStatus 上游服务的响应状态码, 没有上游服务时为 -1
+     * @return AccessLogRecord 对象
+     */
+    public AccessLogRecord complete(int status, long bytesOut, int upstreamStatus) {
+        this.status = status;
+        this.bytesOut = bytesOut;
+        this.upstreamStatus = upstreamStatus;
+        this.latency = (System.nanoTime() - startTime) / 1000;
+        return this;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public String getRemoteAddress() {
+        return remoteAddress;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public String getRoute() {
+        return route;
+    }
+
+    public long getBytesIn() {
+        return bytesIn;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public long getBytesOut() {
+        return bytesOut;
+    }
+
+    /**
+     * 获取请求的处理耗时
+     * @return 处理耗时, 单位: 微秒
+     */
+    public long getLatency() {
+        return latency;
+    }
+
+    public int getUpstreamStatus() {
+        return upstreamStatus;
+    }
+
+    public boolean isJson() {
+        return json;
+    }
+
+    public void setJson(boolean json) {
+        this.json = json;
+    }
+
+    protected WebServerConfig getWebServerConfig() {
+        return webServerConfig;
+    }
+
+    protected void setWebServerConfig(WebServerConfig webServerConfig) {
+        this.webServerConfig = webServerConfig;
+    }
+
+    /**
+     * 标记为延迟写入
+     */
+    protected void defer() {
+        pending = new AtomicInteger(2);
+    }
+
+    /**
+     * 延迟写入的记录完成一个步骤
+     * @return true: 所有步骤都已经完成, 可以写入
+     */
+    protected boolean arrive() {
+        return pending == null || pending.decrementAndGet() == 0;
+    }
+
+    @Override
+    public void render(StringBuilder stringBuilder) {
+        if (json) {
+            renderJson(stringBuilder);
+        } else {
+            renderText(stringBuilder);
+        }
+    }
+
+    private void renderText(StringBuilder stringBuilder) {
+        stringBuilder.append('[').append(TDateTime.format(new Date(timestamp))).append(']');
+        stringBuilder.append(' ').append(TString.rightPad(remoteAddress, 15, ' '));
+        stringBuilder.append(' ').append(TString.rightPad(Integer.toString(remotePort), 5, ' '));
+        stringBuilder.append(' ').append(protocol).append(' ').append(TString.rightPad(method, 6, ' '));
+        stringBuilder.append(' ').append(status);
+        stringBuilder.append(' ').append(bytesOut);
+        stringBuilder.append("\t ").append(path);
+        stringBuilder.append("\t ").append(userAgent == null ? "" : userAgent);
+        stringBuilder.append("\t ").append(referer == null ? "" : referer);
+        stringBuilder.append("\r\n");
+    }
+
+    private void renderJson(StringBuilder stringBuilder) {
+        stringBuilder.append("{\"time\":").append(timestamp);
+        appendField(stringBuilder, "remoteAddress", remoteAddress);
+        stringBuilder.append(",\"remotePort\":").append(remotePort);
+        appendField(stringBuilder, "protocol", protocol);
+        appendField(stringBuilder, "method", method);
+        appendField(stringBuilder, "path", path);
+        appendField(stringBuilder, "query", queryString);
+        appendField(stringBuilder, "route", route);
+        stringBuilder.append(",\"status\":").append(status);
+        if (upstreamStatus >= 0) {
+            stringBuilder.append(",\"upstreamStatus\":").append(upstreamStatus);
+        }
+        stringBuilder.append(",\"latency\":").append(latency);
+        stringBuilder.append(",\"bytesIn\":").append(bytesIn);
+        stringBuilder.append(",\"bytesOut\":").append(bytesOut);
+        appendField(stringBuilder, "userAgent", userAgent);
+        appendField(stringBuilder, "referer", referer);
+        stringBuilder.append("}\n");
+    }
+
+    /**
+     * 追加字符串字段, 值为空时忽略
+     * @param stringBuilder 格式化结果追加到这个对象
+     * @param name 字段名
+     * @param value 字段值
+     */
+    private static void appendField(StringBuilder stringBuilder, String name, String value) {
+        if (TString.isNullOrEmpty(value)) {
+            return;
+        }
+
+        stringBuilder.append(",\"").append(name).append("\":\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':   stringBuilder.append("\\\""); break;
+                case '\\':  stringBuilder.append("\\\\"); break;
+                case '\n':  stringBuilder.append("\\n"); break;
+                case '\r':  stringBuilder.append("\\r"); break;
+                case '\t':  stringBuilder.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        stringBuilder.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xF]);
+                    } else {
+                        stringBuilder.append(c);
+                    }
+            }
+        }
+        stringBuilder.append('"');
+    }
+}
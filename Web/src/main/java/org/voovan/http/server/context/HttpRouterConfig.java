@@ -6,6 +6,8 @@ import org.voovan.tools.TObject;
 import org.voovan.tools.log.Logger;
 import org.voovan.tools.reflect.TReflect;
 
+import java.lang.reflect.Constructor;
+import java.util.HashMap;
 import java.util.Map;
 
 /**
@@ -22,6 +24,7 @@ public class HttpRouterConfig {
     private String route;
     private String className;
     private String method;
+    private Map<String, Object> parameters = new HashMap<String, Object>();
     private HttpRouter httpRouter;
     private WebSocketRouter webSocketRouter;
 
@@ -40,6 +43,8 @@ public class HttpRouterConfig {
                 this.className = (String) entry.getValue();
             } else if ("Method".equalsIgnoreCase(entry.getKey())) {
                 this.method = (String) entry.getValue();
+            } else {
+                parameters.put(entry.getKey(), entry.getValue());
             }
         }
     }
@@ -115,6 +120,31 @@ public class HttpRouterConfig {
         this.method = method;
     }
 
+    /**
+     * 获取路由参数
+     *      配置中 Name, Route, ClassName, Method 以外的配置项
+     * @return 路由参数
+     */
+    public Map<String, Object> getParameters() {
+        return parameters;
+    }
+
+    /**
+     * 构造路由处理实例
+     *      路由处理类存在 Map 参数的构造函数时, 使用路由参数构造
+     * @return 路由处理实例
+     * @throws ReflectiveOperationException 反射异常
+     */
+    private <T> T newRouterInstance() throws ReflectiveOperationException {
+        Class<T> clazz = TReflect.getClassByName(className);
+        try {
+            Constructor<T> constructor = clazz.getConstructor(Map.class);
+            return constructor.newInstance(parameters);
+        } catch (NoSuchMethodException e) {
+            return TReflect.newInstance(clazz);
+        }
+    }
+
     /**
      * 获取HttpRouter路由处理实例
      *
@@ -124,7 +154,7 @@ public class HttpRouterConfig {
         try {
             //单例模式
             if (httpRouter == null) {
-                httpRouter = TReflect.newInstance(className);
+                httpRouter = newRouterInstance();
             }
             return httpRouter;
         } catch (ReflectiveOperationException e) {
@@ -143,7 +173,7 @@ public class HttpRouterConfig {
         try {
             //单例模式
             if (webSocketRouter == null) {
-                webSocketRouter = TReflect.newInstance(className);
+                webSocketRouter = newRouterInstance();
             }
             return webSocketRouter;
         } catch (ReflectiveOperationException e) {
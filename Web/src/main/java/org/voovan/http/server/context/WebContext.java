@@ -23,6 +23,7 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * Web上下文(配置信息读取)
@@ -90,6 +91,11 @@ public class WebContext {
 	 */
 	private static final String ACCESS_LOG_FILE_NAME = TFile.getContextPath()+ File.separator+"logs"+ File.separator+"access.log";
 
+	/**
+	 *  延迟写入的访问日志记录在请求属性中的名称
+	 */
+	public static final String ACCESS_LOG_RECORD = "VOOVAN_ACCESS_LOG_RECORD";
+
 	private static WebServerConfig webServerConfig = buildConfigFromMap(WEB_CONFIG);
 
 	private WebContext(){
@@ -321,6 +327,12 @@ public class WebContext {
 		System.out.println(TString.rightPad("  GzipMinSize:",35,' ')+ config.getGzipMinSize());
 		System.out.println(TString.rightPad("  GzipMimeType:",35,' ')+ config.getGzipMimeType());
 		System.out.println(TString.rightPad("  AccessLog:",35,' ')+ config.isAccessLog());
+		if(config.isAccessLog()) {
+			System.out.println(TString.rightPad("  AccessLogMaxSize:",35,' ')+ config.getAccessLogMaxSize());
+			System.out.println(TString.rightPad("  AccessLogGzip:",35,' ')+ config.isAccessLogGzip());
+			System.out.println(TString.rightPad("  AccessLogFormat:",35,' ')+ config.getAccessLogFormat());
+			System.out.println(TString.rightPad("  AccessLogSampleRate:",35,' ')+ config.getAccessLogSampleRate());
+		}
 		System.out.println(TString.rightPad("  Cache:",35,' ')+ config.isCache());
 		System.out.println(TString.rightPad("  PauseURL:",35,' ')+ config.getPauseURL());
 		System.out.println(TString.rightPad("  MaxRequestSize:",35,' ')+ config.getMaxRequestSize());
@@ -370,29 +382,9 @@ public class WebContext {
 		}
 	}
 
-	/**
-	 * 生成 accessLog 日志
-	 * @param request   HTTP 请求对象
-	 * @param response	HTTP 响应对象
-	 * @return 日志信息
-	 */
-	private static String genAccessLog(HttpRequest request, HttpResponse response){
-		StringBuilder content = new StringBuilder();
-		content.append("["+ TDateTime.now()+"]");
-		content.append(" "+TString.rightPad(request.getRemoteAddres(),15,' '));
-		content.append(" "+TString.rightPad(request.getRemotePort()+"",5,' '));
-		content.append(" "+request.protocol().getProtocol()+"/"+request.protocol().getVersion()+" "+TString.rightPad(request.protocol().getMethod(),6,' '));
-		content.append(" "+response.protocol().getStatus());
-		content.append(" "+response.body().size());
-		content.append("\t "+request.protocol().getPath());
-		content.append("\t "+TObject.nullDefault(request.header().get("User-Agent"),""));
-		content.append("\t "+TObject.nullDefault(request.header().get("Referer"),""));
-		content.append("\r\n");
-		return content.toString();
-	}
-
 	/**
 	 * 写入access.log
+	 * 		请求线程只保存日志记录的字段, 格式化和写入由日志线程完成
 	 * @param webServerConfig WebServer 配置对象
 	 * @param request HTTP 请求对象
 	 * @param response HTTP 响应对象
@@ -400,11 +392,101 @@ public class WebContext {
 	public static void writeAccessLog(WebServerConfig webServerConfig, HttpRequest request,HttpResponse response){
 		//配置文件控制是否写入 access.log
 		//监控程序的不写出 access.log
-		if(webServerConfig.isAccessLog() && !request.protocol().getPath().contains("/VoovanMonitor/")) {
-			SingleLogger.writeLog(ACCESS_LOG_FILE_NAME, genAccessLog(request, response));
+		if(!webServerConfig.isAccessLog() || request.protocol().getPath().contains("/VoovanMonitor/")) {
+			return;
+		}
+
+		//路由异步处理的请求, 在响应完成后写入
+		AccessLogRecord deferredRecord = (AccessLogRecord) request.getAttributes(ACCESS_LOG_RECORD);
+		if(deferredRecord != null) {
+			deferredRecord.setWebServerConfig(webServerConfig);
+			if(deferredRecord.arrive()) {
+				writeAccessLog(deferredRecord);
+			}
+			return;
+		}
+
+		int status = response.protocol().getStatus();
+		long latency = (System.nanoTime() - request.getStartTime()) / 1000000;
+		if(isAccessLogSampled(webServerConfig, request.getRoutePath(), status, latency)) {
+			AccessLogRecord record = new AccessLogRecord(request).complete(response);
+			record.setWebServerConfig(webServerConfig);
+			emitAccessLog(record);
 		}
 	}
 
+	/**
+	 * 创建延迟写入的访问日志记录
+	 * 		用于在路由返回后才完成响应的请求, 例如反向代理, 响应完成后调用 completeAccessLog 写入
+	 * @param request HTTP 请求对象
+	 * @return 访问日志记录
+	 */
+	public static AccessLogRecord deferAccessLog(HttpRequest request) {
+		AccessLogRecord record = new AccessLogRecord(request);
+		record.defer();
+		request.setAttributes(ACCESS_LOG_RECORD, record);
+		return record;
+	}
+
+	/**
+	 * 延迟写入的访问日志记录完成响应
+	 * @param record 访问日志记录
+	 * @param status 响应状态码
+	 * @param bytesOut 响应报文体长度
+	 * @param upstreamStatus 上游服务的响应状态码, 没有上游服务时为 -1
+	 */
+	public static void completeAccessLog(AccessLogRecord record, int status, long bytesOut, int upstreamStatus) {
+		record.complete(status, bytesOut, upstreamStatus);
+		if(record.arrive()) {
+			writeAccessLog(record);
+		}
+	}
+
+	/**
+	 * 对延迟写入的记录进行采样并写入
+	 * @param record 访问日志记录
+	 */
+	private static void writeAccessLog(AccessLogRecord record) {
+		WebServerConfig config = record.getWebServerConfig();
+		if(config != null && config.isAccessLog() &&
+				isAccessLogSampled(config, record.getRoute(), record.getStatus(), record.getLatency() / 1000)) {
+			emitAccessLog(record);
+		}
+	}
+
+	/**
+	 * 判断请求是否需要写入访问日志
+	 * 		错误和慢请求总是写入, 其他请求按路由的采样率写入
+	 * @param webServerConfig WebServer 配置对象
+	 * @param route 路由路径
+	 * @param status 响应状态码
+	 * @param latency 处理耗时, 单位: 毫秒
+	 * @return true: 写入, false: 不写入
+	 */
+	public static boolean isAccessLogSampled(WebServerConfig webServerConfig, String route, int status, long latency) {
+		if(isImportantAccessLog(webServerConfig, status, latency)) {
+			return true;
+		}
+
+		Double sampleRate = route == null ? null : webServerConfig.getAccessLogRouteSampleRate().get(route);
+		double rate = sampleRate == null ? webServerConfig.getAccessLogSampleRate() : sampleRate;
+		return rate >= 1 || (rate > 0 && ThreadLocalRandom.current().nextDouble() < rate);
+	}
+
+	private static boolean isImportantAccessLog(WebServerConfig webServerConfig, int status, long latency) {
+		return status >= 500 || (webServerConfig.getAccessLogSlowThreshold() > 0 && latency >= webServerConfig.getAccessLogSlowThreshold());
+	}
+
+	private static void emitAccessLog(AccessLogRecord record) {
+		WebServerConfig config = record.getWebServerConfig();
+		boolean gzip = config.isAccessLogGzip();
+		record.setJson(config.isAccessLogJson());
+		//错误和慢请求在日志缓冲区满时等待写入, 不会被丢弃
+		boolean important = isImportantAccessLog(config, record.getStatus(), record.getLatency() / 1000);
+		SingleLogger.writeLog(gzip ? ACCESS_LOG_FILE_NAME + ".gz" : ACCESS_LOG_FILE_NAME, record, important,
+				config.getAccessLogMaxSize() * 1024L * 1024L, gzip);
+	}
+
 	/**
 	 * 取配置中的参数定义
 	 * @param <T> 范型
@@ -9,6 +9,7 @@ import org.voovan.tools.log.Logger;
 import org.voovan.tools.reflect.TReflect;
 
 import java.lang.reflect.Field;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -38,6 +39,12 @@ public class WebServerConfig {
     private int sessionTimeout      = 30;
     private int keepAliveTimeout    = 60;
     private boolean accessLog       = false;
+    private int accessLogMaxSize    = 0;
+    private boolean accessLogGzip   = false;
+    private String accessLogFormat  = "TEXT";
+    private double accessLogSampleRate = 1;
+    private Map<String, Double> accessLogRouteSampleRate = new HashMap<String, Double>();
+    private int accessLogSlowThreshold = 1000;
     private boolean gzip            = true;
     private int gzipMinSize = 2048;
     private List<String> gzipMimeType = TObject.asList("text/html","text/xml","text/javascript","application/javascript","text/css","text/plain","text/json","application/json");
@@ -178,6 +185,58 @@ public class WebServerConfig {
         this.accessLog = accessLog;
     }
 
+    public int getAccessLogMaxSize() {
+        return accessLogMaxSize;
+    }
+
+    public void setAccessLogMaxSize(int accessLogMaxSize) {
+        this.accessLogMaxSize = accessLogMaxSize;
+    }
+
+    public boolean isAccessLogGzip() {
+        return accessLogGzip;
+    }
+
+    public void setAccessLogGzip(boolean accessLogGzip) {
+        this.accessLogGzip = accessLogGzip;
+    }
+
+    public String getAccessLogFormat() {
+        return accessLogFormat;
+    }
+
+    public void setAccessLogFormat(String accessLogFormat) {
+        this.accessLogFormat = accessLogFormat;
+    }
+
+    public boolean isAccessLogJson() {
+        return "JSON".equalsIgnoreCase(accessLogFormat);
+    }
+
+    public double getAccessLogSampleRate() {
+        return accessLogSampleRate;
+    }
+
+    public void setAccessLogSampleRate(double accessLogSampleRate) {
+        this.accessLogSampleRate = accessLogSampleRate;
+    }
+
+    public Map<String, Double> getAccessLogRouteSampleRate() {
+        return accessLogRouteSampleRate;
+    }
+
+    public void setAccessLogRouteSampleRate(Map<String, Double> accessLogRouteSampleRate) {
+        this.accessLogRouteSampleRate = accessLogRouteSampleRate;
+    }
+
+    public int getAccessLogSlowThreshold() {
+        return accessLogSlowThreshold;
+    }
+
+    public void setAccessLogSlowThreshold(int accessLogSlowThreshold) {
+        this.accessLogSlowThreshold = accessLogSlowThreshold;
+    }
+
     public HttpsConfig getHttps() {
         return https;
     }
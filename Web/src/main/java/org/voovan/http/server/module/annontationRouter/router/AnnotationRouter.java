@@ -10,11 +10,17 @@ import org.voovan.tools.TEnv;
 import org.voovan.tools.TFile;
 import org.voovan.tools.TString;
 import org.voovan.tools.json.JSON;
+import org.voovan.tools.json.JSONDecode;
+import org.voovan.tools.json.JSONWriter;
 import org.voovan.tools.log.Logger;
 import org.voovan.tools.reflect.TReflect;
 
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -252,6 +258,40 @@ public class AnnotationRouter implements HttpRouter {
 //        return routePath;
 //    }
 
+    /**
+     * 判断 body 是否是 JSON 的 map 类型, 只检查首尾的非空白字符
+     * @param bodyBytes body 字节数组
+     * @return true: 是, false: 否
+     */
+    private static boolean isJSONMap(byte[] bodyBytes) {
+        int start = 0;
+        int end = bodyBytes.length - 1;
+        while(start <= end && bodyBytes[start] <= ' ') {
+            start++;
+        }
+        while(end > start && bodyBytes[end] <= ' ') {
+            end--;
+        }
+        return start < end && bodyBytes[start] == '{' && bodyBytes[end] == '}';
+    }
+
+    /**
+     * 判断方法参数中是否存在指定的注解
+     * @param parameterAnnotations 方法参数的注解
+     * @param annotationClass 注解类型
+     * @return true: 存在, false: 不存在
+     */
+    private static boolean hasAnnotation(Annotation[][] parameterAnnotations, Class<? extends Annotation> annotationClass) {
+        for(Annotation[] annotations : parameterAnnotations) {
+            for(Annotation annotation : annotations) {
+                if(annotationClass.isInstance(annotation)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
     /**
      * 将一个 Http 请求映射到一个类的方法调用
      * @param request   http 请求对象
@@ -275,12 +315,18 @@ public class AnnotationRouter implements HttpRouter {
         Class[] parameterTypes = method.getParameterTypes();
         Annotation[][] parameterAnnotations = method.getParameterAnnotations();
 
-        String bodyString = "";
+        Type[] genericParameterTypes = method.getGenericParameterTypes();
+
+        byte[] bodyBytes = null;
+        boolean isJSONMapBody = false;
         Map bodyMap = null;
         if(request.body().size() > 0) {
-            bodyString = request.body().getBodyString();
-            if(JSON.isJSONMap(bodyString)) {
-                bodyMap = (Map) JSON.parse(bodyString);
+            bodyBytes = request.body().getBodyBytes();
+            isJSONMapBody = isJSONMap(bodyBytes);
+
+            //只有使用 @BodyParam 时才需要将 body 解析成 Map, @Body 直接绑定到参数类型
+            if(isJSONMapBody && hasAnnotation(parameterAnnotations, BodyParam.class)) {
+                bodyMap = (Map) JSONDecode.parse(ByteBuffer.wrap(bodyBytes));
             }
         }
 
@@ -373,12 +419,17 @@ public class AnnotationRouter implements HttpRouter {
                 //请求的 Body
                 if (annotation instanceof Body) {
                     try {
-                        params[i] = bodyMap == null ?
-                                TString.toObject(bodyString, parameterTypes[i], true) :
-                                TReflect.getObjectFromMap(parameterTypes[i], bodyMap, true);
+                        if(bodyBytes == null) {
+                            params[i] = TString.toObject("", parameterTypes[i], true);
+                        } else if(isJSONMapBody) {
+                            params[i] = JSONDecode.fromJSON(ByteBuffer.wrap(bodyBytes), genericParameterTypes[i], true);
+                        } else {
+                            params[i] = TString.toObject(new String(bodyBytes, StandardCharsets.UTF_8), parameterTypes[i], true);
+                        }
                         continue;
                     } catch (Exception e) {
                         if(((Body) annotation).isRequire()) {
+                            String bodyString = bodyBytes == null ? "" : new String(bodyBytes, StandardCharsets.UTF_8);
                             throw new AnnotationRouterException("Router annotation @Body error \r\n data: " + bodyString, e);
                         }
                     }
@@ -433,12 +484,24 @@ public class AnnotationRouter implements HttpRouter {
                     response.write((String) responseObj);
                 } else if (responseObj instanceof byte[]) {
                     response.write((byte[]) responseObj);
-                } else {
+                } else if (TReflect.isBasicType(responseObj.getClass()) || responseObj instanceof Date) {
+                    //顶层的标量和 JSON.toJSON 一致, 输出去掉引号的值
                     response.header().put(HttpStatic.CONTENT_TYPE_STRING, HttpContentType.getHttpContentType(HttpContentType.JSON));
                     response.write(JSON.toJSON(responseObj));
+                } else {
+                    response.header().put(HttpStatic.CONTENT_TYPE_STRING, HttpContentType.getHttpContentType(HttpContentType.JSON));
+                    JSONWriter jsonWriter = JSONWriter.get(response.body().getOutputStream());
+                    try {
+                        jsonWriter.write(responseObj).flush();
+                    } finally {
+                        jsonWriter.release();
+                    }
                 }
             }
         }catch(Exception e) {
+            //流式输出的 JSON 可能已经部分写入, 清空后由异常处理输出完整的错误响应
+            response.body().clear();
+
             if(e.getCause() != null) {
                 Throwable cause = e.getCause();
                 if(cause instanceof Exception) {
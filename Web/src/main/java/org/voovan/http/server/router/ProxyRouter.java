@@ -0,0 +1,476 @@
+package org.voovan.http.server.router;
+
+import org.voovan.Global;
+import org.voovan.http.HttpSessionParam;
+import org.voovan.http.client.HttpBodyStream;
+import org.voovan.http.client.HttpClient;
+import org.voovan.http.client.HttpClientManager;
+import org.voovan.http.message.HttpStatic;
+import org.voovan.http.message.Response;
+import org.voovan.http.message.packet.Cookie;
+import org.voovan.http.message.packet.Part;
+import org.voovan.http.server.HttpRequest;
+import org.voovan.http.server.HttpResponse;
+import org.voovan.http.server.HttpRouter;
+import org.voovan.http.server.WebServerHandler;
+import org.voovan.http.server.context.AccessLogRecord;
+import org.voovan.http.server.context.WebContext;
+import org.voovan.network.IoSession;
+import org.voovan.tools.TObject;
+import org.voovan.tools.TString;
+import org.voovan.tools.buffer.ByteBufferChannel;
+import org.voovan.tools.log.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 反向代理路由处理类
+ *      请求按 UpstreamPool 的负载均衡策略转发到上游服务, 连接失败时选择其他上游服务重试,
+ *      上游的响应报文体不做解压, 从上游连接的读缓冲区读出后直接写入客户端连接, 内存占用与报文体大小无关
+ *
+ *      配置方式:
+ *      "Routers": [{
+ *          "Name": "proxy", "Route": "/api/*", "Method": "GET",
+ *          "ClassName": "org.voovan.http.server.router.ProxyRouter",
+ *          "Upstreams": ["http://127.0.0.1:8081", "http://127.0.0.1:8082"],
+ *          "Strategy": "ROUND_ROBIN", "StripPrefix": "/api"
+ *      }]
+ *
+ * @author helyho
+ *
+ * Voovan Framework.
+ * WebSite: https://github.com/helyho/Voovan
+ * Licence: Apache v2 License
+ */
+public class ProxyRouter implements HttpRouter {
+
+    //逐跳的报文头, 不转发
+    private static final Set<String> HOP_BY_HOP_HEADERS = new TreeSet<String>(String.CASE_INSENSITIVE_ORDER);
+    //幂等的请求方法, 发送失败时可以在其他上游服务上重试
+    private static final Set<String> IDEMPOTENT_METHODS = new HashSet<String>(Arrays.asList("GET", "HEAD", "OPTIONS", "PUT", "DELETE", "TRACE"));
+
+    static {
+        HOP_BY_HOP_HEADERS.addAll(Arrays.asList(HttpStatic.CONNECTION_STRING, "Keep-Alive", "Proxy-Connection", "Proxy-Authenticate",
+                "Proxy-Authorization", HttpStatic.TRANSFER_ENCODING_STRING, "TE", "Trailer", "Upgrade",
+                HttpStatic.CONTENT_LENGTH_STRING, "Host", "Cookie", "Set-Cookie"));
+    }
+
+    private UpstreamPool upstreamPool;
+    private String stripPrefix;
+    private int bufferSize = 64 * 1024;
+
+    /**
+     * 构造函数
+     *      配置项: StripPrefix 以及 UpstreamPool 的配置项
+     * @param config 配置信息
+     */
+    public ProxyRouter(Map<String, Object> config) {
+        this.upstreamPool = new UpstreamPool(config);
+        Object stripPrefix = config.get("StripPrefix");
+        this.stripPrefix = stripPrefix == null ? null : stripPrefix.toString();
+    }
+
+    /**
+     * 构造函数
+     * @param upstreamPool 上游服务池
+     */
+    public ProxyRouter(UpstreamPool upstreamPool) {
+        this.upstreamPool = upstreamPool;
+    }
+
+    public UpstreamPool getUpstreamPool() {
+        return upstreamPool;
+    }
+
+    public String getStripPrefix() {
+        return stripPrefix;
+    }
+
+    /**
+     * 设置转发时去掉的路径前缀
+     * @param stripPrefix 路径前缀, 例如: /api
+     * @return ProxyRouter 对象
+     */
+    public ProxyRouter stripPrefix(String stripPrefix) {
+        this.stripPrefix = stripPrefix;
+        return this;
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * 设置转发响应报文体的缓冲区大小
+     * @param bufferSize 缓冲区大小, 单位: 字节, 默认: 64k
+     * @return ProxyRouter 对象
+     */
+    public ProxyRouter bufferSize(int bufferSize) {
+        this.bufferSize = bufferSize;
+        return this;
+    }
+
+    @Override
+    public void process(HttpRequest request, HttpResponse response) throws Exception {
+        //请求对象在响应后会被复用, 转发需要的内容先复制出来
+        ProxyRequest proxyRequest = new ProxyRequest(request);
+        IoSession session = request.getSocketSession();
+
+        //访问日志在转发完成后写入
+        proxyRequest.accessLogRecord = WebContext.deferAccessLog(request);
+
+        //转发期间发送缓冲区满时的 flush 不能关闭连接
+        WebServerHandler.setAttribute(session, HttpSessionParam.IS_KEEP_ALIVE, true);
+
+        //由转发线程发送响应
+        response.setAutoSend(false);
+        try {
+            Global.getThreadPool().execute(() -> forward(proxyRequest, response));
+        } catch (RejectedExecutionException e) {
+            //线程池已满或已关闭, 直接响应 503
+            Logger.warn("[PROXY] Forward " + proxyRequest.method + " " + proxyRequest.path + " rejected: " + e.getMessage());
+            sendError(proxyRequest, response, 503, "Service Unavailable", proxyRequest.keepAlive);
+        }
+    }
+
+    /**
+     * 转发请求并将响应写回客户端
+     * @param proxyRequest 转发的请求
+     * @param response 客户端的响应对象
+     */
+    private void forward(ProxyRequest proxyRequest, HttpResponse response) {
+        IoSession session = proxyRequest.session;
+        HttpClientManager manager = upstreamPool.getHttpClientManager();
+        List<UpstreamPool.Upstream> tried = new ArrayList<UpstreamPool.Upstream>();
+        Exception lastException = null;
+        boolean keepAlive = proxyRequest.keepAlive;
+
+        while (true) {
+            UpstreamPool.Upstream upstream = upstreamPool.select(proxyRequest.clientAddress, tried);
+            if (upstream == null) {
+                break;
+            }
+            tried.add(upstream);
+            upstream.begin();
+
+            HttpClient httpClient = null;
+            HttpBodyStream bodyStream = null;
+            boolean success = false;
+            boolean leaseTimeout = false;
+            try {
+                try {
+                    httpClient = manager.lease(upstream.getUrl(), upstreamPool.getTimeout() * 1000L);
+                } catch (TimeoutException e) {
+                    //本地连接池已满, 不是上游服务的故障
+                    leaseTimeout = true;
+                    throw e;
+                }
+
+                try {
+                    bodyStream = send(httpClient, proxyRequest);
+                } catch (Exception e) {
+                    //非幂等的请求可能已经被上游服务处理, 不能重试
+                    if (!IDEMPOTENT_METHODS.contains(proxyRequest.method)) {
+                        tried.addAll(upstreamPool.getUpstreams());
+                    }
+                    throw e;
+                }
+
+                //上游服务已经响应, 之后的异常都不再重试
+                success = true;
+                keepAlive = relay(proxyRequest, bodyStream) && keepAlive;
+                lastException = null;
+            } catch (Exception e) {
+                lastException = e;
+                if (success) {
+                    //响应已经部分写出, 只能关闭客户端连接
+                    Logger.error("[PROXY] Relay response from " + upstream + " failed", e);
+                    keepAlive = false;
+                } else {
+                    Logger.warn("[PROXY] Forward " + proxyRequest.method + " " + proxyRequest.path + " to " + upstream + " failed: " + e.getMessage());
+                }
+            } finally {
+                if (bodyStream != null && bodyStream.isOpen()) {
+                    bodyStream.close();
+                }
+                if (httpClient != null) {
+                    manager.release(httpClient);
+                }
+                if (leaseTimeout) {
+                    upstream.cancel();
+                } else {
+                    upstream.end(success);
+                }
+            }
+
+            if (success || lastException == null) {
+                finish(session, keepAlive);
+                WebContext.completeAccessLog(proxyRequest.accessLogRecord, proxyRequest.upstreamStatus,
+                        proxyRequest.bytesOut, proxyRequest.upstreamStatus);
+                return;
+            }
+        }
+
+        sendError(proxyRequest, response, lastException, keepAlive);
+    }
+
+    /**
+     * 向上游服务发送请求
+     * @param httpClient 上游连接
+     * @param proxyRequest 转发的请求
+     * @return 上游响应的报文体流
+     * @throws Exception 发送或读取响应头异常
+     */
+    private HttpBodyStream send(HttpClient httpClient, ProxyRequest proxyRequest) throws Exception {
+        //连接会被不同的客户端复用, 不能携带上一次响应的 Cookie
+        httpClient.getCookies().clear();
+        httpClient.setMethod(proxyRequest.method);
+
+        Map<String, String> headers = httpClient.getHeader().getHeaders();
+        if (!proxyRequest.headers.containsKey(HttpStatic.ACCEPT_ENCODING_STRING)) {
+            httpClient.getHeader().remove(HttpStatic.ACCEPT_ENCODING_STRING);
+        }
+        for (Map.Entry<String, String> entry : proxyRequest.headers.entrySet()) {
+            if (!HOP_BY_HOP_HEADERS.contains(entry.getKey())) {
+                headers.put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        if (proxyRequest.cookie != null) {
+            headers.put("Cookie", proxyRequest.cookie);
+        }
+
+        String forwardedFor = proxyRequest.headers.get("X-Forwarded-For");
+        headers.put("X-Forwarded-For", forwardedFor == null ? proxyRequest.remoteAddress : forwardedFor + ", " + proxyRequest.remoteAddress);
+        headers.put("X-Forwarded-Proto", proxyRequest.ssl ? "https" : "http");
+        if (proxyRequest.host != null) {
+            headers.put("X-Forwarded-Host", proxyRequest.host);
+        }
+
+        if (!proxyRequest.parts.isEmpty()) {
+            //重新生成 boundary
+            headers.put(HttpStatic.CONTENT_TYPE_STRING, "multipart/form-data;");
+            for (Part part : proxyRequest.parts) {
+                httpClient.addPart(part);
+            }
+        } else if (proxyRequest.body.length > 0) {
+            httpClient.setData(proxyRequest.body);
+        }
+
+        return httpClient.sendStream(proxyRequest.path, false);
+    }
+
+    /**
+     * 将上游的响应写回客户端
+     * @param proxyRequest 转发的请求
+     * @param bodyStream 上游响应的报文体流
+     * @return true: 客户端连接可以复用, false: 报文体以连接关闭为结束, 需要关闭客户端连接
+     * @throws IOException IO 异常
+     */
+    private boolean relay(ProxyRequest proxyRequest, HttpBodyStream bodyStream) throws IOException {
+        IoSession session = proxyRequest.session;
+        Response upstreamResponse = bodyStream.getResponse();
+        int status = upstreamResponse.protocol().getStatus();
+        proxyRequest.upstreamStatus = status;
+        boolean hasBody = !"HEAD".equals(proxyRequest.method) && status >= 200 && status != 204 && status != 304;
+        String contentLength = upstreamResponse.header().get(HttpStatic.CONTENT_LENGTH_STRING);
+
+        StringBuilder head = new StringBuilder();
+        head.append("HTTP/1.1 ").append(status).append(" ").append(upstreamResponse.protocol().getStatusCode()).append(HttpStatic.LINE_MARK_STRING);
+        for (Map.Entry<String, String> entry : upstreamResponse.header().getHeaders().entrySet()) {
+            if (!HOP_BY_HOP_HEADERS.contains(entry.getKey())) {
+                head.append(entry.getKey()).append(": ").append(entry.getValue()).append(HttpStatic.LINE_MARK_STRING);
+            }
+        }
+        for (Cookie cookie : upstreamResponse.cookies()) {
+            head.append("Set-Cookie: ").append(cookie.toString()).append(HttpStatic.LINE_MARK_STRING);
+        }
+
+        //确定报文体的边界
+        boolean chunked = false;
+        boolean keepAlive = true;
+        if (contentLength != null && (hasBody || "HEAD".equals(proxyRequest.method))) {
+            head.append(HttpStatic.CONTENT_LENGTH_STRING).append(": ").append(contentLength.trim()).append(HttpStatic.LINE_MARK_STRING);
+        } else if (hasBody) {
+            if (proxyRequest.http10) {
+                keepAlive = false;
+            } else {
+                chunked = true;
+                head.append(HttpStatic.TRANSFER_ENCODING_STRING).append(": ").append(HttpStatic.CHUNKED_STRING).append(HttpStatic.LINE_MARK_STRING);
+            }
+        }
+        head.append(HttpStatic.CONNECTION_STRING).append(": ").append(keepAlive && proxyRequest.keepAlive ? HttpStatic.KEEP_ALIVE_STRING : HttpStatic.CLOSE_STRING);
+        head.append(HttpStatic.BODY_MARK_STRING);
+        send(session, ByteBuffer.wrap(TString.toAsciiBytes(head.toString())));
+
+        ByteBuffer buffer = ByteBuffer.allocate(bufferSize);
+        int readSize;
+        while ((readSize = bodyStream.read(buffer)) != -1) {
+            if (readSize == 0) {
+                continue;
+            }
+            buffer.flip();
+            proxyRequest.bytesOut += readSize;
+            if (chunked) {
+                send(session, ByteBuffer.wrap(TString.toAsciiBytes(Integer.toHexString(readSize) + HttpStatic.LINE_MARK_STRING)));
+            }
+            send(session, buffer);
+            if (chunked) {
+                send(session, ByteBuffer.wrap(TString.toAsciiBytes(HttpStatic.LINE_MARK_STRING)));
+            }
+            buffer.clear();
+        }
+
+        if (chunked) {
+            send(session, ByteBuffer.wrap(TString.toAsciiBytes("0" + HttpStatic.BODY_MARK_STRING)));
+        }
+
+        return keepAlive;
+    }
+
+    /**
+     * 发送数据到客户端
+     *      客户端读取慢时等待发送缓冲区腾出空间, 此时不再读取上游连接, 由上游连接的流控反压到上游服务
+     * @param session 客户端连接
+     * @param byteBuffer 发送的数据
+     * @throws IOException IO 异常
+     */
+    private void send(IoSession session, ByteBuffer byteBuffer) throws IOException {
+        ByteBufferChannel sendByteBufferChannel = session.getSendByteBufferChannel();
+        //缓冲区扩容按容量计算, 需要保证剩余空间足够或者扩容后不超过上限
+        if (session.isConnected() && sendByteBufferChannel.available() < byteBuffer.remaining() &&
+                sendByteBufferChannel.capacity() + byteBuffer.remaining() > sendByteBufferChannel.getMaxSize()) {
+            //flush 阻塞到缓冲区的数据全部写入 socket 后返回, 写入超时(SendTimeout)时关闭连接
+            session.flush();
+        }
+
+        if (!session.isConnected() || session.send(byteBuffer) < 0) {
+            throw new IOException("[PROXY] Client connection is closed");
+        }
+    }
+
+    /**
+     * 响应完成, 恢复客户端连接的状态
+     * @param session 客户端连接
+     * @param keepAlive 客户端连接是否可以复用
+     */
+    private static void finish(IoSession session, boolean keepAlive) {
+        WebServerHandler.setAttribute(session, HttpSessionParam.IS_KEEP_ALIVE, keepAlive);
+        session.flush();
+        if (!keepAlive) {
+            session.close();
+        }
+    }
+
+    /**
+     * 没有可用的上游服务时响应错误
+     * @param proxyRequest 转发的请求
+     * @param response 客户端的响应对象
+     * @param exception 最后一次转发的异常
+     * @param keepAlive 客户端连接是否可以复用
+     */
+    private static void sendError(ProxyRequest proxyRequest, HttpResponse response, Exception exception, boolean keepAlive) {
+        boolean timeout = exception instanceof TimeoutException || exception != null && exception.getCause() instanceof TimeoutException;
+        sendError(proxyRequest, response, timeout ? 504 : 502, timeout ? "Gateway Timeout" : "Bad Gateway", keepAlive);
+    }
+
+    /**
+     * 响应错误
+     * @param proxyRequest 转发的请求
+     * @param response 客户端的响应对象
+     * @param status 响应状态码
+     * @param statusCode 响应状态描述
+     * @param keepAlive 客户端连接是否可以复用
+     */
+    private static void sendError(ProxyRequest proxyRequest, HttpResponse response, int status, String statusCode, boolean keepAlive) {
+        IoSession session = response.getSocketSession();
+
+        response.protocol().setStatus(status);
+        response.protocol().setStatusCode(statusCode);
+        response.header().put(HttpStatic.CONTENT_TYPE_STRING, HttpStatic.TEXT_PLAIN_STRING);
+        response.write(statusCode);
+        long bodySize = response.body().size();
+
+        WebServerHandler.setAttribute(session, HttpSessionParam.IS_KEEP_ALIVE, keepAlive);
+        try {
+            response.send();
+        } catch (IOException e) {
+            Logger.error("[PROXY] Send error response failed", e);
+            session.close();
+        }
+
+        WebContext.completeAccessLog(proxyRequest.accessLogRecord, status, bodySize, -1);
+    }
+
+    /**
+     * 转发的请求
+     *      HttpRequest 在响应发送后会被清理复用, 这里保存转发需要的内容
+     */
+    private class ProxyRequest {
+        private IoSession session;
+        private String method;
+        private String path;
+        private Map<String, String> headers;
+        private String cookie;
+        private byte[] body;
+        private List<Part> parts;
+        private String clientAddress;
+        private String remoteAddress;
+        private String host;
+        private boolean ssl;
+        private boolean http10;
+        private boolean keepAlive;
+
+        private AccessLogRecord accessLogRecord;
+        private int upstreamStatus;
+        private long bytesOut;
+
+        private ProxyRequest(HttpRequest request) {
+            session = request.getSocketSession();
+            method = request.protocol().getMethod();
+
+            path = request.protocol().getPath();
+            if (stripPrefix != null && path.startsWith(stripPrefix)) {
+                path = path.substring(stripPrefix.length());
+                if (!path.startsWith("/")) {
+                    path = "/" + path;
+                }
+            }
+
+            String queryString = request.protocol().getQueryString();
+            if (!TString.isNullOrEmpty(queryString)) {
+                path = path + (queryString.startsWith("?") ? "" : "?") + queryString;
+            }
+
+            headers = new LinkedHashMap<String, String>(request.header().getHeaders());
+
+            if (!request.cookies().isEmpty()) {
+                StringBuilder cookieBuilder = new StringBuilder();
+                for (Cookie item : request.cookies()) {
+                    cookieBuilder.append(item.getName()).append("=").append(item.getValue()).append("; ");
+                }
+                cookie = cookieBuilder.toString();
+            }
+
+            parts = new ArrayList<Part>(request.parts());
+            body = parts.isEmpty() ? request.body().getBodyBytes() : new byte[0];
+            clientAddress = request.getRemoteAddres();
+            remoteAddress = session.remoteAddress();
+            host = request.header().get("Host");
+            ssl = session.isSSLMode();
+            http10 = request.protocol().getVersion().endsWith("1.0");
+            keepAlive = TObject.nullDefault(WebServerHandler.getAttribute(session, HttpSessionParam.IS_KEEP_ALIVE), false);
+        }
+    }
+}
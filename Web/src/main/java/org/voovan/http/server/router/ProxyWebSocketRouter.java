@@ -0,0 +1,301 @@
+package org.voovan.http.server.router;
+
+import org.voovan.Global;
+import org.voovan.http.client.HttpClient;
+import org.voovan.http.websocket.WebSocketRouter;
+import org.voovan.http.websocket.WebSocketSession;
+import org.voovan.tools.log.Logger;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * WebSocket 反向代理路由处理类
+ *      客户端的 WebSocket 连接打开时按 UpstreamPool 的负载均衡策略连接上游服务,
+ *      之后按消息双向转发, 任意一端关闭时关闭另一端
+ *
+ *      配置方式:
+ *      "Routers": [{
+ *          "Name": "proxyWs", "Route": "/ws", "Method": "WEBSOCKET",
+ *          "ClassName": "org.voovan.http.server.router.ProxyWebSocketRouter",
+ *          "Upstreams": ["http://127.0.0.1:8081"]
+ *      }]
+ *
+ * @author helyho
+ *
+ * Voovan Framework.
+ * WebSite: https://github.com/helyho/Voovan
+ * Licence: Apache v2 License
+ */
+public class ProxyWebSocketRouter extends WebSocketRouter {
+    private static final String TUNNEL_ATTRIBUTE = "ProxyWebSocketTunnel";
+
+    private UpstreamPool upstreamPool;
+    private String stripPrefix;
+
+    /**
+     * 构造函数
+     *      配置项: StripPrefix 以及 UpstreamPool 的配置项
+     * @param config 配置信息
+     */
+    public ProxyWebSocketRouter(Map<String, Object> config) {
+        this.upstreamPool = new UpstreamPool(config);
+        Object stripPrefix = config.get("StripPrefix");
+        this.stripPrefix = stripPrefix == null ? null : stripPrefix.toString();
+    }
+
+    /**
+     * 构造函数
+     * @param upstreamPool 上游服务池
+     */
+    public ProxyWebSocketRouter(UpstreamPool upstreamPool) {
+        this.upstreamPool = upstreamPool;
+    }
+
+    public UpstreamPool getUpstreamPool() {
+        return upstreamPool;
+    }
+
+    public String getStripPrefix() {
+        return stripPrefix;
+    }
+
+    /**
+     * 设置转发时去掉的路径前缀
+     * @param stripPrefix 路径前缀, 例如: /ws
+     * @return ProxyWebSocketRouter 对象
+     */
+    public ProxyWebSocketRouter stripPrefix(String stripPrefix) {
+        this.stripPrefix = stripPrefix;
+        return this;
+    }
+
+    @Override
+    public Object onOpen(WebSocketSession session) {
+        String path = session.getLocation();
+        if (stripPrefix != null && path.startsWith(stripPrefix)) {
+            path = path.substring(stripPrefix.length());
+            if (!path.startsWith("/")) {
+                path = "/" + path;
+            }
+        }
+
+        Tunnel tunnel = new Tunnel(session);
+        session.setAttribute(TUNNEL_ATTRIBUTE, tunnel);
+
+        //连接上游服务会阻塞, 在线程池中进行
+        String location = path;
+        Global.getThreadPool().execute(() -> tunnel.connect(location));
+        return null;
+    }
+
+    @Override
+    public Object onRecived(WebSocketSession session, Object obj) {
+        Tunnel tunnel = (Tunnel) session.getAttribute(TUNNEL_ATTRIBUTE);
+        if (tunnel != null && obj instanceof ByteBuffer) {
+            tunnel.forward(new Message(copy((ByteBuffer) obj), session.isBinary()));
+        }
+        return null;
+    }
+
+    @Override
+    public void onSent(WebSocketSession session, Object obj) {
+    }
+
+    @Override
+    public void onClose(WebSocketSession session) {
+        Tunnel tunnel = (Tunnel) session.removeAttribute(TUNNEL_ATTRIBUTE);
+        if (tunnel != null) {
+            tunnel.close();
+        }
+    }
+
+    /**
+     * 复制消息, 收到的缓冲区在事件返回后会被复用
+     * @param byteBuffer 收到的消息
+     * @return 消息的副本
+     */
+    private static byte[] copy(ByteBuffer byteBuffer) {
+        byte[] bytes = new byte[byteBuffer.remaining()];
+        byteBuffer.duplicate().get(bytes);
+        return bytes;
+    }
+
+    /**
+     * 转发的消息, 保留收到时的帧类型
+     */
+    private static class Message {
+        private byte[] data;
+        private boolean binary;
+
+        private Message(byte[] data, boolean binary) {
+            this.data = data;
+            this.binary = binary;
+        }
+    }
+
+    /**
+     * 客户端连接和上游连接之间的隧道
+     *      同时作为上游连接的 WebSocket 路由, 上游的消息转发给客户端
+     */
+    private class Tunnel extends WebSocketRouter {
+        private WebSocketSession clientSession;
+        private volatile WebSocketSession upstreamSession;
+        private HttpClient httpClient;
+        private UpstreamPool.Upstream upstream;
+        //上游连接建立前收到的客户端消息
+        private List<Message> pending = new ArrayList<Message>();
+        private AtomicBoolean closed = new AtomicBoolean(false);
+        private AtomicBoolean released = new AtomicBoolean(false);
+
+        private Tunnel(WebSocketSession clientSession) {
+            this.clientSession = clientSession;
+        }
+
+        /**
+         * 连接上游服务, 失败时选择其他上游服务重试
+         * @param location 请求路径
+         */
+        private void connect(String location) {
+            List<UpstreamPool.Upstream> tried = new ArrayList<UpstreamPool.Upstream>();
+            while (!closed.get()) {
+                UpstreamPool.Upstream selected = upstreamPool.select(clientSession.getRemoteAddress(), tried);
+                if (selected == null) {
+                    Logger.warn("[PROXY] No upstream available for WebSocket " + location);
+                    close();
+                    return;
+                }
+                tried.add(selected);
+                selected.begin();
+
+                HttpClient client = null;
+                try {
+                    client = new HttpClient(selected.getUrl(), upstreamPool.getTimeout());
+                    synchronized (this) {
+                        upstream = selected;
+                        httpClient = client;
+                    }
+                    //升级成功后阻塞到连接关闭或超时
+                    client.webSocket(location, this);
+                } catch (Exception e) {
+                    Logger.warn("[PROXY] Connect WebSocket " + location + " to " + selected + " failed: " + e.getMessage());
+                }
+
+                if (upstreamSession != null) {
+                    return;
+                }
+
+                //升级失败
+                synchronized (this) {
+                    upstream = null;
+                    httpClient = null;
+                }
+                selected.end(false);
+                if (client != null) {
+                    client.close();
+                }
+            }
+        }
+
+        /**
+         * 转发客户端的消息到上游服务
+         * @param message 消息
+         */
+        private void forward(Message message) {
+            synchronized (this) {
+                if (upstreamSession == null) {
+                    pending.add(message);
+                    return;
+                }
+            }
+
+            send(upstreamSession, message);
+        }
+
+        private void send(WebSocketSession session, Message message) {
+            try {
+                if (message.binary) {
+                    session.sendBinary(message.data);
+                } else {
+                    session.send(ByteBuffer.wrap(message.data));
+                }
+            } catch (Exception e) {
+                Logger.error("[PROXY] Forward WebSocket message failed", e);
+                close();
+            }
+        }
+
+        /**
+         * 关闭两端的连接
+         */
+        private void close() {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+
+            if (clientSession.isConnected()) {
+                clientSession.close();
+            }
+
+            synchronized (this) {
+                if (upstreamSession != null && upstreamSession.isConnected()) {
+                    upstreamSession.close();
+                }
+                if (httpClient != null) {
+                    httpClient.close();
+                }
+                if (upstreamSession != null) {
+                    release();
+                }
+            }
+        }
+
+        /**
+         * 结束上游服务的活跃请求计数
+         */
+        private synchronized void release() {
+            if (upstream != null && released.compareAndSet(false, true)) {
+                upstream.end(true);
+            }
+        }
+
+        @Override
+        public Object onOpen(WebSocketSession session) {
+            //在 forward 的同一个锁内发送积压的消息后再发布上游连接, 之后的消息不会越过积压的消息
+            synchronized (this) {
+                for (Message message : pending) {
+                    send(session, message);
+                }
+                pending.clear();
+                upstreamSession = session;
+            }
+
+            //上游连接建立前客户端已经关闭
+            if (closed.get()) {
+                session.close();
+                release();
+            }
+            return null;
+        }
+
+        @Override
+        public Object onRecived(WebSocketSession session, Object obj) {
+            if (obj instanceof ByteBuffer) {
+                send(clientSession, new Message(copy((ByteBuffer) obj), session.isBinary()));
+            }
+            return null;
+        }
+
+        @Override
+        public void onSent(WebSocketSession session, Object obj) {
+        }
+
+        @Override
+        public void onClose(WebSocketSession session) {
+            close();
+        }
+    }
+}
@@ -0,0 +1,432 @@
+package org.voovan.http.server.router;
+
+import org.voovan.Global;
+import org.voovan.http.client.HttpClient;
+import org.voovan.http.client.HttpClientManager;
+import org.voovan.tools.hashwheeltimer.HashWheelTask;
+import org.voovan.tools.log.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 反向代理的上游服务池
+ *      按负载均衡策略选择上游服务, 连接通过 HttpClientManager 按上游复用,
+ *      上游连接失败达到 maxFails 次后在 failTimeout 内不再被选择, 配置了健康检查时由健康检查恢复
+ *
+ * @author helyho
+ *
+ * Voovan Framework.
+ * WebSite: https://github.com/helyho/Voovan
+ * Licence: Apache v2 License
+ */
+public class UpstreamPool implements Closeable {
+
+    /**
+     * 负载均衡策略
+     */
+    public enum Strategy {
+        //轮询
+        ROUND_ROBIN,
+        //随机
+        RANDOM,
+        //最少活跃请求
+        LEAST_CONNECTIONS,
+        //按客户端 IP 哈希, 同一个客户端总是访问同一个上游服务
+        IP_HASH
+    }
+
+    private List<Upstream> upstreams = new ArrayList<Upstream>();
+    private Strategy strategy = Strategy.ROUND_ROBIN;
+    private int maxConnections = 8;
+    private int timeout = 30;
+    private int maxFails = 1;
+    private int failTimeout = 10;
+    private String healthCheckPath;
+    private int healthCheckInterval = 0;
+
+    private AtomicInteger roundRobinIndex = new AtomicInteger(0);
+    private HttpClientManager httpClientManager;
+    private HashWheelTask healthCheckTask;
+
+    /**
+     * 构造函数
+     */
+    public UpstreamPool() {
+    }
+
+    /**
+     * 构造函数
+     *      配置项: Upstreams, Strategy, MaxConnections, Timeout, MaxFails, FailTimeout, HealthCheckPath, HealthCheckInterval
+     * @param config 配置信息
+     */
+    public UpstreamPool(Map<String, Object> config) {
+        for (Map.Entry<String, Object> entry : config.entrySet()) {
+            String key = entry.getKey();
+            Object value = entry.getValue();
+            if (value == null) {
+                continue;
+            }
+
+            if ("Upstreams".equalsIgnoreCase(key)) {
+                if (value instanceof Collection) {
+                    for (Object upstream : (Collection) value) {
+                        addUpstream(upstream.toString());
+                    }
+                } else {
+                    for (String upstream : value.toString().split(",")) {
+                        addUpstream(upstream.trim());
+                    }
+                }
+            } else if ("Strategy".equalsIgnoreCase(key)) {
+                strategy = Strategy.valueOf(value.toString().toUpperCase());
+            } else if ("MaxConnections".equalsIgnoreCase(key)) {
+                maxConnections = toInt(value);
+            } else if ("Timeout".equalsIgnoreCase(key)) {
+                timeout = toInt(value);
+            } else if ("MaxFails".equalsIgnoreCase(key)) {
+                maxFails = toInt(value);
+            } else if ("FailTimeout".equalsIgnoreCase(key)) {
+                failTimeout = toInt(value);
+            } else if ("HealthCheckPath".equalsIgnoreCase(key)) {
+                healthCheckPath = value.toString();
+            } else if ("HealthCheckInterval".equalsIgnoreCase(key)) {
+                healthCheckInterval = toInt(value);
+            }
+        }
+    }
+
+    private static int toInt(Object value) {
+        return value instanceof Number ? ((Number) value).intValue() : Integer.parseInt(value.toString().trim());
+    }
+
+    public List<Upstream> getUpstreams() {
+        return upstreams;
+    }
+
+    /**
+     * 增加上游服务
+     * @param url 上游服务地址, 例如: http://127.0.0.1:8080
+     * @return UpstreamPool 对象
+     */
+    public UpstreamPool addUpstream(String url) {
+        if (url.endsWith("/")) {
+            url = url.substring(0, url.length() - 1);
+        }
+        upstreams.add(new Upstream(url));
+        return this;
+    }
+
+    public Strategy getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * 设置负载均衡策略
+     * @param strategy 负载均衡策略, 默认: ROUND_ROBIN
+     * @return UpstreamPool 对象
+     */
+    public UpstreamPool strategy(Strategy strategy) {
+        this.strategy = strategy;
+        return this;
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    /**
+     * 设置每个上游服务的最大连接数
+     * @param maxConnections 最大连接数, 默认: 8
+     * @return UpstreamPool 对象
+     */
+    public UpstreamPool maxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+        return this;
+    }
+
+    public int getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * 设置上游服务的连接和读取超时时间
+     * @param timeout 超时时间, 单位: 秒, 默认: 30
+     * @return UpstreamPool 对象
+     */
+    public UpstreamPool timeout(int timeout) {
+        this.timeout = timeout;
+        return this;
+    }
+
+    public int getMaxFails() {
+        return maxFails;
+    }
+
+    /**
+     * 设置上游服务被判定为不可用的连续失败次数
+     * @param maxFails 连续失败次数, 默认: 1
+     * @return UpstreamPool 对象
+     */
+    public UpstreamPool maxFails(int maxFails) {
+        this.maxFails = maxFails;
+        return this;
+    }
+
+    public int getFailTimeout() {
+        return failTimeout;
+    }
+
+    /**
+     * 设置上游服务不可用的时间, 超过这个时间后重新尝试
+     * @param failTimeout 不可用的时间, 单位: 秒, 默认: 10
+     * @return UpstreamPool 对象
+     */
+    public UpstreamPool failTimeout(int failTimeout) {
+        this.failTimeout = failTimeout;
+        return this;
+    }
+
+    public String getHealthCheckPath() {
+        return healthCheckPath;
+    }
+
+    /**
+     * 设置健康检查的路径
+     *      响应状态码小于 500 时认为上游服务可用, 不设置时只检查 TCP 连接
+     * @param healthCheckPath 健康检查的路径
+     * @return UpstreamPool 对象
+     */
+    public UpstreamPool healthCheckPath(String healthCheckPath) {
+        this.healthCheckPath = healthCheckPath;
+        return this;
+    }
+
+    public int getHealthCheckInterval() {
+        return healthCheckInterval;
+    }
+
+    /**
+     * 设置健康检查的时间间隔
+     * @param healthCheckInterval 时间间隔, 单位: 秒, 小于等于 0 时不做健康检查, 默认: 0
+     * @return UpstreamPool 对象
+     */
+    public UpstreamPool healthCheckInterval(int healthCheckInterval) {
+        this.healthCheckInterval = healthCheckInterval;
+        return this;
+    }
+
+    /**
+     * 获取连接管理器
+     *      首次调用时按当前的配置创建, 并启动健康检查
+     * @return 连接管理器
+     */
+    public synchronized HttpClientManager getHttpClientManager() {
+        if (httpClientManager == null) {
+            httpClientManager = new HttpClientManager()
+                    .maxPerRoute(maxConnections)
+                    .maxTotal(maxConnections * Math.max(upstreams.size(), 1))
+                    .timeout(timeout)
+                    //失败重试由上游的失败计数控制
+                    .connectRetryInterval(0);
+
+            if (healthCheckInterval > 0) {
+                healthCheckTask = new HashWheelTask() {
+                    @Override
+                    public void run() {
+                        healthCheck();
+                    }
+                };
+                Global.getHashWheelTimer().addTask(healthCheckTask, healthCheckInterval, true);
+            }
+        }
+        return httpClientManager;
+    }
+
+    /**
+     * 按负载均衡策略选择可用的上游服务
+     * @param clientAddress 客户端地址, IP_HASH 策略使用
+     * @param excludes 排除的上游服务, 用于失败后选择其他上游服务重试
+     * @return 上游服务, 没有可用的上游服务时返回 null
+     */
+    public Upstream select(String clientAddress, Collection<Upstream> excludes) {
+        List<Upstream> availables = new ArrayList<Upstream>(upstreams.size());
+        long now = System.currentTimeMillis();
+        for (Upstream upstream : upstreams) {
+            if (upstream.isAvailable(now) && (excludes == null || !excludes.contains(upstream))) {
+                availables.add(upstream);
+            }
+        }
+
+        if (availables.isEmpty()) {
+            return null;
+        }
+
+        switch (strategy) {
+            case RANDOM:
+                return availables.get(ThreadLocalRandom.current().nextInt(availables.size()));
+            case LEAST_CONNECTIONS: {
+                Upstream selected = null;
+                for (Upstream upstream : availables) {
+                    if (selected == null || upstream.getActive() < selected.getActive()) {
+                        selected = upstream;
+                    }
+                }
+                return selected;
+            }
+            case IP_HASH: {
+                int hash = clientAddress == null ? 0 : clientAddress.hashCode();
+                return availables.get((hash & Integer.MAX_VALUE) % availables.size());
+            }
+            default:
+                return availables.get((roundRobinIndex.getAndIncrement() & Integer.MAX_VALUE) % availables.size());
+        }
+    }
+
+    /**
+     * 健康检查
+     */
+    public void healthCheck() {
+        for (Upstream upstream : upstreams) {
+            boolean healthy = checkUpstream(upstream);
+            if (healthy != upstream.healthy) {
+                Logger.warn("[PROXY] Upstream " + upstream.getUrl() + " is " + (healthy ? "up" : "down"));
+            }
+
+            upstream.healthy = healthy;
+            if (healthy) {
+                upstream.fails.set(0);
+            }
+        }
+    }
+
+    private boolean checkUpstream(Upstream upstream) {
+        //先检查 TCP 连接, 避免不可用的上游服务在每次检查时输出连接异常
+        try (Socket socket = new Socket()) {
+            URL url = new URL(upstream.getUrl());
+            int port = url.getPort() == -1 ? url.getDefaultPort() : url.getPort();
+            socket.connect(new InetSocketAddress(url.getHost(), port), timeout * 1000);
+        } catch (IOException e) {
+            return false;
+        }
+
+        if (healthCheckPath == null) {
+            return true;
+        }
+
+        HttpClientManager manager = getHttpClientManager();
+        HttpClient httpClient = null;
+        try {
+            httpClient = manager.lease(upstream.getUrl(), timeout * 1000);
+            return httpClient.send(healthCheckPath).protocol().getStatus() < 500;
+        } catch (IOException | TimeoutException e) {
+            return false;
+        } finally {
+            if (httpClient != null) {
+                manager.release(httpClient);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (healthCheckTask != null) {
+            healthCheckTask.cancel();
+            healthCheckTask = null;
+        }
+
+        if (httpClientManager != null) {
+            httpClientManager.close();
+            httpClientManager = null;
+        }
+    }
+
+    /**
+     * 上游服务
+     */
+    public class Upstream {
+        private String url;
+        private volatile boolean healthy = true;
+        private AtomicInteger fails = new AtomicInteger(0);
+        private volatile long lastFailTime = 0;
+        private AtomicInteger active = new AtomicInteger(0);
+
+        private Upstream(String url) {
+            this.url = url;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        /**
+         * 获取正在处理的请求数
+         * @return 正在处理的请求数
+         */
+        public int getActive() {
+            return active.get();
+        }
+
+        /**
+         * 获取连续失败的次数
+         * @return 连续失败的次数
+         */
+        public int getFails() {
+            return fails.get();
+        }
+
+        /**
+         * 是否可用
+         * @param now 当前时间
+         * @return true: 可用, false: 不可用
+         */
+        public boolean isAvailable(long now) {
+            return healthy && (fails.get() < maxFails || now - lastFailTime > failTimeout * 1000L);
+        }
+
+        /**
+         * 请求开始
+         */
+        public void begin() {
+            active.incrementAndGet();
+        }
+
+        /**
+         * 请求结束
+         * @param success true: 成功, false: 连接或读取上游服务失败
+         */
+        public void end(boolean success) {
+            active.decrementAndGet();
+            if (success) {
+                fails.set(0);
+            } else {
+                lastFailTime = System.currentTimeMillis();
+                if (fails.incrementAndGet() == maxFails) {
+                    Logger.warn("[PROXY] Upstream " + url + " failed " + maxFails + " times, disabled for " + failTimeout + "s");
+                }
+            }
+        }
+
+        /**
+         * 请求未发送到上游服务就结束, 例如本地连接池等待超时, 不计入成功或失败
+         */
+        public void cancel() {
+            active.decrementAndGet();
+        }
+
+        @Override
+        public String toString() {
+            return url;
+        }
+    }
+}
@@ -26,6 +26,7 @@ public class WebSocketSession extends Attributes {
     private int remotePort;
     private WebSocketType webSocketType;
     private boolean masked;
+    private volatile boolean binary;
 
 
     /**
@@ -103,6 +104,23 @@ public class WebSocketSession extends Attributes {
         this.webSocketRouter = webSocketRouter;
     }
 
+    /**
+     * 当前收到的消息是否是二进制帧
+     *      在 onRecived 事件中判断消息的帧类型
+     * @return true: 二进制帧, false: 文本帧
+     */
+    public boolean isBinary() {
+        return binary;
+    }
+
+    /**
+     * 设置当前收到的消息的帧类型
+     * @param binary true: 二进制帧, false: 文本帧
+     */
+    public void setBinary(boolean binary) {
+        this.binary = binary;
+    }
+
     /**
      * 发送 websocket 消息
      * @param obj 消息对象
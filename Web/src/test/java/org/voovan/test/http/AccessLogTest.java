@@ -0,0 +1,132 @@
+package org.voovan.test.http;
+
+import junit.framework.TestCase;
+import org.voovan.http.client.HttpClient;
+import org.voovan.http.server.WebServer;
+import org.voovan.http.server.context.WebContext;
+import org.voovan.http.server.context.WebServerConfig;
+import org.voovan.tools.TEnv;
+import org.voovan.tools.TFile;
+import org.voovan.tools.TString;
+import org.voovan.tools.json.JSON;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 结构化访问日志测试
+ *
+ * @author helyho
+ *
+ * Voovan Framework.
+ * WebSite: https://github.com/helyho/Voovan
+ * Licence: Apache v2 License
+ */
+public class AccessLogTest extends TestCase {
+
+    private static final String ACCESS_LOG_FILE = TFile.getContextPath() + File.separator + "logs" + File.separator + "access.log";
+    private static final String MARK = TString.generateShortUUID();
+
+    private static int port;
+
+    @Override
+    protected void setUp() throws Exception {
+        startServer();
+    }
+
+    //WebServer 停止时会关闭全局线程池, 所有测试共用同一个服务
+    private static synchronized void startServer() throws IOException {
+        if (port != 0) {
+            return;
+        }
+
+        try (ServerSocket serverSocket = new ServerSocket(0)) {
+            port = serverSocket.getLocalPort();
+        }
+
+        WebServerConfig config = WebContext.buildConfigFromJSON("{\"Port\": " + port + ", \"AccessLog\": true, " +
+                "\"AccessLogFormat\": \"JSON\", \"AccessLogSampleRate\": 0, \"AccessLogSlowThreshold\": 200, " +
+                "\"AccessLogRouteSampleRate\": {\"/sampled/:id\": 1}}");
+        WebServer webServer = WebServer.newInstance(config);
+        webServer.get("/skipped", (request, response) -> response.write("skipped"));
+        webServer.get("/sampled/:id", (request, response) -> response.write("sampled " + request.getParameter("id")));
+        webServer.get("/error", (request, response) -> response.protocol().setStatus(500));
+        webServer.get("/slow", (request, response) -> {
+            TEnv.sleep(300);
+            response.write("slow");
+        });
+        webServer.syncServe();
+        TEnv.sleep(500);
+    }
+
+    private static List<Map<String, Object>> readRecords(int count) {
+        List<Map<String, Object>> records = new ArrayList<Map<String, Object>>();
+        long start = System.currentTimeMillis();
+        while (records.size() < count && System.currentTimeMillis() - start < 5000) {
+            TEnv.sleep(100);
+            records.clear();
+            File file = new File(ACCESS_LOG_FILE);
+            if (!file.exists()) {
+                continue;
+            }
+
+            for (String line : new String(TFile.loadFile(file)).split("\n")) {
+                if (line.contains(MARK)) {
+                    records.add((Map<String, Object>) JSON.parse(line));
+                }
+            }
+        }
+        return records;
+    }
+
+    public void testSampling() throws Exception {
+        HttpClient httpClient = new HttpClient("http://127.0.0.1:" + port, 10);
+        try {
+            assertEquals("skipped", httpClient.send("/skipped?mark=" + MARK).body().getBodyString());
+            assertEquals("sampled 12", httpClient.send("/sampled/12?mark=" + MARK).body().getBodyString());
+            assertEquals(500, httpClient.send("/error?mark=" + MARK).protocol().getStatus());
+            assertEquals("slow", httpClient.send("/slow?mark=" + MARK).body().getBodyString());
+        } finally {
+            httpClient.close();
+        }
+
+        List<Map<String, Object>> records = readRecords(3);
+        assertEquals(3, records.size());
+
+        Map<String, Object> sampled = records.get(0);
+        assertEquals("/sampled/12", sampled.get("path"));
+        assertEquals("/sampled/:id", sampled.get("route"));
+        assertEquals("GET", sampled.get("method"));
+        assertEquals(200, ((Number) sampled.get("status")).intValue());
+        assertEquals(10, ((Number) sampled.get("bytesOut")).intValue());
+        assertTrue(((String) sampled.get("query")).contains(MARK));
+
+        assertEquals("/error", records.get(1).get("path"));
+        assertEquals(500, ((Number) records.get(1).get("status")).intValue());
+
+        assertEquals("/slow", records.get(2).get("path"));
+        assertTrue(((Number) records.get(2).get("latency")).longValue() >= 300000);
+    }
+
+    public void testSampleRate() {
+        WebServerConfig config = new WebServerConfig();
+        config.setAccessLogSampleRate(0);
+        config.getAccessLogRouteSampleRate().put("/half", 0.5);
+
+        assertFalse(WebContext.isAccessLogSampled(config, "/other", 200, 0));
+        assertTrue(WebContext.isAccessLogSampled(config, "/other", 503, 0));
+        assertTrue(WebContext.isAccessLogSampled(config, "/other", 200, 1000));
+
+        int count = 0;
+        for (int i = 0; i < 10000; i++) {
+            if (WebContext.isAccessLogSampled(config, "/half", 200, 0)) {
+                count++;
+            }
+        }
+        assertTrue(count > 4000 && count < 6000);
+    }
+}
@@ -0,0 +1,98 @@
+package org.voovan.test.http;
+
+import junit.framework.TestCase;
+import org.voovan.http.client.AsyncHttpClient;
+import org.voovan.http.message.Response;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 异步 HTTP 客户端测试
+ *
+ * @author helyho
+ *
+ * Voovan Framework.
+ * WebSite: https://github.com/helyho/Voovan
+ * Licence: Apache v2 License
+ */
+public class AsyncHttpClientTest extends TestCase {
+
+    private MockHttpServer server;
+
+    @Override
+    protected void setUp() throws Exception {
+        server = new MockHttpServer();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        server.close();
+    }
+
+    public void testConcurrentRequest() throws Exception {
+        try (AsyncHttpClient client = new AsyncHttpClient().maxConnectionsPerHost(4)) {
+            List<CompletableFuture<Response>> futures = new ArrayList<CompletableFuture<Response>>();
+            for (int i = 0; i < 100; i++) {
+                futures.add(client.get(server.url("/" + i + "?q=" + i)));
+            }
+
+            for (int i = 0; i < 100; i++) {
+                Response response = futures.get(i).get(10, TimeUnit.SECONDS);
+                assertEquals(200, response.protocol().getStatus());
+                assertEquals("OK/" + i + "?q=" + i, response.body().getBodyString());
+            }
+
+            //连接池按需扩容, 不超过单主机最大连接数
+            assertTrue(server.getConnectionCount() <= 4);
+            assertTrue(client.getConnectionPool("127.0.0.1", server.getPort(), false).size() <= 4);
+        }
+    }
+
+    public void testPipeline() throws Exception {
+        try (AsyncHttpClient client = new AsyncHttpClient().maxConnectionsPerHost(1).maxPipeline(8)) {
+            List<CompletableFuture<Response>> futures = new ArrayList<CompletableFuture<Response>>();
+            for (int i = 0; i < 50; i++) {
+                futures.add(client.get(server.url("/" + i)));
+            }
+
+            //同一个连接上的响应按请求顺序对应
+            for (int i = 0; i < 50; i++) {
+                assertEquals("OK/" + i, futures.get(i).get(10, TimeUnit.SECONDS).body().getBodyString());
+            }
+            assertEquals(1, server.getConnectionCount());
+        }
+    }
+
+    public void testTimeout() throws Exception {
+        server.setResponse(false);
+        try (AsyncHttpClient client = new AsyncHttpClient().timeout(300)) {
+            long start = System.currentTimeMillis();
+            try {
+                client.get(server.url("/timeout")).get(10, TimeUnit.SECONDS);
+                fail();
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof TimeoutException);
+            }
+            assertTrue(System.currentTimeMillis() - start < 5000);
+        }
+    }
+
+    public void testConnectFailed() throws Exception {
+        int port = server.getPort();
+        server.close();
+
+        try (AsyncHttpClient client = new AsyncHttpClient().timeout(3000)) {
+            try {
+                client.get("http://127.0.0.1:" + port + "/").get(10, TimeUnit.SECONDS);
+                fail();
+            } catch (ExecutionException e) {
+                assertNotNull(e.getCause());
+            }
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package org.voovan.test.http;
+
+import junit.framework.TestCase;
+import org.voovan.http.client.HttpBodyStream;
+import org.voovan.http.client.HttpClient;
+import org.voovan.http.message.Response;
+import org.voovan.tools.TZip;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * HttpClient 流式读取响应报文体测试
+ *
+ * @author helyho
+ *
+ * Voovan Framework.
+ * WebSite: https://github.com/helyho/Voovan
+ * Licence: Apache v2 License
+ */
+public class HttpBodyStreamTest extends TestCase {
+
+    private static final int BIG_SIZE = 64 * 1024 * 1024;
+
+    private MockHttpServer server;
+    private AtomicLong writtenSize = new AtomicLong(0);
+    private byte[] text;
+
+    @Override
+    protected void setUp() throws Exception {
+        StringBuilder stringBuilder = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            stringBuilder.append("line ").append(i).append("\r\n");
+        }
+        text = stringBuilder.toString().getBytes();
+
+        server = new MockHttpServer();
+        server.setResponseWriter((path, outputStream) -> {
+            if (path.startsWith("/big")) {
+                writeBig(outputStream);
+            } else if (path.startsWith("/gzip")) {
+                writeChunkedGzip(outputStream, text, 1000, false);
+            } else if (path.startsWith("/small")) {
+                writeChunkedGzip(outputStream, "small gzip body".getBytes(), 10, true);
+            } else {
+                String body = "OK" + path;
+                outputStream.write(("HTTP/1.1 200 OK\r\nContent-Type: text/plain\r\n" +
+                        "Content-Length: " + body.length() + "\r\n\r\n" + body).getBytes());
+            }
+        });
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        server.close();
+    }
+
+    private void writeBig(OutputStream outputStream) throws IOException {
+        outputStream.write(("HTTP/1.1 200 OK\r\nContent-Type: application/octet-stream\r\n" +
+                "Content-Length: " + BIG_SIZE + "\r\n\r\n").getBytes());
+        byte[] block = new byte[64 * 1024];
+        for (int i = 0; i < block.length; i++) {
+            block[i] = (byte) i;
+        }
+        for (int i = 0; i < BIG_SIZE / block.length; i++) {
+            outputStream.write(block);
+            writtenSize.addAndGet(block.length);
+        }
+    }
+
+    /**
+     * 输出 gzip 压缩的 chunked 响应
+     * @param singleWrite true: 整个响应一次写入, 包括结束块, false: 每个 chunk 单独写入
+     */
+    private void writeChunkedGzip(OutputStream outputStream, byte[] body, int chunkSize, boolean singleWrite) throws IOException {
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(byteArrayOutputStream)) {
+            gzipOutputStream.write(body);
+        }
+        byte[] gzipBytes = byteArrayOutputStream.toByteArray();
+
+        ByteArrayOutputStream responseStream = new ByteArrayOutputStream();
+        OutputStream output = singleWrite ? responseStream : outputStream;
+        output.write(("HTTP/1.1 200 OK\r\nContent-Type: text/plain\r\n" +
+                "Content-Encoding: gzip\r\nTransfer-Encoding: chunked\r\n\r\n").getBytes());
+        for (int i = 0; i < gzipBytes.length; i += chunkSize) {
+            int length = Math.min(chunkSize, gzipBytes.length - i);
+            output.write((Integer.toHexString(length) + "\r\n").getBytes());
+            output.write(gzipBytes, i, length);
+            output.write("\r\n".getBytes());
+            output.flush();
+        }
+        output.write("0\r\n\r\n".getBytes());
+
+        if (singleWrite) {
+            outputStream.write(responseStream.toByteArray());
+        }
+    }
+
+    public void testContentLength() throws Exception {
+        HttpClient httpClient = new HttpClient(server.url("/"), 10);
+        try {
+            HttpBodyStream httpBodyStream = httpClient.sendStream("/big");
+            assertEquals(200, httpBodyStream.getResponse().protocol().getStatus());
+
+            //不读取时服务端因流控无法写完
+            Thread.sleep(500);
+            assertTrue(writtenSize.get() < BIG_SIZE);
+
+            long readSize = 0;
+            byte[] buffer = new byte[8192];
+            int size;
+            while ((size = httpBodyStream.read(buffer)) != -1) {
+                for (int i = 0; i < size; i++) {
+                    assertEquals((byte) (readSize + i), buffer[i]);
+                }
+                readSize += size;
+            }
+            assertEquals(BIG_SIZE, readSize);
+            assertFalse(httpBodyStream.isOpen());
+
+            //读取完成后连接可以继续使用
+            assertEquals("OK/after", httpClient.send("/after").body().getBodyString());
+            assertEquals(1, server.getConnectionCount());
+        } finally {
+            httpClient.close();
+        }
+    }
+
+    public void testChunkedGzip() throws Exception {
+        HttpClient httpClient = new HttpClient(server.url("/"), 10);
+        try {
+            ByteArrayOutputStream result = new ByteArrayOutputStream();
+            try (HttpBodyStream httpBodyStream = httpClient.sendStream("/gzip")) {
+                byte[] buffer = new byte[100];
+                int size;
+                while ((size = httpBodyStream.read(buffer)) != -1) {
+                    result.write(buffer, 0, size);
+                }
+            }
+            assertEquals(new String(text), new String(result.toByteArray()));
+            assertEquals("OK/after", httpClient.send("/after").body().getBodyString());
+        } finally {
+            httpClient.close();
+        }
+    }
+
+    public void testChunkedGzipKeepAlive() throws Exception {
+        HttpClient httpClient = new HttpClient(server.url("/"), 10);
+        try {
+            for (int i = 0; i < 3; i++) {
+                //原始报文体, 下一个 chunk 已在缓冲区中时 available 不为 0
+                ByteArrayOutputStream raw = new ByteArrayOutputStream();
+                try (HttpBodyStream httpBodyStream = httpClient.sendStream("/small", false)) {
+                    byte[] buffer = new byte[100];
+                    int size = httpBodyStream.read(buffer);
+                    assertEquals(10, size);
+                    raw.write(buffer, 0, size);
+                    assertEquals(10, httpBodyStream.available());
+
+                    while ((size = httpBodyStream.read(buffer)) != -1) {
+                        raw.write(buffer, 0, size);
+                    }
+                    assertFalse(httpBodyStream.isOpen());
+                }
+                assertEquals("small gzip body", new String(TZip.decodeGZip(raw.toByteArray())));
+
+                //解压的流在 gzip 数据结束时读取 chunked 的结束块, 连接可以继续使用
+                ByteArrayOutputStream result = new ByteArrayOutputStream();
+                try (HttpBodyStream httpBodyStream = httpClient.sendStream("/small")) {
+                    byte[] buffer = new byte[100];
+                    int size;
+                    while ((size = httpBodyStream.read(buffer)) != -1) {
+                        result.write(buffer, 0, size);
+                    }
+                    assertFalse(httpBodyStream.isOpen());
+                }
+                assertEquals("small gzip body", new String(result.toByteArray()));
+                assertTrue(httpClient.isKeepAlive());
+                assertEquals("OK/after" + i, httpClient.send("/after" + i).body().getBodyString());
+            }
+            assertEquals(1, server.getConnectionCount());
+        } finally {
+            httpClient.close();
+        }
+    }
+
+    public void testCallback() throws Exception {
+        HttpClient httpClient = new HttpClient(server.url("/"), 10);
+        try {
+            ByteArrayOutputStream result = new ByteArrayOutputStream();
+            Response response = httpClient.sendStream("/gzip", (ByteBuffer byteBuffer) -> {
+                result.write(byteBuffer.array(), byteBuffer.position(), byteBuffer.remaining());
+            });
+            assertEquals("gzip", response.header().get("Content-Encoding"));
+            assertEquals(text.length, result.size());
+            assertTrue(httpClient.isKeepAlive());
+        } finally {
+            httpClient.close();
+        }
+    }
+
+    public void testCloseEarly() throws Exception {
+        HttpClient httpClient = new HttpClient(server.url("/"), 10);
+        try {
+            HttpBodyStream httpBodyStream = httpClient.sendStream("/big");
+            assertTrue(httpBodyStream.read(new byte[1024]) > 0);
+
+            //未读完就关闭时连接不能复用
+            httpBodyStream.close();
+            assertFalse(httpClient.isKeepAlive());
+            assertFalse(httpClient.isConnect());
+        } finally {
+            httpClient.close();
+        }
+    }
+}
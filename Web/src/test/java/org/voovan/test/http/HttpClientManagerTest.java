@@ -0,0 +1,140 @@
+package org.voovan.test.http;
+
+import junit.framework.TestCase;
+import org.voovan.http.client.HttpClient;
+import org.voovan.http.client.HttpClientManager;
+
+import java.io.IOException;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * HttpClient 连接管理器测试
+ *
+ * @author helyho
+ *
+ * Voovan Framework.
+ * WebSite: https://github.com/helyho/Voovan
+ * Licence: Apache v2 License
+ */
+public class HttpClientManagerTest extends TestCase {
+
+    private MockHttpServer server;
+
+    @Override
+    protected void setUp() throws Exception {
+        server = new MockHttpServer();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        server.close();
+    }
+
+    public void testReuse() throws Exception {
+        try (HttpClientManager manager = new HttpClientManager()) {
+            HttpClient httpClient = manager.lease(server.url("/"), 1000);
+            assertEquals("OK/a", httpClient.send("/a").body().getBodyString());
+            assertEquals(1, manager.getLeasedSize());
+            manager.release(httpClient);
+            assertEquals(0, manager.getLeasedSize());
+            assertEquals(1, manager.getIdleSize());
+
+            //同一路由复用空闲连接
+            assertSame(httpClient, manager.lease(server.url("/other"), 1000));
+            assertEquals("OK/b", httpClient.send("/b").body().getBodyString());
+            manager.release(httpClient);
+            assertEquals(1, server.getConnectionCount());
+            assertEquals(1, manager.getRoute(server.url("/")).getIdleSize());
+        }
+    }
+
+    public void testConnectionClose() throws Exception {
+        server.setExtraHeader("Connection: close\r\n");
+        try (HttpClientManager manager = new HttpClientManager()) {
+            HttpClient httpClient = manager.lease(server.url("/"), 1000);
+            httpClient.send("/");
+            assertFalse(httpClient.isKeepAlive());
+
+            //服务端不允许复用的连接在归还时关闭
+            manager.release(httpClient);
+            assertEquals(0, manager.getIdleSize());
+            assertEquals(0, manager.size());
+        }
+    }
+
+    public void testKeepAliveTimeout() throws Exception {
+        server.setExtraHeader("Keep-Alive: timeout=1, max=100\r\n");
+        try (HttpClientManager manager = new HttpClientManager()) {
+            HttpClient httpClient = manager.lease(server.url("/"), 1000);
+            httpClient.send("/");
+            assertEquals(1, httpClient.getKeepAliveTimeout());
+            manager.release(httpClient);
+            assertEquals(1, manager.getIdleSize());
+
+            //超过服务端声明的空闲时间后不再复用
+            Thread.sleep(1200);
+            HttpClient newHttpClient = manager.lease(server.url("/"), 1000);
+            assertNotSame(httpClient, newHttpClient);
+            manager.release(newHttpClient);
+        }
+    }
+
+    public void testMaxPerRoute() throws Exception {
+        try (HttpClientManager manager = new HttpClientManager().maxPerRoute(1)) {
+            HttpClient httpClient = manager.lease(server.url("/"), 1000);
+
+            long start = System.currentTimeMillis();
+            try {
+                manager.lease(server.url("/"), 200);
+                fail();
+            } catch (TimeoutException e) {
+                assertTrue(System.currentTimeMillis() - start >= 190);
+            }
+
+            //等待的请求在连接归还后获得连接
+            HttpClient[] result = new HttpClient[1];
+            Thread thread = new Thread(() -> {
+                try {
+                    result[0] = manager.lease(server.url("/"), 5000);
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            });
+            thread.start();
+
+            for (int i = 0; i < 50 && manager.getPendingSize() == 0; i++) {
+                Thread.sleep(10);
+            }
+            assertEquals(1, manager.getPendingSize());
+
+            manager.release(httpClient);
+            thread.join();
+            assertSame(httpClient, result[0]);
+            assertEquals(0, manager.getPendingSize());
+        }
+    }
+
+    public void testConnectFailed() throws Exception {
+        String url = server.url("/");
+        server.close();
+
+        try (HttpClientManager manager = new HttpClientManager().timeout(1).connectRetryInterval(5000)) {
+            try {
+                manager.lease(url, 1000);
+                fail();
+            } catch (IOException e) {
+                //连接失败
+            }
+
+            //重试间隔内直接失败, 不再建立连接
+            long start = System.currentTimeMillis();
+            try {
+                manager.lease(url, 1000);
+                fail();
+            } catch (IOException e) {
+                assertTrue(System.currentTimeMillis() - start < 100);
+            }
+            assertEquals(0, manager.size());
+        }
+    }
+}
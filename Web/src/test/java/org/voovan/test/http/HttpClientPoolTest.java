@@ -0,0 +1,63 @@
+package org.voovan.test.http;
+
+import junit.framework.TestCase;
+import org.voovan.http.client.HttpClient;
+import org.voovan.http.client.HttpClientPool;
+
+import java.net.ConnectException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HttpClient 连接池测试
+ *
+ * @author helyho
+ *
+ * Voovan Framework.
+ * WebSite: https://github.com/helyho/Voovan
+ * Licence: Apache v2 License
+ */
+public class HttpClientPoolTest extends TestCase {
+
+    public void testBorrow() throws Exception {
+        MockHttpServer server = new MockHttpServer();
+        try {
+            HttpClientPool httpClientPool = new HttpClientPool(server.url(""), 1, 1, 1);
+            assertEquals(1, httpClientPool.getPool().size());
+
+            HttpClient httpClient = httpClientPool.getHttpClient(1, TimeUnit.SECONDS);
+            assertEquals("OK/a", httpClient.send("/a").body().getBodyString());
+            httpClientPool.restitution(httpClient);
+            assertSame(httpClient, httpClientPool.getHttpClient());
+            httpClientPool.restitution(httpClient);
+        } finally {
+            server.close();
+        }
+    }
+
+    public void testConnectFailed() throws Exception {
+        MockHttpServer server = new MockHttpServer();
+        String url = server.url("");
+        server.close();
+
+        //初始化连接失败时不抛出异常
+        HttpClientPool httpClientPool = new HttpClientPool(url, 1, 1, 1);
+        assertEquals(0, httpClientPool.getPool().size());
+
+        try {
+            httpClientPool.getHttpClient(1, TimeUnit.SECONDS);
+            fail();
+        } catch (ConnectException e) {
+            //连接失败
+        }
+
+        try {
+            httpClientPool.getHttpClient();
+            fail();
+        } catch (ConnectException e) {
+            //连接失败
+        }
+
+        //连接失败不占用连接池的容量
+        assertEquals(0, httpClientPool.getPool().size());
+    }
+}
@@ -0,0 +1,132 @@
+package org.voovan.test.http;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 测试用的简单 HTTP 服务
+ *      按请求顺序响应 "OK" + 请求路径, 支持流水线请求
+ *
+ * @author helyho
+ *
+ * Voovan Framework.
+ * WebSite: https://github.com/helyho/Voovan
+ * Licence: Apache v2 License
+ */
+public class MockHttpServer implements Closeable {
+
+    private ServerSocket serverSocket;
+    private AtomicInteger connectionCount = new AtomicInteger(0);
+    private volatile boolean response = true;
+    private volatile String extraHeader = "";
+    private volatile ResponseWriter responseWriter;
+
+    /**
+     * 自定义响应的输出
+     */
+    public interface ResponseWriter {
+        void write(String path, OutputStream outputStream) throws IOException;
+    }
+
+    public MockHttpServer() throws IOException {
+        serverSocket = new ServerSocket(0);
+        Thread acceptThread = new Thread(() -> {
+            while (!serverSocket.isClosed()) {
+                try {
+                    Socket socket = serverSocket.accept();
+                    connectionCount.incrementAndGet();
+                    Thread thread = new Thread(() -> serve(socket));
+                    thread.setDaemon(true);
+                    thread.start();
+                } catch (IOException e) {
+                    break;
+                }
+            }
+        });
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+    }
+
+    private void serve(Socket socket) {
+        try (Socket closeable = socket) {
+            InputStream inputStream = socket.getInputStream();
+            OutputStream outputStream = socket.getOutputStream();
+            StringBuilder head = new StringBuilder();
+            int b;
+            while ((b = inputStream.read()) != -1) {
+                head.append((char) b);
+                if (head.length() >= 4 && head.lastIndexOf("\r\n\r\n") == head.length() - 4) {
+                    String path = head.substring(head.indexOf(" ") + 1, head.indexOf(" HTTP/"));
+                    head.setLength(0);
+                    if (!response) {
+                        continue;
+                    }
+
+                    if (responseWriter != null) {
+                        responseWriter.write(path, outputStream);
+                        outputStream.flush();
+                        continue;
+                    }
+
+                    String header = extraHeader;
+                    String body = "OK" + path;
+                    outputStream.write(("HTTP/1.1 200 OK\r\nContent-Type: text/plain\r\n" + header +
+                            "Content-Length: " + body.length() + "\r\n\r\n" + body).getBytes());
+                    outputStream.flush();
+
+                    if (header.contains("Connection: close")) {
+                        break;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            //连接关闭
+        }
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public String url(String path) {
+        return "http://127.0.0.1:" + getPort() + path;
+    }
+
+    public int getConnectionCount() {
+        return connectionCount.get();
+    }
+
+    /**
+     * 设置是否响应请求
+     * @param response true: 响应, false: 不响应
+     */
+    public void setResponse(boolean response) {
+        this.response = response;
+    }
+
+    /**
+     * 设置附加的响应头
+     * @param extraHeader 响应头, 每行以 \r\n 结尾
+     */
+    public void setExtraHeader(String extraHeader) {
+        this.extraHeader = extraHeader;
+    }
+
+    /**
+     * 设置自定义响应的输出, 设置后不再使用默认的响应
+     * @param responseWriter 自定义响应的输出
+     */
+    public void setResponseWriter(ResponseWriter responseWriter) {
+        this.responseWriter = responseWriter;
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+    }
+}
@@ -0,0 +1,290 @@
+package org.voovan.test.http;
+
+import junit.framework.TestCase;
+import org.voovan.http.client.HttpBodyStream;
+import org.voovan.http.client.HttpClient;
+import org.voovan.http.message.Response;
+import org.voovan.http.server.WebServer;
+import org.voovan.http.server.router.ProxyRouter;
+import org.voovan.http.server.router.ProxyWebSocketRouter;
+import org.voovan.http.server.router.UpstreamPool;
+import org.voovan.http.websocket.WebSocketRouter;
+import org.voovan.http.websocket.WebSocketSession;
+import org.voovan.tools.TEnv;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 反向代理路由测试
+ *
+ * @author helyho
+ *
+ * Voovan Framework.
+ * WebSite: https://github.com/helyho/Voovan
+ * Licence: Apache v2 License
+ */
+public class ProxyRouterTest extends TestCase {
+
+    private static final int BIG_SIZE = 8 * 1024 * 1024;
+
+    private static MockHttpServer upstreamServer;
+    private static String deadUpstream;
+    private static int proxyPort;
+
+    @Override
+    protected void setUp() throws Exception {
+        startServers();
+    }
+
+    //WebServer 停止时会关闭全局线程池, 所有测试共用同一组服务
+    private static synchronized void startServers() throws IOException {
+        if (upstreamServer != null) {
+            return;
+        }
+
+        upstreamServer = new MockHttpServer();
+        upstreamServer.setResponseWriter(ProxyRouterTest::writeResponse);
+        deadUpstream = "http://127.0.0.1:" + freePort();
+        proxyPort = freePort();
+
+        WebServer webServer = WebServer.newInstance(proxyPort);
+        //WebSocket 上游服务, 按收到的帧类型回显
+        webServer.socket("/echo", new WebSocketRouter() {
+            @Override
+            public Object onOpen(WebSocketSession session) {
+                return null;
+            }
+
+            @Override
+            public Object onRecived(WebSocketSession session, Object obj) {
+                try {
+                    if (session.isBinary()) {
+                        session.sendBinary(obj);
+                    } else {
+                        session.send(obj);
+                    }
+                } catch (Exception e) {
+                    session.close();
+                }
+                return null;
+            }
+
+            @Override
+            public void onSent(WebSocketSession session, Object obj) {
+            }
+
+            @Override
+            public void onClose(WebSocketSession session) {
+            }
+        });
+
+        Map<String, Object> config = new HashMap<String, Object>();
+        config.put("Upstreams", upstreamServer.url("/"));
+        config.put("StripPrefix", "/api");
+
+        webServer.get("/api/*", new ProxyRouter(config));
+        webServer.get("/failover/*", new ProxyRouter(new UpstreamPool().addUpstream(deadUpstream)
+                .addUpstream(upstreamServer.url("/")).timeout(5)).stripPrefix("/failover"));
+        webServer.get("/down/*", new ProxyRouter(new UpstreamPool().addUpstream(deadUpstream).timeout(5)));
+        webServer.socket("/ws/*", new ProxyWebSocketRouter(new UpstreamPool().addUpstream(proxyUrl())
+                .timeout(5)).stripPrefix("/ws"));
+        webServer.syncServe();
+        TEnv.sleep(500);
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket serverSocket = new ServerSocket(0)) {
+            return serverSocket.getLocalPort();
+        }
+    }
+
+    private static void writeResponse(String path, OutputStream outputStream) throws IOException {
+        if (path.startsWith("/chunked")) {
+            outputStream.write(("HTTP/1.1 200 OK\r\nContent-Type: application/octet-stream\r\n" +
+                    "Set-Cookie: upstream=1; Path=/\r\nTransfer-Encoding: chunked\r\n\r\n").getBytes());
+            byte[] block = new byte[32 * 1024];
+            for (int i = 0; i < block.length; i++) {
+                block[i] = (byte) i;
+            }
+            for (int i = 0; i < BIG_SIZE / block.length; i++) {
+                outputStream.write((Integer.toHexString(block.length) + "\r\n").getBytes());
+                outputStream.write(block);
+                outputStream.write("\r\n".getBytes());
+            }
+            outputStream.write("0\r\n\r\n".getBytes());
+        } else {
+            String body = "OK" + path;
+            outputStream.write(("HTTP/1.1 200 OK\r\nContent-Type: text/plain\r\nX-Upstream: mock\r\n" +
+                    "Content-Length: " + body.length() + "\r\n\r\n" + body).getBytes());
+        }
+    }
+
+    private static String proxyUrl() {
+        return "http://127.0.0.1:" + proxyPort;
+    }
+
+    public void testForward() throws Exception {
+        HttpClient httpClient = new HttpClient(proxyUrl(), 10);
+        try {
+            Response response = httpClient.send("/api/hello?name=voovan");
+            assertEquals(200, response.protocol().getStatus());
+            assertEquals("OK/hello?name=voovan", response.body().getBodyString());
+            assertEquals("mock", response.header().get("X-Upstream"));
+
+            //客户端连接保持
+            assertEquals("OK/second", httpClient.send("/api/second").body().getBodyString());
+            assertTrue(httpClient.isKeepAlive());
+        } finally {
+            httpClient.close();
+        }
+    }
+
+    public void testChunkedStream() throws Exception {
+        HttpClient httpClient = new HttpClient(proxyUrl(), 10);
+        try {
+            HttpBodyStream httpBodyStream = httpClient.sendStream("/api/chunked");
+            Response response = httpBodyStream.getResponse();
+            assertEquals(200, response.protocol().getStatus());
+            assertEquals("chunked", response.header().get("Transfer-Encoding"));
+            assertEquals("upstream", response.cookies().get(0).getName());
+
+            long readSize = 0;
+            byte[] buffer = new byte[8192];
+            int size;
+            while ((size = httpBodyStream.read(buffer)) != -1) {
+                for (int i = 0; i < size; i++) {
+                    assertEquals((byte) (readSize + i), buffer[i]);
+                }
+                readSize += size;
+            }
+            assertEquals(BIG_SIZE, readSize);
+            assertEquals("OK/after", httpClient.send("/api/after").body().getBodyString());
+        } finally {
+            httpClient.close();
+        }
+    }
+
+    public void testFailover() throws Exception {
+        HttpClient httpClient = new HttpClient(proxyUrl(), 10);
+        try {
+            for (int i = 0; i < 4; i++) {
+                Response response = httpClient.send("/failover/retry" + i);
+                assertEquals(200, response.protocol().getStatus());
+                assertEquals("OK/retry" + i, response.body().getBodyString());
+            }
+        } finally {
+            httpClient.close();
+        }
+    }
+
+    public void testWebSocket() throws Exception {
+        LinkedBlockingQueue<Object[]> messages = new LinkedBlockingQueue<Object[]>();
+        HttpClient httpClient = new HttpClient(proxyUrl(), 10);
+        Thread thread = new Thread(() -> {
+            try {
+                httpClient.webSocket("/ws/echo", new WebSocketRouter() {
+                    @Override
+                    public Object onOpen(WebSocketSession session) {
+                        //上游连接建立前发送的消息会积压在代理中
+                        try {
+                            session.send(ByteBuffer.wrap("text".getBytes()));
+                            session.sendBinary(new byte[]{0, 1, 2, (byte) 0xFF});
+                        } catch (Exception e) {
+                            session.close();
+                        }
+                        return null;
+                    }
+
+                    @Override
+                    public Object onRecived(WebSocketSession session, Object obj) {
+                        ByteBuffer byteBuffer = (ByteBuffer) obj;
+                        byte[] bytes = new byte[byteBuffer.remaining()];
+                        byteBuffer.get(bytes);
+                        messages.add(new Object[]{session.isBinary(), bytes});
+                        return null;
+                    }
+
+                    @Override
+                    public void onSent(WebSocketSession session, Object obj) {
+                    }
+
+                    @Override
+                    public void onClose(WebSocketSession session) {
+                    }
+                });
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+
+        try {
+            Object[] message = messages.poll(10, TimeUnit.SECONDS);
+            assertNotNull(message);
+            assertEquals(false, message[0]);
+            assertEquals("text", new String((byte[]) message[1]));
+
+            message = messages.poll(10, TimeUnit.SECONDS);
+            assertNotNull(message);
+            assertEquals(true, message[0]);
+            assertTrue(Arrays.equals(new byte[]{0, 1, 2, (byte) 0xFF}, (byte[]) message[1]));
+        } finally {
+            httpClient.close();
+        }
+    }
+
+    public void testBadGateway() throws Exception {
+        HttpClient httpClient = new HttpClient(proxyUrl(), 10);
+        try {
+            Response response = httpClient.send("/down/test");
+            assertEquals(502, response.protocol().getStatus());
+        } finally {
+            httpClient.close();
+        }
+    }
+
+    public void testSelect() throws Exception {
+        UpstreamPool upstreamPool = new UpstreamPool().addUpstream("http://127.0.0.1:1")
+                .addUpstream("http://127.0.0.1:2/").maxFails(1);
+        List<UpstreamPool.Upstream> upstreams = upstreamPool.getUpstreams();
+        assertEquals("http://127.0.0.1:2", upstreams.get(1).getUrl());
+
+        //轮询
+        assertSame(upstreams.get(0), upstreamPool.select(null, null));
+        assertSame(upstreams.get(1), upstreamPool.select(null, null));
+
+        //最少活跃请求
+        upstreamPool.strategy(UpstreamPool.Strategy.LEAST_CONNECTIONS);
+        upstreams.get(0).begin();
+        assertSame(upstreams.get(1), upstreamPool.select(null, null));
+
+        //未发送到上游服务的请求不计入失败
+        upstreams.get(0).cancel();
+        assertEquals(0, upstreams.get(0).getFails());
+        assertEquals(0, upstreams.get(0).getActive());
+
+        //失败后不再被选择
+        upstreams.get(0).begin();
+        upstreams.get(0).end(false);
+        upstreamPool.strategy(UpstreamPool.Strategy.IP_HASH);
+        for (int i = 0; i < 10; i++) {
+            assertSame(upstreams.get(1), upstreamPool.select("10.0.0." + i, null));
+        }
+
+        //排除后没有可用的上游服务
+        List<UpstreamPool.Upstream> excludes = new ArrayList<UpstreamPool.Upstream>();
+        excludes.add(upstreams.get(1));
+        assertNull(upstreamPool.select("10.0.0.1", excludes));
+    }
+}